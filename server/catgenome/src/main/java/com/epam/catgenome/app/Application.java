@@ -2,6 +2,7 @@ package com.epam.catgenome.app;
 
 import java.io.PrintStream;
 
+import com.epam.catgenome.util.CloudBlockCache;
 import com.epam.catgenome.util.NgbSeekableStreamFactory;
 import com.epam.catgenome.util.aws.S3Client;
 import com.epam.catgenome.util.azure.AzureBlobClient;
@@ -80,6 +81,16 @@ public class Application extends SpringBootServletInitializer {
         return S3Client.configure(swsEndpoint, swsRegion, isPathStyleAccess);
     }
 
+    @Bean
+    CloudBlockCache cloudBlockCache(
+            @Value("#{catgenome['cloud.block.cache.enabled'] ?: true}") final boolean enabled,
+            @Value("#{catgenome['cloud.block.cache.size.mb'] ?: 256}") final int cacheSizeMb,
+            @Value("#{catgenome['cloud.block.cache.block.size'] ?: 262144}") final int blockSize,
+            @Value("#{catgenome['cloud.block.cache.read.ahead.blocks'] ?: 4}") final int readAheadBlocks,
+            @Value("#{catgenome['cloud.block.cache.threads'] ?: 4}") final int threads) {
+        return CloudBlockCache.configure(enabled, cacheSizeMb, blockSize, readAheadBlocks, threads);
+    }
+
     @Bean
     public AzureBlobClient azureBlobClient(@Value("${azure.storage.account:}") final String storageAccount,
                                            @Value("${azure.storage.key:}") final String storageKey) {
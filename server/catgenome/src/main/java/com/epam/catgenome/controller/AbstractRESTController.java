@@ -33,6 +33,7 @@ import java.io.OutputStream;
 import java.util.Objects;
 import java.util.UUID;
 
+import htsjdk.samtools.util.BlockCompressedOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -155,4 +156,20 @@ public abstract class AbstractRESTController {
             response.flushBuffer();
         }
     }
+
+    /**
+     * Opens an output stream of {@code HttpServletResponse} to write exported data directly to the client.
+     * If compression is requested, data is written in BGZF format, that can be read by any gzip
+     * compatible tool. Returned stream should be closed after all data is written
+     * @param response to write data
+     * @param compressed specifies if data should be compressed
+     * @return an output stream of response
+     */
+    protected OutputStream openExportStream(final HttpServletResponse response,
+                                            final boolean compressed) throws IOException {
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        return compressed
+                ? new BlockCompressedOutputStream(response.getOutputStream(), (File) null)
+                : response.getOutputStream();
+    }
 }
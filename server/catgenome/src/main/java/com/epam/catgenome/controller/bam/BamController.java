@@ -32,6 +32,8 @@ import java.io.IOException;
 import com.epam.catgenome.entity.bam.BamFile;
 import com.epam.catgenome.entity.bam.Read;
 import com.epam.catgenome.manager.bam.BamSecurityService;
+import com.epam.catgenome.manager.bam.BamTrackEmitter;
+import com.epam.catgenome.manager.parallel.TrackTaskScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -39,6 +41,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -136,26 +139,30 @@ public class BamController extends AbstractRESTController {
                     "6) <b>mode</b> controls BAM display mode: REGIONS - return only regions of possible read " +
                     "location; <br/>" +
                     "COVERAGE - return only BAM coverage;<br/>" +
-                    "FULL - return both reads and coverage",
-            produces = MediaType.APPLICATION_JSON_VALUE)
+                    "FULL - return both reads and coverage<br/><br/>" +
+                    "The response is encoded as binary Smile JSON, if 'application/x-jackson-smile' is requested " +
+                    "in the Accept header.",
+            produces = MediaType.APPLICATION_JSON_VALUE + ", " + BamTrackEmitter.SMILE_MEDIA_TYPE)
     @ApiResponses(
             value = {@ApiResponse(code = HTTP_STATUS_OK, message = API_STATUS_DESCRIPTION)
             })
     public final ResponseEntity<ResponseBodyEmitter> loadTrackStream(
             @RequestBody final TrackQuery query,
             @RequestParam(required = false) final String fileUrl,
-            @RequestParam(required = false) final String indexUrl)
+            @RequestParam(required = false) final String indexUrl,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept)
             throws IOException {
 
         final ResponseBodyEmitter emitter = new ResponseBodyEmitter(EMITTER_TIMEOUT);
+        final BamTrackEmitter.Format format = BamTrackEmitter.Format.fromAcceptHeader(accept);
         if (fileUrl == null) {
-            bamSecurityService.sendBamTrackToEmitter(convertToTrack(query), query.getOption(), emitter);
+            bamSecurityService.sendBamTrackToEmitter(convertToTrack(query), query.getOption(), emitter, format);
         } else {
             bamSecurityService.sendBamTrackToEmitterFromUrl(convertToTrack(query), query.getOption(), fileUrl,
-                    indexUrl, emitter);
+                    indexUrl, emitter, format);
         }
         HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        responseHeaders.setContentType(format.getMediaType());
         return new ResponseEntity<>(emitter, responseHeaders, HttpStatus.OK);
     }
 
@@ -204,4 +211,18 @@ public class BamController extends AbstractRESTController {
                                  @RequestParam(required = false) final String indexUrl) throws IOException {
         return Result.success(bamSecurityService.loadRead(query, fileUrl, indexUrl));
     }
+
+    @ResponseBody
+    @RequestMapping(value = "/bam/tasks/statistics", method = RequestMethod.GET)
+    @ApiOperation(
+        value = "Returns load metrics of BAM track loading",
+        notes = "Provides number of queued, active, completed, failed and rejected BAM track loading tasks and " +
+                "average and maximum wait and execution time of a task in milliseconds",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(
+        value = {@ApiResponse(code = HTTP_STATUS_OK, message = API_STATUS_DESCRIPTION)
+        })
+    public Result<TrackTaskScheduler.Statistics> loadTrackTaskStatistics() {
+        return Result.success(bamSecurityService.getTrackTaskStatistics());
+    }
 }
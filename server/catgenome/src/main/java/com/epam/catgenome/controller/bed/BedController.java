@@ -156,6 +156,44 @@ public class BedController extends AbstractRESTController {
         return Result.success(bedSecurityService.loadHistogram(histogramTrack));
     }
 
+    @RequestMapping(value = "/bed/{trackId}/{chromosomeId}/next", method = RequestMethod.GET)
+    @ResponseBody
+    @ApiOperation(
+            value = "Returns the next feature for a given track",
+            notes = "Returns the next feature for a given track in a given chromosome. <br/>" +
+                    "Searches from given parameter 'fromPosition' (required)",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(
+            value = {@ApiResponse(code = HTTP_STATUS_OK, message = API_STATUS_DESCRIPTION)
+            })
+    public Result<BedRecord> jumpToNextFeature(@RequestParam int fromPosition,
+                                               @PathVariable(value = "trackId") long bedFileId,
+                                               @PathVariable(value = "chromosomeId") long chromosomeId,
+                                               @RequestParam(required = false) Long projectId)
+            throws FeatureFileReadingException {
+        return Result.success(bedSecurityService.getNextOrPreviousFeature(
+                fromPosition, bedFileId, chromosomeId, true, projectId));
+    }
+
+    @RequestMapping(value = "/bed/{trackId}/{chromosomeId}/prev", method = RequestMethod.GET)
+    @ResponseBody
+    @ApiOperation(
+            value = "Returns the previous feature for a given track",
+            notes = "Returns the previous feature for a given track in a given chromosome. <br/>" +
+                    "Searches from given parameter 'fromPosition' (required)",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(
+            value = {@ApiResponse(code = HTTP_STATUS_OK, message = API_STATUS_DESCRIPTION)
+            })
+    public Result<BedRecord> jumpToPrevFeature(@RequestParam int fromPosition,
+                                               @PathVariable(value = "trackId") long bedFileId,
+                                               @PathVariable(value = "chromosomeId") long chromosomeId,
+                                               @RequestParam(required = false) Long projectId)
+            throws FeatureFileReadingException {
+        return Result.success(bedSecurityService.getNextOrPreviousFeature(
+                fromPosition, bedFileId, chromosomeId, false, projectId));
+    }
+
     @ResponseBody
     @RequestMapping(value = "/bed/{bedFileId}/index", method = RequestMethod.GET)
     @ApiOperation(value = "Rebuilds a BED feature index",
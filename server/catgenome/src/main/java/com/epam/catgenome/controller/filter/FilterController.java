@@ -25,6 +25,7 @@
 package com.epam.catgenome.controller.filter;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -219,10 +220,11 @@ public class FilterController extends AbstractRESTController {
     public void exportVcf(@RequestBody final VcfExportFilterForm filterForm,
                           @RequestParam final FileFormat format,
                           @RequestParam final boolean includeHeader,
+                          @RequestParam(required = false, defaultValue = "false") final boolean compressed,
                           HttpServletResponse response) throws IOException {
-        byte[] bytes = featureIndexSecurityService.exportVariations(filterForm, format, includeHeader);
-        response.getOutputStream().write(bytes);
-        response.flushBuffer();
+        try (OutputStream outputStream = openExportStream(response, compressed)) {
+            featureIndexSecurityService.exportVariations(filterForm, format, includeHeader, outputStream);
+        }
     }
 
     @RequestMapping(value = "/filter/group", method = RequestMethod.POST)
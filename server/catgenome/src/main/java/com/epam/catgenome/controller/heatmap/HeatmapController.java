@@ -28,6 +28,7 @@ import com.epam.catgenome.controller.AbstractRESTController;
 import com.epam.catgenome.controller.Result;
 import com.epam.catgenome.controller.vo.registration.HeatmapRegistrationRequest;
 import com.epam.catgenome.entity.heatmap.Heatmap;
+import com.epam.catgenome.entity.heatmap.HeatmapRegion;
 import com.epam.catgenome.entity.heatmap.HeatmapTree;
 import com.epam.catgenome.manager.heatmap.HeatmapSecurityService;
 import com.wordnik.swagger.annotations.Api;
@@ -94,6 +95,29 @@ public class HeatmapController extends AbstractRESTController {
         return Result.success(heatmapSecurityService.getContent(heatmapId, projectId));
     }
 
+    @GetMapping(value = "/heatmap/{heatmapId}/content/region")
+    @ApiOperation(
+            value = "Returns a window of heatmap content",
+            notes = "Returns a window of heatmap content at a zoom level. Row and column indexes are 0-based and " +
+                    "inclusive. Each cell of a zoom level aggregates 2^level x 2^level original cells: numeric " +
+                    "cells hold the mean of present values, string cells hold one of present values. If a level " +
+                    "isn't specified, the most detailed level with a limited size of a window is used.",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(
+            value = {@ApiResponse(code = HTTP_STATUS_OK, message = API_STATUS_DESCRIPTION)
+            })
+    public Result<HeatmapRegion> getContentRegion(@PathVariable final long heatmapId,
+                                                  @RequestParam final int startRow,
+                                                  @RequestParam final int endRow,
+                                                  @RequestParam final int startColumn,
+                                                  @RequestParam final int endColumn,
+                                                  @RequestParam(required = false) final Integer level,
+                                                  @RequestParam(required = false) final Long projectId)
+            throws IOException {
+        return Result.success(heatmapSecurityService.getContentRegion(heatmapId, projectId,
+                startRow, endRow, startColumn, endColumn, level));
+    }
+
     @PutMapping(value = "/heatmap/{heatmapId}/label/annotation")
     @ApiOperation(
             value = "Updates heatmap annotation for labels",
@@ -35,6 +35,7 @@ import com.epam.catgenome.entity.index.FeatureIndexEntry;
 import com.epam.catgenome.entity.index.GeneIndexEntry;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -62,6 +63,7 @@ import com.epam.catgenome.controller.Result;
 import com.epam.catgenome.controller.vo.TrackQuery;
 import com.epam.catgenome.controller.vo.registration.ReferenceRegistrationRequest;
 import com.epam.catgenome.entity.index.IndexSearchResult;
+import com.epam.catgenome.entity.track.PackedReferenceTrack;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.exception.ReferenceReadingException;
 import com.wordnik.swagger.annotations.Api;
@@ -193,6 +195,27 @@ public class ReferenceController extends AbstractRESTController {
         return Result.success(track);
     }
 
+    @ResponseBody
+    @RequestMapping(value = "/reference/track/packed", method = RequestMethod.POST)
+    @ApiOperation(
+            value = "Returns data matched the given query to fill in a reference genome track in a compact form.",
+            notes = "It accepts the same query as /reference/track/get, but returns track data as a single " +
+                    "base64 encoded <b>data</b> payload instead of a list of blocks:<br/><br/>" +
+                    "1) <b>NIB</b> encoding is used for NUCLEOTIDES mode: two 4-bit nib codes per byte, high " +
+                    "half first, <b>offset</b> specifies the number of half-bytes to skip before the first " +
+                    "requested base;<br/>" +
+                    "2) <b>GC_RLE</b> encoding is used for GC_CONTENT mode: pairs of unsigned bytes, the number " +
+                    "of consequent bins and their GC-content scaled to 0..255. <b>binCount</b> specifies the " +
+                    "total number of bins.",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(
+            value = {@ApiResponse(code = HTTP_STATUS_OK, message = API_STATUS_DESCRIPTION)
+            })
+    public final Result<PackedReferenceTrack> loadPackedTrack(@RequestBody final TrackQuery query) throws
+            ReferenceReadingException {
+        return Result.success(referenceSecurityService.getPackedResultFromNib(convertToTrack(query)));
+    }
+
     @RequestMapping(value = "/reference/{referenceId}/search", method = RequestMethod.GET)
     @ResponseBody
     @ApiOperation(
@@ -236,13 +259,15 @@ public class ReferenceController extends AbstractRESTController {
     public void exportFeatureInProjectWithFilter(@PathVariable final Long referenceId,
                                                 @RequestParam final FileFormat format,
                                                 @RequestParam final boolean includeHeader,
+                                                @RequestParam(required = false, defaultValue = "false")
+                                                final boolean compressed,
                                                 @RequestBody final GeneExportFilterForm geneFilterForm,
                                                 final HttpServletResponse response)
             throws IOException {
-        byte[] bytes = featureIndexSecurityService.exportFeaturesByReference(geneFilterForm, referenceId,
-                format, includeHeader);
-        response.getOutputStream().write(bytes);
-        response.flushBuffer();
+        try (OutputStream outputStream = openExportStream(response, compressed)) {
+            featureIndexSecurityService.exportFeaturesByReference(geneFilterForm, referenceId,
+                    format, includeHeader, outputStream);
+        }
     }
 
     @RequestMapping(value = "/reference/{referenceId}/filter/gene/info", method = RequestMethod.POST)
@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * A cache of {@link SortedSetDocValuesReaderState}s of facet fields. Building a state requires a pass over
+ * all values of a field in all segments of an index, so it is built once per point-in-time reader of an index
+ * and a field. Since readers of {@link FeatureIndexReaderCache} are reused until an index is changed, a state
+ * is reused by all grouping requests to the same index generation and is dropped, when its reader is closed.
+ */
+@Component
+public class FacetReaderStateCache {
+
+    private final Map<Object, Map<String, SortedSetDocValuesReaderState>> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns a facet state of a field for a top-level index reader
+     *
+     * @param reader a top-level reader of a single index
+     * @param facetField an index field, that holds facet values
+     * @return a state of a field or null, if no segment of an index has the field
+     * @throws IOException if something goes wrong with the file system
+     */
+    public SortedSetDocValuesReaderState getState(final IndexReader reader, final String facetField)
+            throws IOException {
+        if (!hasField(reader, facetField)) {
+            return null;
+        }
+        final Object key = reader.getCombinedCoreAndDeletesKey();
+        final Map<String, SortedSetDocValuesReaderState> readerStates = states.computeIfAbsent(key, k -> {
+            reader.addReaderClosedListener(closed -> states.remove(k));
+            return new ConcurrentHashMap<>();
+        });
+        SortedSetDocValuesReaderState state = readerStates.get(facetField);
+        if (state != null) {
+            hits.incrementAndGet();
+            return state;
+        }
+        misses.incrementAndGet();
+        // concurrent requests may build the same state twice, only one of them is cached
+        state = new DefaultSortedSetDocValuesReaderState(reader, facetField);
+        final SortedSetDocValuesReaderState cached = readerStates.putIfAbsent(facetField, state);
+        return cached == null ? state : cached;
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(states.size(), hits.get(), misses.get());
+    }
+
+    private static boolean hasField(final IndexReader reader, final String field) {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            if (leaf.reader().getFieldInfos().fieldInfo(field) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int cachedReaders;
+        private final long hits;
+        private final long misses;
+    }
+}
@@ -61,6 +61,7 @@ import com.epam.catgenome.manager.vcf.VcfManager;
 import htsjdk.variant.vcf.VCFHeaderLineType;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -76,9 +77,9 @@ import org.apache.lucene.facet.LabelAndValue;
 import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.Fields;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
@@ -92,6 +93,7 @@ import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.PrefixQuery;
@@ -102,8 +104,8 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.SortedSetSortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.SimpleFSDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -114,6 +116,9 @@ import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -126,6 +131,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -147,6 +155,9 @@ public class FeatureIndexDao {
     @Autowired
     private FileManager fileManager;
 
+    @Autowired
+    private FeatureIndexReaderCache indexReaderCache;
+
     @Autowired
     private BookmarkManager bookmarkManager;
 
@@ -159,9 +170,15 @@ public class FeatureIndexDao {
     @Autowired
     private GeneActivityService geneActivityService;
 
+    @Autowired
+    private FacetReaderStateCache facetReaderStateCache;
+
     @Value("#{catgenome['lucene.index.max.size.grouping'] ?: 2L * 1024 * 1024 * 1024}")
     private long luceneIndexMaxSizeForGrouping;
 
+    @Value("#{catgenome['lucene.grouping.numeric.ranges'] ?: " + DEFAULT_NUMERIC_RANGES + "}")
+    private int luceneGroupingNumericRanges = DEFAULT_NUMERIC_RANGES;
+
     @Value("${lucene.request.max.values:20}")
     private int luceneRequestMaxValues;
 
@@ -169,6 +186,8 @@ public class FeatureIndexDao {
 
     private static final int FACET_LIMIT = 1000;
     private static final int GENE_LIMIT = 100;
+    private static final int DEFAULT_NUMERIC_RANGES = 0;
+    private static final MathContext RANGE_BOUND_PRECISION = new MathContext(4);
 
     public enum FeatureIndexFields {
         UID("uid"),
@@ -255,6 +274,16 @@ public class FeatureIndexDao {
                 writer.addDocument(facetsConfig.build(document));
             }
         }
+        refreshFileIndex(featureFile);
+    }
+
+    /**
+     * Makes searches over feature file's index to see latest changes, written to it
+     *
+     * @param featureFile a FeatureFile, which index was updated
+     */
+    public void refreshFileIndex(final FeatureFile featureFile) {
+        indexReaderCache.refresh(fileManager.getIndexPathForFile(featureFile));
     }
 
     public IndexSearchResult<FeatureIndexEntry> searchFeatures(String featureId,
@@ -314,9 +343,7 @@ public class FeatureIndexDao {
         if (indexedFiles.isEmpty()) {
             return IndexSearchResult.empty();
         }
-        SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(files);
-
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(files)) {
             if (reader.numDocs() == 0) {
                 return IndexSearchResult.empty();
             }
@@ -325,8 +352,6 @@ public class FeatureIndexDao {
                     FeatureType.GENE.getFileValue(), FeatureType.EXON.getFileValue()));
 
             return searchFileIndexes(files, query, null, reader.numDocs(), null);
-        } finally {
-            closeIndices(indexes);
         }
     }
 
@@ -383,10 +408,10 @@ public class FeatureIndexDao {
         Map<Integer, FeatureIndexEntry> entryMap = new LinkedHashMap<>();
 
         int totalHits = 0;
-        try (
-            Directory index = fileManager.getIndexForProject(projectId);
-            IndexReader reader = DirectoryReader.open(index)
-        ) {
+        Assert.isTrue(fileManager.indexForProjectExists(projectId),
+                getMessage(MessagesConstants.ERROR_PROJECT_FEATURE_INDEX_NOT_FOUND, projectId));
+        try (IndexReader reader = indexReaderCache.openMultiReader(
+                Collections.singletonList(fileManager.getIndexPathForProject(projectId)))) {
             if (reader.numDocs() == 0) {
                 return IndexSearchResult.empty();
             }
@@ -441,25 +466,18 @@ public class FeatureIndexDao {
         final Set<String> availableFields = new HashSet<>();
         final Set<String> mainFields = Arrays.stream(FeatureIndexFields.values())
                 .map(FeatureIndexFields::getFieldName).collect(Collectors.toSet());
-        final SimpleFSDirectory[] indices = fileManager.getIndexesForFiles(files);
-        try {
-            for (SimpleFSDirectory file : indices) {
-                try(DirectoryReader reader = DirectoryReader.open(file)) {
-                    for (LeafReaderContext subReader : reader.leaves()) {
-                        Fields fields = subReader.reader().fields();
-                        for (String field : fields) {
-                            if (!mainFields.contains(field)) {
-                                availableFields.add(field);
-                            }
-                        }
+        try (MultiReader reader = openMultiReader(files)) {
+            for (LeafReaderContext subReader : reader.leaves()) {
+                Fields fields = subReader.reader().fields();
+                for (String field : fields) {
+                    if (!mainFields.contains(field)) {
+                        availableFields.add(field);
                     }
                 }
             }
         } catch (IOException e) {
             throw new IllegalArgumentException("Failed to perform index search for files " +
                     files.stream().map(BaseEntity::getName).collect(Collectors.joining(", ")), e);
-        } finally {
-            closeIndices(indices);
         }
         return GeneFilterInfo.builder().availableFilters(availableFields).build();
     }
@@ -468,27 +486,20 @@ public class FeatureIndexDao {
             throws IOException {
         final Set<String> termValues = new HashSet<>();
         int i = 0;
-        final SimpleFSDirectory[] indices = fileManager.getIndexesForFiles(files);
-        try {
-            for (SimpleFSDirectory file : indices) {
-                try(DirectoryReader reader = DirectoryReader.open(file)) {
-                    for (LeafReaderContext subReader : reader.leaves()) {
-                        Terms terms = subReader.reader().terms(fieldName);
-                        TermsEnum termsEnum = terms.iterator();
-                        BytesRef byteRef = termsEnum.next();
-                        while (byteRef != null && i < luceneRequestMaxValues) {
-                            termValues.add(byteRef.utf8ToString().toLowerCase(Locale.ROOT));
-                            byteRef = termsEnum.next();
-                            i++;
-                        }
-                    }
+        try (MultiReader reader = openMultiReader(files)) {
+            for (LeafReaderContext subReader : reader.leaves()) {
+                Terms terms = subReader.reader().terms(fieldName);
+                TermsEnum termsEnum = terms.iterator();
+                BytesRef byteRef = termsEnum.next();
+                while (byteRef != null && i < luceneRequestMaxValues) {
+                    termValues.add(byteRef.utf8ToString().toLowerCase(Locale.ROOT));
+                    byteRef = termsEnum.next();
+                    i++;
                 }
             }
         } catch (IOException e) {
             throw new IllegalArgumentException("Failed to perform index search for files " +
                     files.stream().map(BaseEntity::getName).collect(Collectors.joining(", ")), e);
-        } finally {
-            closeIndices(indices);
         }
         return termValues;
     }
@@ -514,9 +525,7 @@ public class FeatureIndexDao {
 
         Map<Integer, FeatureIndexEntry> entryMap = new LinkedHashMap<>();
 
-        SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(files);
-
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(files)) {
             if (reader.numDocs() == 0) {
                 return IndexSearchResult.empty();
             }
@@ -536,8 +545,53 @@ public class FeatureIndexDao {
             return new IndexSearchResult<>(new ArrayList<T>((Collection<? extends T>) entryMap.values()),
                                            maxResultsCount != null &&
                                            totalHits > maxResultsCount, totalHits);
-        } finally {
-            closeIndices(indexes);
+        }
+    }
+
+    /**
+     * Passes all index entries of specified files, that satisfy a query, to a consumer in a specified order.
+     * Entries are fetched in batches with a single {@code searchAfter} cursor over one point-in-time reader,
+     * so, unlike page-by-page search, each batch continues from the previous one and only one batch is kept
+     * in memory
+     *
+     * @param files a {@link List} of {@link FeatureFile}, which indexes to scan
+     * @param query a query to search in index
+     * @param additionalFields list of additional fields to retrieve
+     * @param sort specifies sorting, may be null
+     * @param batchSize number of entries to fetch from index at once
+     * @param consumer receives found entries
+     * @return total number of found entries
+     * @throws IOException if something is wrong in the filesystem or consumer fails to process an entry
+     */
+    public <T extends FeatureIndexEntry> int scanFileIndexes(final List<? extends FeatureFile> files,
+                                                             final Query query, final List<String> additionalFields,
+                                                             final Sort sort, final int batchSize,
+                                                             final IndexEntryConsumer<T> consumer)
+            throws IOException {
+        Assert.isTrue(batchSize > 0, "Batch size should be positive");
+        if (CollectionUtils.isEmpty(files)) {
+            return 0;
+        }
+        try (MultiReader reader = openMultiReader(files)) {
+            if (reader.numDocs() == 0) {
+                return 0;
+            }
+            final IndexSearcher searcher = new IndexSearcher(reader, taskExecutorService.getSearchExecutor());
+            final AbstractDocumentBuilder<T> documentCreator = AbstractDocumentBuilder.createDocumentCreator(
+                    files.get(0).getFormat(), additionalFields);
+            int count = 0;
+            ScoreDoc pointer = null;
+            while (true) {
+                final ScoreDoc[] hits = performSearchAfter(searcher, query, pointer, batchSize, sort).scoreDocs;
+                for (ScoreDoc hit : hits) {
+                    consumer.accept(documentCreator.buildEntry(searcher, hit.doc));
+                }
+                count += hits.length;
+                if (hits.length < batchSize) {
+                    return count;
+                }
+                pointer = hits[hits.length - 1];
+            }
         }
     }
 
@@ -552,8 +606,7 @@ public class FeatureIndexDao {
     public GeneIndexEntry searchGeneFeatureByUid(final GeneFile featureFile, final String uid)
             throws IOException {
         final Term uidTerm = new Term(FeatureIndexFields.UID.getFieldName(), uid);
-        final SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(Collections.singletonList(featureFile));
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(Collections.singletonList(featureFile))) {
             if (reader.numDocs() == 0) {
                 return null;
             }
@@ -564,8 +617,6 @@ public class FeatureIndexDao {
             final Document document = searcher.doc(docId);
 
             return buildGeneIndexEntry(documentCreator, document);
-        } finally {
-            closeIndices(indexes);
         }
     }
 
@@ -583,10 +634,10 @@ public class FeatureIndexDao {
             throws IOException {
         final Term uidTerm = new Term(FeatureIndexFields.UID.getFieldName(), uid);
         final GeneHighLevel newGeneContent = prepareGeneContentForDocument(geneContent);
-        final SimpleFSDirectory index = fileManager.createIndexForFile(featureFile);
+        final Directory index = fileManager.createIndexForFile(featureFile);
         final GeneIndexEntry oldEntry;
         try (StandardAnalyzer analyzer = new StandardAnalyzer();
-             MultiReader reader = openMultiReader(new SimpleFSDirectory[] {index});
+             MultiReader reader = openMultiReader(Collections.singletonList(featureFile));
              IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(analyzer)
                      .setOpenMode(IndexWriterConfig.OpenMode.APPEND))) {
             if (reader.numDocs() == 0) {
@@ -614,6 +665,7 @@ public class FeatureIndexDao {
         } finally {
             IOUtils.closeQuietly(index);
         }
+        refreshFileIndex(featureFile);
 
         geneActivityService.saveGeneActivities(newGeneContent, oldEntry);
 
@@ -625,14 +677,12 @@ public class FeatureIndexDao {
             return 0;
         }
 
-        SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(files);
-        long totalIndexSize = getTotalIndexSize(indexes);
+        long totalIndexSize = getTotalIndexSize(files);
         if (totalIndexSize > luceneIndexMaxSizeForGrouping) {
-            closeIndices(indexes);
             return 0;
         }
 
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(files)) {
             if (reader.numDocs() == 0) {
                 return 0;
             }
@@ -649,8 +699,6 @@ public class FeatureIndexDao {
             }
 
             return res.childCount;
-        } finally {
-            closeIndices(indexes);
         }
     }
 
@@ -759,7 +807,10 @@ public class FeatureIndexDao {
     }
 
     /**
-     * Groups variations from specified {@link List} of {@link VcfFile}s by specified field
+     * Groups variations from specified {@link List} of {@link VcfFile}s by specified field. Facet values are
+     * counted per index segment in parallel, using facet states, cached for each index generation. Values of
+     * numeric INFO fields are grouped into ranges, if there are more distinct values, than configured number of
+     * ranges
      * @param files a {@link List} of {@link FeatureFile}, which indexes to search
      * @param query a query to search in index
      * @param groupBy a field to perform grouping
@@ -767,66 +818,154 @@ public class FeatureIndexDao {
      * @throws IOException if something goes wrong with the file system
      */
     public List<Group> groupVariations(List<VcfFile> files, Query query, String groupBy) throws IOException {
-        List<Group> res = new ArrayList<>();
-
         if (CollectionUtils.isEmpty(files)) {
             return Collections.emptyList();
         }
 
-        SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(files);
-        long totalIndexSize = getTotalIndexSize(indexes);
-        if (totalIndexSize > luceneIndexMaxSizeForGrouping) {
-            closeIndices(indexes);
-            throw new IllegalArgumentException(getMessage(MessagesConstants.ERROR_FEATURE_INEDX_TOO_LARGE));
-        }
-
-        try (MultiReader reader = openMultiReader(indexes)) {
+        final Pair<String, Boolean> groupByField = getGroupByField(files, groupBy);
+        final Map<String, Integer> counts;
+        try (MultiReader reader = openMultiReader(files)) {
             if (reader.numDocs() == 0) {
                 return Collections.emptyList();
             }
+            counts = countFacetValues(reader, query, groupByField.getLeft());
+        }
 
-            IndexSearcher searcher = new IndexSearcher(reader);
+        if (groupByField.getRight() && luceneGroupingNumericRanges > 0
+                && counts.size() > luceneGroupingNumericRanges) {
+            final List<Group> ranges = groupByNumericRanges(counts);
+            if (ranges != null) {
+                return ranges;
+            }
+        }
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<String, Integer>comparingByKey()))
+                .map(e -> new Group(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
+    }
 
-            String groupByField = getGroupByField(files, groupBy);
-            SortedSetDocValuesReaderState state = new DefaultSortedSetDocValuesReaderState(reader,
-                    FeatureIndexFields.getFacetName(groupByField));
-            FacetsCollector collector = new FacetsCollector();
-            FacetsCollector.search(searcher, query, 10, collector);
-
-            Facets facets = new SortedSetDocValuesFacetCounts(state, collector);
-            FacetResult result = facets.getTopChildren(reader.numDocs(), groupByField);
-            for (int i = 0; i < result.childCount; i++) {
-                LabelAndValue lv = result.labelValues[i];
-                res.add(new Group(lv.label, lv.value.intValue()));
+    /**
+     * Counts facet values of a field for documents, matching a query. Each segment of each index is counted
+     * by a separate task on the search executor, counts are merged by labels, since facet ordinals of different
+     * indexes don't match
+     */
+    private Map<String, Integer> countFacetValues(final MultiReader reader, final Query query,
+                                                  final String field) throws IOException {
+        final String facetField = FeatureIndexFields.getFacetName(field);
+        final List<Callable<Map<String, Integer>>> tasks = new ArrayList<>();
+        for (IndexReaderContext indexContext : reader.getContext().children()) {
+            // facet state and leaves must belong to the same top-level reader of an index
+            final IndexReader indexReader = indexContext.reader();
+            final SortedSetDocValuesReaderState state = facetReaderStateCache.getState(indexReader, facetField);
+            if (state == null) {
+                continue;
+            }
+            final Weight weight = new IndexSearcher(indexReader).createNormalizedWeight(query, false);
+            for (LeafReaderContext leaf : indexReader.leaves()) {
+                tasks.add(() -> countLeafFacetValues(leaf, weight, state, field));
             }
-        } finally {
-            closeIndices(indexes);
         }
 
-        return res;
+        final Map<String, Integer> counts = new HashMap<>();
+        try {
+            for (Future<Map<String, Integer>> future : taskExecutorService.getSearchExecutor().invokeAll(tasks)) {
+                future.get().forEach((label, count) -> counts.merge(label, count, Integer::sum));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return counts;
     }
 
-    public long getTotalIndexSize(SimpleFSDirectory[] indexes) throws IOException {
-        long totalIndexSize = 0;
-        for (SimpleFSDirectory index : indexes) {
-            totalIndexSize += getTotalIndexSize(index);
+    private static Map<String, Integer> countLeafFacetValues(final LeafReaderContext leaf, final Weight weight,
+                                                             final SortedSetDocValuesReaderState state,
+                                                             final String field) throws IOException {
+        final BulkScorer scorer = weight.bulkScorer(leaf);
+        if (scorer == null) {
+            return Collections.emptyMap();
         }
-        return totalIndexSize;
+        final FacetsCollector collector = new FacetsCollector();
+        scorer.score(collector.getLeafCollector(leaf), leaf.reader().getLiveDocs());
+
+        final FacetResult result = new SortedSetDocValuesFacetCounts(state, collector)
+                .getTopChildren(Math.max(1, state.getSize()), field);
+        if (result == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < result.childCount; i++) {
+            counts.put(result.labelValues[i].label, result.labelValues[i].value.intValue());
+        }
+        return counts;
     }
 
-    private long getTotalIndexSize(Directory index) throws IOException {
-        long totalFileSize = 0L;
-        String[] files = index.listAll();
-        if (files == null) {
-            return 0;
+    /**
+     * Groups counts of numeric values into ranges of equal width
+     * @return a {@link List} of ranges or null, if not all values are numeric
+     */
+    private List<Group> groupByNumericRanges(final Map<String, Integer> counts) {
+        final Map<Double, Integer> values = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            final Double value = parseNumber(entry.getKey());
+            if (value == null) {
+                return null;
+            }
+            values.merge(value, entry.getValue(), Integer::sum);
+        }
+        final double min = Collections.min(values.keySet());
+        final double max = Collections.max(values.keySet());
+        final double width = (max - min) / luceneGroupingNumericRanges;
+        if (width == 0 || Double.isInfinite(width) || Double.isNaN(width)) {
+            return null;
+        }
+
+        final int[] rangeCounts = new int[luceneGroupingNumericRanges];
+        values.forEach((value, count) -> rangeCounts[Math.min((int) ((value - min) / width),
+                luceneGroupingNumericRanges - 1)] += count);
+        final List<Group> ranges = new ArrayList<>(luceneGroupingNumericRanges);
+        for (int i = 0; i < luceneGroupingNumericRanges; i++) {
+            if (rangeCounts[i] > 0) {
+                final boolean last = i == luceneGroupingNumericRanges - 1;
+                ranges.add(new Group(String.format(Locale.US, "[%s, %s%s", formatRangeBound(min + i * width),
+                        formatRangeBound(last ? max : min + (i + 1) * width), last ? "]" : ")"), rangeCounts[i]));
+            }
         }
-        for (int i = 0; i < files.length; i++) {
-            totalFileSize += index.fileLength(files[i]);
+        return ranges;
+    }
+
+    private static Double parseNumber(final String label) {
+        try {
+            final double value = Double.parseDouble(label);
+            return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+        } catch (NumberFormatException e) {
+            return null;
         }
-        return totalFileSize;
     }
 
-    private String getGroupByField(List<VcfFile> files, String groupBy) throws IOException {
+    private static String formatRangeBound(final double bound) {
+        return BigDecimal.valueOf(bound).round(RANGE_BOUND_PRECISION).stripTrailingZeros().toPlainString();
+    }
+
+    public long getTotalIndexSize(List<? extends FeatureFile> files) {
+        long totalIndexSize = 0;
+        for (Path index : fileManager.getIndexPathsForFiles(files)) {
+            totalIndexSize += FileUtils.sizeOfDirectory(index.toFile());
+        }
+        return totalIndexSize;
+    }
+
+    /**
+     * @return a name of an index field to group by and true, if it is a numeric INFO field, which values
+     * may be grouped into ranges. Built-in fields are always grouped by exact values
+     */
+    private Pair<String, Boolean> getGroupByField(List<VcfFile> files, String groupBy) throws IOException {
         VcfIndexSortField sortField = VcfIndexSortField.getByName(groupBy);
         if (sortField == null) {
             VcfFilterInfo info = vcfManager.getFiltersInfo(
@@ -835,29 +974,23 @@ public class FeatureIndexDao {
             InfoItem infoItem = info.getInfoItemMap().get(groupBy);
             Assert.notNull(infoItem, "Unknown sort field: " + groupBy);
 
-            if (infoItem.getType() == VCFHeaderLineType.Integer
-                    || infoItem.getType() == VCFHeaderLineType.Float) {
-                return infoItem.getName().toLowerCase();
-            } else {
-                return infoItem.getName().toLowerCase();
-            }
+            return Pair.of(infoItem.getName().toLowerCase(), infoItem.getType() == VCFHeaderLineType.Integer
+                    || infoItem.getType() == VCFHeaderLineType.Float);
         } else {
-            if (sortField.getType() == SortField.Type.INT
-                    || sortField.getType() == SortField.Type.FLOAT) {
-                return sortField.getField().fieldName;
-            } else {
-                return sortField.getField().fieldName;
-            }
+            return Pair.of(sortField.getField().fieldName, false);
         }
     }
 
-    public MultiReader openMultiReader(SimpleFSDirectory[] indexes) throws IOException {
-        IndexReader[] readers = new IndexReader[indexes.length];
-        for (int i = 0; i < indexes.length; i++) {
-            readers[i] = DirectoryReader.open(indexes[i]);
-        }
-
-        return new MultiReader(readers, true);
+    /**
+     * Opens a {@link MultiReader} over feature indexes of specified files. Underlying index readers are
+     * shared through {@link FeatureIndexReaderCache}, the returned reader should be closed after use
+     *
+     * @param files a {@link List} of {@link FeatureFile}, which indexes to read
+     * @return a {@link MultiReader} over existing indexes of files
+     * @throws IOException if something is wrong in the filesystem
+     */
+    public MultiReader openMultiReader(List<? extends FeatureFile> files) throws IOException {
+        return indexReaderCache.openMultiReader(fileManager.getIndexPathsForFiles(files));
     }
 
 
@@ -920,9 +1053,7 @@ public class FeatureIndexDao {
 
         List<Long> chromosomeIds = new ArrayList<>();
 
-        SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(files);
-
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(files)) {
             if (reader.numDocs() == 0) {
                 return Collections.emptyList();
             }
@@ -941,8 +1072,6 @@ public class FeatureIndexDao {
             for (LabelAndValue labelAndValue : res.labelValues) {
                 chromosomeIds.add(Long.parseLong(labelAndValue.label));
             }
-        } finally {
-            closeIndices(indexes);
         }
 
         return chromosomeIds;
@@ -952,12 +1081,6 @@ public class FeatureIndexDao {
         return luceneIndexMaxSizeForGrouping;
     }
 
-    private void closeIndices(SimpleFSDirectory[] indexes) {
-        for (SimpleFSDirectory index : indexes) {
-            IOUtils.closeQuietly(index);
-        }
-    }
-
     public Set<String> searchGenesInVcfFiles(String gene, List<VcfFile> vcfFiles) throws IOException {
         if (CollectionUtils.isEmpty(vcfFiles)) {
             return Collections.emptySet();
@@ -978,9 +1101,7 @@ public class FeatureIndexDao {
 
         Set<String> geneIds = new HashSet<>();
 
-        SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(vcfFiles);
-
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(vcfFiles)) {
             if (reader.numDocs() == 0) {
                 return Collections.emptySet();
             }
@@ -998,8 +1119,6 @@ public class FeatureIndexDao {
         } catch (IOException e) {
             LOGGER.error(getMessage(MessagesConstants.ERROR_FEATURE_INDEX_SEARCH_FAILED), e);
             return Collections.emptySet();
-        } finally {
-            closeIndices(indexes);
         }
 
         return geneIds;
@@ -1043,6 +1162,7 @@ public class FeatureIndexDao {
         } catch (IOException e) {
             LOGGER.error("Exception while deleting from index:", e);
         }
+        indexReaderCache.refresh(fileManager.getIndexPathForProject(projectId));
     }
 
     /**
@@ -1057,8 +1177,7 @@ public class FeatureIndexDao {
     public IndexSearchResult<GeneIndexEntry> searchGeneFeaturesFully(final GeneFile featureFile, final String chrId,
                                                                      final GeneFilterForm filterForm, final Sort sort)
             throws IOException {
-        final SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(Collections.singletonList(featureFile));
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(Collections.singletonList(featureFile))) {
             if (reader.numDocs() == 0) {
                 return IndexSearchResult.empty();
             }
@@ -1081,15 +1200,12 @@ public class FeatureIndexDao {
             final ScoreDoc lastEntry = hits.length == 0 ? null : hits[hits.length-1];
             filterForm.setPointer(Pointer.fromScoreDoc(lastEntry));
             return new IndexSearchResult<>(values, false, totalHits, lastEntry);
-        } finally {
-            closeIndices(indexes);
         }
     }
 
     public int countGenesInInterval(final GeneFile featureFile, final String chrId,
                                     final GeneFilterForm filterForm) throws IOException {
-        final SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(Collections.singletonList(featureFile));
-        try (MultiReader reader = openMultiReader(indexes)) {
+        try (MultiReader reader = openMultiReader(Collections.singletonList(featureFile))) {
             if (reader.numDocs() == 0) {
                 return 0;
             }
@@ -1098,8 +1214,6 @@ public class FeatureIndexDao {
             final Query query = IndexQueryUtils.intervalQuery(chrId, filterForm.getStartIndex(),
                     filterForm.getEndIndex(), filterForm.getFeatureTypes());
             return searcher.count(query);
-        } finally {
-            closeIndices(indexes);
         }
     }
 
@@ -1247,4 +1361,12 @@ public class FeatureIndexDao {
                 ? searcher.searchAfter(pointer, constantQuery, pageSize)
                 : searcher.searchAfter(pointer, constantQuery, pageSize, sort, false, false);
     }
+
+    /**
+     * Receives index entries, found by {@link #scanFileIndexes(List, Query, List, Sort, int, IndexEntryConsumer)}
+     */
+    @FunctionalInterface
+    public interface IndexEntryConsumer<T extends FeatureIndexEntry> {
+        void accept(T entry) throws IOException;
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Creates Lucene {@link Directory} implementations for feature indexes according to the configured
+ * strategy. {@link SimpleFSDirectory} is used by default as before. It serializes concurrent reads of a file,
+ * so {@code NIO} or {@code MMAP} directories may be configured, when searches are performed in parallel
+ * by the search executor.
+ */
+@Slf4j
+@Component
+public class FeatureIndexDirectoryFactory {
+
+    private static final double DEFAULT_NRT_MAX_MERGE_SIZE_MB = 5.0;
+    private static final double DEFAULT_NRT_MAX_CACHED_MB = 60.0;
+
+    public enum DirectoryType {
+        SIMPLE, NIO, MMAP
+    }
+
+    @Value("#{catgenome['lucene.index.directory.type'] ?: 'SIMPLE'}")
+    private String directoryTypeName = DirectoryType.SIMPLE.name();
+
+    @Value("#{catgenome['lucene.index.writer.nrt.cache.enabled'] ?: false}")
+    private boolean nrtCacheEnabled;
+
+    @Value("#{catgenome['lucene.index.writer.nrt.max.merge.size.mb'] ?: " + DEFAULT_NRT_MAX_MERGE_SIZE_MB + "}")
+    private double nrtMaxMergeSizeMB = DEFAULT_NRT_MAX_MERGE_SIZE_MB;
+
+    @Value("#{catgenome['lucene.index.writer.nrt.max.cached.mb'] ?: " + DEFAULT_NRT_MAX_CACHED_MB + "}")
+    private double nrtMaxCachedMB = DEFAULT_NRT_MAX_CACHED_MB;
+
+    private DirectoryType directoryType = DirectoryType.SIMPLE;
+
+    public FeatureIndexDirectoryFactory() {
+        // default constructor for Spring
+    }
+
+    public FeatureIndexDirectoryFactory(final DirectoryType directoryType) {
+        this.directoryType = directoryType;
+        this.directoryTypeName = directoryType.name();
+    }
+
+    @PostConstruct
+    public void init() {
+        directoryType = DirectoryType.valueOf(directoryTypeName.trim().toUpperCase(Locale.ROOT));
+        log.info("Feature indexes are opened with {} directory, NRT caching for writers is {}", directoryType,
+                nrtCacheEnabled ? "enabled" : "disabled");
+    }
+
+    public DirectoryType getDirectoryType() {
+        return directoryType;
+    }
+
+    /**
+     * Opens a directory to search an existing index
+     *
+     * @param indexPath path to Lucene index directory
+     * @return a {@link Directory} of configured type
+     * @throws IOException if directory can't be opened
+     */
+    public Directory openForRead(final Path indexPath) throws IOException {
+        return openFSDirectory(indexPath);
+    }
+
+    /**
+     * Opens a directory to create or update an index. If NRT caching is enabled, the directory
+     * is wrapped into {@link NRTCachingDirectory}, that keeps small newly flushed segments in memory
+     * until they are merged or committed
+     *
+     * @param indexPath path to Lucene index directory
+     * @return a {@link Directory} of configured type
+     * @throws IOException if directory can't be opened
+     */
+    public Directory openForWrite(final Path indexPath) throws IOException {
+        final FSDirectory directory = openFSDirectory(indexPath);
+        return nrtCacheEnabled ? new NRTCachingDirectory(directory, nrtMaxMergeSizeMB, nrtMaxCachedMB) : directory;
+    }
+
+    private FSDirectory openFSDirectory(final Path indexPath) throws IOException {
+        switch (directoryType) {
+            case SIMPLE:
+                return new SimpleFSDirectory(indexPath);
+            case NIO:
+                return new NIOFSDirectory(indexPath);
+            case MMAP:
+                return new MMapDirectory(indexPath);
+            default:
+                throw new IllegalArgumentException("Unsupported index directory type: " + directoryType);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.ReaderManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of long-living Lucene readers for feature file indexes. Each index directory is opened
+ * once and served by a {@link ReaderManager}, so searches reuse warmed readers instead of opening
+ * the directory on every request. Readers are refreshed after index updates and the least recently
+ * used indexes are closed, when the number of opened indexes exceeds configured limit.
+ */
+@Slf4j
+@Component
+public class FeatureIndexReaderCache {
+
+    private static final int DEFAULT_MAX_OPENED_INDEXES = 100;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    @Value("#{catgenome['lucene.index.reader.cache.size'] ?: " + DEFAULT_MAX_OPENED_INDEXES + "}")
+    private int maxOpenedIndexes = DEFAULT_MAX_OPENED_INDEXES;
+
+    private final FeatureIndexDirectoryFactory directoryFactory;
+
+    private final Map<Path, IndexEntry> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong opens = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public FeatureIndexReaderCache(final FeatureIndexDirectoryFactory directoryFactory) {
+        this.directoryFactory = directoryFactory;
+    }
+
+    /**
+     * Opens a {@link MultiReader} over current point-in-time readers of specified index directories. Returned
+     * reader holds its own references to the shared readers, so it must be closed by the caller as before,
+     * but closing it does not close the cached indexes
+     *
+     * @param indexPaths paths to existing Lucene index directories
+     * @return a {@link MultiReader} over all specified indexes
+     * @throws IOException if an index can't be opened
+     */
+    public MultiReader openMultiReader(final List<Path> indexPaths) throws IOException {
+        final List<DirectoryReader> acquired = new ArrayList<>(indexPaths.size());
+        try {
+            for (Path indexPath : indexPaths) {
+                acquired.add(acquire(indexPath));
+            }
+            // MultiReader increments reference count of sub readers if they shouldn't be closed with it
+            return new MultiReader(acquired.toArray(new IndexReader[acquired.size()]), false);
+        } finally {
+            for (DirectoryReader reader : acquired) {
+                reader.decRef();
+            }
+        }
+    }
+
+    /**
+     * Makes readers of specified index to see latest committed changes. Should be called after an
+     * {@link org.apache.lucene.index.IndexWriter} for this index is committed or closed.
+     * Does nothing if index is not opened yet.
+     *
+     * @param indexPath path to Lucene index directory
+     */
+    public void refresh(final Path indexPath) {
+        final IndexEntry entry;
+        synchronized (entries) {
+            entry = entries.get(indexPath);
+        }
+        if (entry == null) {
+            return;
+        }
+        try {
+            entry.getManager().maybeRefreshBlocking();
+            refreshes.incrementAndGet();
+        } catch (AlreadyClosedException e) {
+            log.debug("Index {} was evicted during refresh", indexPath);
+        } catch (IOException e) {
+            log.error("Failed to refresh index reader for " + indexPath, e);
+            invalidate(indexPath);
+        }
+    }
+
+    /**
+     * Closes cached readers of specified index. Should be called before index directory is deleted.
+     * Searches, that already use this index, will complete on their own references.
+     *
+     * @param indexPath path to Lucene index directory
+     */
+    public void invalidate(final Path indexPath) {
+        final IndexEntry entry;
+        synchronized (entries) {
+            entry = entries.remove(indexPath);
+        }
+        if (entry != null) {
+            entry.close();
+        }
+    }
+
+    public Statistics getStatistics() {
+        final int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Statistics(size, hits.get(), misses.get(), opens.get(), refreshes.get(), evictions.get());
+    }
+
+    @PreDestroy
+    public void clear() {
+        final List<IndexEntry> closed;
+        synchronized (entries) {
+            closed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        closed.forEach(IndexEntry::close);
+    }
+
+    private DirectoryReader acquire(final Path indexPath) throws IOException {
+        final List<IndexEntry> evicted = new ArrayList<>();
+        try {
+            synchronized (entries) {
+                IndexEntry entry = entries.get(indexPath);
+                if (entry == null) {
+                    misses.incrementAndGet();
+                    entry = open(indexPath);
+                    entries.put(indexPath, entry);
+                    collectEvicted(evicted);
+                } else {
+                    hits.incrementAndGet();
+                }
+                // acquire under lock, so that an entry can't be evicted and closed concurrently
+                return entry.getManager().acquire();
+            }
+        } finally {
+            evicted.forEach(IndexEntry::close);
+        }
+    }
+
+    private IndexEntry open(final Path indexPath) throws IOException {
+        final Directory directory = directoryFactory.openForRead(indexPath);
+        try {
+            final ReaderManager manager = new ReaderManager(directory);
+            opens.incrementAndGet();
+            return new IndexEntry(directory, manager);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(directory);
+            throw e;
+        }
+    }
+
+    private void collectEvicted(final List<IndexEntry> evicted) {
+        final Iterator<Map.Entry<Path, IndexEntry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxOpenedIndexes && iterator.hasNext()) {
+            final Map.Entry<Path, IndexEntry> eldest = iterator.next();
+            log.debug("Evicting index reader for {}", eldest.getKey());
+            evicted.add(eldest.getValue());
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class IndexEntry {
+        private final Directory directory;
+        private final ReaderManager manager;
+
+        void close() {
+            // readers, acquired by running searches, stay open until they are released
+            IOUtils.closeQuietly(manager);
+            IOUtils.closeQuietly(directory);
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int openedIndexes;
+        private final long hits;
+        private final long misses;
+        private final long opens;
+        private final long refreshes;
+        private final long evictions;
+    }
+}
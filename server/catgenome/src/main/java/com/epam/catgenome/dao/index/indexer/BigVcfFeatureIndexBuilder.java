@@ -24,13 +24,19 @@
 
 package com.epam.catgenome.dao.index.indexer;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.epam.catgenome.dao.index.FeatureIndexDao;
 import com.epam.catgenome.entity.gene.GeneFile;
@@ -42,6 +48,7 @@ import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.vcf.VcfManager;
 import com.epam.catgenome.manager.vcf.reader.VcfFileReader;
 import com.epam.catgenome.util.Utils;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
 import org.apache.commons.math3.util.MathUtils;
@@ -57,9 +64,10 @@ import org.slf4j.LoggerFactory;
 /**
  * An implementation of {@link FeatureIndexBuilder}, that indexes <b>large</b> VCF file entries: {@link VariantContext}
  */
-public class BigVcfFeatureIndexBuilder extends VcfFeatureIndexBuilder {
+public class BigVcfFeatureIndexBuilder extends VcfFeatureIndexBuilder implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BigVcfFeatureIndexBuilder.class);
+    private static final int BATCH_SIZE = 1024;
 
     private IndexWriter writer;
     private StandardAnalyzer analyzer;
@@ -68,14 +76,37 @@ public class BigVcfFeatureIndexBuilder extends VcfFeatureIndexBuilder {
     private FacetsConfig facetsConfig;
     private VcfFile vcfFile;
 
+    private ExecutorService executor;
+    private int maxPendingBatches;
+    private final Deque<Future<List<Document>>> pending = new ArrayDeque<>();
+    private List<AnnotatedVariation> batch = new ArrayList<>(BATCH_SIZE);
+    private boolean committed;
+
     public BigVcfFeatureIndexBuilder(VcfFilterInfo filterInfo, VCFHeader vcfHeader,
             FeatureIndexDao featureIndexDao, VcfFile featureFile,
             FileManager fileManager, List<GeneFile> geneFiles, Integer indexBufferSize) throws IOException {
+        this(filterInfo, vcfHeader, featureIndexDao, featureFile, fileManager, geneFiles, indexBufferSize, null,
+                1);
+    }
+
+    /**
+     * @param executor a shared executor, that annotates variations and builds documents
+     * @param threads a number of threads of the executor, that may index variations of the file at once,
+     *                if it is 1, variations are indexed on a calling thread
+     */
+    public BigVcfFeatureIndexBuilder(VcfFilterInfo filterInfo, VCFHeader vcfHeader,
+            FeatureIndexDao featureIndexDao, VcfFile featureFile,
+            FileManager fileManager, List<GeneFile> geneFiles, Integer indexBufferSize,
+            ExecutorService executor, int threads) throws IOException {
         super(filterInfo, vcfHeader, featureIndexDao);
         this.analyzer = new StandardAnalyzer();
         Directory index = fileManager.createIndexForFile(featureFile);
         this.writer = new IndexWriter(index, new IndexWriterConfig(analyzer).setOpenMode(
                 IndexWriterConfig.OpenMode.CREATE_OR_APPEND).setRAMBufferSizeMB(indexBufferSize));
+        if (executor != null && threads > 1) {
+            this.executor = executor;
+            this.maxPendingBatches = threads * 2;
+        }
         this.geneFiles = geneFiles;
         this.creator = new BigVcfDocumentBuilder();
         this.facetsConfig = creator.createFacetsConfig(filterInfo);
@@ -104,52 +135,188 @@ public class BigVcfFeatureIndexBuilder extends VcfFeatureIndexBuilder {
         return Collections.singletonList(indexEntry);
     }
 
+    /**
+     * Adds a variation to the index. Variations are joined with genes in the order of their positions,
+     * then they are collected into batches, that are converted to documents by worker threads, while documents
+     * are added to the index in the order of variations.
+     */
     @Override public void add(VariantContext context, Map<String, Chromosome> chromosomeMap) {
-        if (chromosomeMap.containsKey(context.getContig()) || chromosomeMap
+        if (!chromosomeMap.containsKey(context.getContig()) && !chromosomeMap
                 .containsKey(Utils.changeChromosomeName(context.getContig()))) {
-            Chromosome chromosome =
-                    Utils.getFromChromosomeMap(chromosomeMap, context.getContig());
-            VcfIndexEntry masterEntry = new VcfIndexEntry();
-            masterEntry.setUuid(UUID.randomUUID());
-            masterEntry.setFeatureId(context.getID());
-            masterEntry
-                    .setChromosome(chromosome);
-            masterEntry.setStartIndex(context.getStart());
-            masterEntry.setEndIndex(context.getEnd());
-            masterEntry.setFeatureType(FeatureType.VARIATION);
-            masterEntry.setInfo(filterInfoByWhiteList(context, getFilterInfo(), getVcfHeader()));
-            masterEntry.setVariantContext(context);
-
-            double qual = context.getPhredScaledQual();
-            masterEntry.setQuality(
-                    MathUtils.equals(qual, VcfManager.HTSJDK_WRONG_QUALITY) ? 0D : qual);
-
-            List<OrganismType> organismTypes = new ArrayList<>();
-            for (int i = 0; i < context.getAlternateAlleles().size(); i++) {
-                Variation variation = VcfFileReader.createVariation(context, getVcfHeader(), i);
-                organismTypes.add(variation.getGenotypeData().getOrganismType());
+            return;
+        }
+        Chromosome chromosome =
+                Utils.getFromChromosomeMap(chromosomeMap, context.getContig());
+        AnnotatedVariation variation = new AnnotatedVariation(context, chromosome,
+                annotate(context.getStart(), context.getEnd(), geneFiles, chromosome));
+        if (executor == null) {
+            writeDocuments(Collections.singletonList(buildDocument(variation)));
+            return;
+        }
+        decodeGenotypes(context);
+        batch.add(variation);
+        if (batch.size() >= BATCH_SIZE) {
+            submitBatch();
+        }
+    }
+
+    /**
+     * Waits for all added variations to be indexed and clears gene annotations, loaded for the current chromosome
+     */
+    @Override public void clear() {
+        flush();
+        super.clear();
+    }
+
+    /**
+     * Waits for added variations to be indexed, commits and closes the index and refreshes readers of the file.
+     * It should be called, when all variations are added successfully
+     */
+    public void commit() throws IOException {
+        flush();
+        writer.close();
+        committed = true;
+        getFeatureIndexDao().refreshFileIndex(vcfFile);
+    }
+
+    /**
+     * Releases the index. If it isn't committed, because indexing failed, pending variations are cancelled and
+     * changes of the index are rolled back, so that a partially built index is never published
+     */
+    @Override
+    public void close() {
+        if (committed) {
+            return;
+        }
+        cancelPending();
+        try {
+            writer.rollback();
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
+    private void submitBatch() {
+        final List<AnnotatedVariation> variations = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+        if (pending.size() >= maxPendingBatches) {
+            writeDocuments(getDocuments(pending.poll()));
+        }
+        pending.add(executor.submit(() -> {
+            final List<Document> documents = new ArrayList<>(variations.size());
+            for (AnnotatedVariation variation : variations) {
+                documents.add(buildDocument(variation));
             }
+            return documents;
+        }));
+    }
 
-            if (!organismTypes.isEmpty() && organismTypes.stream()
-                    .anyMatch(type -> type.equals(OrganismType.NO_VARIATION))) {
-                return;
+    private void flush() {
+        if (executor == null) {
+            return;
+        }
+        if (!batch.isEmpty()) {
+            submitBatch();
+        }
+        while (!pending.isEmpty()) {
+            writeDocuments(getDocuments(pending.poll()));
+        }
+    }
+
+    private List<Document> getDocuments(final Future<List<Document>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelPending();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            cancelPending();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-            VcfIndexEntry indexEntry = build(masterEntry, geneFiles, chromosome);
-            Document document = creator.buildDocument(indexEntry, vcfFile.getId());
-            try {
-                writer.addDocument(facetsConfig.build(document));
-            } catch (IOException e) {
-                throw new IllegalArgumentException("Failed to create index");
+    private void cancelPending() {
+        pending.forEach(future -> future.cancel(true));
+        pending.clear();
+        batch.clear();
+    }
+
+    private void writeDocuments(final List<Document> documents) {
+        try {
+            for (Document document : documents) {
+                if (document != null) {
+                    writer.addDocument(document);
+                }
             }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to create index");
         }
     }
 
-    public void close() {
+    /**
+     * Builds a document of a variation, ready to be added to the index
+     * @return a document or null, if the variation shouldn't be indexed
+     */
+    private Document buildDocument(AnnotatedVariation variation) {
+        VariantContext context = variation.context;
+        VcfIndexEntry masterEntry = new VcfIndexEntry();
+        masterEntry.setUuid(UUID.randomUUID());
+        masterEntry.setFeatureId(context.getID());
+        masterEntry
+                .setChromosome(variation.chromosome);
+        masterEntry.setStartIndex(context.getStart());
+        masterEntry.setEndIndex(context.getEnd());
+        masterEntry.setFeatureType(FeatureType.VARIATION);
+        masterEntry.setInfo(filterInfoByWhiteList(context, getFilterInfo(), getVcfHeader()));
+        masterEntry.setVariantContext(context);
+
+        double qual = context.getPhredScaledQual();
+        masterEntry.setQuality(
+                MathUtils.equals(qual, VcfManager.HTSJDK_WRONG_QUALITY) ? 0D : qual);
+
+        List<OrganismType> organismTypes = new ArrayList<>();
+        for (int i = 0; i < context.getAlternateAlleles().size(); i++) {
+            Variation variation = VcfFileReader.createVariation(context, getVcfHeader(), i);
+            organismTypes.add(variation.getGenotypeData().getOrganismType());
+        }
+
+        if (!organismTypes.isEmpty() && organismTypes.stream()
+                .anyMatch(type -> type.equals(OrganismType.NO_VARIATION))) {
+            return null;
+        }
+
+        VcfIndexEntry indexEntry = build(masterEntry, variation.annotation);
+        Document document = creator.buildDocument(indexEntry, vcfFile.getId());
         try {
-            this.writer.close();
+            return facetsConfig.build(document);
         } catch (IOException e) {
-            LOGGER.error(e.getMessage(), e);
+            throw new IllegalArgumentException("Failed to create index");
+        }
+    }
+
+    /**
+     * Genotypes are parsed lazily by a codec of a reader, that isn't thread safe, so they are parsed
+     * on a reading thread before a variation is passed to workers
+     */
+    private static void decodeGenotypes(VariantContext context) {
+        if (context.getGenotypes() instanceof LazyGenotypesContext) {
+            ((LazyGenotypesContext) context.getGenotypes()).decode();
+        }
+    }
+
+    private static final class AnnotatedVariation {
+        private final VariantContext context;
+        private final Chromosome chromosome;
+        private final GeneAnnotation annotation;
+
+        private AnnotatedVariation(VariantContext context, Chromosome chromosome, GeneAnnotation annotation) {
+            this.context = context;
+            this.chromosome = chromosome;
+            this.annotation = annotation;
         }
     }
 }
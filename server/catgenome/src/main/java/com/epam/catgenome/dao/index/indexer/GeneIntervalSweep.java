@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index.indexer;
+
+import com.epam.catgenome.dao.index.FeatureIndexDao;
+import com.epam.catgenome.dao.index.indexer.VcfFeatureIndexBuilder.VariationGeneInfo;
+import com.epam.catgenome.entity.gene.Gene;
+import com.epam.catgenome.entity.gene.GeneFile;
+import com.epam.catgenome.entity.index.FeatureType;
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.manager.gene.GeneUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Joins position ordered variations with genes and exons of a gene file on a single chromosome. Genes are loaded
+ * from a feature index by windows, that follow queried positions, only genes overlapping the current window
+ * are kept in memory. Genes are matched in the same way, as by an interval tree, built for the whole chromosome.
+ */
+class GeneIntervalSweep {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneIntervalSweep.class);
+    private static final int WINDOW_SIZE = 1024 * 1024;
+    private static final Comparator<Gene> GENE_ORDER = Comparator.comparing(Gene::getStartIndex)
+            .thenComparing(Gene::getEndIndex);
+
+    private final FeatureIndexDao featureIndexDao;
+    private final GeneFile geneFile;
+    private final Chromosome chromosome;
+
+    /**
+     * Genes overlapping the window [windowStart, windowEnd], ordered by start and end
+     */
+    private final List<Gene> active = new ArrayList<>();
+    private int windowStart = -1;
+    private int windowEnd = -1;
+
+    GeneIntervalSweep(final FeatureIndexDao featureIndexDao, final GeneFile geneFile, final Chromosome chromosome) {
+        this.featureIndexDao = featureIndexDao;
+        this.geneFile = geneFile;
+        this.chromosome = chromosome;
+    }
+
+    /**
+     * Returns genes, affected by a variation. Starts of variations should be passed in non-descending order,
+     * otherwise genes are searched in the index directly.
+     *
+     * @param start a start index of the variation
+     * @param end   an end index of the variation
+     * @return a {@code Set} of genes, affected by the variation
+     */
+    Set<VariationGeneInfo> getGeneIds(final int start, final int end) {
+        if (start > windowEnd) {
+            advance(start);
+        }
+        final Set<VariationGeneInfo> geneIds = getGeneIds(start);
+        if (end > start) {
+            geneIds.addAll(getGeneIds(end));
+        }
+        return geneIds;
+    }
+
+    private Set<VariationGeneInfo> getGeneIds(final int position) {
+        final List<Gene> genes;
+        if (position >= windowStart && position <= windowEnd) {
+            genes = new ArrayList<>();
+            for (Gene gene : active) {
+                if (gene.getStartIndex() > position) {
+                    break;
+                }
+                if (gene.getEndIndex() >= position) {
+                    genes.add(gene);
+                }
+            }
+        } else {
+            genes = loadGenes(position, position);
+        }
+
+        if (genes.isEmpty()) {
+            return new HashSet<>();
+        }
+        final boolean isExon = genes.stream().anyMatch(GeneUtils::isExon);
+        return genes.stream().filter(GeneUtils::isGene)
+                .map(g -> new VariationGeneInfo(g.getGroupId(), g.getFeatureName(), isExon))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Moves the window to a position. Genes, that were loaded before and still overlap the window,
+     * are kept, since they overlapped the previous window as well.
+     */
+    private void advance(final int position) {
+        final int previousEnd = windowEnd;
+        windowStart = position;
+        windowEnd = (int) Math.min(Integer.MAX_VALUE, (long) position + WINDOW_SIZE - 1);
+        active.removeIf(gene -> gene.getEndIndex() < windowStart);
+        for (Gene gene : loadGenes(windowStart, windowEnd)) {
+            if (gene.getStartIndex() > previousEnd) {
+                active.add(gene);
+            }
+        }
+    }
+
+    private List<Gene> loadGenes(final int start, final int end) {
+        final List<Gene> genes = new ArrayList<>();
+        try {
+            featureIndexDao.searchFeaturesInInterval(Collections.singletonList(geneFile), start, end, chromosome)
+                    .getEntries().stream()
+                    .filter(f -> f.getFeatureType() == FeatureType.EXON || f.getFeatureType() == FeatureType.GENE)
+                    .forEach(f -> {
+                        Gene gene = new Gene();
+                        gene.setFeature(f.getFeatureType().name());
+                        gene.setStartIndex(f.getStartIndex());
+                        gene.setEndIndex(f.getEndIndex());
+                        gene.setGroupId(f.getFeatureId());
+                        gene.setFeatureName(f.getFeatureName().toUpperCase());
+                        genes.add(gene);
+                    });
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+        genes.sort(GENE_ORDER);
+        return genes;
+    }
+}
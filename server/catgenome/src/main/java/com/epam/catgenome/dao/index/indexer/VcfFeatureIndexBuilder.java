@@ -27,11 +27,9 @@ package com.epam.catgenome.dao.index.indexer;
 import com.epam.catgenome.component.MessageHelper;
 import com.epam.catgenome.constant.MessagesConstants;
 import com.epam.catgenome.dao.index.FeatureIndexDao;
-import com.epam.catgenome.entity.gene.Gene;
 import com.epam.catgenome.entity.gene.GeneFile;
 import com.epam.catgenome.entity.index.FeatureIndexEntry;
 import com.epam.catgenome.entity.index.FeatureType;
-import com.epam.catgenome.entity.index.IndexSearchResult;
 import com.epam.catgenome.entity.index.VcfIndexEntry;
 import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.vcf.InfoItem;
@@ -39,12 +37,9 @@ import com.epam.catgenome.entity.vcf.OrganismType;
 import com.epam.catgenome.entity.vcf.Variation;
 import com.epam.catgenome.entity.vcf.VariationType;
 import com.epam.catgenome.entity.vcf.VcfFilterInfo;
-import com.epam.catgenome.manager.gene.GeneUtils;
 import com.epam.catgenome.manager.vcf.VcfManager;
 import com.epam.catgenome.manager.vcf.reader.VcfFileReader;
-import com.epam.catgenome.util.NggbIntervalTreeMap;
 import com.epam.catgenome.util.Utils;
-import htsjdk.samtools.util.Interval;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFCompoundHeaderLine;
 import htsjdk.variant.vcf.VCFHeader;
@@ -55,9 +50,7 @@ import org.apache.commons.math3.util.MathUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -80,7 +73,7 @@ public class VcfFeatureIndexBuilder implements FeatureIndexBuilder<VariantContex
 
     private List<VcfIndexEntry> allEntries;
 
-    private Map<GeneFile, NggbIntervalTreeMap<List<Gene>>> intervalMapCache = new HashMap<>();
+    private Map<GeneFile, GeneIntervalSweep> geneSweeps = new HashMap<>();
 
     public VcfFeatureIndexBuilder(VcfFilterInfo filterInfo, VCFHeader vcfHeader, FeatureIndexDao featureIndexDao) {
         this.filterInfo = filterInfo;
@@ -93,6 +86,10 @@ public class VcfFeatureIndexBuilder implements FeatureIndexBuilder<VariantContex
         return vcfHeader;
     }
 
+    public FeatureIndexDao getFeatureIndexDao() {
+        return featureIndexDao;
+    }
+
     @Override public void add(VariantContext context, Map<String, Chromosome> chromosomeMap) {
         if (chromosomeMap.containsKey(context.getContig()) || chromosomeMap
                 .containsKey(Utils.changeChromosomeName(context.getContig()))) {
@@ -234,26 +231,22 @@ public class VcfFeatureIndexBuilder implements FeatureIndexBuilder<VariantContex
 
 
     public VcfIndexEntry build(VcfIndexEntry entry, List<GeneFile> geneFiles, Chromosome chromosome) {
-        int start = 0;
-        int end = chromosome.getSize();
+        return build(entry, annotate(entry.getStartIndex(), entry.getEndIndex(), geneFiles, chromosome));
+    }
 
-        List<VcfIndexEntry> indexEntries = fillEntryDetails(entry, geneFiles, chromosome, start, end);
+    /**
+     * Fills an entry with details, using genes, that were found for it before
+     */
+    public VcfIndexEntry build(VcfIndexEntry entry, GeneAnnotation annotation) {
+        List<VcfIndexEntry> indexEntries = fillEntryDetails(entry, annotation);
         return indexEntries.get(0);
     }
 
     @Override public List<VcfIndexEntry> build(List<GeneFile> geneFiles, Chromosome chromosome) {
         List<VcfIndexEntry> processedEntries = new ArrayList<>();
-        int start = chromosome.getSize();
-        int end = 0;
-        for (FeatureIndexEntry entry : allEntries) {
-            start = Math.min(start, entry.getStartIndex());
-            end = Math.max(end, entry.getEndIndex());
-        }
-
-
         for (VcfIndexEntry indexEntry : allEntries) {
-            List<VcfIndexEntry> filledEntries =
-                    fillEntryDetails(indexEntry, geneFiles, chromosome, start, end);
+            List<VcfIndexEntry> filledEntries = fillEntryDetails(indexEntry,
+                    annotate(indexEntry.getStartIndex(), indexEntry.getEndIndex(), geneFiles, chromosome));
             processedEntries
                     .addAll(filledEntries);
         }
@@ -275,26 +268,38 @@ public class VcfFeatureIndexBuilder implements FeatureIndexBuilder<VariantContex
         return splitAmbiguousInfoFields(simplifiedEntries, ambiguousInfoFields);
     }
 
-    private List<VcfIndexEntry> fillEntryDetails(VcfIndexEntry entry, List<GeneFile> geneFiles,
-            Chromosome chromosome, int start, int end) {
-        String geneIdsString = null;
-        String geneNamesString = null;
-        Set<VariationGeneInfo> geneIds = Collections.emptySet();
+    /**
+     * Finds genes, affected by a variation. Variations of a chromosome should be annotated in order of their
+     * start indexes, since genes are joined with variations by a sweep over the chromosome.
+     *
+     * @param start a start index of the variation
+     * @param end an end index of the variation
+     * @param geneFiles gene files to look for genes
+     * @param chromosome a chromosome of the variation
+     * @return genes, affected by the variation
+     */
+    public GeneAnnotation annotate(int start, int end, List<GeneFile> geneFiles, Chromosome chromosome) {
+        GeneAnnotation annotation = new GeneAnnotation();
 
         for (GeneFile geneFile : geneFiles) {
-            if (!intervalMapCache.containsKey(geneFile)) {
-                intervalMapCache
-                        .put(geneFile, loadGenesIntervalMap(geneFile, start, end, chromosome));
-            }
-            NggbIntervalTreeMap<List<Gene>> intervalMap = intervalMapCache.get(geneFile);
+            GeneIntervalSweep sweep = geneSweeps.computeIfAbsent(geneFile,
+                file -> new GeneIntervalSweep(featureIndexDao, file, chromosome));
 
-            geneIds = fetchGeneIdsFromBatch(intervalMap, entry.getStartIndex(),
-                    entry.getEndIndex(), chromosome);
-            geneIdsString =
+            Set<VariationGeneInfo> geneIds = sweep.getGeneIds(start, end);
+            annotation.geneIds = geneIds;
+            annotation.geneIdsString =
                     geneIds.stream().map(i -> i.geneId).collect(Collectors.joining(", "));
-            geneNamesString =
+            annotation.geneNamesString =
                     geneIds.stream().map(i -> i.geneName).collect(Collectors.joining(", "));
-            entry.setExon(geneIds.stream().anyMatch(i -> i.isExon));
+            annotation.exon = geneIds.stream().anyMatch(i -> i.isExon);
+        }
+
+        return annotation;
+    }
+
+    private List<VcfIndexEntry> fillEntryDetails(VcfIndexEntry entry, GeneAnnotation annotation) {
+        if (annotation.exon != null) {
+            entry.setExon(annotation.exon);
         }
 
         Set<VariationType> types = new HashSet<>();
@@ -304,73 +309,7 @@ public class VcfFeatureIndexBuilder implements FeatureIndexBuilder<VariantContex
             types.add(variation.getType());
         }
 
-        return simplify(entry, geneIds, geneIdsString, geneNamesString, types);
-    }
-
-    /**
-     * Fetch gene IDs of genes, affected by variation. The variation is specified by it's start and end indexes
-     *
-     * @param intervalMap represents a batch loaded genes form gene file
-     * @param start       a start index of the variation
-     * @param end         an end index of the variation
-     * @param chromosome  a {@code Chromosome}
-     * @return a {@code Set} of IDs of genes, affected by the variation
-     */
-    private Set<VariationGeneInfo> fetchGeneIdsFromBatch(
-            NggbIntervalTreeMap<List<Gene>> intervalMap, int start, int end,
-            Chromosome chromosome) {
-        Set<VariationGeneInfo> geneIds = getGeneIds(intervalMap, chromosome, start, start);
-        if (end > start) {
-            geneIds.addAll(getGeneIds(intervalMap, chromosome, end, end));
-        }
-
-        return geneIds;
-    }
-
-    private NggbIntervalTreeMap<List<Gene>> loadGenesIntervalMap(GeneFile geneFile, int start,
-            int end, Chromosome chromosome) {
-        final NggbIntervalTreeMap<List<Gene>> genesRangeMap = new NggbIntervalTreeMap<>();
-        try {
-            IndexSearchResult<FeatureIndexEntry> searchResult = featureIndexDao
-                    .searchFeaturesInInterval(Collections.singletonList(geneFile), start, end,
-                            chromosome);
-            searchResult.getEntries().stream().filter(f -> f.getFeatureType() == FeatureType.EXON
-                    || f.getFeatureType() == FeatureType.GENE).map(f -> {
-                        Gene gene = new Gene();
-                        gene.setFeature(f.getFeatureType().name());
-                        gene.setStartIndex(f.getStartIndex());
-                        gene.setEndIndex(f.getEndIndex());
-                        gene.setGroupId(f.getFeatureId());
-                        gene.setFeatureName(f.getFeatureName().toUpperCase());
-                        return gene;
-                    }).forEach(g -> {
-                        Interval interval =
-                                new Interval(chromosome.getName(), g.getStartIndex(), g.getEndIndex());
-                        genesRangeMap.putIfAbsent(interval, new ArrayList<>());
-                        genesRangeMap.get(interval).add(g);
-                    });
-        } catch (IOException e) {
-            LOGGER.error(e.getMessage(), e);
-        }
-        genesRangeMap.setMaxEndIndex(start);
-        genesRangeMap.setMinStartIndex(end);
-        return genesRangeMap;
-    }
-
-    private Set<VariationGeneInfo> getGeneIds(NggbIntervalTreeMap<List<Gene>> intervalMap,
-            Chromosome chromosome, int start, int end) {
-        Collection<Gene> genes =
-                intervalMap.getOverlapping(new Interval(chromosome.getName(), start, end)).stream()
-                        .flatMap(l -> l.stream()).collect(Collectors.toList());
-        Set<VariationGeneInfo> geneIds = new HashSet<>();
-        if (genes != null) {
-            boolean isExon = genes.stream().anyMatch(GeneUtils::isExon);
-            geneIds = genes.stream().filter(GeneUtils::isGene)
-                    .map(g -> new VariationGeneInfo(g.getGroupId(), g.getFeatureName(), isExon))
-                    .collect(Collectors.toSet());
-        }
-
-        return geneIds;
+        return simplify(entry, annotation.geneIds, annotation.geneIdsString, annotation.geneNamesString, types);
     }
 
     private List<VcfIndexEntry> simplifyVcfIndexEntries(VcfIndexEntry masterEntry,
@@ -480,7 +419,17 @@ public class VcfFeatureIndexBuilder implements FeatureIndexBuilder<VariantContex
 
     @Override public void clear() {
         this.allEntries.clear();
-        this.intervalMapCache.clear();
+        this.geneSweeps.clear();
+    }
+
+    /**
+     * Genes, affected by a variation
+     */
+    public static class GeneAnnotation {
+        private Set<VariationGeneInfo> geneIds = Collections.emptySet();
+        private String geneIdsString;
+        private String geneNamesString;
+        private Boolean exon;
     }
 
     protected static class VariationGeneInfo {
@@ -33,13 +33,11 @@ import com.epam.catgenome.entity.index.FeatureIndexEntry;
 import com.epam.catgenome.entity.index.IndexSearchResult;
 import com.epam.catgenome.manager.FileManager;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.SimpleFSDirectory;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -79,13 +77,12 @@ public abstract class AbstractIndexSearcher<T extends FeatureIndexEntry, R exten
             return new IndexSearchResult<>(Collections.emptyList(), false, 0);
         }
 
-        final SimpleFSDirectory[] indexes = fileManager.getIndexesForFiles(files);
-        long indexSize = featureIndexDao.getTotalIndexSize(indexes);
+        long indexSize = featureIndexDao.getTotalIndexSize(files);
         if (indexSize > featureIndexDao.getLuceneIndexMaxSizeForGrouping() && filterForm.filterEmpty()) {
             throw new IllegalArgumentException("Variations filter shall be specified");
         }
 
-        try (MultiReader reader = featureIndexDao.openMultiReader(indexes)) {
+        try (MultiReader reader = featureIndexDao.openMultiReader(files)) {
             if (reader.numDocs() == 0) {
                 return new IndexSearchResult<>(Collections.emptyList(), false, 0);
             }
@@ -99,10 +96,6 @@ public abstract class AbstractIndexSearcher<T extends FeatureIndexEntry, R exten
                 searchResults.setTotalResultsCount(0);
             }
             return searchResults;
-        } finally {
-            for (SimpleFSDirectory index : indexes) {
-                IOUtils.closeQuietly(index);
-            }
         }
     }
 
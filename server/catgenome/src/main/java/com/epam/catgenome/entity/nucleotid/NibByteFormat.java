@@ -189,6 +189,27 @@ public enum NibByteFormat {
         return result;
     }
 
+    /**
+     * Packs nucleotides into an array in the nib format, two nucleotides per byte. Characters, that
+     * can't be represented in the nib format, e.g. IUPAC ambiguity codes, are packed as 'N'
+     *
+     * @param nucleotides {@code byte[]} nucleotides char codes (ASCII)
+     * @return {@code byte[]} nib-format array of length {@code (nucleotides.length + 1) / 2}
+     */
+    public static byte[] packNucleotides(final byte[] nucleotides) {
+        final byte[] result = new byte[(nucleotides.length + 1) / 2];
+        for (int i = 0; i < nucleotides.length; i++) {
+            final int nibCode = toNibCodeOrN(nucleotides[i]);
+            result[i >>> 1] |= i % 2 == 0 ? nibCode << LOW_TO_HIGH_NIB_CODE_SHIFT : nibCode;
+        }
+        return result;
+    }
+
+    private static int toNibCodeOrN(final byte charCode) {
+        final int index = charCode < 0 ? -1 : NUCLEOTIDES_CHAR_2_NIB_CODE[charCode];
+        return index == -1 ? NUCLEOTIDE_UPPERCASE_N.getByteCode() : NIB_CODE_LOW[index];
+    }
+
     public static byte nibCodeToByteNucleotide(final int nibCode) {
         Assert.isTrue(nibCode >= 0 && nibCode < Constants.CODING_ARRAY_LENGTH, messageErrorUnknownNibCode);
         byte charCode = NUCLEOTIDES_NIB_CODE_2_CHAR[nibCode];
@@ -29,6 +29,10 @@ import lombok.Value;
 
 import java.util.List;
 
+/**
+ * A page of motif search results. {@code chromosomeId} and {@code position} point to the place to continue
+ * the search from to get the next page, they are empty if all matches are already returned
+ */
 @Value
 @Builder
 public class MotifSearchResult {
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.entity.track;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * {@code PackedReferenceTrack} is a compact representation of a reference track, that transfers
+ * sequence data as a single binary payload instead of a list of {@code Sequence} blocks. The payload
+ * is serialized to JSON as a base64 string.
+ * <p>
+ * For {@link Encoding#NIB} the payload contains nucleotides in the nib format: two 4-bit codes
+ * per byte, high half first. {@code offset} specifies the number of half-bytes to skip before the
+ * code of the base at {@code startIndex}.
+ * <p>
+ * For {@link Encoding#GC_RLE} the payload contains run-length encoded GC-content bins as pairs of
+ * unsigned bytes: the number of consequent bins (1..255) and their GC-content scaled to 0..255.
+ * Bins are split in the same way as {@code Sequence} blocks of the regular reference track, e.g.
+ * every bin covers {@code 1 / scaleFactor} bases.
+ */
+@Getter
+@Setter
+public class PackedReferenceTrack extends AbstractTrack {
+
+    public enum Encoding {
+        NIB, GC_RLE
+    }
+
+    private Encoding encoding;
+
+    private int offset;
+
+    private int binCount;
+
+    private byte[] data;
+
+    public PackedReferenceTrack() {
+        // no-op
+    }
+
+    public PackedReferenceTrack(final Track track) {
+        this.setId(track.getId());
+        this.chromosome = track.getChromosome();
+        this.endIndex = track.getEndIndex();
+        this.scaleFactor = track.getScaleFactor();
+        this.startIndex = track.getStartIndex();
+        this.type = track.getType();
+        this.mode = track.getMode();
+    }
+}
@@ -29,6 +29,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.epam.catgenome.entity.security.JwtRawToken;
 import com.epam.catgenome.security.UserContext;
@@ -40,6 +42,7 @@ import com.epam.catgenome.security.jwt.JwtTokenGenerator;
 @Service
 public class AuthManager {
     public static final String UNAUTHORIZED_USER = "Unauthorized";
+    private static final String ANONYMOUS_USER = "anonymousUser";
 
     private final JwtTokenGenerator jwtTokenGenerator;
 
@@ -83,6 +86,21 @@ public class AuthManager {
         return user;
     }
 
+    /**
+     * Identifies the client a request is served for. Returns the user name of an authenticated user and
+     * falls back to the HTTP session id for anonymous clients, e.g. when security is disabled, so that
+     * different anonymous clients are not treated as a single one
+     * @return user name of currently logged in user or an id of the current HTTP session
+     */
+    public String getAuthorizedUserOrSession() {
+        final String user = getAuthorizedUser();
+        if (!UNAUTHORIZED_USER.equals(user) && !ANONYMOUS_USER.equals(user)) {
+            return user;
+        }
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes == null ? user : attributes.getSessionId();
+    }
+
     private Object getPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || authentication.getPrincipal() == null) {
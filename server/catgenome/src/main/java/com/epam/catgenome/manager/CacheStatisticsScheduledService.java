@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager;
+
+import com.epam.catgenome.dao.index.FacetReaderStateCache;
+import com.epam.catgenome.dao.index.FeatureIndexReaderCache;
+import com.epam.catgenome.manager.reference.io.FastaSequenceCache;
+import com.epam.catgenome.manager.reference.io.NibSequenceCache;
+import com.epam.catgenome.manager.wig.BigWigFileCache;
+import com.epam.catgenome.util.CloudBlockCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically logs hits, misses and sizes of in-memory caches, so that their sizes may be tuned
+ * according to the actual load
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheStatisticsScheduledService {
+
+    private final FeatureIndexReaderCache featureIndexReaderCache;
+    private final FacetReaderStateCache facetReaderStateCache;
+    private final FastaSequenceCache fastaSequenceCache;
+    private final NibSequenceCache nibSequenceCache;
+    private final BigWigFileCache bigWigFileCache;
+
+    @Scheduled(fixedRateString = "#{catgenome['cache.statistics.log.rate'] ?: 600000}",
+            initialDelayString = "#{catgenome['cache.statistics.log.rate'] ?: 600000}")
+    public void logStatistics() {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        log.info("Feature index reader cache: {}", featureIndexReaderCache.getStatistics());
+        log.info("Facet reader state cache: {}", facetReaderStateCache.getStatistics());
+        log.info("FASTA sequence cache: {}", fastaSequenceCache.getStatistics());
+        log.info("Nib sequence cache: {}", nibSequenceCache.getStatistics());
+        log.info("BigWig file cache: {}", bigWigFileCache.getStatistics());
+        log.info("Cloud block cache: {}", CloudBlockCache.getInstance().getStatistics());
+    }
+}
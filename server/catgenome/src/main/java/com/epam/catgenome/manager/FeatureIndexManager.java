@@ -147,6 +147,9 @@ public class FeatureIndexManager {
     @Value("#{catgenome['search.indexer.buffer.size'] ?: 256}")
     private int indexBufferSize;
 
+    @Value("#{catgenome['search.indexer.threads'] ?: 4}")
+    private int indexerThreads;
+
     @Value("#{catgenome['search.features.internal.max.results'] ?: 1000}")
     private int maxFeatureInternalSearchResultsCount;
 
@@ -418,6 +421,46 @@ public class FeatureIndexManager {
         return res;
     }
 
+    /**
+     * Passes all variations, matching a filter, to a consumer in the order, specified by the filter. Unlike
+     * {@link #filterVariations(VcfFilterForm)}, paging parameters of the filter are ignored and results are
+     * read with a single index cursor, which makes it suitable for exporting large result sets
+     *
+     * @param filterForm a {@link VcfFilterForm} to filter out variations
+     * @param batchSize number of variations to fetch from index at once
+     * @param consumer receives found variations
+     * @return total number of found variations
+     * @throws IOException if something goes wrong with the file system
+     */
+    public int scanVariations(final VcfFilterForm filterForm, final int batchSize,
+                              final FeatureIndexDao.IndexEntryConsumer<VcfIndexEntry> consumer) throws IOException {
+        final List<VcfFile> files = vcfFileManager.loadVcfFiles(filterForm.getVcfFileIds());
+        final Sort sort = featureIndexDao.createVcfSorting(filterForm.getOrderBy(), files);
+        return featureIndexDao.scanFileIndexes(files, filterForm.computeQuery(FeatureType.VARIATION),
+                filterForm.getAdditionalFields(), sort, batchSize, consumer);
+    }
+
+    /**
+     * Passes all gene features of specified files, matching a filter, to a consumer in the order, specified
+     * by the filter. Paging parameters of the filter are ignored and results are read with a single index cursor
+     *
+     * @param filterForm a {@link GeneFilterForm} to filter out features
+     * @param featureFiles gene files to search
+     * @param batchSize number of features to fetch from index at once
+     * @param consumer receives found features
+     * @return total number of found features
+     * @throws IOException if something goes wrong with the file system
+     */
+    public int scanGenes(final GeneFilterForm filterForm, final List<? extends FeatureFile> featureFiles,
+                         final int batchSize, final FeatureIndexDao.IndexEntryConsumer<GeneIndexEntry> consumer)
+            throws IOException {
+        final Sort sort = Optional.ofNullable(
+                featureIndexDao.createGeneSorting(filterForm.getOrderBy(), featureFiles))
+                .orElseGet(filterForm::defaultSort);
+        return featureIndexDao.scanFileIndexes(featureFiles, filterForm.computeQuery(),
+                filterForm.getAdditionalFields(), sort, batchSize, consumer);
+    }
+
     public IndexSearchResult<GeneIndexEntry> getFullGeneSearchResult(final GeneFilterForm filterForm,
                                                                      final GeneFile geneFile) {
         try {
@@ -604,13 +647,12 @@ public class FeatureIndexManager {
 
         VCFHeader vcfHeader = (VCFHeader) reader.getHeader();
 
-        try {
+        try (BigVcfFeatureIndexBuilder indexer = new BigVcfFeatureIndexBuilder(info, vcfHeader, featureIndexDao,
+                vcfFile, fileManager, geneFiles, indexBufferSize, taskExecutorService.getIndexerExecutor(),
+                indexerThreads)) {
             CloseableIterator<VariantContext> iterator = reader.iterator();
             String currentKey = null;
             VariantContext variantContext = null;
-            BigVcfFeatureIndexBuilder indexer =
-                    new BigVcfFeatureIndexBuilder(info, vcfHeader, featureIndexDao,
-                            vcfFile, fileManager, geneFiles, indexBufferSize);
 
             while (iterator.hasNext()) {
                 variantContext = iterator.next();
@@ -632,7 +674,7 @@ public class FeatureIndexManager {
                                 currentKey));
                 indexer.clear();
             }
-            indexer.close();
+            indexer.commit();
         } catch (IOException e) {
             throw new FeatureIndexException(vcfFile, e);
         }
@@ -47,6 +47,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -99,6 +100,15 @@ public class FeatureIndexSecurityService {
         return exportManager.exportVariations(filterForm, format, includeHeader);
     }
 
+    @AclFilter
+    @PreAuthorize(ROLE_USER)
+    public void exportVariations(final VcfExportFilterForm filterForm,
+                                 final FileFormat format,
+                                 final boolean includeHeader,
+                                 final OutputStream outputStream) throws IOException {
+        exportManager.exportVariations(filterForm, format, includeHeader, outputStream);
+    }
+
     @AclFilter
     @PreAuthorize(ROLE_USER)
     public List<Group> groupVariations(VcfFilterForm filterForm, String groupBy) throws IOException {
@@ -152,4 +162,13 @@ public class FeatureIndexSecurityService {
                                             final boolean includeHeader) throws IOException {
         return exportManager.exportGenesByReference(geneFilterForm, referenceId, format, includeHeader);
     }
+
+    @PreAuthorize(ROLE_USER)
+    public void exportFeaturesByReference(final GeneExportFilterForm geneFilterForm,
+                                          final Long referenceId,
+                                          final FileFormat format,
+                                          final boolean includeHeader,
+                                          final OutputStream outputStream) throws IOException {
+        exportManager.exportGenesByReference(geneFilterForm, referenceId, format, includeHeader, outputStream);
+    }
 }
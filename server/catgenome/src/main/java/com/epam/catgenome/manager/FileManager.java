@@ -28,6 +28,7 @@ import static com.epam.catgenome.component.MessageHelper.getMessage;
 import static com.epam.catgenome.manager.FileManager.FilePathFormat.*;
 import static com.epam.catgenome.manager.FileManager.FilePathPlaceholder.*;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -49,7 +50,9 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -64,11 +67,14 @@ import javax.annotation.PostConstruct;
 import com.epam.catgenome.component.MessageCode;
 import com.epam.catgenome.constant.MessagesConstants;
 import com.epam.catgenome.controller.JsonMapper;
+import com.epam.catgenome.dao.index.FeatureIndexDirectoryFactory;
+import com.epam.catgenome.dao.index.FeatureIndexReaderCache;
 import com.epam.catgenome.entity.BaseEntity;
 import com.epam.catgenome.entity.BiologicalDataItem;
 import com.epam.catgenome.entity.BiologicalDataItemFormat;
 import com.epam.catgenome.entity.BiologicalDataItemResourceType;
 import com.epam.catgenome.entity.FeatureFile;
+import com.epam.catgenome.entity.bam.BamFile;
 import com.epam.catgenome.entity.bed.BedFile;
 import com.epam.catgenome.entity.file.FsDirectory;
 import com.epam.catgenome.entity.file.FsFile;
@@ -84,14 +90,18 @@ import com.epam.catgenome.entity.vcf.VcfFile;
 import com.epam.catgenome.entity.wig.Wig;
 import com.epam.catgenome.entity.wig.WigFile;
 import com.epam.catgenome.exception.HistogramWritingException;
+import com.epam.catgenome.exception.UnsortedFileException;
 import com.epam.catgenome.exception.UnsupportedGeneFileTypeException;
 import com.epam.catgenome.manager.bed.parser.NggbBedFeature;
 import com.epam.catgenome.manager.gene.parser.GeneFeature;
 import com.epam.catgenome.manager.gene.parser.GffCodec;
 import com.epam.catgenome.manager.gene.parser.GtfFeature;
+import com.epam.catgenome.manager.maf.BigMafWriter;
 import com.epam.catgenome.manager.maf.parser.MafCodec;
 import com.epam.catgenome.manager.maf.parser.MafFeature;
+import com.epam.catgenome.manager.maf.parser.SortCheckingMafCodec;
 import com.epam.catgenome.manager.reference.io.FastaUtils;
+import com.epam.catgenome.manager.reference.io.NibSequenceCache;
 import com.epam.catgenome.manager.seg.parser.SegCodec;
 import com.epam.catgenome.manager.seg.parser.SegFeature;
 import com.epam.catgenome.manager.wig.reader.BedGraphCodec;
@@ -123,12 +133,11 @@ import htsjdk.tribble.util.LittleEndianOutputStream;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFCodec;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrSubstitutor;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.store.Directory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.bio.CompressionType;
 import org.jetbrains.bio.big.BigWigFile;
@@ -173,6 +182,15 @@ public class FileManager {
 
     @Autowired(required = false)
     private EhCacheBasedIndexCache indexCache;
+
+    @Autowired
+    private FeatureIndexReaderCache indexReaderCache;
+
+    @Autowired
+    private NibSequenceCache nibSequenceCache;
+
+    @Autowired
+    private FeatureIndexDirectoryFactory indexDirectoryFactory;
     /**
      * Provides paths' patterns that have to be used to construct real relative paths
      * for file resources of any types.
@@ -209,6 +227,10 @@ public class FileManager {
         VCF_ROOT_DIR("/${ROOT_DIR_NAME}/VCF"),
         VCF_HISTOGRAM_DIR("/${ROOT_DIR_NAME}/VCF/${DIR_ID}/histogram"),
         VCF_HISTOGRAM_FILE("/${ROOT_DIR_NAME}/VCF/${DIR_ID}/histogram/${CHROMOSOME_NAME}.hg"),
+        VCF_DENSITY_DIR("/${ROOT_DIR_NAME}/VCF/${DIR_ID}/density"),
+        VCF_DENSITY_FILE("/${ROOT_DIR_NAME}/VCF/${DIR_ID}/density/${CHROMOSOME_NAME}.vd"),
+        VCF_POSITIONS_DIR("/${ROOT_DIR_NAME}/VCF/${DIR_ID}/positions"),
+        VCF_POSITIONS_FILE("/${ROOT_DIR_NAME}/VCF/${DIR_ID}/positions/${CHROMOSOME_NAME}.pos"),
 
         GENE_DIR("/${ROOT_DIR_NAME}/genes/${DIR_ID}"),
         GENE_FILE("/${ROOT_DIR_NAME}/genes/${DIR_ID}/genes${GENE_EXTENSION}"),
@@ -221,14 +243,21 @@ public class FileManager {
         GENE_FEATURE_INDEX_FILE("/${ROOT_DIR_NAME}/genes/${DIR_ID}/genes.feature"),
         GENE_HISTOGRAM_DIR("/${ROOT_DIR_NAME}/genes/${DIR_ID}/histogram"),
         GENE_HISTOGRAM_FILE("/${ROOT_DIR_NAME}/genes/${DIR_ID}/histogram/${CHROMOSOME_NAME}.hg"),
+        GENE_POSITIONS_DIR("/${ROOT_DIR_NAME}/genes/${DIR_ID}/positions"),
+        GENE_POSITIONS_FILE("/${ROOT_DIR_NAME}/genes/${DIR_ID}/positions/${CHROMOSOME_NAME}.pos"),
 
         BAM_DIR("/${ROOT_DIR_NAME}/BAM/${DIR_ID}"),
+        HEATMAP_DIR("/${ROOT_DIR_NAME}/heatmap/${DIR_ID}"),
         BAM_FILE("/${ROOT_DIR_NAME}/BAM/${DIR_ID}/${FILE_NAME}"),
+        BAM_COVERAGE_DIR("/${ROOT_DIR_NAME}/BAM/${DIR_ID}/coverage"),
+        BAM_COVERAGE_FILE("/${ROOT_DIR_NAME}/BAM/${DIR_ID}/coverage/${CHROMOSOME_NAME}.bw"),
 
         BED_DIR("/${ROOT_DIR_NAME}/bed/${DIR_ID}"),
         BED_INDEX("/${ROOT_DIR_NAME}/bed/${DIR_ID}/bed.tbi"),
         BED_HISTOGRAM_DIR("/${ROOT_DIR_NAME}/bed/${DIR_ID}/histogram"),
         BED_HISTOGRAM_FILE("/${ROOT_DIR_NAME}/bed/${DIR_ID}/histogram/${CHROMOSOME_NAME}.hg"),
+        BED_POSITIONS_DIR("/${ROOT_DIR_NAME}/bed/${DIR_ID}/positions"),
+        BED_POSITIONS_FILE("/${ROOT_DIR_NAME}/bed/${DIR_ID}/positions/${CHROMOSOME_NAME}.pos"),
 
         SEG_DIR("/${ROOT_DIR_NAME}/seg/${DIR_ID}"),
         SEG_INDEX("/${ROOT_DIR_NAME}/seg/${DIR_ID}/seg.tbi"),
@@ -251,6 +280,7 @@ public class FileManager {
         WIG_DIR("/${ROOT_DIR_NAME}/wig/${DIR_ID}/downsampled"),
         WIG_FILE("/${ROOT_DIR_NAME}/wig/${DIR_ID}/downsampled/${CHROMOSOME_NAME}.wig"),
         BED_GRAPH_FILE("/${ROOT_DIR_NAME}/wig/${DIR_ID}/downsampled.bdg"),
+        BED_GRAPH_PYRAMID_FILE("/${ROOT_DIR_NAME}/wig/${DIR_ID}/downsampled/${CHROMOSOME_NAME}.bw"),
 
         VG_DIR("/${ROOT_DIR_NAME}/vg/${DIR_ID}"),
 
@@ -384,7 +414,9 @@ public class FileManager {
             final Map<String, Object> params = new HashMap<>();
             final Long dirId = reference.getId();
             params.put(DIR_ID.name(), dirId);
-            deleteDir(substitute(REFERENCE_DIR, params));
+            final String referenceDir = substitute(REFERENCE_DIR, params);
+            nibSequenceCache.invalidate(Paths.get(toRealPath(referenceDir)));
+            deleteDir(referenceDir);
         }
     }
 
@@ -474,11 +506,17 @@ public class FileManager {
         makeDir(substitute(MAF_DIR, params));
     }
 
-    private void makeMafTempDir(long fileId) {
+    /**
+     * Creates in the file system temporary catalogue used to manage MAF files, before merging
+     *
+     * @param fileId {@code long} represents a MAF file id in the system
+     * @return created catalogue
+     */
+    public File makeMafTempDir(long fileId) {
         final Map<String, Object> params = new HashMap<>();
         params.put(DIR_ID.name(), fileId);
         params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
-        makeDir(substitute(MAF_TEMP_DIR, params));
+        return makeDir(substitute(MAF_TEMP_DIR, params));
     }
 
     /**
@@ -623,6 +661,41 @@ public class FileManager {
         return makeDataInputStream(referenceId, chromosomeName, REF_CHROMOSOME_SEQUENCE_INDEX_FILE);
     }
 
+    /**
+     * Returns a path to a file with reference sequence (.nib) of a chromosome, specified by reference ID and
+     * chromosome name
+     *
+     * @param referenceId ID of a reference
+     * @param chromosomeName name of a chromosome
+     * @return a {@code Path} to an existing sequence file
+     */
+    public Path getRefFilePath(final Long referenceId, final String chromosomeName) {
+        return getReferenceFilePath(referenceId, chromosomeName, REF_CHROMOSOME_SEQUENCE_FILE);
+    }
+
+    /**
+     * Returns a path to a block index of a reference sequence file of a chromosome, specified by reference ID and
+     * chromosome name
+     *
+     * @param referenceId ID of a reference
+     * @param chromosomeName name of a chromosome
+     * @return a {@code Path} to an existing index file
+     */
+    public Path getRefIndexFilePath(final Long referenceId, final String chromosomeName) {
+        return getReferenceFilePath(referenceId, chromosomeName, REF_CHROMOSOME_SEQUENCE_INDEX_FILE);
+    }
+
+    private Path getReferenceFilePath(final Long referenceId, final String chromosomeName,
+                                      final FilePathFormat path) {
+        Assert.notNull(referenceId, getMessage(MessageCode.NO_SUCH_REFERENCE));
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), referenceId);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+        final File file = new File(toRealPath(substitute(path, params)));
+        Assert.isTrue(file.exists(), getMessage(MessagesConstants.ERROR_NO_SUCH_FILE, referenceId, chromosomeName));
+        return file.toPath();
+    }
+
     private DataInputStream makeDataInputStream(final Long referenceId, final String chromosomeName,
                                                 FilePathFormat path) throws IOException {
         Assert.notNull(referenceId, getMessage(MessageCode.NO_SUCH_REFERENCE));
@@ -862,53 +935,41 @@ public class FileManager {
     }
 
     /**
-     * Creates a {@code SimpleFSDirectory} object, representing existing Lucene index directory for feature index
+     * Creates a {@code Directory} object, representing existing Lucene index directory for feature index
      * for desired project ID. Checks if that directory exists
      *
      * @param projectId     an ID of a project, which feature index directory to fetch
-     * @return an {@code SimpleFSDirectory} object, representing Lucene index directory for feature index
+     * @return an {@code Directory} object, representing Lucene index directory for feature index
      * @throws IOException
      */
-    public SimpleFSDirectory getIndexForProject(final long projectId) throws IOException {
+    public Directory getIndexForProject(final long projectId) throws IOException {
         final Map<String, Object> params = new HashMap<>();
         params.put(PROJECT_ID.name(), projectId);
 
         File file = new File(toRealPath(substitute(PROJECT_FEATURE_INDEX_FILE, params)));
         Assert.isTrue(file.exists(), getMessage(MessagesConstants.ERROR_PROJECT_FEATURE_INDEX_NOT_FOUND, projectId));
 
-        return new SimpleFSDirectory(file.toPath());
+        return indexDirectoryFactory.openForWrite(file.toPath());
     }
 
-    public SimpleFSDirectory[] getIndexesForFiles(final List<? extends FeatureFile> featureFiles) throws IOException {
+    /**
+     * Returns paths to existing Lucene index directories of specified feature files. Files without
+     * index are skipped
+     *
+     * @param featureFiles a list of files to get indexes for
+     * @return a {@code List} of index directory paths
+     */
+    public List<Path> getIndexPathsForFiles(final List<? extends FeatureFile> featureFiles) {
         if (CollectionUtils.isEmpty(featureFiles)) {
-            return null;
+            return Collections.emptyList();
         }
 
-        List<SimpleFSDirectory> indexes = new ArrayList<>();
-        try {
-            for (int i = 0; i < featureFiles.size(); i++) {
-                FeatureFile featureFile = featureFiles.get(i);
-
-                final Map<String, Object> params = new HashMap<>();
-                params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
-                params.put(DIR_ID.name(), featureFile.getId());
-
-                FilePathFormat format = determineFilePathFormat(featureFile);
-
-                params.put(FEATURE_FILE_DIR.name(), substitute(format, params));
-                File file = new File(toRealPath(substitute(FEATURE_INDEX_DIR, params)));
-                if (file.exists()) {
-                    indexes.add(new SimpleFSDirectory(file.toPath()));
-                }
-            }
-        } catch (IOException e) {
-            for (SimpleFSDirectory index : indexes) {
-                if (index != null) {
-                    IOUtils.closeQuietly(index);
-                }
+        List<Path> indexes = new ArrayList<>();
+        for (FeatureFile featureFile : featureFiles) {
+            File file = getIndexPathForFile(featureFile).toFile();
+            if (file.exists()) {
+                indexes.add(file.toPath());
             }
-
-            throw e;
         }
 
         if (indexes.isEmpty()) {
@@ -916,43 +977,64 @@ public class FileManager {
                     featureFiles.stream().map(BaseEntity::getName).collect(Collectors.joining(", "))));
         }
 
-        return indexes.toArray(new SimpleFSDirectory[indexes.size()]);
+        return indexes;
     }
 
     /**
-     * Creates a {@code SimpleFSDirectory} object, representing a new Lucene index directory for feature index for
+     * Returns a path to Lucene index directory of a FeatureFile, the directory may not exist
+     *
+     * @param featureFile a file to get index path for
+     * @return a path to index directory
+     */
+    public Path getIndexPathForFile(final FeatureFile featureFile) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(DIR_ID.name(), featureFile.getId());
+
+        FilePathFormat format = determineFilePathFormat(featureFile);
+
+        params.put(FEATURE_FILE_DIR.name(), substitute(format, params));
+        return Paths.get(toRealPath(substitute(FEATURE_INDEX_DIR, params)));
+    }
+
+    /**
+     * Returns a path to Lucene index directory of a project, the directory may not exist
+     *
+     * @param projectId an ID of a project, which feature index directory to fetch
+     * @return a path to index directory
+     */
+    public Path getIndexPathForProject(final long projectId) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(PROJECT_ID.name(), projectId);
+
+        return Paths.get(toRealPath(substitute(PROJECT_FEATURE_INDEX_FILE, params)));
+    }
+
+    /**
+     * Creates a {@code Directory} object, representing a new Lucene index directory for feature index for
      * desired project ID
      *
      * @param projectId     an ID of a project, which feature index directory to fetch
-     * @return an {@code SimpleFSDirectory} object, representing Lucene index directory for feature index
+     * @return an {@code Directory} object, representing Lucene index directory for feature index
      * @throws IOException if something is wrong with access to file system
      */
-    public SimpleFSDirectory createIndexForProject(final long projectId) throws IOException {
+    public Directory createIndexForProject(final long projectId) throws IOException {
         final Map<String, Object> params = new HashMap<>();
         params.put(PROJECT_ID.name(), projectId);
 
         File file = new File(toRealPath(substitute(PROJECT_FEATURE_INDEX_FILE, params)));
 
-        return new SimpleFSDirectory(file.toPath());
+        return indexDirectoryFactory.openForWrite(file.toPath());
     }
 
     /**
      * Creates index for a FeatureFile
      * @param featureFile a file to create index for
-     * @return an index, represented by {@code SimpleFSDirectory} object
+     * @return an index, represented by {@code Directory} object of configured type
      * @throws IOException if something is wrong with access to file system
      */
-    public SimpleFSDirectory createIndexForFile(FeatureFile featureFile) throws IOException {
-        final Map<String, Object> params = new HashMap<>();
-        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
-        params.put(DIR_ID.name(), featureFile.getId());
-
-        FilePathFormat format = determineFilePathFormat(featureFile);
-
-        params.put(FEATURE_FILE_DIR.name(), substitute(format, params));
-        File file = new File(toRealPath(substitute(FEATURE_INDEX_DIR, params)));
-
-        return new SimpleFSDirectory(file.toPath());
+    public Directory createIndexForFile(FeatureFile featureFile) throws IOException {
+        return indexDirectoryFactory.openForWrite(getIndexPathForFile(featureFile));
     }
 
     /**
@@ -970,6 +1052,7 @@ public class FileManager {
         params.put(FEATURE_FILE_DIR.name(), substitute(format, params));
         File dir = new File(toRealPath(substitute(FEATURE_INDEX_DIR, params)));
 
+        indexReaderCache.invalidate(dir.toPath());
         if (dir.exists()) {
             deleteDir(substitute(FEATURE_INDEX_DIR, params));
         }
@@ -1048,6 +1131,102 @@ public class FileManager {
         }
     }
 
+    /**
+     * Creates an output stream to write a variation density pyramid of a chromosome of a VCF file
+     *
+     * @param vcfFile a VCF file, for which pyramid is written
+     * @param chromosomeName a name of a chromosome
+     * @return a {@code DataOutputStream} to the pyramid file
+     * @throws IOException
+     */
+    public DataOutputStream makeVcfDensityOutputStream(final VcfFile vcfFile, final String chromosomeName)
+            throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), vcfFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        makeDir(substitute(VCF_DENSITY_DIR, params));
+
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+        final File densityFile = new File(toRealPath(substitute(VCF_DENSITY_FILE, params)));
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(densityFile)));
+    }
+
+    /**
+     * Gets a variation density pyramid file of a chromosome of a VCF file
+     *
+     * @param vcfFile a VCF file, for which to get pyramid file
+     * @param chromosomeName a name of a chromosome
+     * @return a pyramid file or null, if it wasn't created
+     */
+    public File getVcfDensityFile(final VcfFile vcfFile, final String chromosomeName) {
+        if (vcfFile.getId() == null) {
+            return null;
+        }
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), vcfFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+
+        final File densityFile = new File(toRealPath(substitute(VCF_DENSITY_FILE, params)));
+        return densityFile.exists() ? densityFile : null;
+    }
+
+    /**
+     * Creates an output stream to write a position index of a chromosome of a feature file
+     *
+     * @param featureFile a {@code FeatureFile}, for which index is written
+     * @param chromosomeName a name of a chromosome
+     * @return a {@code DataOutputStream} to the index file
+     * @throws IOException
+     */
+    public DataOutputStream makePositionIndexOutputStream(final FeatureFile featureFile, final String chromosomeName)
+            throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), featureFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        makeDir(substitute(getPositionIndexFormats(featureFile).getLeft(), params));
+
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+        final File indexFile = new File(toRealPath(substitute(getPositionIndexFormats(featureFile).getRight(),
+                params)));
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+    }
+
+    /**
+     * Gets a position index file of a chromosome of a feature file
+     *
+     * @param featureFile a {@code FeatureFile}, for which to get index file
+     * @param chromosomeName a name of a chromosome
+     * @return an index file or null, if it wasn't created
+     */
+    public File getPositionIndexFile(final FeatureFile featureFile, final String chromosomeName) {
+        if (featureFile.getId() == null) {
+            return null;
+        }
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), featureFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+
+        final File indexFile = new File(toRealPath(substitute(getPositionIndexFormats(featureFile).getRight(),
+                params)));
+        return indexFile.exists() ? indexFile : null;
+    }
+
+    private Pair<FilePathFormat, FilePathFormat> getPositionIndexFormats(final FeatureFile featureFile) {
+        if (featureFile instanceof VcfFile) {
+            return new ImmutablePair<>(VCF_POSITIONS_DIR, VCF_POSITIONS_FILE);
+        }
+        if (featureFile instanceof GeneFile) {
+            return new ImmutablePair<>(GENE_POSITIONS_DIR, GENE_POSITIONS_FILE);
+        }
+        if (featureFile instanceof BedFile) {
+            return new ImmutablePair<>(BED_POSITIONS_DIR, BED_POSITIONS_FILE);
+        }
+        throw new IllegalArgumentException(getMessage(MessagesConstants.ERROR_UNSUPPORTED_FEATURE_FILE_TYPE,
+                featureFile.getClass().getName()));
+    }
+
     private DataOutputStream makeHistogramOutputStream(FeatureFile featureFile, final String chromosomeName)
             throws IOException {
         final Map<String, Object> params = new HashMap<>();
@@ -1748,6 +1927,7 @@ public class FileManager {
      * @param file a MAF file
      * @param mafFile a MafFile object form database. This one will represent merged MAF file after registration
      * @throws IOException
+     * @throws UnsortedFileException if features of a file aren't sorted, so it can't be indexed
      */
     public void makeMafTempIndex(File file, MafFile mafFile) throws IOException {
         final Map<String, Object> params = new HashMap<>();
@@ -1765,7 +1945,7 @@ public class FileManager {
         LOGGER.debug("Writing temporary MAF index at {}", indexFile.getAbsolutePath());
 
         boolean compressed = file.getAbsoluteFile().getPath().endsWith(".gz");
-        MafCodec codec = new MafCodec(file.getAbsolutePath());
+        MafCodec codec = new SortCheckingMafCodec(file.getAbsolutePath());
 
         if (compressed) {
             makeTabixCompressedIndex(file, indexFile, codec, MAF_TABIX_FORMAT);
@@ -1789,21 +1969,9 @@ public class FileManager {
         return new File(toRealPath(substitute(MAF_TEMP_INDEX, params)));
     }
 
-    /**
-     * Creates an index for a specified MafFile, representing BigMaf file, merged form several MAF files
-     * @param mafFile MafFile to create index for
-     */
-    public void makeBigMafIndex(final MafFile mafFile) throws IOException {
-        makeMafIndex(mafFile, BIGMAF_TABIX_FORMAT);
-    }
-
     private void makeMafIndex(final MafFile mafFile, final TabixFormat tabixFormat) throws IOException {
-        final Map<String, Object> params = new HashMap<>();
-        params.put(DIR_ID.name(), mafFile.getId());
-        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
-
         File file = new File(mafFile.getPath());
-        File indexFile = new File(toRealPath(substitute(MAF_INDEX, params)));
+        File indexFile = getMafIndexFile(mafFile);
         LOGGER.debug("Writing MAF index at {}", indexFile.getAbsolutePath());
 
         if (mafFile.getCompressed()) {
@@ -1812,39 +1980,53 @@ public class FileManager {
             makeTabixIndex(file, indexFile, new MafCodec(mafFile.getPath()), tabixFormat);
         }
 
-        BiologicalDataItem indexItem = new BiologicalDataItem();
-        indexItem.setCreatedDate(new Date());
-        indexItem.setPath(indexFile.getAbsolutePath());
-        indexItem.setSource(indexFile.getAbsolutePath());
-        indexItem.setFormat(BiologicalDataItemFormat.MAF_INDEX);
-        indexItem.setType(BiologicalDataItemResourceType.FILE);
-        indexItem.setName("");
-
-        mafFile.setIndex(indexItem);
+        setMafIndex(mafFile, indexFile);
     }
 
     /**
-     * Creates a writer for a specified MafFile
+     * Creates a writer for a BigMaf file of a specified MafFile, merged from several MAF files. The writer
+     * builds an index of the file in the same pass
      *
      * @param mafFile a MafFile to create writer for
-     * @return a MafFile to write
+     * @return a writer for a BigMaf file, its index is written, when the writer is closed
      * @throws IOException
      */
-    public BufferedWriter makeMafFileWriter(MafFile mafFile) throws IOException {
+    public BigMafWriter makeBigMafWriter(MafFile mafFile) throws IOException {
         final Map<String, Object> params = new HashMap<>();
         params.put(DIR_ID.name(), mafFile.getId());
         params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
 
         File file = new File(toRealPath(substitute(MAF_FILE, params)));
         Assert.isTrue(file.createNewFile());
+        File indexFile = getMafIndexFile(mafFile);
 
-        LOGGER.debug("Writing MAF file at {}", file.getAbsolutePath());
+        LOGGER.debug("Writing MAF file at {} and its index at {}", file.getAbsolutePath(),
+                indexFile.getAbsolutePath());
 
         mafFile.setPath(file.getAbsolutePath());
         mafFile.setCompressed(true);
+        setMafIndex(mafFile, indexFile);
 
-        return new BufferedWriter(new OutputStreamWriter(
-                new BlockCompressedOutputStream(file), Charset.defaultCharset()));
+        return new BigMafWriter(file, indexFile, BIGMAF_TABIX_FORMAT);
+    }
+
+    private File getMafIndexFile(final MafFile mafFile) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), mafFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        return new File(toRealPath(substitute(MAF_INDEX, params)));
+    }
+
+    private void setMafIndex(final MafFile mafFile, final File indexFile) {
+        BiologicalDataItem indexItem = new BiologicalDataItem();
+        indexItem.setCreatedDate(new Date());
+        indexItem.setPath(indexFile.getAbsolutePath());
+        indexItem.setSource(indexFile.getAbsolutePath());
+        indexItem.setFormat(BiologicalDataItemFormat.MAF_INDEX);
+        indexItem.setType(BiologicalDataItemResourceType.FILE);
+        indexItem.setName("");
+
+        mafFile.setIndex(indexItem);
     }
 
     /**
@@ -1890,6 +2072,118 @@ public class FileManager {
         }
     }
 
+    /**
+     * Creates in the file system a catalogue for coverage files of a BAM file
+     *
+     * @param fileId {@code long} represents a BAM file id in the system
+     */
+    public void makeBamCoverageDir(long fileId) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), fileId);
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        makeDir(substitute(BAM_COVERAGE_DIR, params));
+    }
+
+    /**
+     * Writes coverage of a BAM file for a chromosome to a BIGWIG file with the given number of zoom levels
+     *
+     * @param bamFile a BamFile, for which coverage is written
+     * @param wigSections a List of WigSection objects, representing coverage bins
+     * @param chromSizes List of Pairs of chromosome sizes
+     * @param chromosomeName a name of a chromosome, for which to write BIGWIG file
+     * @param zoomLevelCount number of zoom levels, summarizing coverage bins
+     * @throws IOException
+     */
+    public void writeToBamCoverageFile(BamFile bamFile, List<WigSection> wigSections,
+                                       List<kotlin.Pair<String, Integer>> chromSizes, String chromosomeName,
+                                       int zoomLevelCount) throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), bamFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+
+        File file = new File(toRealPath(substitute(BAM_COVERAGE_FILE, params)));
+        File tmpFile = new File(file.getPath() + ".tmp");
+        BigWigFile.write(wigSections, chromSizes, tmpFile.toPath(), zoomLevelCount, CompressionType.DEFLATE,
+                ByteOrder.nativeOrder());
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets path to a coverage BIGWIG file, specified by BamFile and chromosome name
+     *
+     * @param bamFile a BamFile, for which to get coverage file path
+     * @param chromosomeName a name of a chromosome, for which to get coverage file path
+     * @return path to a coverage BIGWIG file or null, if it wasn't created
+     */
+    public String getBamCoverageFilePath(BamFile bamFile, String chromosomeName) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), bamFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+
+        File file = new File(toRealPath(substitute(BAM_COVERAGE_FILE, params)));
+        if (file.exists()) {
+            return file.getAbsolutePath();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a directory, containing all the stuff, related to a BAM file
+     *
+     * @param fileId {@code long} represents a BAM file id in the system
+     * @throws IOException
+     */
+    public void deleteBamDir(long fileId) throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), fileId);
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        deleteDir(substitute(BAM_DIR, params));
+    }
+
+    /**
+     * Creates in the file system a catalogue for tiles of a heatmap
+     *
+     * @param heatmapId {@code long} represents a heatmap id in the system
+     * @return created catalogue
+     */
+    public File makeHeatmapDir(long heatmapId) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), heatmapId);
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        return makeDir(substitute(HEATMAP_DIR, params));
+    }
+
+    /**
+     * Gets a catalogue for tiles of a heatmap
+     *
+     * @param heatmapId {@code long} represents a heatmap id in the system
+     * @return a catalogue for tiles of a heatmap or null, if it wasn't created
+     */
+    public File getHeatmapDir(long heatmapId) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), heatmapId);
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        final File directory = new File(toRealPath(substitute(HEATMAP_DIR, params)));
+        return directory.isDirectory() ? directory : null;
+    }
+
+    /**
+     * Deletes a catalogue for tiles of a heatmap
+     *
+     * @param heatmapId {@code long} represents a heatmap id in the system
+     * @throws IOException
+     */
+    public void deleteHeatmapDir(long heatmapId) throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), heatmapId);
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        deleteDir(substitute(HEATMAP_DIR, params));
+    }
+
     public File writeToBedGraphFile(WigFile wigFile, List<BedGraphFeature> sectionList) throws IOException {
         final Map<String, Object> params = new HashMap<>();
         params.put(DIR_ID.name(), wigFile.getId());
@@ -1910,6 +2204,53 @@ public class FileManager {
         return file;
     }
 
+    /**
+     * Writes a bedGraph file for a chromosome to a BIGWIG file with the given number of zoom levels
+     *
+     * @param wigFile a bedGraph WigFile, for which pyramid is written
+     * @param wigSections WigSection objects, representing bedGraph records, they are pulled while writing
+     * @param chromSizes List of Pairs of chromosome sizes
+     * @param chromosomeName a name of a chromosome, for which to write BIGWIG file
+     * @param zoomLevelCount number of zoom levels, summarizing bedGraph records
+     * @throws IOException
+     */
+    public void writeToBedGraphPyramidFile(WigFile wigFile, Iterable<WigSection> wigSections,
+                                           List<kotlin.Pair<String, Integer>> chromSizes, String chromosomeName,
+                                           int zoomLevelCount) throws IOException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), wigFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+
+        File file = new File(toRealPath(substitute(BED_GRAPH_PYRAMID_FILE, params)));
+        File tmpFile = new File(file.getPath() + ".tmp");
+        BigWigFile.write(wigSections, chromSizes, tmpFile.toPath(), zoomLevelCount, CompressionType.DEFLATE,
+                ByteOrder.nativeOrder());
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets path to a pyramid BIGWIG file, specified by bedGraph WigFile and chromosome name
+     *
+     * @param wigFile a bedGraph WigFile, for which to get pyramid file path
+     * @param chromosomeName a name of a chromosome, for which to get pyramid file path
+     * @return path to a pyramid BIGWIG file or null, if it wasn't created
+     */
+    public String getBedGraphPyramidFilePath(WigFile wigFile, String chromosomeName) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(DIR_ID.name(), wigFile.getId());
+        params.put(FilePathPlaceholder.ROOT_DIR_NAME.name(), ROOT_DIR_NAME);
+        params.put(CHROMOSOME_NAME.name(), chromosomeName);
+
+        File file = new File(toRealPath(substitute(BED_GRAPH_PYRAMID_FILE, params)));
+        if (file.exists()) {
+            return file.getAbsolutePath();
+        } else {
+            return null;
+        }
+    }
+
     public String getDownsampledBedGraphFilePath(WigFile wigFile) {
         final Map<String, Object> params = new HashMap<>();
         params.put(DIR_ID.name(), wigFile.getId());
@@ -0,0 +1,304 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.bam;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.epam.catgenome.entity.bam.BamFile;
+import com.epam.catgenome.entity.bam.BamQueryOption;
+import com.epam.catgenome.entity.bam.BamTrack;
+import com.epam.catgenome.entity.bam.BamTrackMode;
+import com.epam.catgenome.entity.bam.BaseCoverage;
+import com.epam.catgenome.entity.bam.Read;
+import com.epam.catgenome.entity.bam.TrackDirectionType;
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.entity.track.Track;
+import com.epam.catgenome.manager.FileManager;
+import com.epam.catgenome.manager.bam.filters.MiddleSAMRecordFilter;
+import com.epam.catgenome.manager.bam.handlers.SAMRecordHandler;
+import com.epam.catgenome.manager.bam.sifters.FullResultSifter;
+import com.epam.catgenome.manager.parallel.ParallelTaskExecutionUtils;
+import com.epam.catgenome.manager.reference.ReferenceGenomeManager;
+import com.epam.catgenome.manager.reference.ReferenceManager;
+import com.epam.catgenome.util.Utils;
+import gnu.trove.list.TFloatList;
+import gnu.trove.list.array.TFloatArrayList;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import kotlin.Pair;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.bio.BetterSeekableBufferedStream;
+import org.jetbrains.bio.EndianSynchronizedBufferFactory;
+import org.jetbrains.bio.big.BigFile;
+import org.jetbrains.bio.big.BigSummary;
+import org.jetbrains.bio.big.BigWigFile;
+import org.jetbrains.bio.big.FixedStepSection;
+import org.jetbrains.bio.big.WigSection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Manages coverage pyramids of registered BAM files. A pyramid is a BIGWIG file per chromosome, that holds
+ * max coverage in bins of a fixed size and several zoom levels, summarizing these bins (count, min, max and
+ * sum of values). A pyramid is built once after a BAM file registration, optionally in background, and serves
+ * zoomed out {@link BamTrackMode#COVERAGE} requests without reading alignments. Requests, that need reads,
+ * splice junctions, filtering of reads or a resolution finer than a bin, are still served from a BAM file.
+ */
+@Service
+@Slf4j
+public class BamCoverageManager {
+
+    private static final int DEFAULT_BIN_SIZE = 16;
+    private static final int ZOOM_LEVELS_COUNT = 8;
+
+    @Value("#{catgenome['bam.coverage.pyramid.enabled'] ?: false}")
+    private boolean enabled;
+
+    @Value("#{catgenome['bam.coverage.pyramid.async'] ?: true}")
+    private boolean async;
+
+    @Value("#{catgenome['bam.coverage.pyramid.bin.size'] ?: " + DEFAULT_BIN_SIZE + "}")
+    private int binSize = DEFAULT_BIN_SIZE;
+
+    @Autowired
+    private BamHelper bamHelper;
+
+    @Autowired
+    private BamFileManager bamFileManager;
+
+    @Autowired
+    private FileManager fileManager;
+
+    @Autowired
+    private ReferenceGenomeManager referenceGenomeManager;
+
+    @Autowired
+    private ReferenceManager referenceManager;
+
+    private ExecutorService buildExecutor;
+
+    @PostConstruct
+    public void init() {
+        buildExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * Builds a coverage pyramid for a registered BAM file, if pyramids are enabled. Errors are only logged,
+     * since a BAM file remains available without a pyramid
+     * @param bamFile a registered BAM file
+     */
+    public void buildCoverage(final BamFile bamFile) {
+        if (!enabled) {
+            return;
+        }
+        if (async) {
+            buildExecutor.execute(() -> buildCoverageQuietly(bamFile));
+        } else {
+            buildCoverageQuietly(bamFile);
+        }
+    }
+
+    /**
+     * Deletes a coverage pyramid of a BAM file
+     * @param bamFile a BAM file to delete pyramid for
+     * @throws IOException
+     */
+    public void deleteCoverage(final BamFile bamFile) throws IOException {
+        fileManager.deleteBamDir(bamFile.getId());
+    }
+
+    /**
+     * Loads coverage of a BAM track from a coverage pyramid
+     * @param track a track to load coverage for
+     * @param options validated track options
+     * @return a track, filled with coverage or null, if a request can't be served from a pyramid
+     * @throws IOException
+     */
+    public BamTrack<Read> loadCoverage(final Track<Read> track, final BamQueryOption options) throws IOException {
+        if (!enabled || !isCoverageRequest(track, options)) {
+            return null;
+        }
+        final BamFile bamFile = bamFileManager.load(track.getId());
+        final String path = bamFile == null ? null
+                : fileManager.getBamCoverageFilePath(bamFile, options.getChromosomeName());
+        if (path == null) {
+            return null;
+        }
+
+        final double time1 = Utils.getSystemTimeMilliseconds();
+        final int start = track.getStartIndex();
+        final long length = track.getEndIndex() - start + 1L;
+        final int binsCount = (int) Math.max(1, length / getStep(track.getScaleFactor()));
+        final List<BaseCoverage> coverage = new ArrayList<>(binsCount);
+        try (BigWigFile bigWigFile = readCoverage(path)) {
+            final List<BigSummary> summaries = bigWigFile.summarize(options.getChromosomeName(), start - 1,
+                    track.getEndIndex(), binsCount, true, null);
+            for (int i = 0; i < summaries.size(); i++) {
+                final double value = summaries.get(i).getMaxValue();
+                if (value > 0 && !Double.isInfinite(value)) {
+                    coverage.add(new BaseCoverage((int) (start + i * length / binsCount),
+                            (int) (start + (i + 1) * length / binsCount - 1), (float) value));
+                }
+            }
+        }
+        final BamTrack<Read> bamTrack = new BamTrack<>(track);
+        bamTrack.setMinPosition(start);
+        bamTrack.setBaseCoverage(coverage);
+        bamTrack.setDownsampleCoverage(Collections.emptyList());
+        bamTrack.setSpliceJunctions(Collections.emptyList());
+        log.debug("Reading coverage from {}, took {} ms", path, Utils.getSystemTimeMilliseconds() - time1);
+        return bamTrack;
+    }
+
+    private boolean isCoverageRequest(final Track<Read> track, final BamQueryOption options) {
+        return options.getMode() == BamTrackMode.COVERAGE && track.getScaleFactor() != null
+                && track.getScaleFactor() < 1 && getStep(track.getScaleFactor()) >= binSize
+                && !Boolean.TRUE.equals(options.getShowSpliceJunction())
+                && !options.isFilterDuplicate() && !options.isFilterNotPrimary()
+                && !options.isFilterVendorQualityFail() && !options.isFilterSupplementaryAlignment();
+    }
+
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void buildCoverageQuietly(final BamFile bamFile) {
+        try {
+            buildCoverageFiles(bamFile);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to build coverage pyramid for BAM file " + bamFile.getPath(), e);
+        }
+    }
+
+    private void buildCoverageFiles(final BamFile bamFile) throws IOException {
+        final double time1 = Utils.getSystemTimeMilliseconds();
+        final List<Chromosome> chromosomes = referenceGenomeManager.load(bamFile.getReferenceId())
+                .getChromosomes();
+        fileManager.makeBamCoverageDir(bamFile.getId());
+        try (SamReader reader = bamHelper.makeSamReader(bamFile, chromosomes, bamFile.getReferenceId())) {
+            for (Chromosome chromosome : chromosomes) {
+                buildChromosomeCoverage(bamFile, reader, chromosome);
+            }
+        }
+        log.debug("Building coverage pyramid for {} took {} ms", bamFile.getPath(),
+                Utils.getSystemTimeMilliseconds() - time1);
+    }
+
+    private void buildChromosomeCoverage(final BamFile bamFile, final SamReader reader,
+                                         final Chromosome chromosome) throws IOException {
+        String sequenceName = chromosome.getName();
+        if (reader.getFileHeader().getSequence(sequenceName) == null) {
+            sequenceName = Utils.changeChromosomeName(sequenceName);
+            if (reader.getFileHeader().getSequence(sequenceName) == null) {
+                return;
+            }
+        }
+        final BamQueryOption options = new BamQueryOption();
+        options.setMode(BamTrackMode.COVERAGE);
+        options.setTrackDirection(TrackDirectionType.MIDDLE);
+        options.setShowClipping(false);
+        options.setShowSpliceJunction(false);
+        options.setChromosomeName(chromosome.getName());
+        options.setRefID(chromosome.getReferenceId());
+
+        // chunks are aligned to bins, so bins of all chunks are aligned to the chromosome start
+        final int chunkSize = binSize * Math.max(1, ParallelTaskExecutionUtils.MAX_BLOCK_SIZE / binSize);
+        final List<WigSection> sections = new ArrayList<>();
+        for (int start = 1; start <= chromosome.getSize(); start += chunkSize) {
+            final int end = Math.min(start + chunkSize - 1, chromosome.getSize());
+            final SAMRecordHandler handler = new SAMRecordHandler(start, end, referenceManager,
+                    new MiddleSAMRecordFilter(new FullResultSifter(true, read -> { })), options);
+            try (SAMRecordIterator iterator = reader.query(sequenceName, start, end, false)) {
+                while (iterator.hasNext()) {
+                    handler.add(iterator.next());
+                }
+            }
+            addSections(sections, chromosome.getName(), start - 1, handler.getCoverageValues());
+        }
+        if (!sections.isEmpty()) {
+            fileManager.writeToBamCoverageFile(bamFile, sections,
+                    Collections.singletonList(new Pair<>(chromosome.getName(), chromosome.getSize())),
+                    chromosome.getName(), ZOOM_LEVELS_COUNT);
+        }
+    }
+
+    /**
+     * Adds max coverage of the bins, covered by reads, to sections. Bins without coverage are skipped,
+     * a truncated bin at the end of a chromosome gets a separate section
+     */
+    private void addSections(final List<WigSection> sections, final String chromosomeName, final int offset,
+                             final int[] coverage) {
+        TFloatList values = new TFloatArrayList();
+        int sectionStart = offset;
+        for (int binStart = 0; binStart < coverage.length; binStart += binSize) {
+            final int binEnd = Math.min(binStart + binSize, coverage.length);
+            int max = 0;
+            for (int i = binStart; i < binEnd; i++) {
+                max = Math.max(max, coverage[i]);
+            }
+            if (max == 0 || binEnd - binStart < binSize) {
+                addSection(sections, chromosomeName, sectionStart, binSize, values);
+                values = new TFloatArrayList();
+                sectionStart = offset + binEnd;
+                if (max > 0) {
+                    values.add(max);
+                    addSection(sections, chromosomeName, offset + binStart, binEnd - binStart, values);
+                    values = new TFloatArrayList();
+                }
+            } else {
+                values.add(max);
+            }
+        }
+        addSection(sections, chromosomeName, sectionStart, binSize, values);
+    }
+
+    private static void addSection(final List<WigSection> sections, final String chromosomeName, final int start,
+                                   final int span, final TFloatList values) {
+        if (!values.isEmpty()) {
+            sections.add(new FixedStepSection(chromosomeName, start, span, span, values));
+        }
+    }
+
+    private static int getStep(final double scaleFactor) {
+        return (int) Math.max(1, Math.round(1.0 / scaleFactor));
+    }
+
+    private static BigWigFile readCoverage(final String path) throws IOException {
+        return BigWigFile.read(path, BigFile.PREFETCH_LEVEL_DETAILED, null, (p, byteOrder) ->
+                EndianSynchronizedBufferFactory.Companion.create(p, byteOrder,
+                        BetterSeekableBufferedStream.DEFAULT_BUFFER_SIZE));
+    }
+}
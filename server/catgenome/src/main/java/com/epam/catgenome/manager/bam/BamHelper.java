@@ -45,6 +45,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.epam.catgenome.entity.bam.BamFile;
 import com.epam.catgenome.entity.bam.BamQueryOption;
@@ -56,7 +59,7 @@ import com.epam.catgenome.exception.FeatureFileReadingException;
 import com.epam.catgenome.util.aws.S3Client;
 import com.epam.catgenome.util.aws.S3SeekableStreamFactory;
 import com.epam.catgenome.util.azure.AzureBlobClient;
-import com.epam.catgenome.util.azure.AzureBlobSeekableStream;
+import com.epam.catgenome.util.azure.AzureSeekableStreamFactory;
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
 import com.epam.catgenome.util.feature.reader.IndexCache;
 import htsjdk.samtools.SAMFileHeader;
@@ -69,6 +72,7 @@ import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.ValidationStringency;
 import htsjdk.samtools.seekablestream.SeekableMemoryStream;
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -93,6 +97,10 @@ import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.manager.bam.handlers.Handler;
+import com.epam.catgenome.manager.bam.handlers.SAMRecordHandler;
+import com.epam.catgenome.manager.bam.sifters.ShardsMergingSifter;
+import com.epam.catgenome.manager.parallel.ParallelTaskExecutionUtils;
+import com.epam.catgenome.manager.parallel.TaskExecutorService;
 import com.epam.catgenome.manager.reference.ReferenceManager;
 import com.epam.catgenome.manager.reference.io.ChromosomeReferenceSequence;
 import com.epam.catgenome.util.BamUtil;
@@ -134,6 +142,11 @@ public class BamHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(BamHelper.class);
 
+    /**
+     * BAI linear index splits a sequence into 16kb windows, shard borders are aligned to them
+     */
+    private static final int LINEAR_INDEX_SHIFT = 14;
+
     @Autowired
     private BamFileManager bamFileManager;
 
@@ -146,6 +159,12 @@ public class BamHelper {
     @Value("#{catgenome['bam.regions.count'] ?: 20}")
     private int regionsCount;
 
+    @Value("#{catgenome['ngb.bam.sharded.loading.enabled'] ?: true}")
+    private boolean shardedLoading;
+
+    @Autowired
+    private TaskExecutorService taskExecutorService;
+
     @Autowired(required = false)
     private EhCacheBasedIndexCache indexCache;
 
@@ -153,7 +172,9 @@ public class BamHelper {
     private AzureBlobClient azureBlobClient;
 
     /**
-     * Calculates the consensus sequence from the reads from a {@code BamFile}
+     * Calculates the consensus sequence from the reads from a {@code BamFile}. If a track has no blocks,
+     * a window is split into blocks of a size, corresponding to a track scale factor. Bases of reads are
+     * counted in a single pass, large windows are read by parallel shards
      * @param track to load the consensus sequence
      * @param chromosome reference sequence
      * @return track with consensus sequence
@@ -167,8 +188,14 @@ public class BamHelper {
 
         final BamFile bamFile = bamFileManager.load(track.getId());
         Assert.notNull(bamFile, getMessage(MessagesConstants.ERROR_FILE_NOT_FOUND));
-        ConsensusSequenceUtils.calculateConsensusSequence(track,
-                getReadsFromFile(chromosome, track, bamFile, track.getBlocks()));
+        int binSize = 1;
+        if (CollectionUtils.isEmpty(track.getBlocks())) {
+            binSize = getConsensusStep(track);
+            track.setBlocks(createConsensusBlocks(track, binSize));
+        }
+        final BasePileup pileup = new BasePileup(track.getStartIndex(), track.getEndIndex(), binSize);
+        fillPileup(chromosome, track, bamFile, pileup, binSize);
+        ConsensusSequenceUtils.calculateConsensusSequence(track, pileup);
 
         final long end = System.currentTimeMillis();
         LOG.debug("Calculation of consensus sequence tooks " + (end - start) + "ms.");
@@ -332,8 +359,12 @@ public class BamHelper {
                 chromosomeName = Utils.changeChromosomeName(chromosomeName);
             }
 
-            Handler<SAMRecord> filter = filterReads(bamTrack, options, reader, chromosomeName, options.getMode() ==
-                    BamTrackMode.COVERAGE, trackEmitter);
+            final boolean coverageOnly = options.getMode() == BamTrackMode.COVERAGE;
+            final int shardsCount = getShardsCount(bamTrack, options);
+            Handler<SAMRecord> filter = shardsCount > 1
+                    ? filterReadsByShards(bamFile, bamTrack, options, chromosomeName, coverageOnly, trackEmitter,
+                        shardsCount)
+                    : filterReads(bamTrack, options, reader, chromosomeName, coverageOnly, trackEmitter);
 
             filter.getSifter().finish();
 
@@ -403,6 +434,74 @@ public class BamHelper {
         return filter;
     }
 
+    private int getShardsCount(final BamTrack<Read> bamTrack, final BamQueryOption options) {
+        if (!shardedLoading || options.getMode() == BamTrackMode.FULL) {
+            return 1;
+        }
+        return ParallelTaskExecutionUtils.splitFileReadingInterval(bamTrack, LOG,
+                Math.max(1, taskExecutorService.getTaskNumberOfThreads()));
+    }
+
+    /**
+     * Splits track interval into sub-ranges, each sub-range is read by a separate {@code SamReader} in
+     * a separate thread. Coverage of all shards is collected in a single {@code SAMRecordHandler}, reads
+     * and downsampling results are merged in the order of sub-ranges.
+     */
+    private Handler<SAMRecord> filterReadsByShards(final BamFile bamFile, final BamTrack<Read> bamTrack,
+                                                   final BamQueryOption options, final String chromosomeName,
+                                                   final boolean coverageOnly, final BamTrackEmitter trackEmitter,
+                                                   final int shardsCount) throws IOException {
+        final ShardsMergingSifter mergingSifter = new ShardsMergingSifter(trackEmitter);
+        final SAMRecordHandler handler = BamUtil.createSAMRecordHandler(bamTrack, options, referenceManager,
+                mergingSifter);
+        final List<SAMRecordHandler> shards = new ArrayList<>(shardsCount);
+        final List<Callable<Void>> tasks = new ArrayList<>(shardsCount);
+        final int shardSize = (bamTrack.getEndIndex() - bamTrack.getStartIndex() + 1) / shardsCount;
+        int shardStart = bamTrack.getStartIndex();
+        for (int i = 1; i <= shardsCount; i++) {
+            final int shardEnd = i == shardsCount ? bamTrack.getEndIndex()
+                    : alignToIndexWindow(bamTrack.getStartIndex() + i * shardSize) - 1;
+            if (shardEnd < shardStart) {
+                continue;
+            }
+            final SAMRecordHandler shard = handler.createShard(shardStart, shardEnd,
+                    BamUtil.createFilter(bamTrack, options,
+                            mergingSifter.createShardSifter(shardEnd, options, coverageOnly)));
+            final int start = shardStart;
+            tasks.add(() -> {
+                filterShardReads(bamFile, bamTrack.getChromosome(), chromosomeName, start, shardEnd, options,
+                        shard);
+                return null;
+            });
+            shards.add(shard);
+            shardStart = shardEnd + 1;
+        }
+        LOG.debug("Loading reads from {} in {} shards", bamFile.getPath(), shards.size());
+
+        runShards(bamFile, tasks);
+
+        handler.mergeShards(shards);
+        return handler;
+    }
+
+    private void filterShardReads(final BamFile bamFile, final Chromosome chromosome, final String chromosomeName,
+                                  final int start, final int end, final BamQueryOption options,
+                                  final SAMRecordHandler shard) throws IOException {
+        try (SamReader reader = makeSamReader(bamFile, Collections.singletonList(chromosome),
+                chromosome.getReferenceId());
+             CloseableIterator<SAMRecord> iterator = setIteratorFiltering(
+                     reader.query(chromosomeName, start, end, false), options)) {
+            while (iterator.hasNext()) {
+                shard.add(iterator.next());
+            }
+        }
+        shard.getSifter().finish();
+    }
+
+    private static int alignToIndexWindow(final int position) {
+        return ((position - 1) >> LINEAR_INDEX_SHIFT << LINEAR_INDEX_SHIFT) + 1;
+    }
+
     private CloseableIterator<SAMRecord> setIteratorFiltering(final CloseableIterator<SAMRecord> iterator,
                                                               final BamQueryOption options) {
         List<SamRecordFilter> filters = new ArrayList<>();
@@ -426,49 +525,86 @@ public class BamHelper {
         return iterator;
     }
 
-    private Map<Sequence, List<SAMRecord>> getReadsFromFile(
-            final Chromosome chromosome, final Track<Sequence> track, final BamFile bamFile,
-            final List<Sequence> blocks) throws IOException {
-        final Map<Sequence, List<SAMRecord>> records = new HashMap<>();
+    private void fillPileup(final Chromosome chromosome, final Track<Sequence> track, final BamFile bamFile,
+                            final BasePileup pileup, final int binSize) throws IOException {
+        final int shardsCount = shardedLoading ? ParallelTaskExecutionUtils.splitFileReadingInterval(track, LOG,
+                Math.max(1, taskExecutorService.getTaskNumberOfThreads())) : 1;
+        if (shardsCount <= 1) {
+            fillPileupShard(chromosome, bamFile, track.getStartIndex(), track.getEndIndex(), pileup);
+            return;
+        }
+
+        // shards are aligned to bins, so that each bin is filled by a single shard
+        final int length = track.getEndIndex() - track.getStartIndex() + 1;
+        final int shardSize = ((length / shardsCount - 1) / binSize + 1) * binSize;
+        final List<Callable<Void>> tasks = new ArrayList<>(shardsCount);
+        for (int shardStart = track.getStartIndex(); shardStart <= track.getEndIndex(); shardStart += shardSize) {
+            final int start = shardStart;
+            final int end = Math.min(shardStart + shardSize - 1, track.getEndIndex());
+            final BasePileup shard = pileup.createShard(start, end);
+            tasks.add(() -> {
+                fillPileupShard(chromosome, bamFile, start, end, shard);
+                return null;
+            });
+        }
+        LOG.debug("Calculating consensus sequence of {} in {} shards", bamFile.getPath(), tasks.size());
+
+        runShards(bamFile, tasks);
+    }
+
+    /**
+     * Runs shard tasks on a bounded shards pool and waits for all of them
+     */
+    private void runShards(final BamFile bamFile, final List<Callable<Void>> tasks)
+            throws FeatureFileReadingException {
+        try {
+            for (Future<Void> future : taskExecutorService.getShardExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FeatureFileReadingException(bamFile.getPath(), e);
+        } catch (ExecutionException e) {
+            throw new FeatureFileReadingException(bamFile.getPath(), e.getCause());
+        }
+    }
+
+    private void fillPileupShard(final Chromosome chromosome, final BamFile bamFile, final int startIndex,
+                                 final int endIndex, final BasePileup pileup) throws IOException {
         try (SamReader reader = makeSamReader(bamFile, Collections.singletonList(chromosome),
                 chromosome.getReferenceId())) {
             LOG.debug(getMessage(MessagesConstants.DEBUG_FILE_OPENING, bamFile.getPath()));
             String chromosomeName = chromosome.getName();
-            final int startIndex = track.getStartIndex();
-            final int endIndex = track.getEndIndex();
-
             if (reader.getFileHeader().getSequence(chromosomeName) == null) {
                 chromosomeName = Utils.changeChromosomeName(chromosomeName);
             }
-            final SAMRecordIterator iterator = reader.queryOverlapping(chromosomeName, startIndex, endIndex);
-
-            LOG.debug(getMessage(MessagesConstants.DEBUG_GET_ITERATOR_QUERY, iterator.toString()));
-            while (iterator.hasNext()) {
-                final SAMRecord samRecord = iterator.next();
-                //if read unmapped
-                if (!samRecord.getSAMFlags().contains(SAMFlag.READ_UNMAPPED) && !samRecord.getCigar().isEmpty() &&
-                        samRecord.getEnd() > samRecord.getStart()) {
-                    addRecordToBlock(blocks, records, samRecord);
+            try (SAMRecordIterator iterator = reader.queryOverlapping(chromosomeName, startIndex, endIndex)) {
+                LOG.debug(getMessage(MessagesConstants.DEBUG_GET_ITERATOR_QUERY, iterator.toString()));
+                while (iterator.hasNext()) {
+                    final SAMRecord samRecord = iterator.next();
+                    //if read unmapped
+                    if (!samRecord.getSAMFlags().contains(SAMFlag.READ_UNMAPPED) && !samRecord.getCigar().isEmpty()
+                            && samRecord.getEnd() > samRecord.getStart()) {
+                        pileup.add(samRecord);
+                    }
                 }
             }
         }
-        return records;
     }
 
-    private void addRecordToBlock(List<Sequence> blocks, Map<Sequence, List<SAMRecord>> records,
-            SAMRecord samRecord) {
-        blocks.forEach(block -> {
-            if (!(samRecord.getStart() > block.getEndIndex()) && !(samRecord.getEnd() < block
-                        .getStartIndex())) {
-                List<SAMRecord> lst = records.get(block);
-                if (lst == null) {
-                    lst = new ArrayList<>();
-                }
-                lst.add(samRecord);
-                records.remove(block);
-                records.put(block, lst);
-            }
-        });
+    private static int getConsensusStep(final Track<Sequence> track) {
+        if (track.getScaleFactor() == null || track.getScaleFactor() <= 0) {
+            return 1;
+        }
+        return (int) Math.max(1, Math.round(1 / track.getScaleFactor()));
+    }
+
+    private static List<Sequence> createConsensusBlocks(final Track<Sequence> track, final int step) {
+        final List<Sequence> blocks = new ArrayList<>();
+        for (int start = track.getStartIndex(); start <= track.getEndIndex(); start += step) {
+            blocks.add(new Sequence(start, Math.min(start + step - 1, track.getEndIndex())));
+        }
+        return blocks;
     }
 
     public SamReader makeSamReader(final BamFile bamFile, List<Chromosome> chromosomes, Long referenceId)
@@ -603,7 +739,7 @@ public class BamHelper {
     }
 
     private SamInputResource getAZSamInputResource(BamFile bamFile) throws IOException {
-        return SamInputResource.of(new AzureBlobSeekableStream(bamFile.getPath(), azureBlobClient));
+        return SamInputResource.of(AzureSeekableStreamFactory.getInstance().getStreamFor(bamFile.getPath()));
     }
 
     private SamReader openSamReaderResource(final SamInputResource inputResource,
@@ -33,10 +33,12 @@ import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.track.Track;
+import com.epam.catgenome.manager.AuthManager;
 import com.epam.catgenome.manager.BiologicalDataItemManager;
 import com.epam.catgenome.manager.TrackHelper;
 import com.epam.catgenome.manager.bam.handlers.SAMRecordHandler;
 import com.epam.catgenome.manager.parallel.TaskExecutorService;
+import com.epam.catgenome.manager.parallel.TrackTaskScheduler;
 import com.epam.catgenome.manager.reference.ReferenceGenomeManager;
 import com.epam.catgenome.manager.reference.ReferenceManager;
 import com.epam.catgenome.util.BamUtil;
@@ -83,6 +85,9 @@ public class BamManager {
     @Autowired
     private BamHelper bamHelper;
 
+    @Autowired
+    private BamCoverageManager bamCoverageManager;
+
     @Autowired
     private BamFileManager bamFileManager;
 
@@ -98,6 +103,9 @@ public class BamManager {
     @Autowired
     private TaskExecutorService taskExecutorService;
 
+    @Autowired
+    private AuthManager authManager;
+
     @Value("#{catgenome['bam.max.coverage.range'] ?: 1000000}")
     private int maxCoverageRange;
 
@@ -128,6 +136,7 @@ public class BamManager {
 
             biologicalDataItemManager.createBiologicalDataItem(newBamFile.getIndex());
             bamFileManager.create(newBamFile);
+            bamCoverageManager.buildCoverage(newBamFile);
         } finally {
             if (newBamFile != null && newBamFile.getId() != null
                     && bamFileManager.load(newBamFile.getId()) == null) {
@@ -148,6 +157,7 @@ public class BamManager {
         BamFile fileToDelete = bamFileManager.load(bamFileId);
         Assert.notNull(fileToDelete, getMessage(MessagesConstants.ERROR_FILE_NOT_FOUND));
         bamFileManager.delete(fileToDelete);
+        bamCoverageManager.deleteCoverage(fileToDelete);
         return fileToDelete;
     }
 
@@ -160,11 +170,24 @@ public class BamManager {
      */
     public void sendBamTrackToEmitter(final Track<Read> track, BamQueryOption option, ResponseBodyEmitter emitter)
             throws IOException {
+        sendBamTrackToEmitter(track, option, emitter, BamTrackEmitter.Format.JSON);
+    }
+
+    /**
+     * Returns {@code Track} filled with BAM data from a specified BAM file in the server's file system
+     * @param track input track
+     * @param option BAM track options
+     * @param emitter where to write data
+     * @param format encoding of the data
+     * @throws IOException on resource reading errors
+     */
+    public void sendBamTrackToEmitter(final Track<Read> track, BamQueryOption option, ResponseBodyEmitter emitter,
+                                      BamTrackEmitter.Format format) throws IOException {
         double time1 = Utils.getSystemTimeMilliseconds();
         final Chromosome chromosome = trackHelper.validateTrack(track);
         BamQueryOption currentOptions = option == null ? new BamQueryOption() : option;
         BamUtil.validateOptions(currentOptions, chromosome);
-        fillEmitterByBamTrack(track, currentOptions, emitter);
+        fillEmitterByBamTrack(track, currentOptions, new BamTrackEmitter(emitter, format));
         double time2 = Utils.getSystemTimeMilliseconds();
         log.debug("Track request took {} ms", time2 - time1);
     }
@@ -181,11 +204,28 @@ public class BamManager {
     public void sendBamTrackToEmitterFromUrl(final Track<Read> track, BamQueryOption option, String bamUrl,
                                                        String indexUrl, ResponseBodyEmitter emitter)
             throws IOException {
+        sendBamTrackToEmitterFromUrl(track, option, bamUrl, indexUrl, emitter, BamTrackEmitter.Format.JSON);
+    }
+
+    /**
+     * Returns {@code Track} filled with BAM data from a specified URL
+     * @param track input track
+     * @param option BAM track options
+     * @param bamUrl path to BAM file
+     * @param indexUrl path to Bam index file
+     * @param emitter where to write data
+     * @param format encoding of the data
+     * @throws IOException on resource reading errors
+     */
+    public void sendBamTrackToEmitterFromUrl(final Track<Read> track, BamQueryOption option, String bamUrl,
+                                             String indexUrl, ResponseBodyEmitter emitter,
+                                             BamTrackEmitter.Format format) throws IOException {
         double time1 = Utils.getSystemTimeMilliseconds();
         final Chromosome chromosome = trackHelper.validateUrlTrack(track, bamUrl, indexUrl);
         BamQueryOption currentOptions = option == null ? new BamQueryOption() : option;
         BamUtil.validateOptions(currentOptions, chromosome);
-        fillEmitterByBamTrackFromURL(track, bamUrl, indexUrl, currentOptions, emitter);
+        fillEmitterByBamTrackFromURL(track, bamUrl, indexUrl, currentOptions,
+                new BamTrackEmitter(emitter, format));
         double time2 = Utils.getSystemTimeMilliseconds();
         log.debug("Track request took {} ms", time2 - time1);
     }
@@ -259,37 +299,50 @@ public class BamManager {
         return null;
     }
 
+    /**
+     * @return load metrics of BAM track loading tasks
+     */
+    public TrackTaskScheduler.Statistics getTrackTaskStatistics() {
+        return taskExecutorService.getTrackTaskStatistics();
+    }
+
     private void fillEmitterByBamTrack(final Track<Read> track, final BamQueryOption options,
-                                                 ResponseBodyEmitter emitter) throws IOException {
-        final BamTrackEmitter bamTrackEmitter = new BamTrackEmitter(emitter);
+                                       final BamTrackEmitter bamTrackEmitter) {
+        final String owner = authManager.getAuthorizedUserOrSession();
 
         // TODO: track.getEndIndex() - track.getStartIndex() > maxCoverageRange
         if (options.getMode() == BamTrackMode.REGIONS) {
             taskExecutorService.executeTrackTask(
-                bamTrackEmitter, SEQUENTIAL,
+                bamTrackEmitter, SEQUENTIAL, owner,
                 () -> bamTrackEmitter.writeTrackAndFinish(bamHelper.getRegionsFromFile(track))
             );
         } else {
             taskExecutorService.executeTrackTask(
-                bamTrackEmitter, ASYNC,
-                () -> bamHelper.getReadsFromFile(track, options, bamTrackEmitter)
+                bamTrackEmitter, ASYNC, owner,
+                () -> {
+                    final BamTrack<Read> coverageTrack = bamCoverageManager.loadCoverage(track, options);
+                    if (coverageTrack != null) {
+                        bamTrackEmitter.writeTrackAndFinish(coverageTrack);
+                    } else {
+                        bamHelper.getReadsFromFile(track, options, bamTrackEmitter);
+                    }
+                }
             );
         }
     }
 
     private void fillEmitterByBamTrackFromURL(final Track<Read> track, String bamUrl, String indexUrl,
-                                                        final BamQueryOption options, ResponseBodyEmitter emitter)
-            throws IOException {
-        final BamTrackEmitter bamTrackEmitter = new BamTrackEmitter(emitter);
+                                              final BamQueryOption options, final BamTrackEmitter bamTrackEmitter) {
+        final String owner = authManager.getAuthorizedUserOrSession();
 
         if (track.getEndIndex() - track.getStartIndex() > maxCoverageRange) {
             taskExecutorService.executeTrackTask(
-                bamTrackEmitter, SEQUENTIAL,
+                bamTrackEmitter, SEQUENTIAL, owner,
                 () -> bamTrackEmitter.writeTrackAndFinish(bamHelper.getRegionsFromUrl(track, bamUrl, indexUrl))
             );
         } else {
             taskExecutorService.executeTrackTask(
-                bamTrackEmitter, ASYNC,
+                bamTrackEmitter, ASYNC, owner,
                 () -> bamHelper.fillEmitterByReadsFromUrl(track, bamUrl, indexUrl, options, bamTrackEmitter)
             );
         }
@@ -31,6 +31,7 @@ import com.epam.catgenome.entity.bam.BamQueryOption;
 import com.epam.catgenome.entity.bam.Read;
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.track.Track;
+import com.epam.catgenome.manager.parallel.TrackTaskScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -76,14 +77,19 @@ public class BamSecurityService {
 
     @PreAuthorize(ROLE_ADMIN + OR + READ_BAM_BY_TRACK_ID)
     public void sendBamTrackToEmitter(Track<Read> track, BamQueryOption option,
-                                      ResponseBodyEmitter emitter) throws IOException {
-        bamManager.sendBamTrackToEmitter(track, option, emitter);
+                                      ResponseBodyEmitter emitter, BamTrackEmitter.Format format) throws IOException {
+        bamManager.sendBamTrackToEmitter(track, option, emitter, format);
     }
 
     @PreAuthorize(ROLE_USER)
     public void sendBamTrackToEmitterFromUrl(Track<Read> track, BamQueryOption option, String fileUrl, String indexUrl,
-                                             ResponseBodyEmitter emitter) throws IOException {
-        bamManager.sendBamTrackToEmitterFromUrl(track, option, fileUrl, indexUrl, emitter);
+                                             ResponseBodyEmitter emitter, BamTrackEmitter.Format format)
+            throws IOException {
+        bamManager.sendBamTrackToEmitterFromUrl(track, option, fileUrl, indexUrl, emitter, format);
     }
 
+    @PreAuthorize(ROLE_ADMIN)
+    public TrackTaskScheduler.Statistics getTrackTaskStatistics() {
+        return bamManager.getTrackTaskStatistics();
+    }
 }
@@ -27,11 +27,21 @@ package com.epam.catgenome.manager.bam;
 import com.epam.catgenome.controller.JsonMapper;
 import com.epam.catgenome.entity.bam.BamTrack;
 import com.epam.catgenome.entity.bam.Read;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.springframework.http.MediaType;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
@@ -41,46 +51,93 @@ import java.io.IOException;
  * will be ignored.
  * In case of any exception during writing to {@link BamTrackEmitter} {@link BamTrackEmitter#finishWithException} should
  * be called.
- * BamTrackEmitter produces buffering.
+ * BamTrackEmitter produces buffering: reads are serialized by a streaming {@link JsonGenerator} directly into
+ * a byte buffer, that is sent to the emitter when it is full. Depending on {@link Format} the response is written
+ * as JSON or as binary Smile encoded JSON, which has the same structure.
  */
-public class BamTrackEmitter {
+public class BamTrackEmitter implements ReadEmitter {
+
+    public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
 
     private static final int BUFFER_SIZE = 512 * 1024;
 
-    private JsonMapper jsonMapper;
+    private static final ObjectMapper MAPPER = new JsonMapper()
+            .addMixIn(BamTrack.class, TrackMetadataMixIn.class)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectWriter READ_WRITER = MAPPER.writerFor(Read.class);
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory(MAPPER);
+
+    /**
+     * Supported encodings of a BAM track response
+     */
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON_UTF8),
+        SMILE(MediaType.parseMediaType(SMILE_MEDIA_TYPE));
+
+        private final MediaType mediaType;
+
+        Format(final MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Selects a format, requested by a client in the {@code Accept} header. JSON is used by default
+         * @param accept value of the {@code Accept} header, may be null
+         * @return requested format
+         */
+        public static Format fromAcceptHeader(final String accept) {
+            if (accept != null) {
+                for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                    if (SMILE.mediaType.includes(mediaType)) {
+                        return SMILE;
+                    }
+                }
+            }
+            return JSON;
+        }
+    }
 
     private final ResponseBodyEmitter emitter;
+    private final Format format;
+    private final ByteArrayOutputStream buffer;
+    private final JsonGenerator generator;
 
-    private boolean firstRecordWasWritten = false;
     private boolean finished = false;
 
-    @SuppressWarnings("PMD.AvoidStringBufferField")
-    private StringBuilder stringBuffer;
-
     public BamTrackEmitter(ResponseBodyEmitter emitter) throws IOException {
+        this(emitter, Format.JSON);
+    }
+
+    public BamTrackEmitter(ResponseBodyEmitter emitter, Format format) throws IOException {
         this.emitter = emitter;
-        this.stringBuffer = new StringBuilder(BUFFER_SIZE);
-        this.jsonMapper = new JsonMapper();
+        this.format = format;
+        this.buffer = new ByteArrayOutputStream(BUFFER_SIZE + BUFFER_SIZE / 2);
+        this.generator = format == Format.SMILE
+                ? SMILE_FACTORY.createGenerator(buffer)
+                : MAPPER.getFactory().createGenerator(buffer, JsonEncoding.UTF8);
 
         writeHeader();
     }
 
+    public Format getFormat() {
+        return format;
+    }
+
     /**
      * Write a read to the emitter. Real data transferring could not be happened due to buffering
      * @param read to be written
      * @throws IOException in case of connections troubles
      */
+    @Override
     public void writeRecord(Read read) throws IOException {
         checkFinished();
-
-        if (firstRecordWasWritten) {
-            write(",");
-        }
-
-        write(jsonMapper.writeValueAsString(read));
-
-        if (!firstRecordWasWritten) {
-            firstRecordWasWritten = true;
+        READ_WRITER.writeValue(generator, read);
+        if (buffer.size() > BUFFER_SIZE) {
+            sendBuffer();
         }
     }
 
@@ -92,13 +149,13 @@ public class BamTrackEmitter {
      */
     public void writeTrackAndFinish(BamTrack<Read> bamTrack) throws IOException {
         checkFinished();
-        write("],");
-
-        JsonNode metadata = jsonMapper.convertValue(bamTrack, JsonNode.class);
-        ((ObjectNode) metadata).remove("blocks");
-        write(jsonMapper.writeValueAsString(metadata).substring(1));
-        write(",\"status\":\"OK\"}");
+        generator.writeEndArray();
+        writeTrackFields(bamTrack);
+        generator.writeEndObject();
+        generator.writeStringField("status", "OK");
+        generator.writeEndObject();
 
+        generator.close();
         sendBuffer();
         emitter.complete();
         finished = true;
@@ -113,7 +170,20 @@ public class BamTrackEmitter {
     public void finishWithException(Throwable throwable) {
         checkFinished();
         try {
-            write("]},\"status\":\"ERROR\",\"message\":\"" + throwable.getLocalizedMessage() + "\"}");
+            // closes blocks array and payload object, or whatever was left open by a failed record
+            JsonStreamContext context = generator.getOutputContext();
+            while (context.getParent() != null && !context.getParent().inRoot()) {
+                if (context.inArray()) {
+                    generator.writeEndArray();
+                } else {
+                    generator.writeEndObject();
+                }
+                context = generator.getOutputContext();
+            }
+            generator.writeStringField("status", "ERROR");
+            generator.writeStringField("message", throwable.getLocalizedMessage());
+            generator.writeEndObject();
+            generator.close();
             sendBuffer();
         } catch (IOException e) {
             emitter.completeWithError(e);
@@ -122,20 +192,27 @@ public class BamTrackEmitter {
     }
 
     private void writeHeader() throws IOException {
-        write("{\"payload\":{\"blocks\":[");
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("payload");
+        generator.writeArrayFieldStart("blocks");
     }
 
-    private void write(String stringData) throws IOException {
-        stringBuffer.append(stringData);
-
-        if (stringBuffer.length() > BUFFER_SIZE) {
-            sendBuffer();
-        }
+    /**
+     * Writes track properties into already opened payload object without building an intermediate tree
+     */
+    private void writeTrackFields(BamTrack<Read> bamTrack) throws IOException {
+        final SerializerProvider provider = MAPPER.getSerializerProviderInstance();
+        final JsonSerializer<Object> serializer = provider.findValueSerializer(BamTrack.class)
+                .unwrappingSerializer(NameTransformer.NOP);
+        serializer.serialize(bamTrack, generator, provider);
     }
 
     private void sendBuffer() throws IOException {
-        emitter.send(stringBuffer.toString(), MediaType.TEXT_PLAIN);
-        stringBuffer.setLength(0);
+        generator.flush();
+        if (buffer.size() > 0) {
+            emitter.send(buffer.toByteArray(), format.getMediaType());
+            buffer.reset();
+        }
     }
 
     private void checkFinished() {
@@ -144,4 +221,7 @@ public class BamTrackEmitter {
         }
     }
 
+    @JsonIgnoreProperties("blocks")
+    private abstract static class TrackMetadataMixIn {
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.bam;
+
+import htsjdk.samtools.AlignmentBlock;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Accumulates counts of read bases, aligned to positions of a reference window, in a primitive array.
+ * Bases are taken from alignment blocks of reads (M, = and X CIGAR operators), so inserted, clipped, deleted
+ * and skipped bases are not counted. Records are not retained, so memory depends only on a window size
+ * and a size of bins, positions are grouped into. A pileup may be split into shards, that cover disjoint,
+ * bin aligned parts of a window and share counts with the pileup, so shards may be filled in parallel.
+ */
+public class BasePileup {
+
+    public static final int A = 0;
+    public static final int C = 1;
+    public static final int G = 2;
+    public static final int T = 3;
+    public static final int N = 4;
+
+    private static final int BASES_COUNT = 5;
+
+    private final int startIndex;
+    private final int binSize;
+    private final int[] counts;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param startIndex the first position of a window
+     * @param endIndex the last position of a window, inclusive
+     * @param binSize number of positions, which counts are summed together
+     */
+    public BasePileup(final int startIndex, final int endIndex, final int binSize) {
+        this.startIndex = startIndex;
+        this.binSize = binSize;
+        this.counts = new int[((endIndex - startIndex) / binSize + 1) * BASES_COUNT];
+        this.from = startIndex;
+        this.to = endIndex;
+    }
+
+    private BasePileup(final BasePileup pileup, final int from, final int to) {
+        this.startIndex = pileup.startIndex;
+        this.binSize = pileup.binSize;
+        this.counts = pileup.counts;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Creates a pileup, that counts bases only in a part of this pileup window
+     * @param shardStart the first position of a shard, should be the first position of a bin
+     * @param shardEnd the last position of a shard, should be the last position of a bin or of a window
+     * @return a shard, that writes counts to this pileup
+     */
+    public BasePileup createShard(final int shardStart, final int shardEnd) {
+        return new BasePileup(this, Math.max(from, shardStart), Math.min(to, shardEnd));
+    }
+
+    /**
+     * Adds bases of a read, aligned to positions of this pileup
+     * @param record a read to add
+     */
+    public void add(final SAMRecord record) {
+        final byte[] bases = record.getReadBases();
+        if (bases == null || bases.length == 0) {
+            return;
+        }
+        for (AlignmentBlock block : record.getAlignmentBlocks()) {
+            final int blockStart = block.getReferenceStart();
+            final int first = Math.max(from, blockStart);
+            final int last = Math.min(to, blockStart + block.getLength() - 1);
+            final int readOffset = block.getReadStart() - 1 - blockStart;
+            for (int position = first; position <= last; position++) {
+                counts[(position - startIndex) / binSize * BASES_COUNT + getBaseIndex(bases[readOffset + position])]++;
+            }
+        }
+    }
+
+    /**
+     * Sums counts of bases in an interval. Partially covered bins are counted completely
+     * @param intervalStart the first position of an interval
+     * @param intervalEnd the last position of an interval, inclusive
+     * @return counts of bases, indexed by {@link #A}, {@link #C}, {@link #G}, {@link #T} and {@link #N}
+     */
+    public int[] getCounts(final int intervalStart, final int intervalEnd) {
+        final int[] result = new int[BASES_COUNT];
+        final int firstBin = (Math.max(from, intervalStart) - startIndex) / binSize;
+        final int lastBin = (Math.min(to, intervalEnd) - startIndex) / binSize;
+        for (int bin = firstBin; bin <= lastBin; bin++) {
+            for (int base = 0; base < BASES_COUNT; base++) {
+                result[base] += counts[bin * BASES_COUNT + base];
+            }
+        }
+        return result;
+    }
+
+    private static int getBaseIndex(final byte base) {
+        switch (Character.toUpperCase((char) base)) {
+            case 'A':
+                return A;
+            case 'C':
+                return C;
+            case 'G':
+                return G;
+            case 'T':
+                return T;
+            default:
+                return N;
+        }
+    }
+}
@@ -69,6 +69,8 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
     //track information
     private final int startTrack;
     private final int endTrack;
+    //position of the first coverage arrays element, differs from startTrack for a shard of a track
+    private final int arrayStart;
     // fof refBuffer
     private int min;
     private int max;
@@ -95,6 +97,7 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
                             final Filter<SAMRecord> filter, final BamQueryOption options) throws IOException {
         this.startTrack = startTrack;
         this.endTrack = endTrack;
+        this.arrayStart = startTrack;
         this.referenceManager = referenceManager;
         this.min = startTrack;
         this.max = endTrack + Constants.REFERENCE_STEP;
@@ -121,6 +124,71 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
         this.mode = options.getMode();
     }
 
+    private SAMRecordHandler(final SAMRecordHandler track, final int startShard, final int endShard,
+                             final Filter<SAMRecord> filter) {
+        this.startTrack = startShard;
+        this.endTrack = endShard;
+        this.arrayStart = track.arrayStart;
+        this.referenceManager = track.referenceManager;
+        this.min = startShard;
+        this.max = endShard + Constants.REFERENCE_STEP;
+        this.refID = track.refID;
+        this.showClipping = track.showClipping;
+        this.chromosomeName = track.chromosomeName;
+        this.showSpliceJunction = track.showSpliceJunction;
+        this.filter = filter;
+        this.coverageArray = track.coverageArray;
+        this.cCoverageArray = track.cCoverageArray;
+        this.aCoverageArray = track.aCoverageArray;
+        this.tCoverageArray = track.tCoverageArray;
+        this.gCoverageArray = track.gCoverageArray;
+        this.nCoverageArray = track.nCoverageArray;
+        this.insCoverageArray = track.insCoverageArray;
+        this.delCoverageArray = track.delCoverageArray;
+        this.mode = track.mode;
+    }
+
+    /**
+     * Creates a handler for a sub-range of this handler's track, that may be filled in a separate thread.
+     * A shard writes coverage directly to the coverage arrays of this handler, but only to the positions of
+     * its sub-range, so shards of non-overlapping sub-ranges don't interfere. All reads, overlapping a sub-range,
+     * should be added to a shard to compute its coverage, while only the reads, starting in the sub-range
+     * (or before the track start for the first shard), are passed to the shard's filter and splice junctions.
+     * Shards aren't supported in {@link BamTrackMode#FULL} mode, since it requires a reference buffer.
+     * @param startShard left sub-range border
+     * @param endShard right sub-range border
+     * @param filter for filtering and downsampling reads, starting in the sub-range
+     * @return a handler for a sub-range
+     */
+    public SAMRecordHandler createShard(final int startShard, final int endShard, final Filter<SAMRecord> filter) {
+        if (mode == BamTrackMode.FULL) {
+            throw new IllegalStateException("Shards are not supported in " + mode + " mode");
+        }
+        if (startShard < startTrack || endShard > endTrack || startShard > endShard) {
+            throw new IllegalArgumentException(String.format("Shard [%d, %d] is out of track [%d, %d]",
+                    startShard, endShard, startTrack, endTrack));
+        }
+        return new SAMRecordHandler(this, startShard, endShard, filter);
+    }
+
+    /**
+     * Merges results of filled shards, created by {@link #createShard}, into this handler. Shards must cover
+     * the track by adjacent sub-ranges and must be passed in the order of their positions.
+     * @param shards filled shards of this handler
+     */
+    public void mergeShards(final List<SAMRecordHandler> shards) {
+        joinShardsCoverage(coverageArray, shards);
+        joinShardsCoverage(delCoverageArray, shards);
+        for (SAMRecordHandler shard : shards) {
+            shard.spliceJunctionsHashMap.forEach((key, value) -> {
+                final SpliceJunctionsEntity merged = spliceJunctionsHashMap.putIfAbsent(key, value);
+                if (merged != null) {
+                    merged.setCount(merged.getCount() + value.getCount());
+                }
+            });
+        }
+    }
+
     /**
      * @param record for processing
      * @throws IOException
@@ -136,6 +204,11 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
 
         if (BamUtil.validateReadParams(flags, cigarList, end, start)) {
             coverageAdd(start, end, coverageArray, true);
+            if (!isOwnRecord(record)) {
+                // a read from a previous shard contributes only to the coverage
+                computeDifferentBase(record.getReadString(), null, start, min, cigarList, false, record);
+                return;
+            }
             final String readString = record.getReadString();
 
             if (showClipping) {
@@ -184,7 +257,7 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
 
             if (coverageValue - delCoverageValue > 0) {
                 BaseCoverage baseCoverage =
-                        new BaseCoverage(startTrack + i, coverageValue - delCoverageValue);
+                        new BaseCoverage(arrayStart + i, coverageValue - delCoverageValue);
                 if (mode == BamTrackMode.FULL) {
                     baseCoverage.setCoverage(cCoverageArray[i], aCoverageArray[i], tCoverageArray[i],
                             gCoverageArray[i], nCoverageArray[i], delCoverageValue,
@@ -196,6 +269,21 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
         return coverageList;
     }
 
+    /**
+     * @return coverage of each position of the track, deleted bases are not counted
+     */
+    public int[] getCoverageValues() {
+        final int[] values = new int[coverageArray.length];
+        int coverageValue = 0;
+        int delCoverageValue = 0;
+        for (int i = 0; i < coverageArray.length; i++) {
+            coverageValue += coverageArray[i];
+            delCoverageValue += delCoverageArray[i];
+            values[i] = coverageValue - delCoverageValue;
+        }
+        return values;
+    }
+
     private List<BaseCoverage> getSummarizedCoverage(double scaleFactor) {
         int coverageValue = 0;
         int delCoverageValue = 0;
@@ -212,7 +300,7 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
             if (i != 0 && i % step == 0) { // end of step
                 if (summ != 0) {
                     BaseCoverage baseCoverage =
-                            new BaseCoverage(startTrack + i - denum, startTrack + i, summ); // / (float) denum
+                            new BaseCoverage(arrayStart + i - denum, arrayStart + i, summ); // / (float) denum
                     coverageList.add(baseCoverage);
                     summ = 0;
                 }
@@ -292,12 +380,35 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
         final int k = increase ? 1 : -1;
         if (end >= startTrack && start <= endTrack) {
             if (start < startTrack) {
-                coverage[0] += k;
+                coverage[startTrack - arrayStart] += k;
             } else {
-                coverage[start - startTrack] += k;
+                coverage[start - arrayStart] += k;
             }
             if (end < endTrack) {
-                coverage[end - startTrack + 1] -= k;
+                coverage[end - arrayStart + 1] -= k;
+            }
+        }
+    }
+
+    private boolean isOwnRecord(final SAMRecord record) {
+        return startTrack == arrayStart || record.getStart() >= startTrack;
+    }
+
+    /**
+     * Each shard's part of a coverage array starts with the full coverage of its first position, since
+     * the shard sees all overlapping reads, while a previous shard doesn't close the reads, passing over
+     * its border. Fixes the first difference of each shard's part to keep the array consistent.
+     */
+    private void joinShardsCoverage(final int[] coverage, final List<SAMRecordHandler> shards) {
+        int value = 0;
+        int position = 0;
+        for (SAMRecordHandler shard : shards) {
+            final int shardPosition = shard.startTrack - arrayStart;
+            for (; position < shardPosition; position++) {
+                value += coverage[position];
+            }
+            if (shardPosition > 0) {
+                coverage[shardPosition] -= value;
             }
         }
     }
@@ -397,7 +508,7 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
             //add to insCov, to the next base
             final int pos = startReadPosition + position + corrector - 1;
             if (pos >= startTrack && pos <= endTrack) {
-                insCoverageArray[pos - startTrack]++;
+                insCoverageArray[pos - arrayStart]++;
             }
             position += cigarLength;
             corrector -= cigarLength;
@@ -411,7 +522,7 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
         }
 
         private void processUnknown(int cigarLength) {
-            if (showSpliceJunction) {
+            if (showSpliceJunction && isOwnRecord(record)) {
                 final String strandString = getXSTag(record.getAttributes());
                 final boolean strandSJ = strandString == null ? !record.getReadNegativeStrandFlag() :
                         "+".equals(strandString);
@@ -465,19 +576,19 @@ public class SAMRecordHandler implements Handler<SAMRecord> {
             if (position >= startTrack && position <= endTrack) {
                 switch (ch) {
                     case 'C':
-                        cCoverageArray[position - startTrack]++;
+                        cCoverageArray[position - arrayStart]++;
                         break;
                     case 'A':
-                        aCoverageArray[position - startTrack]++;
+                        aCoverageArray[position - arrayStart]++;
                         break;
                     case 'T':
-                        tCoverageArray[position - startTrack]++;
+                        tCoverageArray[position - arrayStart]++;
                         break;
                     case 'G':
-                        gCoverageArray[position - startTrack]++;
+                        gCoverageArray[position - arrayStart]++;
                         break;
                     case 'N':
-                        nCoverageArray[position - startTrack]++;
+                        nCoverageArray[position - arrayStart]++;
                         break;
                     default:
                         break;
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.bam.sifters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.epam.catgenome.entity.bam.BamQueryOption;
+import com.epam.catgenome.entity.bam.BasePosition;
+import com.epam.catgenome.entity.bam.Read;
+import com.epam.catgenome.entity.wig.Wig;
+import com.epam.catgenome.manager.bam.ReadEmitter;
+import com.epam.catgenome.util.BamUtil;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.springframework.util.Assert;
+
+/**
+ * Represents a {@code DownsamplingSifter} for a track, that is loaded by several shards in parallel.
+ * Each shard downsamples its reads by an own sifter, created by {@link #createShardSifter}, and keeps them
+ * in memory. Shards should be created in the order of their positions, a record, that is added to this
+ * sifter directly, is passed to the sifter of the shard, where it starts. On finish reads and downsample
+ * coverage of all shards are written in the order of shards creation, so the result doesn't depend on
+ * the order, in which shards were loaded.
+ */
+public class ShardsMergingSifter implements DownsamplingSifter<SAMRecord> {
+
+    private final ReadEmitter trackEmitter;
+    private final List<List<Read>> shardsReads = new ArrayList<>();
+    private final List<DownsamplingSifter<SAMRecord>> shardsSifters = new ArrayList<>();
+    private final List<Integer> shardsEnds = new ArrayList<>();
+
+    /**
+     * @param trackEmitter where to write reads of all shards
+     */
+    public ShardsMergingSifter(final ReadEmitter trackEmitter) {
+        this.trackEmitter = trackEmitter;
+    }
+
+    /**
+     * Creates a sifter for the next shard of a track
+     * @param end right border of the shard
+     * @param options options of a BAM query
+     * @param coverageOnly if true, no reads will be selected
+     * @return a sifter for a shard
+     */
+    public DownsamplingSifter<SAMRecord> createShardSifter(final int end, final BamQueryOption options,
+                                                           final boolean coverageOnly) {
+        final List<Read> reads = new ArrayList<>();
+        final DownsamplingSifter<SAMRecord> sifter = BamUtil.createSifter(end, options, coverageOnly, reads::add);
+        shardsReads.add(reads);
+        shardsSifters.add(sifter);
+        shardsEnds.add(end);
+        return sifter;
+    }
+
+    /**
+     * Passes a record to the sifter of the shard, where the record starts. Records, starting after
+     * the last shard, are passed to the last shard, as well as a track filter passes them to a track sifter
+     */
+    @Override
+    public void add(SAMRecord record, int start, int end, List<BasePosition> differentBase, String headStr,
+                    String tailStr) throws IOException {
+        Assert.state(!shardsSifters.isEmpty(), "No shards are created");
+        int shard = Collections.binarySearch(shardsEnds, record.getStart());
+        if (shard < 0) {
+            shard = Math.min(-shard - 1, shardsEnds.size() - 1);
+        }
+        shardsSifters.get(shard).add(record, start, end, differentBase, headStr, tailStr);
+    }
+
+    /**
+     * Writes reads of all shards. Shards' sifters must be already finished
+     */
+    @Override
+    public void finish() {
+        try {
+            for (List<Read> reads : shardsReads) {
+                for (Read read : reads) {
+                    trackEmitter.writeRecord(read);
+                }
+                reads.clear();
+            }
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    @Override
+    public List<Wig> getDownsampleCoverageResult() {
+        final List<Wig> downsampleCoverage = new ArrayList<>();
+        shardsSifters.forEach(sifter -> downsampleCoverage.addAll(sifter.getDownsampleCoverageResult()));
+        return downsampleCoverage;
+    }
+
+    @Override
+    public int getFilteredReadsCount() {
+        return shardsSifters.stream().mapToInt(DownsamplingSifter::getFilteredReadsCount).sum();
+    }
+}
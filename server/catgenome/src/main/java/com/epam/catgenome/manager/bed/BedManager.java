@@ -61,6 +61,7 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import com.epam.catgenome.constant.Constants;
 import com.epam.catgenome.constant.MessagesConstants;
 import com.epam.catgenome.controller.vo.registration.IndexedFileRegistrationRequest;
 import com.epam.catgenome.entity.BaseEntity;
@@ -87,6 +88,8 @@ import com.epam.catgenome.manager.bed.parser.NggbBedFeature;
 import com.epam.catgenome.manager.reference.ReferenceGenomeManager;
 import com.epam.catgenome.util.HistogramUtils;
 import com.epam.catgenome.util.IOHelper;
+import com.epam.catgenome.util.PositionIndex;
+import com.epam.catgenome.util.PositionIndexWriter;
 import com.epam.catgenome.util.Utils;
 import htsjdk.samtools.util.CloseableIterator;
 import com.epam.catgenome.util.feature.reader.AbstractFeatureReader;
@@ -370,6 +373,7 @@ public class BedManager {
                     || resourceType == BiologicalDataItemResourceType.S3
                     || resourceType == BiologicalDataItemResourceType.AZ) {
                 createHistogram(bedFile);
+                createPositionIndex(bedFile);
             }
             double time2 = Utils.getSystemTimeMilliseconds();
             log.debug("Making BED histogram took {} ms", time2 - time1);
@@ -401,6 +405,20 @@ public class BedManager {
         }
     }
 
+    private void createPositionIndex(final BedFile bedFile) throws IOException {
+        final Map<String, Chromosome> chromosomeMap = referenceGenomeManager.loadChromosomes(bedFile.getReferenceId())
+            .stream().collect(Collectors.toMap(BaseEntity::getName, c -> c));
+        try (AbstractFeatureReader<NggbBedFeature, LineIterator> featureReader =
+                     fileManager.makeBedReader(bedFile, getCodec(bedFile));
+             PositionIndexWriter positionWriter = new PositionIndexWriter(fileManager, bedFile, chromosomeMap)) {
+            final CloseableIterator<NggbBedFeature> iterator = featureReader.iterator();
+            while (iterator.hasNext()) {
+                positionWriter.add(iterator.next());
+            }
+            positionWriter.finish();
+        }
+    }
+
     private void makeHistogramFromIterator(CloseableIterator<NggbBedFeature> iterator, BedFile bedFile)
         throws IOException {
         List<Wig> histogram = new ArrayList<>();
@@ -604,6 +622,97 @@ public class BedManager {
         }
     }
 
+    /**
+     * Returns next/previous feature of the specified chromosome in specified BED file
+     *
+     * @param fromPosition {@code int} the position from which look for next/previous feature
+     * @param bedFileId    {@code long} ID of the BED file
+     * @param chromosomeId {@code long} ID of the chromosome
+     * @param forward      {@code boolean} flag that determines direction to look for feature
+     * @return {@code BedRecord} next or previous feature
+     * @throws FeatureFileReadingException
+     */
+    public BedRecord getNextOrPreviousFeature(final int fromPosition, final long bedFileId, final long chromosomeId,
+                                              final boolean forward) throws FeatureFileReadingException {
+        final BedFile bedFile = bedFileManager.load(bedFileId);
+        Assert.notNull(bedFile, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
+        final Chromosome chromosome = referenceGenomeManager.loadChromosome(chromosomeId);
+        Assert.notNull(chromosome, getMessage(MessagesConstants.ERROR_CHROMOSOME_ID_NOT_FOUND));
+
+        try (AbstractFeatureReader<NggbBedFeature, LineIterator> reader =
+                     fileManager.makeBedReader(bedFile, getCodec(bedFile))) {
+            final File positionIndexFile = fileManager.getPositionIndexFile(bedFile, chromosome.getName());
+            final NggbBedFeature feature;
+            if (positionIndexFile != null) {
+                feature = getIndexedFeature(reader, positionIndexFile, chromosome, fromPosition, forward);
+            } else {
+                feature = forward ? getNextFeature(reader, chromosome, fromPosition)
+                                  : getPreviousFeature(reader, chromosome, fromPosition);
+            }
+            return feature != null ? new BedRecord(feature) : null;
+        } catch (IOException e) {
+            throw new FeatureFileReadingException(bedFile.getPath(), e);
+        }
+    }
+
+    /**
+     * Finds the first feature, that starts after a position, or the last feature, that starts before it, by a
+     * position index of a chromosome and reads it with a single query
+     */
+    private NggbBedFeature getIndexedFeature(AbstractFeatureReader<NggbBedFeature, LineIterator> reader,
+                                             File positionIndexFile, Chromosome chromosome, int fromPosition,
+                                             boolean forward) throws IOException {
+        try (PositionIndex positionIndex = new PositionIndex(positionIndexFile)) {
+            final int index = forward ? positionIndex.firstStartAfter(fromPosition)
+                                      : positionIndex.firstStartAfter(fromPosition - 1) - 1;
+            if (index < 0 || index >= positionIndex.size()) {
+                return null;
+            }
+            return positionIndex.readFeature(reader, chromosome.getName(), index, f -> true);
+        }
+    }
+
+    private NggbBedFeature getNextFeature(AbstractFeatureReader<NggbBedFeature, LineIterator> reader,
+                                          Chromosome chromosome, int fromPosition) throws IOException {
+        if (fromPosition + 1 >= chromosome.getSize()) {
+            return null;
+        }
+        try (CloseableIterator<NggbBedFeature> iterator = Utils.query(reader, chromosome, fromPosition + 1,
+                chromosome.getSize())) {
+            while (iterator.hasNext()) {
+                final NggbBedFeature feature = iterator.next();
+                if (feature.getStart() > fromPosition) {
+                    return feature;
+                }
+            }
+        }
+        return null;
+    }
+
+    private NggbBedFeature getPreviousFeature(AbstractFeatureReader<NggbBedFeature, LineIterator> reader,
+                                              Chromosome chromosome, int fromPosition) throws IOException {
+        int lastIndex = fromPosition - 1;
+        while (lastIndex > 0) {
+            // read the file backward by small chunks, hopefully the feature is in the first one
+            final int firstIndex = Math.max(lastIndex - Constants.PREV_FEATURE_OFFSET + 1, 1);
+            NggbBedFeature lastFeature = null;
+            try (CloseableIterator<NggbBedFeature> iterator = Utils.query(reader, chromosome, firstIndex,
+                    lastIndex)) {
+                while (iterator.hasNext()) {
+                    final NggbBedFeature feature = iterator.next();
+                    if (feature.getStart() >= firstIndex && feature.getStart() <= lastIndex) {
+                        lastFeature = feature;
+                    }
+                }
+            }
+            if (lastFeature != null) {
+                return lastFeature;
+            }
+            lastIndex = firstIndex - 1;
+        }
+        return null;
+    }
+
     public BedFile reindexBedFile(long bedFileId) throws FeatureIndexException {
         BedFile bedFile = bedFileManager.load(bedFileId);
         Reference reference = referenceGenomeManager.load(bedFile.getReferenceId());
@@ -48,6 +48,8 @@ public class BedSecurityService {
 
     private static final String READ_ON_FILE_OR_PROJECT_BY_TRACK = "hasPermissionOnFileOrParentProject(#track.id, " +
             "'com.epam.catgenome.entity.bed.BedFile', #track.projectId, 'READ')";
+    private static final String READ_ON_FILE_OR_PROJECT_BY_ID = "hasPermissionOnFileOrParentProject(#bedFileId, " +
+            "'com.epam.catgenome.entity.bed.BedFile', #projectId, 'READ')";
 
     @Autowired
     private BedManager bedManager;
@@ -83,4 +85,10 @@ public class BedSecurityService {
     public Track<Wig> loadHistogram(Track<Wig> track) throws HistogramReadingException {
         return bedManager.loadHistogram(track);
     }
+
+    @PreAuthorize(ROLE_ADMIN + OR + READ_ON_FILE_OR_PROJECT_BY_ID)
+    public BedRecord getNextOrPreviousFeature(int fromPosition, long bedFileId, long chromosomeId, boolean forward,
+                                              Long projectId) throws FeatureFileReadingException {
+        return bedManager.getNextOrPreviousFeature(fromPosition, bedFileId, chromosomeId, forward);
+    }
 }
@@ -25,7 +25,6 @@ package com.epam.catgenome.manager.export;
 
 import com.epam.catgenome.entity.FeatureFile;
 import com.epam.catgenome.entity.index.GeneIndexEntry;
-import com.epam.catgenome.entity.index.IndexSearchResult;
 import com.epam.catgenome.entity.index.VcfIndexEntry;
 import com.epam.catgenome.manager.FeatureIndexManager;
 import com.epam.catgenome.util.FileFormat;
@@ -34,8 +33,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -61,24 +62,32 @@ public class ExportManager {
                                          final boolean includeHeader)
             throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportGenesByReference(filterForm, referenceId, format, includeHeader, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes all gene features, matching a filter, to an output stream. Features are read from index
+     * with a single cursor in batches of {@code export.page.size}, so neither search time per row nor memory
+     * consumption grows with the size of export. Output stream is flushed, but not closed
+     */
+    public void exportGenesByReference(final GeneExportFilterForm filterForm,
+                                       final long referenceId,
+                                       final FileFormat format,
+                                       final boolean includeHeader,
+                                       final OutputStream outputStream)
+            throws IOException {
+        final OutputStream bufferedStream = new BufferedOutputStream(outputStream);
         List<String> exportFields = filterForm.getExportFields();
         if (includeHeader) {
-            outputStream.write(getGeneFileHeader(exportFields, format.getSeparator()).getBytes());
+            bufferedStream.write(getGeneFileHeader(exportFields, format.getSeparator()).getBytes());
         }
-        filterForm.setPageSize(exportPageSize);
-        filterForm.setPage(1);
         setGeneAttributes(filterForm);
         final List<? extends FeatureFile> filesToExport = featureIndexManager.getGeneFilesForReference(
                 referenceId, filterForm.getFileIds());
-        IndexSearchResult<GeneIndexEntry> indexSearchResult = featureIndexManager.getGeneSearchResult(filterForm,
-                filesToExport);
-        writeGenePage(format, exportFields, indexSearchResult, outputStream);
-        for (int i = 2; i <= indexSearchResult.getTotalPagesCount(); i++) {
-            filterForm.setPage(i);
-            indexSearchResult = featureIndexManager.getGeneSearchResult(filterForm, filesToExport);
-            writeGenePage(format, exportFields, indexSearchResult, outputStream);
-        }
-        return outputStream.toByteArray();
+        featureIndexManager.scanGenes(filterForm, filesToExport, exportPageSize,
+            indexEntry -> writeGeneEntry(format, exportFields, indexEntry, bufferedStream));
+        bufferedStream.flush();
     }
 
     public byte[] exportVariations(final VcfExportFilterForm filterForm,
@@ -86,57 +95,60 @@ public class ExportManager {
                                    final boolean includeHeader)
             throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportVariations(filterForm, format, includeHeader, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes all variations, matching a filter, to an output stream. Variations are read from index
+     * with a single cursor in batches of {@code export.page.size}. Output stream is flushed, but not closed
+     */
+    public void exportVariations(final VcfExportFilterForm filterForm,
+                                 final FileFormat format,
+                                 final boolean includeHeader,
+                                 final OutputStream outputStream)
+            throws IOException {
+        final OutputStream bufferedStream = new BufferedOutputStream(outputStream);
         List<String> exportFields = filterForm.getExportFields();
         if (includeHeader) {
-            outputStream.write(getVcfFileHeader(exportFields, format.getSeparator()).getBytes());
+            bufferedStream.write(getVcfFileHeader(exportFields, format.getSeparator()).getBytes());
         }
-        filterForm.setPageSize(exportPageSize);
-        filterForm.setPage(1);
         setVcfAttributes(filterForm);
-        IndexSearchResult<VcfIndexEntry> indexSearchResult = featureIndexManager.filterVariations(filterForm);
-        writeVcfPage(format, exportFields, indexSearchResult, outputStream);
-        for (int i = 2; i <= indexSearchResult.getTotalPagesCount(); i++) {
-            filterForm.setPage(i);
-            indexSearchResult = featureIndexManager.filterVariations(filterForm);
-            writeVcfPage(format, exportFields, indexSearchResult, outputStream);
-        }
-        return outputStream.toByteArray();
+        featureIndexManager.scanVariations(filterForm, exportPageSize,
+            indexEntry -> writeVcfEntry(format, exportFields, indexEntry, bufferedStream));
+        bufferedStream.flush();
     }
 
-    private void writeGenePage(final FileFormat format,
-                               final List<String> exportFields,
-                               final IndexSearchResult<GeneIndexEntry> indexSearchResult,
-                               ByteArrayOutputStream outputStream) throws IOException {
-        for (GeneIndexEntry indexEntry : indexSearchResult.getEntries()) {
-            List<String> fieldValues = new ArrayList<>();
-            Map<String, String> attributes = MapUtils.emptyIfNull(indexEntry.getAttributes());
-            for (String exportField: exportFields) {
-                String value = GeneField.getByField(exportField) != null ?
-                        GeneField.getByField(exportField).getGetter().apply(indexEntry) :
-                        attributes.getOrDefault(exportField, EMPTY_FIELD_VALUE);
-                fieldValues.add(value != null ? value : EMPTY_FIELD_VALUE);
-            }
-            String line = String.join(format.getSeparator(), fieldValues) + NEW_LINE;
-            outputStream.write(line.getBytes());
+    private void writeGeneEntry(final FileFormat format,
+                                final List<String> exportFields,
+                                final GeneIndexEntry indexEntry,
+                                final OutputStream outputStream) throws IOException {
+        List<String> fieldValues = new ArrayList<>();
+        Map<String, String> attributes = MapUtils.emptyIfNull(indexEntry.getAttributes());
+        for (String exportField: exportFields) {
+            String value = GeneField.getByField(exportField) != null ?
+                    GeneField.getByField(exportField).getGetter().apply(indexEntry) :
+                    attributes.getOrDefault(exportField, EMPTY_FIELD_VALUE);
+            fieldValues.add(value != null ? value : EMPTY_FIELD_VALUE);
         }
+        String line = String.join(format.getSeparator(), fieldValues) + NEW_LINE;
+        outputStream.write(line.getBytes());
     }
 
-    private void writeVcfPage(final FileFormat format,
+    private void writeVcfEntry(final FileFormat format,
                                final List<String> exportFields,
-                               final IndexSearchResult<VcfIndexEntry> indexSearchResult,
-                               ByteArrayOutputStream outputStream) throws IOException {
-        for (VcfIndexEntry indexEntry: indexSearchResult.getEntries()) {
-            List<String> fieldValues = new ArrayList<>();
-            Map<String, Object> attributes = MapUtils.emptyIfNull(indexEntry.getInfo());
-            for (String exportField: exportFields) {
-                String value = VcfField.getByField(exportField) != null ?
-                        VcfField.getByField(exportField).getGetter().apply(indexEntry) :
-                        (String) attributes.getOrDefault(exportField, EMPTY_FIELD_VALUE);
-                fieldValues.add(value != null ? value : EMPTY_FIELD_VALUE);
-            }
-            String line = String.join(format.getSeparator(), fieldValues) + NEW_LINE;
-            outputStream.write(line.getBytes());
+                               final VcfIndexEntry indexEntry,
+                               final OutputStream outputStream) throws IOException {
+        List<String> fieldValues = new ArrayList<>();
+        Map<String, Object> attributes = MapUtils.emptyIfNull(indexEntry.getInfo());
+        for (String exportField: exportFields) {
+            String value = VcfField.getByField(exportField) != null ?
+                    VcfField.getByField(exportField).getGetter().apply(indexEntry) :
+                    (String) attributes.getOrDefault(exportField, EMPTY_FIELD_VALUE);
+            fieldValues.add(value != null ? value : EMPTY_FIELD_VALUE);
         }
+        String line = String.join(format.getSeparator(), fieldValues) + NEW_LINE;
+        outputStream.write(line.getBytes());
     }
 
     private void setGeneAttributes(GeneExportFilterForm filterForm) {
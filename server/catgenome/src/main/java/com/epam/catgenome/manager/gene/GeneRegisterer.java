@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.epam.catgenome.util.IndexUtils;
+import com.epam.catgenome.util.PositionIndexWriter;
 import com.epam.catgenome.util.PositionalOutputStream;
 import com.epam.catgenome.util.Utils;
 import org.apache.commons.io.IOUtils;
@@ -212,20 +213,27 @@ public class GeneRegisterer {
         List<FeatureIndexEntry> allEntries = new ArrayList<>();
         // main loop - here we process gene file, add it's features to an index and create helper files: large scale
         // and transcript
-        while (iterator.hasNext()) {
-            // read the next line if available
-            final long filePointer = iterator.getPosition();
-            //add the feature to the index
-            feature = (GeneFeature) iterator.next();
-
-            if (firstFeature == null) {
-                firstFeature = feature;
-                lastFeature = feature;
-                initializeHistogram(firstFeature);
-            }
+        try (PositionIndexWriter positionWriter = new PositionIndexWriter(fileManager, geneFile, chromosomeMap)) {
+            while (iterator.hasNext()) {
+                // read the next line if available
+                final long filePointer = iterator.getPosition();
+                //add the feature to the index
+                feature = (GeneFeature) iterator.next();
+
+                if (firstFeature == null) {
+                    firstFeature = feature;
+                    lastFeature = feature;
+                    initializeHistogram(firstFeature);
+                }
 
-            featuresCount = processFeature(feature, featuresCount, createTabixIndex, allEntries, createFeatureIndex,
-                                           filePointer);
+                featuresCount = processFeature(feature, featuresCount, createTabixIndex, allEntries,
+                                               createFeatureIndex, filePointer);
+                // exons are the features, that are navigated by next/previous requests
+                if (GeneUtils.isExon(feature)) {
+                    positionWriter.add(feature);
+                }
+            }
+            positionWriter.finish();
         }
 
         processLastFeature(feature, featuresCount, geneFile, allEntries, createFeatureIndex);
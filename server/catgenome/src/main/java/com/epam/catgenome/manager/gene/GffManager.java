@@ -75,6 +75,7 @@ import com.epam.catgenome.manager.genbank.GenbankUtils;
 import com.epam.catgenome.util.HistogramUtils;
 import com.epam.catgenome.util.IOHelper;
 import com.epam.catgenome.util.NggbIntervalTreeMap;
+import com.epam.catgenome.util.PositionIndex;
 import com.epam.catgenome.util.Utils;
 import com.epam.catgenome.util.feature.reader.AbstractEnhancedFeatureReader;
 import com.epam.catgenome.util.feature.reader.AbstractFeatureReader;
@@ -714,6 +715,10 @@ public class GffManager {
             double time2 = Utils.getSystemTimeMilliseconds();
             log.debug("Reader creation {} {} ms", Thread.currentThread().getName(), time2 - time1);
 
+            final File positionIndexFile = fileManager.getPositionIndexFile(geneFile, chromosome.getName());
+            if (positionIndexFile != null) {
+                return getIndexedGeneFeature(featureReader, positionIndexFile, chromosome, fromPosition, forward);
+            }
             if (forward) {
                 return getNextGeneFeature(featureReader, chromosome, fromPosition, end);
             } else {
@@ -722,6 +727,26 @@ public class GffManager {
         }
     }
 
+    /**
+     * Finds next/previous exon by a position index of a chromosome, that holds exons in the order of a file. The
+     * next exon is the first one, that ends after a position, the previous exon is the last one, that starts
+     * before a position. The found exon is read from a gene file with a single query.
+     */
+    private Gene getIndexedGeneFeature(AbstractFeatureReader<GeneFeature, LineIterator> featureReader,
+                                       File positionIndexFile, Chromosome chromosome, int fromPosition,
+                                       boolean forward) throws IOException {
+        try (PositionIndex positionIndex = new PositionIndex(positionIndexFile)) {
+            final int index = forward ? positionIndex.firstEndAfter(fromPosition)
+                                      : positionIndex.firstStartAfter(fromPosition - 1) - 1;
+            if (index < 0 || index >= positionIndex.size()) {
+                return null;
+            }
+            final GeneFeature feature = positionIndex.readFeature(featureReader, chromosome.getName(), index,
+                    GeneUtils::isExon);
+            return feature != null ? new Gene(feature) : null;
+        }
+    }
+
     private Gene getNextGeneFeature(AbstractFeatureReader<GeneFeature, LineIterator> featureReader,
                                     Chromosome chromosome, int fromPosition, int end) throws IOException {
         if (fromPosition + 1 >= end) { // no next features
@@ -32,9 +32,12 @@ import com.epam.catgenome.entity.BiologicalDataItemResourceType;
 import com.epam.catgenome.entity.heatmap.Heatmap;
 import com.epam.catgenome.entity.heatmap.HeatmapAnnotationType;
 import com.epam.catgenome.entity.heatmap.HeatmapDataType;
+import com.epam.catgenome.entity.heatmap.HeatmapRegion;
 import com.epam.catgenome.entity.heatmap.HeatmapTree;
 import com.epam.catgenome.entity.heatmap.HeatmapTreeNode;
+import com.epam.catgenome.exception.RegistrationException;
 import com.epam.catgenome.manager.BiologicalDataItemManager;
+import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.util.FileFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -61,17 +64,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -86,10 +94,18 @@ public class HeatmapManager {
     @Value("${heatmap.values.max.size:100}")
     private int valuesMaxSize;
 
+    @Value("${heatmap.tile.size:256}")
+    private int tileSize;
+
+    @Value("${heatmap.region.max.size:1024}")
+    private int regionMaxSize;
+
     private final HeatmapDao heatmapDao;
     private final BiologicalDataItemManager biologicalDataItemManager;
+    private final FileManager fileManager;
 
     private static final Set<String> EMPTY_CELL_VALUES = new HashSet<>();
+    private static final int MAX_INTEGER_DIGITS = 10;
 
     static {
         EMPTY_CELL_VALUES.add(".");
@@ -114,11 +130,13 @@ public class HeatmapManager {
             h -> checkTree(getLabelSet(h.getColumnLabels()), h.getColumnTreePath()));
         biologicalDataItemManager.createBiologicalDataItem(heatmap);
         heatmap.setBioDataItemId(heatmap.getId());
-        return heatmapDao.saveHeatmap(heatmap,
+        heatmapDao.saveHeatmap(heatmap,
                 content,
                 cellAnnotation,
                 rowTree,
                 columnTree);
+        writeTiles(heatmap);
+        return heatmap;
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
@@ -174,6 +192,11 @@ public class HeatmapManager {
         final Heatmap heatmap = getHeatmap(heatmapId);
         heatmapDao.deleteHeatmap(heatmapId);
         biologicalDataItemManager.deleteBiologicalDataItem(heatmap.getBioDataItemId());
+        try {
+            fileManager.deleteHeatmapDir(heatmapId);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
     }
 
     public Heatmap loadHeatmap(final long heatmapId) {
@@ -192,6 +215,78 @@ public class HeatmapManager {
         }
     }
 
+    /**
+     * Returns a window of heatmap cells from tiles, written at registration. Indexes are 0-based and
+     * inclusive. If a zoom level isn't specified, the most detailed level, where a window has at most
+     * {@code heatmap.region.max.size} rows and columns, is used. At a specified level a window is cut
+     * to this size, the returned region holds the actual borders of a window.
+     */
+    public HeatmapRegion getContentRegion(final long heatmapId, final int startRow, final int endRow,
+                                          final int startColumn, final int endColumn,
+                                          final Integer level) throws IOException {
+        final Heatmap heatmap = getHeatmap(heatmapId);
+        Assert.isTrue(startRow >= 0 && startRow <= endRow && startColumn >= 0 && startColumn <= endColumn,
+                getMessage(MessagesConstants.ERROR_INVALID_PARAM));
+        final File directory = getTilesDirectory(heatmap);
+        final int levelCount = HeatmapTileReader.getLevelCount(directory);
+        int zoomLevel = 0;
+        if (level != null) {
+            Assert.isTrue(level >= 0 && level < levelCount, getMessage(MessagesConstants.ERROR_INVALID_PARAM));
+            zoomLevel = level;
+        } else {
+            final int windowSize = Math.max(endRow - startRow, endColumn - startColumn) + 1;
+            while (zoomLevel < levelCount - 1 && HeatmapTiles.getSize(windowSize, zoomLevel) > regionMaxSize) {
+                zoomLevel++;
+            }
+        }
+        final long maxWindowSize = (long) regionMaxSize << zoomLevel;
+        return HeatmapTileReader.read(directory, zoomLevel, heatmap.getCellValueType(),
+                startRow, (int) Math.min(endRow, startRow + maxWindowSize - 1),
+                startColumn, (int) Math.min(endColumn, startColumn + maxWindowSize - 1));
+    }
+
+    /**
+     * Returns a catalogue with tiles of a heatmap. Heatmaps, registered before tiles were introduced,
+     * are tiled from the stored content on the first request.
+     */
+    private File getTilesDirectory(final Heatmap heatmap) throws IOException {
+        final File directory = fileManager.getHeatmapDir(heatmap.getHeatmapId());
+        if (directory != null && HeatmapTileReader.getLevelCount(directory) > 0) {
+            return directory;
+        }
+        synchronized (this) {
+            final File tilesDirectory = fileManager.makeHeatmapDir(heatmap.getHeatmapId());
+            if (HeatmapTileReader.getLevelCount(tilesDirectory) > 0) {
+                return tilesDirectory;
+            }
+            log.info("Writing tiles of heatmap {}", heatmap.getHeatmapId());
+            // tiles are written aside and moved to the catalogue, when they are complete,
+            // so that concurrent requests never read partially written levels
+            final File tempDirectory = Files.createTempDirectory(tilesDirectory.toPath(), "tiles").toFile();
+            try (InputStream content = heatmapDao.loadHeatmapContent(heatmap.getHeatmapId())) {
+                Assert.notNull(content, getMessage(MessageCode.RESOURCE_NOT_FOUND));
+                writeTiles(heatmap, new InputStreamReader(content, StandardCharsets.UTF_8), tempDirectory);
+                moveTiles(tempDirectory, tilesDirectory);
+            } finally {
+                FileUtils.deleteQuietly(tempDirectory);
+            }
+            return tilesDirectory;
+        }
+    }
+
+    private static void moveTiles(final File source, final File target) throws IOException {
+        final File dictionary = new File(source, HeatmapTiles.DICTIONARY_FILE);
+        if (dictionary.isFile()) {
+            Files.move(dictionary.toPath(), new File(target, HeatmapTiles.DICTIONARY_FILE).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        // levels are counted from the first one, so it is moved last
+        for (int level = HeatmapTileReader.getLevelCount(source) - 1; level >= 0; level--) {
+            Files.move(HeatmapTiles.getLevelFile(source, level).toPath(),
+                    HeatmapTiles.getLevelFile(target, level).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public HeatmapTree getTree(final long heatmapId) throws IOException {
         final Heatmap heatmap = heatmapDao.loadHeatmap(heatmapId);
         final HeatmapTree heatmapTree = new HeatmapTree();
@@ -269,8 +364,11 @@ public class HeatmapManager {
             heatmap.setColumnLabels(columnLabels);
             int columnsNum = cells.length;
             List<List<String>> rowLabels = new LinkedList<>();
-            Set<String> values = new HashSet<>();
-            Set<Integer> types = new HashSet<>(3);
+            final Set<String> values = new LinkedHashSet<>();
+            final TreeSet<Double> numbers = new TreeSet<>();
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            HeatmapDataType cellValueType = HeatmapDataType.INTEGER;
             while ((line = bufferedReader.readLine()) != null) {
                 if (StringUtils.isBlank(line)) {
                     break;
@@ -282,55 +380,108 @@ public class HeatmapManager {
 
                 for (int i = 1; i < cells.length; i++) {
                     String value = getCellValue(cells[i]);
-                    if (value != null) {
-                        try {
-                            Integer.parseInt(value);
-                            types.add(HeatmapDataType.INTEGER.getId());
-                        } catch (NumberFormatException e) {
-                            try {
-                                Double.parseDouble(value);
-                                types.add(HeatmapDataType.DOUBLE.getId());
-                            } catch (NumberFormatException e1) {
-                                types.add(HeatmapDataType.STRING.getId());
-                            }
-                        }
+                    if (value == null) {
+                        continue;
+                    }
+                    if (values.size() < valuesMaxSize) {
                         values.add(value);
                     }
+                    if (cellValueType == HeatmapDataType.STRING) {
+                        continue;
+                    }
+                    final HeatmapDataType valueType = getValueType(value);
+                    if (valueType.getId() > cellValueType.getId()) {
+                        cellValueType = valueType;
+                    }
+                    if (valueType != HeatmapDataType.STRING) {
+                        final double number = Double.parseDouble(value);
+                        min = Math.min(min, number);
+                        max = Math.max(max, number);
+                        numbers.add(number);
+                        if (numbers.size() > valuesMaxSize) {
+                            numbers.pollLast();
+                        }
+                    }
                 }
             }
             heatmap.setRowLabels(rowLabels);
-            HeatmapDataType cellValueType = HeatmapDataType.getById(Collections.max(types));
             heatmap.setCellValueType(cellValueType);
             switch (cellValueType) {
                 case INTEGER:
-                    heatmap.setCellValues(values.stream()
-                            .map(Integer::parseInt)
-                            .sorted()
-                            .limit(valuesMaxSize)
+                    heatmap.setCellValues(numbers.stream()
+                            .map(Double::intValue)
                             .collect(Collectors.toSet()));
                     break;
                 case DOUBLE:
-                    heatmap.setCellValues(values.stream()
-                            .map(Double::parseDouble)
-                            .sorted()
-                            .limit(valuesMaxSize)
-                            .collect(Collectors.toSet()));
+                    heatmap.setCellValues(new HashSet<>(numbers));
                     break;
                 default:
-                    heatmap.setCellValues(values.stream().limit(valuesMaxSize).collect(Collectors.toSet()));
+                    heatmap.setCellValues(new HashSet<>(values));
+                    break;
+            }
+            if (cellValueType != HeatmapDataType.STRING && !numbers.isEmpty()) {
+                heatmap.setMaxCellValue(max);
+                heatmap.setMinCellValue(min);
+            }
+        }
+    }
+
+    private void writeTiles(final Heatmap heatmap) {
+        final File directory = fileManager.makeHeatmapDir(heatmap.getHeatmapId());
+        try (Reader reader = new FileReader(heatmap.getPath())) {
+            writeTiles(heatmap, reader, directory);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(directory);
+            throw new RegistrationException(getMessage(MessagesConstants.ERROR_REGISTER_FILE, heatmap.getName()), e);
+        }
+    }
+
+    private void writeTiles(final Heatmap heatmap, final Reader content, final File directory) throws IOException {
+        final String separator = getSeparator(heatmap.getPath());
+        try (BufferedReader bufferedReader = new BufferedReader(content);
+             HeatmapTileWriter writer = new HeatmapTileWriter(directory, heatmap.getRowLabels().size(),
+                     heatmap.getColumnLabels().size(), tileSize, heatmap.getCellValueType())) {
+            String line = bufferedReader.readLine();
+            final String[] rowValues = new String[heatmap.getColumnLabels().size()];
+            while ((line = bufferedReader.readLine()) != null) {
+                if (StringUtils.isBlank(line)) {
                     break;
+                }
+                // trailing empty cells are dropped by split, so they are reset from the previous row
+                Arrays.fill(rowValues, null);
+                final String[] cells = line.split(separator);
+                for (int i = 1; i < cells.length; i++) {
+                    rowValues[i - 1] = getCellValue(cells[i]);
+                }
+                writer.addRow(rowValues);
             }
-            if (cellValueType != HeatmapDataType.STRING) {
-                heatmap.setMaxCellValue(Collections.max(values
-                        .stream()
-                        .map(Double::parseDouble)
-                        .collect(Collectors.toList())));
-                heatmap.setMinCellValue(Collections.min(values
-                        .stream()
-                        .map(Double::parseDouble)
-                        .collect(Collectors.toList())));
+        }
+    }
+
+    private static HeatmapDataType getValueType(final String value) {
+        if (isInteger(value)) {
+            return HeatmapDataType.INTEGER;
+        }
+        try {
+            Double.parseDouble(value);
+            return HeatmapDataType.DOUBLE;
+        } catch (NumberFormatException e) {
+            return HeatmapDataType.STRING;
+        }
+    }
+
+    private static boolean isInteger(final String value) {
+        final int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (start == value.length() || value.length() - start > MAX_INTEGER_DIGITS) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
             }
         }
+        final long number = Long.parseLong(value);
+        return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE;
     }
 
     @NotNull
@@ -27,6 +27,7 @@ package com.epam.catgenome.manager.heatmap;
 
 import com.epam.catgenome.controller.vo.registration.HeatmapRegistrationRequest;
 import com.epam.catgenome.entity.heatmap.Heatmap;
+import com.epam.catgenome.entity.heatmap.HeatmapRegion;
 import com.epam.catgenome.entity.heatmap.HeatmapTree;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -73,6 +74,14 @@ public class HeatmapSecurityService {
         return heatmapManager.getContent(heatmapId);
     }
 
+    @PreAuthorize(ROLE_ADMIN + OR + READ_HEATMAP_BY_PROJECT_ID)
+    public HeatmapRegion getContentRegion(final long heatmapId, final Long projectId,
+                                          final int startRow, final int endRow,
+                                          final int startColumn, final int endColumn,
+                                          final Integer level) throws IOException {
+        return heatmapManager.getContentRegion(heatmapId, startRow, endRow, startColumn, endColumn, level);
+    }
+
     @PreAuthorize(ROLE_ADMIN + OR + ROLE_HEATMAP_MANAGER)
     public void updateLabelAnnotation(final long heatmapId, final String path) throws IOException {
         heatmapManager.updateLabelAnnotation(heatmapId, path);
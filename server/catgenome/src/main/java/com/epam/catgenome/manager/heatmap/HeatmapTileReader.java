@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.heatmap;
+
+import com.epam.catgenome.entity.heatmap.HeatmapDataType;
+import com.epam.catgenome.entity.heatmap.HeatmapRegion;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.CELL_SIZE;
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.FLOAT_VALUES;
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.MISSING_INT;
+
+/**
+ * Reads windows of cells from tiled heatmap files, written by {@link HeatmapTileWriter}. Only tiles,
+ * overlapping a requested window, are read from a level file.
+ */
+final class HeatmapTileReader {
+
+    private HeatmapTileReader() {
+        // no-op
+    }
+
+    /**
+     * Returns the number of zoom levels, stored in a catalogue
+     */
+    static int getLevelCount(final File directory) {
+        int count = 0;
+        while (HeatmapTiles.getLevelFile(directory, count).isFile()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads a window of cells at a zoom level
+     * @param directory catalogue with tiles of a heatmap
+     * @param level zoom level
+     * @param type type of heatmap values
+     * @param startRow first row of a window at the original resolution, inclusive
+     * @param endRow last row of a window at the original resolution, inclusive
+     * @param startColumn first column of a window at the original resolution, inclusive
+     * @param endColumn last column of a window at the original resolution, inclusive
+     * @return cells of a window, missing values are represented by nulls
+     */
+    static HeatmapRegion read(final File directory, final int level, final HeatmapDataType type,
+                              final int startRow, final int endRow,
+                              final int startColumn, final int endColumn) throws IOException {
+        final File file = HeatmapTiles.getLevelFile(directory, level);
+        final List<String> dictionary = type == HeatmapDataType.STRING
+                ? FileUtils.readLines(new File(directory, HeatmapTiles.DICTIONARY_FILE), StandardCharsets.UTF_8)
+                : Collections.emptyList();
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            final int rows = input.readInt();
+            final int columns = input.readInt();
+            final int tileSize = input.readInt();
+            final int kind = input.readInt();
+            final int fromRow = Math.max(0, startRow >> level);
+            final int toRow = Math.min(rows - 1, endRow >> level);
+            final int fromColumn = Math.max(0, startColumn >> level);
+            final int toColumn = Math.min(columns - 1, endColumn >> level);
+            final List<List<Object>> values = new ArrayList<>(Math.max(0, toRow - fromRow + 1));
+            for (int i = fromRow; i <= toRow; i++) {
+                values.add(new ArrayList<>(Collections.nCopies(toColumn - fromColumn + 1, null)));
+            }
+            for (int tileRow = fromRow / tileSize; tileRow <= toRow / tileSize; tileRow++) {
+                final int bandStart = tileRow * tileSize;
+                final int bandHeight = Math.min(tileSize, rows - bandStart);
+                for (int tileColumn = fromColumn / tileSize; tileColumn <= toColumn / tileSize; tileColumn++) {
+                    final int tileStart = tileColumn * tileSize;
+                    final int tileWidth = Math.min(tileSize, columns - tileStart);
+                    final byte[] tile = new byte[bandHeight * tileWidth * CELL_SIZE];
+                    input.seek(HeatmapTiles.getTileOffset(rows, columns, tileSize, tileRow, tileColumn));
+                    input.readFully(tile);
+                    final ByteBuffer buffer = ByteBuffer.wrap(tile);
+                    final int rowFrom = Math.max(fromRow, bandStart);
+                    final int rowTo = Math.min(toRow, bandStart + bandHeight - 1);
+                    final int columnFrom = Math.max(fromColumn, tileStart);
+                    final int columnTo = Math.min(toColumn, tileStart + tileWidth - 1);
+                    for (int i = rowFrom; i <= rowTo; i++) {
+                        final List<Object> row = values.get(i - fromRow);
+                        for (int j = columnFrom; j <= columnTo; j++) {
+                            final int cell = buffer.getInt(((i - bandStart) * tileWidth + j - tileStart) * CELL_SIZE);
+                            row.set(j - fromColumn, decode(cell, kind, type, dictionary));
+                        }
+                    }
+                }
+            }
+            return HeatmapRegion.builder()
+                    .level(level)
+                    .scale(1 << level)
+                    .startRow(fromRow << level)
+                    .endRow(Math.min(endRow, ((toRow + 1) << level) - 1))
+                    .startColumn(fromColumn << level)
+                    .endColumn(Math.min(endColumn, ((toColumn + 1) << level) - 1))
+                    .cellValueType(type)
+                    .values(values)
+                    .build();
+        }
+    }
+
+    private static Object decode(final int cell, final int kind, final HeatmapDataType type,
+                                 final List<String> dictionary) {
+        if (kind == FLOAT_VALUES) {
+            final float value = Float.intBitsToFloat(cell);
+            return Float.isNaN(value) ? null : value;
+        }
+        if (cell == MISSING_INT) {
+            return null;
+        }
+        return type == HeatmapDataType.STRING ? dictionary.get(cell) : Integer.valueOf(cell);
+    }
+}
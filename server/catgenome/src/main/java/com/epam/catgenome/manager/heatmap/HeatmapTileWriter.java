@@ -0,0 +1,250 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.heatmap;
+
+import com.epam.catgenome.entity.heatmap.HeatmapDataType;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.FLOAT_VALUES;
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.INT_VALUES;
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.MISSING_FLOAT;
+import static com.epam.catgenome.manager.heatmap.HeatmapTiles.MISSING_INT;
+
+/**
+ * Writes a heatmap to tiled files of {@link HeatmapTiles} layout. Rows are added one by one, so only
+ * a band of tiles per zoom level is kept in memory. Zoom levels are added until a level fits into
+ * a single tile. Numeric cells of zoom levels hold mean of present values, string cells hold
+ * the first present value.
+ */
+class HeatmapTileWriter implements Closeable {
+
+    private final File directory;
+    private final int rows;
+    private final int columns;
+    private final HeatmapDataType type;
+    private final Level[] levels;
+    private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+    private final int[] cells;
+    private final float[] values;
+    private int row;
+
+    HeatmapTileWriter(final File directory, final int rows, final int columns, final int tileSize,
+                      final HeatmapDataType type) throws IOException {
+        this.directory = directory;
+        this.rows = rows;
+        this.columns = columns;
+        this.type = type;
+        int levelCount = 1;
+        while (Math.max(HeatmapTiles.getSize(rows, levelCount - 1),
+                HeatmapTiles.getSize(columns, levelCount - 1)) > tileSize) {
+            levelCount++;
+        }
+        this.levels = new Level[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            final int kind = type == HeatmapDataType.DOUBLE || i > 0 && type == HeatmapDataType.INTEGER
+                    ? FLOAT_VALUES : INT_VALUES;
+            levels[i] = new Level(HeatmapTiles.getLevelFile(directory, i), i, kind, tileSize);
+        }
+        this.cells = new int[columns];
+        this.values = new float[columns];
+    }
+
+    /**
+     * Adds a row of a heatmap
+     * @param rowValues values of cells, missing values are represented by nulls
+     */
+    void addRow(final String[] rowValues) throws IOException {
+        for (int i = 0; i < columns; i++) {
+            encode(rowValues[i], i);
+        }
+        levels[0].addRow(cells);
+        for (int i = 1; i < levels.length; i++) {
+            levels[i].accumulate();
+        }
+        row++;
+    }
+
+    /**
+     * Writes remaining tiles and a dictionary of string values
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Level level : levels) {
+                level.finish();
+            }
+        } finally {
+            for (Level level : levels) {
+                level.out.close();
+            }
+        }
+        if (type == HeatmapDataType.STRING) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(new File(directory, HeatmapTiles.DICTIONARY_FILE)),
+                    StandardCharsets.UTF_8))) {
+                for (String value : dictionary.keySet()) {
+                    writer.write(value);
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    int getLevelCount() {
+        return levels.length;
+    }
+
+    private void encode(final String value, final int column) {
+        if (value == null) {
+            cells[column] = type == HeatmapDataType.DOUBLE ? MISSING_FLOAT : MISSING_INT;
+            values[column] = Float.NaN;
+            return;
+        }
+        switch (type) {
+            case INTEGER:
+                cells[column] = Integer.parseInt(value);
+                values[column] = cells[column];
+                break;
+            case DOUBLE:
+                values[column] = Float.parseFloat(value);
+                cells[column] = Float.floatToIntBits(values[column]);
+                break;
+            default:
+                cells[column] = dictionary.computeIfAbsent(value, v -> dictionary.size());
+                values[column] = Float.NaN;
+                break;
+        }
+    }
+
+    /**
+     * A zoom level, that collects cells to a band of tiles and writes the band, when it is full
+     */
+    private final class Level {
+        private final int scale;
+        private final int kind;
+        private final int tileSize;
+        private final int levelColumns;
+        private final DataOutputStream out;
+        private final int[] band;
+        private final float[] sums;
+        private final int[] counts;
+        private final int[] aggregated;
+        private int bandRows;
+
+        Level(final File file, final int level, final int kind, final int tileSize) throws IOException {
+            this.scale = 1 << level;
+            this.kind = kind;
+            this.tileSize = tileSize;
+            this.levelColumns = HeatmapTiles.getSize(columns, level);
+            this.band = new int[tileSize * levelColumns];
+            this.sums = new float[levelColumns];
+            this.counts = new int[levelColumns];
+            this.aggregated = new int[levelColumns];
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(HeatmapTiles.getSize(rows, level));
+            out.writeInt(levelColumns);
+            out.writeInt(tileSize);
+            out.writeInt(kind);
+            clearAggregated();
+        }
+
+        /**
+         * Adds the current row of a heatmap to aggregated cells and adds aggregated cells to
+         * a band, when all rows of a zoom level row are added
+         */
+        void accumulate() throws IOException {
+            for (int i = 0; i < columns; i++) {
+                final int cell = i / scale;
+                if (type == HeatmapDataType.STRING) {
+                    if (aggregated[cell] == MISSING_INT) {
+                        aggregated[cell] = cells[i];
+                    }
+                } else if (!Float.isNaN(values[i])) {
+                    sums[cell] += values[i];
+                    counts[cell]++;
+                }
+            }
+            if ((row + 1) % scale == 0) {
+                addAggregated();
+            }
+        }
+
+        void finish() throws IOException {
+            if (scale > 1 && row % scale != 0) {
+                addAggregated();
+            }
+            writeBand();
+        }
+
+        void addRow(final int[] levelCells) throws IOException {
+            System.arraycopy(levelCells, 0, band, bandRows * levelColumns, levelColumns);
+            bandRows++;
+            if (bandRows == tileSize) {
+                writeBand();
+            }
+        }
+
+        private void addAggregated() throws IOException {
+            if (kind == FLOAT_VALUES) {
+                for (int i = 0; i < levelColumns; i++) {
+                    aggregated[i] = counts[i] == 0 ? MISSING_FLOAT : Float.floatToIntBits(sums[i] / counts[i]);
+                }
+            }
+            addRow(aggregated);
+            clearAggregated();
+        }
+
+        private void clearAggregated() {
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            Arrays.fill(aggregated, MISSING_INT);
+        }
+
+        private void writeBand() throws IOException {
+            for (int tileStart = 0; tileStart < levelColumns; tileStart += tileSize) {
+                final int tileEnd = Math.min(tileStart + tileSize, levelColumns);
+                for (int i = 0; i < bandRows; i++) {
+                    for (int j = tileStart; j < tileEnd; j++) {
+                        out.writeInt(band[i * levelColumns + j]);
+                    }
+                }
+            }
+            bandRows = 0;
+        }
+    }
+}
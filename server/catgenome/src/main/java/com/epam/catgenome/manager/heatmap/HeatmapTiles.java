@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.heatmap;
+
+import java.io.File;
+
+/**
+ * Layout of tiled heatmap files. A heatmap is stored as a file per zoom level: level 0 holds original
+ * cells, each next level aggregates 2x2 cells of the previous one. A level file starts with a header
+ * (number of rows, number of columns, tile size and kind of values) followed by square tiles, ordered by
+ * rows of tiles. Tiles at the bottom and right edges are truncated, so the offset of any tile is known
+ * from the header. A cell is stored as 4 bytes: an integer or a float value or a code of a string value
+ * in a dictionary of a heatmap.
+ */
+final class HeatmapTiles {
+
+    static final String DICTIONARY_FILE = "dictionary.txt";
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+    static final int CELL_SIZE = Integer.BYTES;
+    static final int INT_VALUES = 0;
+    static final int FLOAT_VALUES = 1;
+    static final int MISSING_INT = Integer.MIN_VALUE;
+    static final int MISSING_FLOAT = Float.floatToIntBits(Float.NaN);
+
+    private static final String LEVEL_FILE_FORMAT = "level%d.tiles";
+
+    private HeatmapTiles() {
+        // no-op
+    }
+
+    static File getLevelFile(final File directory, final int level) {
+        return new File(directory, String.format(LEVEL_FILE_FORMAT, level));
+    }
+
+    static int getSize(final int size, final int level) {
+        return (int) ((size + (1L << level) - 1) >> level);
+    }
+
+    static int getTileCount(final int size, final int tileSize) {
+        return (size + tileSize - 1) / tileSize;
+    }
+
+    static long getTileOffset(final int rows, final int columns, final int tileSize,
+                              final int tileRow, final int tileColumn) {
+        final int bandHeight = Math.min(tileSize, rows - tileRow * tileSize);
+        return HEADER_SIZE + ((long) tileRow * tileSize * columns + (long) bandHeight * tileColumn * tileSize)
+                * CELL_SIZE;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.maf;
+
+import com.epam.catgenome.manager.maf.parser.MafFeature;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import htsjdk.tribble.util.LittleEndianOutputStream;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Writes sorted MAF features to a BGZF compressed BigMaf file and builds its tabix index in the same pass,
+ * so a merged file isn't read once more to be indexed. The index is written, when the writer is closed.
+ */
+public class BigMafWriter implements Closeable {
+
+    private static final byte[] LINE_SEPARATOR = "\n".getBytes(Charset.defaultCharset());
+
+    private final BlockCompressedOutputStream outputStream;
+    private final File indexFile;
+    private final TabixIndexCreator indexCreator;
+
+    public BigMafWriter(final File file, final File indexFile, final TabixFormat format) {
+        this.outputStream = new BlockCompressedOutputStream(file);
+        this.indexFile = indexFile;
+        this.indexCreator = new TabixIndexCreator(format);
+    }
+
+    /**
+     * Writes a feature, features must be added in the order of a tabix index: grouped by chromosomes and
+     * sorted by start positions
+     * @param feature a feature to write
+     * @throws IOException
+     */
+    public void add(final MafFeature feature) throws IOException {
+        indexCreator.addFeature(feature, outputStream.getFilePointer());
+        outputStream.write(feature.toBigMafString().getBytes(Charset.defaultCharset()));
+        outputStream.write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Index index;
+        try {
+            index = indexCreator.finalizeIndex(outputStream.getFilePointer());
+        } finally {
+            outputStream.close();
+        }
+        try (LittleEndianOutputStream indexStream = new LittleEndianOutputStream(
+                new BlockCompressedOutputStream(indexFile))) {
+            index.write(indexStream);
+        }
+    }
+}
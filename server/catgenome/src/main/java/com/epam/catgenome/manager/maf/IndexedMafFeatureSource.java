@@ -0,0 +1,77 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.maf;
+
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.manager.maf.parser.MafCodec;
+import com.epam.catgenome.manager.maf.parser.MafFeature;
+import com.epam.catgenome.util.Utils;
+import com.epam.catgenome.util.feature.reader.AbstractFeatureReader;
+import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.tribble.readers.LineIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A source of features of a sorted MAF file, read by chromosomes with a temporary tabix index. The file
+ * is opened once for all chromosomes.
+ */
+class IndexedMafFeatureSource implements MafFeatureSource {
+
+    private final AbstractFeatureReader<MafFeature, LineIterator> reader;
+    private CloseableIterator<MafFeature> iterator;
+
+    IndexedMafFeatureSource(final File file, final File indexFile, final EhCacheBasedIndexCache indexCache) {
+        this.reader = AbstractFeatureReader.getFeatureReader(file.getAbsolutePath(),
+                indexFile.getAbsolutePath(), new MafCodec(file.getName()), true, indexCache);
+    }
+
+    @Override
+    public Iterator<MafFeature> query(final Chromosome chromosome) throws IOException {
+        closeIterator();
+        iterator = reader.query(chromosome.getName(), 1, chromosome.getSize());
+        if (!iterator.hasNext()) {
+            iterator.close();
+            iterator = reader.query(Utils.changeChromosomeName(chromosome.getName()), 1, chromosome.getSize());
+        }
+        return iterator;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeIterator();
+        reader.close();
+    }
+
+    private void closeIterator() {
+        if (iterator != null) {
+            iterator.close();
+            iterator = null;
+        }
+    }
+}
@@ -27,22 +27,40 @@ package com.epam.catgenome.manager.maf;
 import static com.epam.catgenome.component.MessageHelper.getMessage;
 import static com.epam.catgenome.constant.MessagesConstants.ERROR_EMPTY_FOLDER;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
+import htsjdk.samtools.util.PeekableIterator;
+import htsjdk.tribble.Feature;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
@@ -55,6 +73,7 @@ import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.exception.RegistrationException;
+import com.epam.catgenome.exception.UnsortedFileException;
 import com.epam.catgenome.manager.BiologicalDataItemManager;
 import com.epam.catgenome.manager.DownloadFileManager;
 import com.epam.catgenome.manager.FileManager;
@@ -97,6 +116,41 @@ public class MafManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MafManager.class);
 
+    private static final int DEFAULT_MERGE_THREADS = 4;
+    private static final int DEFAULT_MERGE_SORT_MEMORY = 256;
+    private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
+    private static final int ESTIMATED_RECORD_SIZE = 1024;
+    private static final long MERGE_THREADS_KEEP_ALIVE = 60L;
+
+    @Value("#{catgenome['maf.merge.threads'] ?: " + DEFAULT_MERGE_THREADS + "}")
+    private int mergeThreads = DEFAULT_MERGE_THREADS;
+
+    @Value("#{catgenome['maf.merge.sort.memory.mb'] ?: " + DEFAULT_MERGE_SORT_MEMORY + "}")
+    private int mergeSortMemory = DEFAULT_MERGE_SORT_MEMORY;
+
+    private ExecutorService mergeExecutor;
+
+    /**
+     * Creates a bounded executor for registration of MAF directories, that is separate from executors of track
+     * requests, so that merging of large directories doesn't slow down loading of tracks
+     */
+    @PostConstruct
+    public void init() {
+        final int threads = Math.max(1, mergeThreads);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, MERGE_THREADS_KEEP_ALIVE,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new BasicThreadFactory.Builder()
+                        .namingPattern("maf-merge-%d")
+                        .daemon(true)
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+        mergeExecutor = executor;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        mergeExecutor.shutdownNow();
+    }
+
     /**
      * Registers a MAF file or a directory with MAF files
      * @param request a file registration request
@@ -243,57 +297,144 @@ public class MafManager {
         }
     }
 
+    /**
+     * Merges MAF files of a directory into a BigMaf file. Files are indexed in parallel, a file, that
+     * can't be indexed because it isn't sorted, is sorted with spilling to disk instead. Then sorted
+     * sources are merged chromosome by chromosome in a single streaming pass, that writes both the
+     * merged file and its index.
+     */
     private void mergeMaf(File directory, MafFile mafFile) throws IOException {
         Assert.notNull(directory.listFiles(), getMessage(ERROR_EMPTY_FOLDER));
         Assert.isTrue(directory.listFiles().length > 0, getMessage(ERROR_EMPTY_FOLDER));
         Reference reference = referenceGenomeManager.load(mafFile.getReferenceId());
-        try (BufferedWriter writer = fileManager.makeMafFileWriter(mafFile)) {
-            createMafBioItem(mafFile);
-            for (File f : directory.listFiles()) {
-                if (f.getAbsolutePath().endsWith(MafCodec.MAF_EXTENSION) ||
-                        f.getAbsolutePath().endsWith(MafCodec.MAF_COMPRESSED_EXTENSION)) {
-                    fileManager.makeMafTempIndex(f, mafFile);
-                }
-            }
-            for (Chromosome chromosome : reference.getChromosomes()) {
-                List<MafFeature> currChrFeatures = new ArrayList<>();
-                LOGGER.debug("Reading MAF records for chromosome {}", chromosome.getName());
-                for (File f : directory.listFiles()) {
-                    addFeaturesFromFile(mafFile, chromosome, currChrFeatures, f);
-                }
-                LOGGER.debug("Sorting MAF records for chromosome {}", chromosome.getName());
-                Collections.sort(currChrFeatures, new FeatureComparator());
-                LOGGER.debug("Writing MAF records for chromosome {}", chromosome.getName());
-                for (MafFeature feature : currChrFeatures) {
-                    writer.write(feature.toBigMafString());
-                    writer.newLine();
+        List<File> files = Arrays.stream(directory.listFiles())
+                .filter(f -> f.getAbsolutePath().endsWith(MafCodec.MAF_EXTENSION) ||
+                        f.getAbsolutePath().endsWith(MafCodec.MAF_COMPRESSED_EXTENSION))
+                .collect(Collectors.toList());
+        createMafBioItem(mafFile);
+        List<MafFeatureSource> sources = new ArrayList<>(files.size());
+        try {
+            File tempDir = fileManager.makeMafTempDir(mafFile.getId());
+            openSources(files, mafFile, reference.getChromosomes(), tempDir, sources);
+            try (BigMafWriter writer = fileManager.makeBigMafWriter(mafFile)) {
+                for (Chromosome chromosome : reference.getChromosomes()) {
+                    LOGGER.debug("Merging MAF records for chromosome {}", chromosome.getName());
+                    mergeChromosome(chromosome, sources, writer);
                 }
-                writer.flush();
             }
-            writer.flush();
         } finally {
+            sources.forEach(IOUtils::closeQuietly);
             fileManager.deleteMafTempDir(mafFile.getId());
         }
-        fileManager.makeBigMafIndex(mafFile);
     }
 
-    private void addFeaturesFromFile(MafFile mafFile, Chromosome chromosome,
-            List<MafFeature> currChrFeatures, File f) throws IOException {
-        if (f.getAbsolutePath().endsWith(MafCodec.MAF_EXTENSION) ||
-                f.getAbsolutePath().endsWith(MafCodec.MAF_COMPRESSED_EXTENSION)) {
-            File indexFile = fileManager.getMafTempIndex(f, mafFile);
-            MafCodec mafCodec = new MafCodec(f.getName());
-
-            try (AbstractFeatureReader<MafFeature, LineIterator> reader = AbstractFeatureReader
-                    .getFeatureReader(f.getAbsolutePath(), indexFile.getAbsolutePath(), mafCodec, true, indexCache)) {
-                CloseableIterator<MafFeature> iterator = reader.query(chromosome.getName(), 1,
-                        chromosome.getSize());
-                if (!iterator.hasNext()) {
-                    iterator = reader.query(Utils.changeChromosomeName(chromosome.getName()), 1,
-                            chromosome.getSize());
+    /**
+     * Opens merge sources of files on the merge executor. Files are indexed first, then files, that can't be
+     * indexed because they aren't sorted, are sorted with an equal share of the sort memory each, so that all
+     * sorted sources together keep at most {@code mergeSortMemory} of records in memory
+     */
+    private void openSources(List<File> files, MafFile mafFile, List<Chromosome> chromosomes, File tempDir,
+                             List<MafFeatureSource> sources) throws IOException {
+        final List<MafFeatureSource> indexed = new ArrayList<>(files.size());
+        final List<MafFeatureSource> sorted = new ArrayList<>();
+        try {
+            runMergeTasks(files.stream()
+                    .map(file -> (Callable<MafFeatureSource>) () -> indexSource(file, mafFile))
+                    .collect(Collectors.toList()), indexed);
+            final List<File> unsortedFiles = IntStream.range(0, files.size())
+                    .filter(i -> indexed.get(i) == null)
+                    .mapToObj(files::get)
+                    .collect(Collectors.toList());
+            if (unsortedFiles.isEmpty()) {
+                return;
+            }
+            final int maxRecordsInRam = (int) Math.max(1L, (long) mergeSortMemory * BYTES_IN_MEGABYTE
+                    / ESTIMATED_RECORD_SIZE / unsortedFiles.size());
+            runMergeTasks(unsortedFiles.stream()
+                    .map(file -> (Callable<MafFeatureSource>) () -> new SortedMafFeatureSource(file, chromosomes,
+                            maxRecordsInRam, tempDir))
+                    .collect(Collectors.toList()), sorted);
+        } finally {
+            indexed.stream().filter(Objects::nonNull).forEach(sources::add);
+            sources.addAll(sorted);
+        }
+    }
+
+    /**
+     * Indexes a MAF file
+     * @return a source of the indexed file or null, if the file isn't sorted
+     */
+    private MafFeatureSource indexSource(File file, MafFile mafFile) throws IOException {
+        try {
+            fileManager.makeMafTempIndex(file, mafFile);
+        } catch (UnsortedFileException e) {
+            LOGGER.debug("MAF file {} isn't sorted, it will be sorted: {}", file.getName(), e.getMessage());
+            return null;
+        }
+        return new IndexedMafFeatureSource(file, fileManager.getMafTempIndex(file, mafFile), indexCache);
+    }
+
+    /**
+     * Runs tasks on the merge executor and adds their results to a list in the order of tasks. If a task fails,
+     * other tasks are cancelled and sources, that are already opened, but not added, are closed
+     */
+    private void runMergeTasks(List<Callable<MafFeatureSource>> tasks, List<MafFeatureSource> results)
+            throws IOException {
+        final List<Future<MafFeatureSource>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<MafFeatureSource> task : tasks) {
+                futures.add(mergeExecutor.submit(task));
+            }
+            for (Future<MafFeatureSource> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            closeUncollectedSources(futures, results.size());
+        }
+    }
+
+    private void closeUncollectedSources(List<Future<MafFeatureSource>> futures, int collected) {
+        for (int i = collected; i < futures.size(); i++) {
+            final Future<MafFeatureSource> future = futures.get(i);
+            if (!future.cancel(true) && !future.isCancelled()) {
+                try {
+                    IOUtils.closeQuietly(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    LOGGER.debug(e.getMessage(), e);
                 }
+            }
+        }
+    }
 
-                currChrFeatures.addAll(iterator.toList());
+    private void mergeChromosome(Chromosome chromosome, List<MafFeatureSource> sources, BigMafWriter writer)
+            throws IOException {
+        final Comparator<Feature> comparator = new FeatureComparator();
+        final PriorityQueue<PeekableIterator<MafFeature>> queue = new PriorityQueue<>(
+                Math.max(1, sources.size()), (o1, o2) -> comparator.compare(o1.peek(), o2.peek()));
+        for (MafFeatureSource source : sources) {
+            final PeekableIterator<MafFeature> iterator = new PeekableIterator<>(source.query(chromosome));
+            if (iterator.hasNext()) {
+                queue.add(iterator);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final PeekableIterator<MafFeature> iterator = queue.poll();
+            writer.add(iterator.next());
+            if (iterator.hasNext()) {
+                queue.add(iterator);
             }
         }
     }
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.maf;
+
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.manager.maf.parser.MafCodec;
+import com.epam.catgenome.manager.maf.parser.MafFeature;
+import com.epam.catgenome.util.Utils;
+import com.epam.catgenome.util.feature.reader.AbstractFeatureReader;
+import com.epam.catgenome.util.sort.SortableRecord;
+import com.epam.catgenome.util.sort.SortableRecordCodec;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.PeekableIterator;
+import htsjdk.samtools.util.SortingCollection;
+import htsjdk.tribble.readers.LineIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A source of features of an unsorted MAF file. The file is read once and its features are sorted by
+ * a {@link SortingCollection}, that spills to a temporary directory, when it exceeds a limit of records
+ * in memory. Features of chromosomes, missing in a reference, are skipped.
+ */
+class SortedMafFeatureSource implements MafFeatureSource {
+
+    private static final String BIG_MAF_FILE_NAME = "sorted.bmaf";
+
+    private final Map<String, Integer> chromosomeIndexes;
+    private final SortingCollection<SortableRecord> records;
+    private final MafCodec codec = new MafCodec(BIG_MAF_FILE_NAME);
+    private PeekableIterator<SortableRecord> iterator;
+
+    SortedMafFeatureSource(final File file, final List<Chromosome> chromosomes, final int maxRecordsInRam,
+                           final File tmpDir) throws IOException {
+        this.chromosomeIndexes = new HashMap<>();
+        for (int i = chromosomes.size() - 1; i >= 0; i--) {
+            chromosomeIndexes.put(Utils.changeChromosomeName(chromosomes.get(i).getName()), i);
+        }
+        for (int i = chromosomes.size() - 1; i >= 0; i--) {
+            chromosomeIndexes.put(chromosomes.get(i).getName(), i);
+        }
+        final Comparator<SortableRecord> comparator = Comparator
+                .comparing((SortableRecord record) -> chromosomeIndexes.get(record.getChromosome()))
+                .thenComparing(SortableRecord::getChromosome)
+                .thenComparingInt(SortableRecord::getStart);
+        this.records = SortingCollection.newInstance(SortableRecord.class, new SortableRecordCodec(),
+                comparator, maxRecordsInRam, tmpDir);
+        try (AbstractFeatureReader<MafFeature, LineIterator> reader = AbstractFeatureReader.getFeatureReader(
+                file.getAbsolutePath(), new MafCodec(file.getName()), false, null);
+             CloseableIterator<MafFeature> features = reader.iterator()) {
+            while (features.hasNext()) {
+                final MafFeature feature = features.next();
+                if (chromosomeIndexes.containsKey(feature.getContig())) {
+                    records.add(new SortableRecord(feature.getContig(), feature.getStart(),
+                            feature.toBigMafString()));
+                }
+            }
+        }
+        records.doneAdding();
+    }
+
+    @Override
+    public Iterator<MafFeature> query(final Chromosome chromosome) {
+        if (iterator == null) {
+            iterator = new PeekableIterator<>(records.iterator());
+        }
+        final Integer index = chromosomeIndexes.get(chromosome.getName());
+        return new Iterator<MafFeature>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext() && index.equals(chromosomeIndexes.get(iterator.peek().getChromosome()));
+            }
+
+            @Override
+            public MafFeature next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return codec.decode(iterator.next().getText());
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (iterator != null) {
+            iterator.close();
+        }
+        records.cleanup();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.maf.parser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.epam.catgenome.exception.UnsortedFileException;
+
+/**
+ * A {@link MafCodec}, that checks the order of decoded features: features of a chromosome should be sorted by
+ * start and chromosomes should be contiguous. Otherwise {@link UnsortedFileException} is thrown, so that
+ * a file, that can't be indexed, is told apart from a malformed one.
+ */
+public class SortCheckingMafCodec extends MafCodec {
+
+    private final String path;
+    private final Set<String> passedContigs = new HashSet<>();
+    private String lastContig;
+    private int lastStart;
+
+    /**
+     * Initializes codec for an input file
+     * @param path to MAF file
+     */
+    public SortCheckingMafCodec(String path) {
+        super(path);
+        this.path = path;
+    }
+
+    @Override
+    public MafFeature decode(String line) {
+        final MafFeature feature = super.decode(line);
+        if (feature == null) {
+            return null;
+        }
+        if (!feature.getContig().equals(lastContig)) {
+            if (!passedContigs.add(feature.getContig())) {
+                throw new UnsortedFileException(String.format("Chromosome %s isn't contiguous in %s",
+                        feature.getContig(), path));
+            }
+            lastContig = feature.getContig();
+        } else if (feature.getStart() < lastStart) {
+            throw new UnsortedFileException(String.format("Features of %s aren't sorted by start in %s",
+                    feature.getContig(), path));
+        }
+        lastStart = feature.getStart();
+        return feature;
+    }
+}
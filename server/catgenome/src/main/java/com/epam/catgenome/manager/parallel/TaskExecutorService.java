@@ -26,17 +26,20 @@ package com.epam.catgenome.manager.parallel;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import com.epam.catgenome.manager.bam.BamTrackEmitter;
 import htsjdk.samtools.util.RuntimeIOException;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -57,6 +60,8 @@ public final class TaskExecutorService {
 
     private static final long DEFAULT_KEEP_ALIVE_TIME = 60L;
     private static final long DEFAULT_MAX_THREADS = 20;
+    private static final int DEFAULT_TRACK_QUEUE_SIZE = 200;
+    private static final int DEFAULT_INDEXER_THREADS = 4;
 
     @Value("#{catgenome['ngb.bam.streaming.thread.keep-alive'] ?: " + DEFAULT_KEEP_ALIVE_TIME + "}")
     private int keepAliveTime;
@@ -64,6 +69,15 @@ public final class TaskExecutorService {
     @Value("#{catgenome['server.tomcat.max-connections'] ?: " + DEFAULT_MAX_THREADS + "}")
     private int maxThreadCount;
 
+    @Value("#{catgenome['ngb.bam.streaming.threads'] ?: " + DEFAULT_MAX_THREADS + "}")
+    private int trackThreadCount;
+
+    @Value("#{catgenome['ngb.bam.streaming.queue.size'] ?: " + DEFAULT_TRACK_QUEUE_SIZE + "}")
+    private int trackQueueSize;
+
+    @Value("#{catgenome['search.indexer.threads'] ?: " + DEFAULT_INDEXER_THREADS + "}")
+    private int indexerThreadCount;
+
     public enum ExecutionMode {
         SEQUENTIAL, ASYNC
     }
@@ -73,11 +87,24 @@ public final class TaskExecutorService {
 
     private volatile ExecutorService executorService;
     private volatile ExecutorService searchExecutor;
+    private volatile TrackTaskScheduler trackTaskScheduler;
+    private volatile ExecutorService shardExecutor;
+    private volatile ExecutorService indexerExecutor;
 
     @PostConstruct
     public void init() {
         searchExecutor = Executors
                 .newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        trackTaskScheduler = new TrackTaskScheduler(trackThreadCount, trackQueueSize, keepAliveTime);
+        shardExecutor = createShardExecutor();
+        indexerExecutor = createIndexerExecutor();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        trackTaskScheduler.shutdown();
+        shardExecutor.shutdown();
+        indexerExecutor.shutdownNow();
     }
 
     /**
@@ -108,28 +135,74 @@ public final class TaskExecutorService {
         return searchExecutor;
     }
 
-    public synchronized void executeTrackTask(BamTrackEmitter bamTrackEmitter, ExecutionMode mode, BamTrackTask task)
-            throws IOException {
+    /**
+     * Provides a bounded executor for shards of a single track task, e.g. sub-ranges of a BAM track, that are
+     * read in parallel. Shards are queued, when all threads are busy, and run in the caller thread,
+     * when the queue is full, so a shard is never rejected.
+     *
+     * @return ExecutorService
+     */
+    public ExecutorService getShardExecutor() {
+        return shardExecutor;
+    }
 
-        Executor executor = (mode == ExecutionMode.SEQUENTIAL || forceSequential) ?
-                (Runnable::run) :
-                getExecutorService();
+    /**
+     * Provides an executor, shared by feature indexes, that are built at once, e.g. on registration of VCF files.
+     * A number of its threads is bounded by {@code search.indexer.threads}, an index limits a number of its own
+     * pending tasks.
+     *
+     * @return ExecutorService
+     */
+    public ExecutorService getIndexerExecutor() {
+        return indexerExecutor;
+    }
 
-        CompletableFuture.runAsync(
-            () -> {
-                try {
-                    task.run();
-                } catch (IOException e) {
-                    throw new RuntimeIOException(e);
-                }
-            }, executor).exceptionally(
-                e -> {
-                    bamTrackEmitter.finishWithException(e);
-                    return null;
-                }
+    /**
+     * Executes a task, that writes a track to an emitter. Asynchronous tasks are scheduled without blocking
+     * the caller to a bounded queue, shared fairly between task owners. If a task can't be executed,
+     * emitter is finished with an error
+     *
+     * @param bamTrackEmitter emitter to report errors to
+     * @param mode specifies if a task should be executed in the caller thread
+     * @param owner name of a user or a session, that requested a task
+     * @param task to execute
+     */
+    public void executeTrackTask(BamTrackEmitter bamTrackEmitter, ExecutionMode mode, String owner,
+                                 BamTrackTask task) {
+        final CompletableFuture<Void> future;
+        if (mode == ExecutionMode.SEQUENTIAL || forceSequential) {
+            future = CompletableFuture.runAsync(
+                () -> {
+                    try {
+                        task.run();
+                    } catch (IOException e) {
+                        throw new RuntimeIOException(e);
+                    }
+                }, Runnable::run);
+        } else {
+            try {
+                future = trackTaskScheduler.submit(owner, task);
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn(e.getMessage());
+                bamTrackEmitter.finishWithException(e);
+                return;
+            }
+        }
+        future.exceptionally(
+            e -> {
+                bamTrackEmitter.finishWithException(e);
+                return null;
+            }
         );
     }
 
+    /**
+     * @return current load metrics of track tasks execution
+     */
+    public TrackTaskScheduler.Statistics getTrackTaskStatistics() {
+        return trackTaskScheduler.getStatistics();
+    }
+
     public int getTaskNumberOfThreads() {
         return Runtime.getRuntime().availableProcessors() / 2 <= maxThreadCount ?
                 (Runtime.getRuntime().availableProcessors() / 2) :
@@ -148,6 +221,31 @@ public final class TaskExecutorService {
         return threadPoolExecutor;
     }
 
+    private ExecutorService createShardExecutor() {
+        final int threads = Math.max(1, getTaskNumberOfThreads());
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, keepAliveTime,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(trackQueueSize), new ThreadPoolExecutor.CallerRunsPolicy());
+        if (keepAliveTime > 0) {
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+        }
+        LOGGER.info("Create track shards thread pool with {} threads", threads);
+        return threadPoolExecutor;
+    }
+
+    private ExecutorService createIndexerExecutor() {
+        final int threads = Math.max(1, indexerThreadCount);
+        final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, keepAliveTime,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new BasicThreadFactory.Builder()
+                        .namingPattern("feature-indexer-%d")
+                        .daemon(true)
+                        .build());
+        if (keepAliveTime > 0) {
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+        }
+        LOGGER.info("Create feature indexer thread pool with {} threads", threads);
+        return threadPoolExecutor;
+    }
+
     public synchronized void setForceSequential(boolean force) {
         forceSequential = force;
     }
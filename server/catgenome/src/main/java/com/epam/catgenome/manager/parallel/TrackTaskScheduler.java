@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.parallel;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import htsjdk.samtools.util.RuntimeIOException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes track tasks of different owners (users or sessions) on a limited number of threads with a bounded
+ * queue. When the queue is full, new tasks are rejected instead of piling up behind the running ones.
+ * Pending tasks are ordered by start-time fair queueing: each task gets a virtual start tag, greater than
+ * tags of previous tasks of the same owner, so a task of a new owner doesn't wait until the whole backlog
+ * of another owner is processed. Submission doesn't hold any global lock.
+ */
+public class TrackTaskScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrackTaskScheduler.class);
+    private static final long NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final ConcurrentMap<String, OwnerState> owners = new ConcurrentHashMap<>();
+    private final AtomicLong virtualTime = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public TrackTaskScheduler(final int threadCount, final int queueCapacity, final long keepAliveSeconds) {
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, keepAliveSeconds, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new BasicThreadFactory.Builder()
+                        .namingPattern("track-task-%d")
+                        .daemon(true)
+                        .build());
+        // a pool without keep alive time can't release idle threads, allowCoreThreadTimeOut rejects it
+        if (keepAliveSeconds > 0) {
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+        LOGGER.info("Create track task scheduler with {} threads and queue capacity {}", threadCount,
+                queueCapacity);
+    }
+
+    /**
+     * Schedules a task for execution
+     *
+     * @param owner identifies a user or a session, that requested a task
+     * @param task to execute
+     * @return a future, that is completed when task is finished
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Void> submit(final String owner, final BamTrackTask task) {
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException(String.format(
+                    "Track task queue is full (%d tasks), try again later", queueCapacity));
+        }
+        final OwnerState state = owners.compute(owner, (key, current) -> {
+            final OwnerState ownerState = current == null ? new OwnerState() : current;
+            ownerState.lastTag = Math.max(virtualTime.get(), ownerState.lastTag) + 1;
+            ownerState.pending++;
+            return ownerState;
+        });
+        final ScheduledTask scheduledTask = new ScheduledTask(owner, state.lastTag, sequence.incrementAndGet(), task);
+        submitted.incrementAndGet();
+        try {
+            executor.execute(scheduledTask);
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            release(owner);
+            throw e;
+        }
+        return scheduledTask.future;
+    }
+
+    public Statistics getStatistics() {
+        final long finished = completed.get() + failed.get();
+        final long started = finished + active.get();
+        return new Statistics(queued.get(), active.get(), owners.size(), submitted.get(), completed.get(),
+                failed.get(), rejected.get(),
+                started == 0 ? 0 : totalWaitNanos.get() / started / NANOS_IN_MILLI,
+                maxWaitNanos.get() / NANOS_IN_MILLI,
+                finished == 0 ? 0 : totalRunNanos.get() / finished / NANOS_IN_MILLI,
+                maxRunNanos.get() / NANOS_IN_MILLI);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void release(final String owner) {
+        owners.computeIfPresent(owner, (key, state) -> --state.pending == 0 ? null : state);
+    }
+
+    private static void updateMax(final AtomicLong max, final long value) {
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    private static final class OwnerState {
+        private long lastTag;
+        private int pending;
+    }
+
+    private final class ScheduledTask implements Runnable, Comparable<ScheduledTask> {
+
+        private final String owner;
+        private final long tag;
+        private final long order;
+        private final BamTrackTask task;
+        private final long submitTime = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private ScheduledTask(final String owner, final long tag, final long order, final BamTrackTask task) {
+            this.owner = owner;
+            this.tag = tag;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            final long startTime = System.nanoTime();
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            updateMax(virtualTime, tag);
+            totalWaitNanos.addAndGet(startTime - submitTime);
+            updateMax(maxWaitNanos, startTime - submitTime);
+            try {
+                // task is executed in the current thread, any failure completes returned future exceptionally
+                CompletableFuture.runAsync(this::runTask, Runnable::run).whenComplete((result, e) -> {
+                    if (e == null) {
+                        completed.incrementAndGet();
+                        future.complete(null);
+                    } else {
+                        failed.incrementAndGet();
+                        future.completeExceptionally(e);
+                    }
+                });
+            } finally {
+                final long runTime = System.nanoTime() - startTime;
+                totalRunNanos.addAndGet(runTime);
+                updateMax(maxRunNanos, runTime);
+                active.decrementAndGet();
+                release(owner);
+                LOGGER.debug("Track task of {} waited {} ms and took {} ms", owner,
+                        (startTime - submitTime) / NANOS_IN_MILLI, runTime / NANOS_IN_MILLI);
+            }
+        }
+
+        private void runTask() {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        @Override
+        public int compareTo(final ScheduledTask other) {
+            final int byTag = Long.compare(tag, other.tag);
+            return byTag != 0 ? byTag : Long.compare(order, other.order);
+        }
+    }
+
+    /**
+     * Load metrics of a {@link TrackTaskScheduler}, latencies are measured in milliseconds
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int queuedTasks;
+        private final int activeTasks;
+        private final int activeOwners;
+        private final long submittedTasks;
+        private final long completedTasks;
+        private final long failedTasks;
+        private final long rejectedTasks;
+        private final long averageWaitTime;
+        private final long maxWaitTime;
+        private final long averageRunTime;
+        private final long maxRunTime;
+    }
+}
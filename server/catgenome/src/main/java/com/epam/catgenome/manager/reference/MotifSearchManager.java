@@ -25,6 +25,7 @@
 package com.epam.catgenome.manager.reference;
 
 import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.reference.StrandedSequence;
 import com.epam.catgenome.entity.reference.motif.Motif;
 import com.epam.catgenome.entity.reference.motif.MotifSearchRequest;
@@ -32,29 +33,69 @@ import com.epam.catgenome.entity.reference.motif.MotifSearchResult;
 import com.epam.catgenome.entity.reference.motif.MotifSearchType;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.manager.gene.parser.StrandSerializable;
+import com.epam.catgenome.util.IupacMotifMatcher;
+import com.epam.catgenome.util.MotifSearcher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import static com.epam.catgenome.component.MessageHelper.getMessage;
 
+/**
+ * Searches motifs in reference sequences. Sequences are read by chunks, that are scanned in parallel
+ * in a {@link ForkJoinPool}: chunks of all chromosomes for a whole genome search, or chunks of a single
+ * chromosome otherwise. IUPAC motifs are matched on both strands in a single pass by
+ * {@link IupacMotifMatcher}, other regular expressions are matched by {@link MotifSearcher}.
+ * Search is paged: a result contains a chromosome and a position to continue the search from.
+ */
 @Service
 @Slf4j
 public class MotifSearchManager {
 
-    private static final int TRACK_LENGTH = 100;
     private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    // max length of a regular expression match, that may cross a chunk border
+    private static final int REGEX_MATCH_LOOKAHEAD = 1024;
+
+    @Value("#{catgenome['motif.search.threads'] ?: 0}")
+    private int threads;
+
+    @Value("#{catgenome['motif.search.chunk.size'] ?: " + DEFAULT_CHUNK_SIZE + "}")
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
 
     @Autowired
     private ReferenceGenomeManager referenceGenomeManager;
 
+    @Autowired
+    private ReferenceManager referenceManager;
+
+    private ForkJoinPool searchPool;
+
+    @PostConstruct
+    public void init() {
+        searchPool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        searchPool.shutdownNow();
+    }
+
     public Track<StrandedSequence> fillTrackWithMotifSearch(final Track<StrandedSequence> track,
                                                             final String motif,
                                                             final StrandSerializable strand) {
@@ -112,58 +153,151 @@ public class MotifSearchManager {
 
     private MotifSearchResult searchRegionMotifs(final MotifSearchRequest request) {
         final Chromosome chromosome = loadChromosomeById(request.getReferenceId(), request.getChromosomeId());
-        return MotifSearchResult.builder()
-                .result(
-                    fillMotifList(
-                        chromosome, request.getStartPosition(),
-                        request.getEndPosition(), 0,
-                            request.getStrand()))
-                .chromosomeId(request.getChromosomeId())
-                .pageSize(request.getPageSize())
-                .position(request.getEndPosition())
-                .build();
+        final List<Chunk> chunks = new ArrayList<>();
+        addChunks(chunks, loadReference(chromosome), chromosome, request.getStartPosition(),
+                request.getEndPosition());
+        final boolean paged = request.getPageSize() != null && request.getPageSize() > 0;
+        return searchPage(chunks, request, paged ? request.getPageSize() : Integer.MAX_VALUE);
     }
 
     private MotifSearchResult searchChromosomeMotifs(final MotifSearchRequest request) {
         final Chromosome chromosome = loadChromosomeById(request.getReferenceId(), request.getChromosomeId());
-        final int start = request.getStartPosition() == null ? 0 : request.getStartPosition();
+        final int start = request.getStartPosition() == null ? 1 : request.getStartPosition();
         final int end = request.getEndPosition() == null ? chromosome.getSize() : request.getEndPosition();
-        final int pageSize = request.getPageSize() != null ? request.getPageSize() : DEFAULT_PAGE_SIZE;
-        return MotifSearchResult.builder()
-                .result(
-                    fillMotifList(chromosome, start, end, pageSize,
-                            request.getStrand()))
-                .chromosomeId(request.getChromosomeId())
-                .pageSize(request.getPageSize())
-                .position(end)
-                .build();
+        final List<Chunk> chunks = new ArrayList<>();
+        addChunks(chunks, loadReference(chromosome), chromosome, start, end);
+        return searchPage(chunks, request, getPageSize(request));
     }
 
     private MotifSearchResult searchWholeGenomeMotifs(final MotifSearchRequest request) {
         final List<Chromosome> chromosomes = referenceGenomeManager.loadChromosomes(request.getReferenceId());
-        final Chromosome chr = loadChromosomeById(request.getReferenceId(), request.getChromosomeId());
-        int start = request.getStartPosition() == null ? 0 : request.getStartPosition();
-        int end = request.getEndPosition() == null ? chr.getSize() : request.getEndPosition();
-
-        final List<Motif> result = fillMotifList(chr, start, end,
-                request.getPageSize() != null ? request.getPageSize() : DEFAULT_PAGE_SIZE, request.getStrand());
-
-        final Chromosome next = nextChromosome(chromosomes, chr.getId());
-        final MotifSearchResult.MotifSearchResultBuilder resultBuilder = MotifSearchResult.builder()
-                .result(result).pageSize(request.getPageSize());
-        if (next != null) {
-            resultBuilder.chromosomeId(next.getId()).position(0);
+        final Reference reference = referenceGenomeManager.getOnlyReference(request.getReferenceId());
+        final Long firstChromosomeId = request.getChromosomeId() == null
+                ? chromosomes.get(0).getId() : request.getChromosomeId();
+        final List<Chunk> chunks = new ArrayList<>();
+        boolean started = false;
+        for (Chromosome chromosome : chromosomes) {
+            if (Objects.equals(chromosome.getId(), firstChromosomeId)) {
+                started = true;
+                final int start = request.getStartPosition() == null ? 1 : request.getStartPosition();
+                final int end = request.getEndPosition() == null ? chromosome.getSize() : request.getEndPosition();
+                addChunks(chunks, reference, chromosome, start, end);
+            } else if (started) {
+                addChunks(chunks, reference, chromosome, 1, chromosome.getSize());
+            }
         }
-        return resultBuilder.build();
+        return searchPage(chunks, request, getPageSize(request));
     }
 
-    private Chromosome nextChromosome(final List<Chromosome> chromosomes, final Long chromosomeId) {
-        for (int i = 0; i < chromosomes.size() - 1; i++) {
-            if (Objects.equals(chromosomes.get(i).getId(), chromosomeId)) {
-                return chromosomes.get(i + 1);
+    /**
+     * Searches chunks in order by waves of parallel tasks until a page is filled. Matches, that start at
+     * the same position on different strands, are never split between pages.
+     */
+    private MotifSearchResult searchPage(final List<Chunk> chunks, final MotifSearchRequest request,
+                                         final int pageSize) {
+        final IupacMotifMatcher matcher = IupacMotifMatcher.isSupported(request.getMotif())
+                ? new IupacMotifMatcher(request.getMotif()) : null;
+        final List<Motif> page = new ArrayList<>();
+        Long nextChromosomeId = null;
+        Integer nextPosition = null;
+        final int parallelism = searchPool.getParallelism();
+        for (int waveStart = 0; waveStart < chunks.size() && nextPosition == null; waveStart += parallelism) {
+            final int limit = pageSize - page.size();
+            final List<Chunk> wave = chunks.subList(waveStart, Math.min(chunks.size(), waveStart + parallelism));
+            final List<ForkJoinTask<List<Motif>>> tasks = wave.stream()
+                    .map(chunk -> searchPool.submit(() -> searchChunk(chunk, matcher, request, limit)))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < tasks.size(); i++) {
+                if (nextPosition != null) {
+                    tasks.get(i).cancel(true);
+                    continue;
+                }
+                final List<Motif> found = tasks.get(i).join();
+                final int needed = pageSize - page.size();
+                if (found.size() < needed) {
+                    page.addAll(found);
+                    continue;
+                }
+                final int count = countWithSameStart(found, needed);
+                page.addAll(found.subList(0, count));
+                nextChromosomeId = wave.get(i).chromosome.getId();
+                nextPosition = found.get(count - 1).getStart() + 1;
             }
         }
-        return null;
+        return MotifSearchResult.builder()
+                .result(page)
+                .chromosomeId(nextChromosomeId)
+                .position(nextPosition)
+                .pageSize(request.getPageSize())
+                .build();
+    }
+
+    private List<Motif> searchChunk(final Chunk chunk, final IupacMotifMatcher matcher,
+                                    final MotifSearchRequest request, final int limit) {
+        final int lookahead = matcher != null ? matcher.getLength() - 1 : REGEX_MATCH_LOOKAHEAD;
+        final int readEnd = Math.min(chunk.chromosome.getSize(), chunk.end + lookahead);
+        final byte[] sequence;
+        try {
+            sequence = referenceManager.getSequenceByteArray(chunk.start, readEnd, chunk.reference,
+                    chunk.chromosome.getName());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final int to = Math.min(sequence.length, chunk.end - chunk.start + 1);
+        final StrandSerializable strand = request.getStrand();
+        final List<Motif> motifs = new ArrayList<>();
+        if (matcher != null) {
+            final boolean searchPositive = strand != StrandSerializable.NEGATIVE;
+            final boolean searchNegative = strand != StrandSerializable.POSITIVE;
+            matcher.search(sequence, 0, to, searchPositive, searchNegative, (start, end, positive) -> {
+                motifs.add(createMotif(chunk, sequence, start, end,
+                        positive ? StrandSerializable.POSITIVE : StrandSerializable.NEGATIVE));
+                return motifs.size() < limit;
+            });
+            return motifs;
+        }
+        MotifSearcher.search(sequence, request.getMotif(), strand, chunk.chromosome.getName()).stream()
+                .filter(motif -> motif.getStart() < to)
+                .sorted(Comparator.comparingInt(Motif::getStart))
+                .forEach(motif -> motifs.add(createMotif(chunk, sequence, motif.getStart(), motif.getEnd() - 1,
+                        motif.getStrand())));
+        return motifs.size() > limit ? motifs.subList(0, countWithSameStart(motifs, limit)) : motifs;
+    }
+
+    private Motif createMotif(final Chunk chunk, final byte[] sequence, final int start, final int end,
+                              final StrandSerializable strand) {
+        return Motif.builder()
+                .contig(chunk.chromosome.getName())
+                .start(chunk.start + start)
+                .end(chunk.start + end)
+                .strand(strand)
+                .value(new String(sequence, start, end - start + 1, StandardCharsets.US_ASCII))
+                .build();
+    }
+
+    private int countWithSameStart(final List<Motif> motifs, final int count) {
+        int result = count;
+        while (result < motifs.size() && motifs.get(result).getStart() == motifs.get(result - 1).getStart()) {
+            result++;
+        }
+        return result;
+    }
+
+    private void addChunks(final List<Chunk> chunks, final Reference reference, final Chromosome chromosome,
+                           final int start, final int end) {
+        final int last = Math.min(end, chromosome.getSize());
+        for (int chunkStart = Math.max(1, start); chunkStart <= last; chunkStart += chunkSize) {
+            chunks.add(new Chunk(reference, chromosome, chunkStart, Math.min(last, chunkStart + chunkSize - 1)));
+        }
+    }
+
+    private int getPageSize(final MotifSearchRequest request) {
+        return request.getPageSize() != null && request.getPageSize() > 0 ? request.getPageSize()
+                : DEFAULT_PAGE_SIZE;
+    }
+
+    private Reference loadReference(final Chromosome chromosome) {
+        return referenceGenomeManager.getOnlyReference(chromosome.getReferenceId());
     }
 
     private Chromosome loadChromosomeById(final Long referenceId, final Long chromosomeId) {
@@ -178,50 +312,17 @@ public class MotifSearchManager {
         return referenceGenomeManager.loadChromosomes(referenceId).get(0);
     }
 
-    private List<Motif> fillMotifList(final Chromosome chromosome,
-                                      final Integer trackStart, final Integer trackEnd,
-                                      final Integer pageSize, final StrandSerializable strand) {
-        final List<Motif> motifs = new ArrayList<>();
-        if (pageSize == null || pageSize == 0) {
-            motifs.addAll(getStubMotifList(chromosome, trackStart, trackEnd, strand, pageSize));
-        } else {
-            List<Motif> motifList = getStubMotifList(chromosome, trackStart, trackEnd, strand, pageSize);
-            if (motifList.size() > pageSize) {
-                motifs.addAll(motifList.stream().limit(pageSize).collect(Collectors.toList()));
-            } else {
-                motifs.addAll(motifList);
-            }
-        }
-        return motifs;
-    }
-
-    private List<Motif> getStubMotifList(final Chromosome chromosome, final int trackStart, final int trackEnd,
-                                         final StrandSerializable strand, final Integer pageSize) {
-        int motifStart = trackStart;
-        int count = pageSize != null && pageSize > 0 ? pageSize : Math.max(1, (trackEnd - trackStart) / TRACK_LENGTH);
-        int distance = (trackEnd - trackStart) / count;
-
-        final List<Motif> motifs = new ArrayList<>();
-        for (int i = 0; i <= count; i++) {
-            String value = generateString();
-            int end = motifStart + value.length();
-            motifs.add(
-                Motif.builder().contig(chromosome.getName()).start(motifStart).end(end)
-                        .strand(strand != null ? strand : StrandSerializable.POSITIVE)
-                        .value(value).build());
-            motifStart = motifStart + distance;
-        }
-        return motifs;
-    }
+    private static final class Chunk {
+        private final Reference reference;
+        private final Chromosome chromosome;
+        private final int start;
+        private final int end;
 
-    private String generateString() {
-        String characters = "ATCG";
-        Random rng = new Random();
-        int length = rng.nextInt(TRACK_LENGTH);
-        char[] text = new char[length];
-        for (int i = 0; i < length; i++) {
-            text[i] = characters.charAt(rng.nextInt(characters.length()));
+        private Chunk(final Reference reference, final Chromosome chromosome, final int start, final int end) {
+            this.reference = reference;
+            this.chromosome = chromosome;
+            this.start = start;
+            this.end = end;
         }
-        return new String(text);
     }
 }
@@ -31,19 +31,28 @@ import com.epam.catgenome.controller.vo.registration.FeatureIndexedFileRegistrat
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.epam.catgenome.entity.BiologicalDataItem;
 import com.epam.catgenome.entity.BiologicalDataItemFormat;
+import com.epam.catgenome.entity.nucleotid.NibByteFormat;
 import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.reference.Species;
+import com.epam.catgenome.entity.track.PackedReferenceTrack;
 import com.epam.catgenome.entity.track.ReferenceTrackMode;
 import com.epam.catgenome.exception.ExternalDbUnavailableException;
 import com.epam.catgenome.exception.Ga4ghResourceUnavailableException;
@@ -52,8 +61,10 @@ import com.epam.catgenome.exception.RegistrationException;
 import com.epam.catgenome.manager.AuthManager;
 import com.epam.catgenome.manager.BiologicalDataItemManager;
 import com.epam.catgenome.manager.genbank.GenbankManager;
+import com.epam.catgenome.manager.reference.io.FastaSequenceCache;
 import com.epam.catgenome.manager.reference.io.FastaSequenceFile;
 import com.epam.catgenome.manager.reference.io.FastaUtils;
+import com.epam.catgenome.manager.reference.io.GCContentEncoder;
 import com.epam.catgenome.manager.genbank.GenbankUtils;
 import com.epam.catgenome.manager.reference.io.NibDataReader;
 import com.epam.catgenome.manager.reference.io.NibDataWriter;
@@ -67,6 +78,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.biojava.nbio.core.sequence.DNASequence;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -104,6 +116,11 @@ import com.epam.catgenome.manager.gene.GffManager;
 public class ReferenceManager {
 
     private static final String GENES_SUFFIX = "-genes";
+    private static final int DEFAULT_REGISTRATION_THREADS = 4;
+    private static final int REGISTRATION_WINDOW_SIZE = 1024 * 1024;
+
+    @Value("#{catgenome['reference.registration.threads'] ?: " + DEFAULT_REGISTRATION_THREADS + "}")
+    private int registrationThreads = DEFAULT_REGISTRATION_THREADS;
 
     private JsonMapper objectMapper = new JsonMapper();
 
@@ -119,6 +136,8 @@ public class ReferenceManager {
 
     @Autowired private NibDataWriter nibDataWriter;
 
+    @Autowired private FastaSequenceCache fastaSequenceCache;
+
     @Autowired private GffManager gffManager;
 
     @Autowired private GeneFileManager geneFileManager;
@@ -146,6 +165,25 @@ public class ReferenceManager {
         }
     }
 
+    /**
+     * Loads the same data as {@link #getNucleotidesResultFromNib(Track)} in a compact binary form:
+     * nucleotides in the nib format or run-length encoded GC-content bins
+     *
+     * @param track {@code Track} Track with information about query
+     *              (the most important: chromosome name, Id, start index, end index and scaleFactor)
+     * @return {@code PackedReferenceTrack} track with a packed sequence payload
+     */
+    public PackedReferenceTrack getPackedResultFromNib(Track<Sequence> track)
+            throws ReferenceReadingException {
+        track.setType(TrackType.REF);
+        try {
+            return getPackedTrackFromNib(track);
+        } catch (Ga4ghResourceUnavailableException | IOException e) {
+            log.error(e.getMessage(), e);
+            throw new ReferenceReadingException(String.valueOf(track.getId()), e);
+        }
+    }
+
     /**
      * Registers a new Reference genome in the database and converts input fasta file into
      * a set of chromosome files, for further efficient querying
@@ -288,20 +326,14 @@ public class ReferenceManager {
             final long referenceId, final String chromosomeName) throws IOException {
         final Reference reference = referenceGenomeManager.getOnlyReference(referenceId);
         if (isNibReference(reference.getPath())) {
-            try (BlockCompressedDataInputStream strm = fileManager
-                    .makeRefInputStream(referenceId, chromosomeName);
-                    DataInputStream indexStrm = fileManager
-                            .makeRefIndexInputStream(referenceId, chromosomeName)) {
-                return nibDataReader
-                        .getNucleotidesFromNibFile(startPosition, endPosition, strm, indexStrm);
-            }
+            return nibDataReader.getNucleotidesFromNibFile(startPosition, endPosition,
+                    fileManager.getRefFilePath(referenceId, chromosomeName),
+                    fileManager.getRefIndexFilePath(referenceId, chromosomeName));
         } else {
             List<Sequence> sequencesList = new ArrayList<>();
 
-            FastaSequenceFile ref = new FastaSequenceFile(reference.getPath(),
-                    getIndexPath(reference));
-            String bases = new String(ref.getSequence(chromosomeName, startPosition, endPosition),
-                    Charset.defaultCharset());
+            String bases = new String(fastaSequenceCache.getSequence(reference.getPath(), getIndexPath(reference),
+                    chromosomeName, startPosition, endPosition), Charset.defaultCharset());
             for (int i = 0; i < bases.length(); i++) {
                 sequencesList.add(new Sequence(startPosition + i, String.valueOf(bases.charAt(i))));
             }
@@ -366,6 +398,7 @@ public class ReferenceManager {
 
         referenceGenomeManager.delete(reference);
         fileManager.deleteReferenceDir(reference);
+        fastaSequenceCache.invalidate(reference.getPath());
         return reference;
     }
 
@@ -383,16 +416,12 @@ public class ReferenceManager {
             final Long referenceId, final String chromosomeName) throws IOException {
         final Reference reference = referenceGenomeManager.getOnlyReference(referenceId);
         if (isNibReference(reference.getPath())) {
-            try (BlockCompressedDataInputStream strm = fileManager
-                    .makeRefInputStream(reference.getId(), chromosomeName);
-                    DataInputStream indexStrm = fileManager
-                            .makeRefIndexInputStream(reference.getId(), chromosomeName)) {
-                return nibDataReader.getStringFromNibFile(startIndex, endIndex, strm, indexStrm);
-            }
+            return nibDataReader.getStringFromNibFile(startIndex, endIndex,
+                    fileManager.getRefFilePath(reference.getId(), chromosomeName),
+                    fileManager.getRefIndexFilePath(reference.getId(), chromosomeName));
         } else {
-            FastaSequenceFile ref = new FastaSequenceFile(reference.getPath(), getIndexPath(reference));
-            return new String(ref.getSequence(chromosomeName, startIndex, endIndex),
-                    Charset.defaultCharset());
+            return new String(fastaSequenceCache.getSequence(reference.getPath(), getIndexPath(reference),
+                    chromosomeName, startIndex, endIndex), Charset.defaultCharset());
         }
     }
 
@@ -408,19 +437,30 @@ public class ReferenceManager {
      */
     public byte[] getSequenceByteArray(final int startIndex, final int endIndex,
             final Long referenceId, final String chromosomeName) throws IOException {
-        final Reference reference = referenceGenomeManager.getOnlyReference(referenceId);
-        if (isNibReference(reference.getPath())) {
-            try (BlockCompressedDataInputStream strm = fileManager
-                    .makeRefInputStream(referenceId, chromosomeName);
-                    DataInputStream indexStrm = fileManager
-                            .makeRefIndexInputStream(referenceId, chromosomeName)) {
-                return nibDataReader
-                        .getByteNucleotidesFromNibFile(startIndex, endIndex, strm, indexStrm);
-            }
+        return getSequenceByteArray(startIndex, endIndex,
+                referenceGenomeManager.getOnlyReference(referenceId), chromosomeName);
+    }
 
+    /**
+     * Loads a reference sequence in a given interval for an already loaded reference, e.g. to read
+     * a large sequence by chunks
+     *
+     * @param startIndex     of the interval of interest
+     * @param endIndex       of the interval of interest
+     * @param reference      to load
+     * @param chromosomeName to load
+     * @return a byte array representation of a reference sequence for the interval of interest
+     * @throws IOException
+     */
+    public byte[] getSequenceByteArray(final int startIndex, final int endIndex,
+            final Reference reference, final String chromosomeName) throws IOException {
+        if (isNibReference(reference.getPath())) {
+            return nibDataReader.getByteNucleotidesFromNibFile(startIndex, endIndex,
+                    fileManager.getRefFilePath(reference.getId(), chromosomeName),
+                    fileManager.getRefIndexFilePath(reference.getId(), chromosomeName));
         } else {
-            FastaSequenceFile ref = new FastaSequenceFile(reference.getPath(), getIndexPath(reference));
-            return ref.getSequence(chromosomeName, startIndex, endIndex);
+            return fastaSequenceCache.getSequence(reference.getPath(), getIndexPath(reference), chromosomeName,
+                    startIndex, endIndex);
         }
     }
 
@@ -455,6 +495,75 @@ public class ReferenceManager {
         return track;
     }
 
+    protected PackedReferenceTrack getPackedTrackFromNib(Track<Sequence> track)
+            throws IOException, Ga4ghResourceUnavailableException {
+        Assert.notNull(track.getType(), getMessage(MessagesConstants.ERROR_NULL_PARAM));
+        final Chromosome chr = trackHelper.validateTrackWithBlockCount(track);
+        final long trackID = track.getId();
+        final String cName = chr.getName();
+        final Reference reference = referenceGenomeManager.getOnlyReference(trackID);
+        final int startIndex = track.getStartIndex();
+        final int endIndex = track.getEndIndex();
+        final double scaleFactor = track.getScaleFactor();
+        final PackedReferenceTrack packedTrack = new PackedReferenceTrack(track);
+        if (scaleFactor > Constants.GC_FORMAT_FACTOR) {
+            packedTrack.setMode(ReferenceTrackMode.NUCLEOTIDES);
+            packedTrack.setEncoding(PackedReferenceTrack.Encoding.NIB);
+            if (reference.getType() != BiologicalDataItemResourceType.GA4GH
+                    && isNibReference(reference.getPath())) {
+                packedTrack.setOffset((startIndex - 1) % 2);
+                packedTrack.setData(nibDataReader.getPackedNucleotidesFromNibFile(startIndex, endIndex,
+                        fileManager.getRefFilePath(trackID, cName),
+                        fileManager.getRefIndexFilePath(trackID, cName)));
+            } else {
+                packedTrack.setData(NibByteFormat.packNucleotides(
+                        getReferenceBytesWithoutGC(chr, trackID, cName, reference, startIndex, endIndex)));
+            }
+            packedTrack.setBinCount(endIndex - startIndex + 1);
+        } else {
+            packedTrack.setEncoding(PackedReferenceTrack.Encoding.GC_RLE);
+            final GCContentEncoder encoder =
+                    getPackedGCData(chr, trackID, reference, startIndex, endIndex, scaleFactor);
+            packedTrack.setData(encoder.toByteArray());
+            packedTrack.setBinCount(encoder.getBinCount());
+            packedTrack.setMode(encoder.getBinCount() == 0
+                    ? ReferenceTrackMode.NO_GC_DATA : ReferenceTrackMode.GC_CONTENT);
+        }
+        return packedTrack;
+    }
+
+    private byte[] getReferenceBytesWithoutGC(Chromosome chr, long trackID, String cName,
+            Reference reference, int startIndex, int endIndex)
+            throws Ga4ghResourceUnavailableException, IOException {
+        if (reference.getType() == BiologicalDataItemResourceType.GA4GH) {
+            final List<Sequence> sequences =
+                    nibDataReader.getNucleotidesFromNibGA4GH(startIndex, endIndex, chr.getPath());
+            final StringBuilder bases = new StringBuilder(sequences.size());
+            sequences.forEach(sequence -> bases.append(sequence.getText()));
+            return bases.toString().getBytes(Charset.defaultCharset());
+        }
+        return getSequenceByteArray(startIndex, endIndex, reference, cName);
+    }
+
+    private GCContentEncoder getPackedGCData(Chromosome chr, long trackID, Reference reference,
+            int startIndex, int endIndex, double scaleFactor) throws IOException {
+        final boolean useGCFile = scaleFactor <= (1.0 / Constants.GC_CONTENT_STEP)
+                && chr.getSize() > Constants.GC_CONTENT_MIN_LENGTH;
+        if (reference.getType() == BiologicalDataItemResourceType.GA4GH || useGCFile) {
+            // GC-content is already aggregated, so blocks are small in number
+            return nibDataReader.encodeGCContent(getReferenceSequenceWithGC(chr, trackID, reference,
+                    startIndex, endIndex, scaleFactor));
+        }
+        log.debug(getMessage(MessagesConstants.DEBUG_FILE_READING));
+        if (isNibReference(reference.getPath())) {
+            return nibDataReader.encodeGCFromNibFile(startIndex, endIndex, scaleFactor,
+                    fileManager.getRefFilePath(trackID, chr.getName()),
+                    fileManager.getRefIndexFilePath(trackID, chr.getName()));
+        }
+        return nibDataReader.encodeGCFromFasta(startIndex, endIndex, scaleFactor,
+                getSequenceByteArray(startIndex, endIndex, reference, chr.getName()));
+    }
+
     private List<Sequence> getReferenceSequenceWithGC(Chromosome chr, long trackID,
             Reference reference, int startIndex, int endIndex, double scaleFactor)
             throws IOException {
@@ -490,12 +599,9 @@ public class ReferenceManager {
         } else {
             if (isNibReference(reference.getPath())) {
                 log.debug(getMessage(MessagesConstants.DEBUG_FILE_READING));
-                try (BlockCompressedDataInputStream strm = fileManager
-                        .makeRefInputStream(trackID, chromosomeName);
-                        DataInputStream indexStrm = fileManager
-                                .makeRefIndexInputStream(trackID, chromosomeName)) {
-                    return getGCFromNibFile(startIndex, endIndex, scaleFactor, strm, indexStrm);
-                }
+                return getGCFromNibFile(startIndex, endIndex, scaleFactor,
+                        fileManager.getRefFilePath(trackID, chromosomeName),
+                        fileManager.getRefIndexFilePath(trackID, chromosomeName));
             } else {
                 log.debug(getMessage(MessagesConstants.DEBUG_FILE_READING));
                 String sequence =
@@ -572,11 +678,10 @@ public class ReferenceManager {
     }
 
     private List<Sequence> getGCFromNibFile(int startPosition, final int endPosition,
-            final double scaleFactor, final BlockCompressedDataInputStream gcContentStream,
-            final DataInputStream indexStream) throws IOException {
+            final double scaleFactor, final Path nibFile, final Path indexFile) throws IOException {
         //arrays started at zero position, but chromosome started ad first position
         return nibDataReader.fillSequenceOfGCFromNibFile(startPosition, endPosition, scaleFactor,
-                gcContentStream, indexStream);
+                nibFile, indexFile);
     }
 
     private long registerReference(Long referenceId, Reference reference, boolean createGC)
@@ -594,20 +699,68 @@ public class ReferenceManager {
             chromosome.setReferenceId(referenceId);
             chromosome.setPath(path);
             reference.getChromosomes().add(chromosome);
+        }
 
-            //work with GC
-            if (!NgbFileUtils.isRemotePath(path) && createGC) {
-                byte[] sequence = referenceReader.getChromosome(chr);
-                try (BlockCompressedDataOutputStream gcStream = fileManager
-                        .makeGCOutputStream(referenceId, chromosome)) {
-                    nibDataWriter.byteArrayToGCFile(sequence, gcStream);
-                }
-                fileManager.makeGcIndex(referenceId, chromosome.getName());
-            }
+        //work with GC
+        if (!NgbFileUtils.isRemotePath(path) && createGC) {
+            writeGCContent(referenceId, referenceReader, reference.getChromosomes());
         }
         return lengthOfGenome;
     }
 
+    /**
+     * Writes GC content files for chromosomes of a reference. Chromosomes are processed concurrently on
+     * a bounded pool, each chromosome is read by windows of a fixed size, so memory doesn't depend on
+     * chromosomes length
+     */
+    private void writeGCContent(final Long referenceId, final FastaSequenceFile referenceReader,
+                                final List<Chromosome> chromosomes) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(registrationThreads, chromosomes.size())));
+        final AtomicInteger processedChromosomes = new AtomicInteger();
+        final AtomicLong processedBases = new AtomicLong();
+        final long totalBases = chromosomes.stream().mapToLong(Chromosome::getSize).sum();
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(chromosomes.size());
+            for (Chromosome chromosome : chromosomes) {
+                futures.add(executor.submit(() -> {
+                    writeChromosomeGCContent(referenceId, referenceReader, chromosome);
+                    log.info("GC content of reference {} is processed for {} of {} chromosomes, {} of {} bases",
+                            referenceId, processedChromosomes.incrementAndGet(), chromosomes.size(),
+                            processedBases.addAndGet(chromosome.getSize()), totalBases);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void writeChromosomeGCContent(final Long referenceId, final FastaSequenceFile referenceReader,
+                                          final Chromosome chromosome) throws IOException {
+        try (BlockCompressedDataOutputStream gcStream = fileManager
+                .makeGCOutputStream(referenceId, chromosome)) {
+            final NibDataWriter.GCFileWriter writer = nibDataWriter.startGCFile(chromosome.getSize(), gcStream);
+            referenceReader.readChromosome(chromosome.getName(), REGISTRATION_WINDOW_SIZE, writer::write);
+            writer.finish();
+        }
+        fileManager.makeGcIndex(referenceId, chromosome.getName());
+    }
+
     private void setIndex(Reference reference) {
         String path = reference.getPath();
         String indexPath;
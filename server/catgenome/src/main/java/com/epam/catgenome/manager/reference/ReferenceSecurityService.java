@@ -35,6 +35,7 @@ import com.epam.catgenome.entity.reference.Species;
 import com.epam.catgenome.entity.reference.StrandedSequence;
 import com.epam.catgenome.entity.reference.motif.MotifSearchRequest;
 import com.epam.catgenome.entity.reference.motif.MotifSearchResult;
+import com.epam.catgenome.entity.track.PackedReferenceTrack;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.exception.FeatureIndexException;
 import com.epam.catgenome.exception.ReferenceReadingException;
@@ -96,6 +97,11 @@ public class ReferenceSecurityService {
         return referenceManager.getNucleotidesResultFromNib(track);
     }
 
+    @PreAuthorize(ROLE_USER)
+    public PackedReferenceTrack getPackedResultFromNib(Track<Sequence> track) throws ReferenceReadingException {
+        return referenceManager.getPackedResultFromNib(track);
+    }
+
     @PreAuthorize(ROLE_ADMIN + OR + ROLE_REFERENCE_MANAGER)
     public Reference registerGenome(ReferenceRegistrationRequest request) throws IOException {
         return referenceManager.registerGenome(request);
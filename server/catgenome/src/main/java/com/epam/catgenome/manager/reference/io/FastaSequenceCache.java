@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.reference.io;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * A shared, size-bounded cache of FASTA reference sequences, that are read directly from FASTA files, e.g.
+ * from remote references or references registered without conversion. Sequences are cached by pages of
+ * a fixed number of bases with line ends already removed. Parsed FASTA indexes and opened streams of each
+ * file are reused, so reading of a sub-sequence doesn't open a file or a connection on each call.
+ */
+@Component
+public class FastaSequenceCache {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final long BYTES_IN_MB = 1024L * 1024L;
+    private static final int DEFAULT_CACHE_SIZE_MB = 64;
+    private static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_FILES = 100;
+    private static final int DEFAULT_STREAMS_PER_FILE = 4;
+
+    @Value("#{catgenome['reference.fasta.cache.size.mb'] ?: " + DEFAULT_CACHE_SIZE_MB + "}")
+    private int cacheSizeMB = DEFAULT_CACHE_SIZE_MB;
+
+    @Value("#{catgenome['reference.fasta.cache.page.size'] ?: " + DEFAULT_PAGE_SIZE + "}")
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    @Value("#{catgenome['reference.fasta.cache.files'] ?: " + DEFAULT_MAX_FILES + "}")
+    private int maxFiles = DEFAULT_MAX_FILES;
+
+    @Value("#{catgenome['reference.fasta.streams.per.file'] ?: " + DEFAULT_STREAMS_PER_FILE + "}")
+    private int streamsPerFile = DEFAULT_STREAMS_PER_FILE;
+
+    private final Map<String, FastaFile> files = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final Map<PageKey, byte[]> pages = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong openedStreams = new AtomicLong();
+    private final AtomicLong reusedStreams = new AtomicLong();
+
+    /**
+     * Reads a sub-sequence of a chromosome from a FASTA file. Returns the same result as
+     * {@link FastaSequenceFile#getSequence(String, int, int)}
+     *
+     * @param path path or URL of a FASTA file
+     * @param indexPath path or URL of a FASTA index
+     * @param chromosome a chromosome name
+     * @param startIndex the first position of a sub-sequence, starting from 1
+     * @param endIndex the last position of a sub-sequence, inclusive
+     * @return bases of a sub-sequence or an empty array, if a chromosome is unknown
+     * @throws IOException if a file can't be read
+     */
+    public byte[] getSequence(final String path, final String indexPath, final String chromosome,
+                              final int startIndex, final int endIndex) throws IOException {
+        final FastaFile file = getFile(path, indexPath);
+        final int size = file.sequenceFile.getSequenceSize(chromosome);
+        final int start = Math.max(1, startIndex);
+        final int end = Math.min(size, endIndex);
+        if (start > end) {
+            return new byte[0];
+        }
+        final byte[] sequence = new byte[end - start + 1];
+        int position = start;
+        while (position <= end) {
+            final int page = (position - 1) / pageSize;
+            final byte[] data = getPage(file, chromosome, page, size);
+            final int pageOffset = position - 1 - page * pageSize;
+            final int length = Math.min(data.length - pageOffset, end - position + 1);
+            if (length <= 0) {
+                // a file is shorter, than described by its index
+                break;
+            }
+            System.arraycopy(data, pageOffset, sequence, position - start, length);
+            position += length;
+        }
+        return position > end ? sequence : Arrays.copyOf(sequence, position - start);
+    }
+
+    /**
+     * Removes cached data of a FASTA file and closes its streams, e.g. of a deleted reference
+     *
+     * @param path path or URL of a FASTA file
+     */
+    public void invalidate(final String path) {
+        final FastaFile file;
+        synchronized (files) {
+            file = files.remove(path);
+        }
+        if (file != null) {
+            file.close();
+        }
+        synchronized (pages) {
+            final Iterator<Map.Entry<PageKey, byte[]>> iterator = pages.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<PageKey, byte[]> entry = iterator.next();
+                if (entry.getKey().path.equals(path)) {
+                    cachedBytes -= entry.getValue().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public Statistics getStatistics() {
+        final int cachedFiles;
+        synchronized (files) {
+            cachedFiles = files.size();
+        }
+        final int cachedPages;
+        synchronized (pages) {
+            cachedPages = pages.size();
+        }
+        return new Statistics(cachedFiles, cachedPages, hits.get(), misses.get(), openedStreams.get(),
+                reusedStreams.get());
+    }
+
+    private FastaFile getFile(final String path, final String indexPath) throws IOException {
+        synchronized (files) {
+            final FastaFile file = files.get(path);
+            if (file != null) {
+                return file;
+            }
+        }
+        final FastaFile file = new FastaFile(path, new FastaSequenceFile(path, indexPath));
+        final FastaFile cached;
+        synchronized (files) {
+            cached = files.putIfAbsent(path, file);
+            final Iterator<FastaFile> iterator = files.values().iterator();
+            while (files.size() > maxFiles && iterator.hasNext()) {
+                // streams, borrowed by running reads, are closed on return
+                iterator.next().close();
+                iterator.remove();
+            }
+        }
+        return cached == null ? file : cached;
+    }
+
+    private byte[] getPage(final FastaFile file, final String chromosome, final int page,
+                           final int size) throws IOException {
+        final PageKey key = new PageKey(file.path, chromosome, page);
+        synchronized (pages) {
+            final byte[] data = pages.get(key);
+            if (data != null) {
+                hits.incrementAndGet();
+                return data;
+            }
+        }
+        misses.incrementAndGet();
+        final byte[] data = file.read(chromosome, page * pageSize + 1, Math.min((page + 1) * pageSize, size));
+        final long maxCachedBytes = cacheSizeMB * BYTES_IN_MB;
+        synchronized (pages) {
+            final byte[] previous = pages.put(key, data);
+            cachedBytes += data.length - (previous == null ? 0 : previous.length);
+            final Iterator<byte[]> iterator = pages.values().iterator();
+            while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+                cachedBytes -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * A parsed FASTA file with a pool of opened streams. A stream is used by a single read at a time
+     */
+    @RequiredArgsConstructor
+    private final class FastaFile {
+        private final String path;
+        private final FastaSequenceFile sequenceFile;
+        private final Deque<SeekableStream> idleStreams = new ArrayDeque<>();
+        private boolean closed;
+
+        private byte[] read(final String chromosome, final int start, final int end) throws IOException {
+            final SeekableStream stream = borrowStream();
+            boolean succeeded = false;
+            try {
+                final byte[] data = sequenceFile.readSequence(chromosome, start, end, stream);
+                succeeded = true;
+                return data;
+            } finally {
+                if (succeeded) {
+                    returnStream(stream);
+                } else {
+                    // a stream may be broken after a failed read
+                    IOUtils.closeQuietly(stream);
+                }
+            }
+        }
+
+        private SeekableStream borrowStream() throws IOException {
+            synchronized (idleStreams) {
+                final SeekableStream stream = idleStreams.poll();
+                if (stream != null) {
+                    reusedStreams.incrementAndGet();
+                    return stream;
+                }
+            }
+            openedStreams.incrementAndGet();
+            return sequenceFile.openStream();
+        }
+
+        private void returnStream(final SeekableStream stream) {
+            synchronized (idleStreams) {
+                if (!closed && idleStreams.size() < streamsPerFile) {
+                    idleStreams.push(stream);
+                    return;
+                }
+            }
+            IOUtils.closeQuietly(stream);
+        }
+
+        private void close() {
+            synchronized (idleStreams) {
+                closed = true;
+                idleStreams.forEach(IOUtils::closeQuietly);
+                idleStreams.clear();
+            }
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class PageKey {
+        private final String path;
+        private final String chromosome;
+        private final int page;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int cachedFiles;
+        private final int cachedPages;
+        private final long hits;
+        private final long misses;
+        private final long openedStreams;
+        private final long reusedStreams;
+
+        public double getHitRate() {
+            final long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
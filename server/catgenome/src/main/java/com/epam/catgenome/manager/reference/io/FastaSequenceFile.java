@@ -1,6 +1,7 @@
 package com.epam.catgenome.manager.reference.io;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.Set;
 
@@ -34,82 +35,166 @@ public class FastaSequenceFile {
         return getSequence(chr, 0, index.getSequenceSize(chr));
     }
 
+    /**
+     * Reads a whole chromosome sequence by consecutive windows of a fixed size, a single window buffer is
+     * reused for all windows, so memory doesn't depend on a chromosome length
+     * @param chr a chromosome name
+     * @param windowSize max number of bases in a window
+     * @param consumer a consumer of windows, the last window may be shorter
+     * @throws IOException if a file can't be read or ends before a chromosome end
+     */
+    public void readChromosome(final String chr, final int windowSize, final WindowConsumer consumer)
+            throws IOException {
+        final FastaIndex.FastaSequenceIndexEntry idxEntry = index.getIndexEntry(chr);
+        if (idxEntry == null) {
+            return;
+        }
+        final int basesPerLine = idxEntry.getBasesPerLine();
+        final int bytesPerLine = idxEntry.getBytesPerLine();
+        final long size = idxEntry.getSize();
+        long remainingBytes = size / basesPerLine * bytesPerLine + size % basesPerLine;
+        if (contentLength >= 0) {
+            // the last line may have no line end, so don't read past the end of file
+            remainingBytes = Math.min(remainingBytes, contentLength - idxEntry.getPosition());
+        }
+
+        final byte[] buffer = new byte[windowSize];
+        final byte[] window = new byte[windowSize];
+        int windowLength = 0;
+        int column = 0;
+        try (SeekableStream ss = openStream()) {
+            ss.seek(idxEntry.getPosition());
+            while (remainingBytes > 0) {
+                final int read = ss.read(buffer, 0, (int) Math.min(buffer.length, remainingBytes));
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of file " + path + " in chromosome " + chr);
+                }
+                // line ends are skipped by position in a line, as they are described by an index
+                for (int i = 0; i < read; i++) {
+                    if (column < basesPerLine) {
+                        window[windowLength++] = buffer[i];
+                        if (windowLength == windowSize) {
+                            consumer.accept(window, windowLength);
+                            windowLength = 0;
+                        }
+                    }
+                    column = column + 1 == bytesPerLine ? 0 : column + 1;
+                }
+                remainingBytes -= read;
+            }
+        }
+        if (windowLength > 0) {
+            consumer.accept(window, windowLength);
+        }
+    }
+
     public byte[] getSequence(String chr, int startIndex, int qend) {
+        try {
+            return readSequence(chr, startIndex, qend, null);
+        } catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Reads a sub-sequence of a chromosome without line ends
+     * @param chr a chromosome name
+     * @param startIndex the first position of a sub-sequence, starting from 1
+     * @param qend the last position of a sub-sequence, inclusive
+     * @param stream an opened stream of this file to read from or null to open a new stream
+     * @return bases of a sub-sequence or an empty array, if a chromosome is unknown
+     * @throws IOException if a file can't be read
+     */
+    public byte[] readSequence(String chr, int startIndex, int qend, SeekableStream stream) throws IOException {
         int qstart = startIndex;
         qstart--;
         FastaIndex.FastaSequenceIndexEntry idxEntry = index.getIndexEntry(chr);
         if (idxEntry == null) {
             return new byte[0];
         }
-        try {
-            final int start = Math.max(0, qstart);    // qstart should never be < 0
-            final int end = Math.min((int) idxEntry.getSize(), qend);
+        final int start = Math.max(0, qstart);    // qstart should never be < 0
+        final int end = Math.min((int) idxEntry.getSize(), qend);
 
-            final int bytesPerLine = idxEntry.getBytesPerLine();
-            final int basesPerLine = idxEntry.getBasesPerLine();
-            int nEndBytes = bytesPerLine - basesPerLine;
+        final int bytesPerLine = idxEntry.getBytesPerLine();
+        final int basesPerLine = idxEntry.getBasesPerLine();
+        int nEndBytes = bytesPerLine - basesPerLine;
 
-            int startLine = start / basesPerLine;
-            int endLine = end / basesPerLine;
+        int startLine = start / basesPerLine;
+        int endLine = end / basesPerLine;
 
-            int base0 = startLine * basesPerLine;   // Base at beginning of start line
+        int base0 = startLine * basesPerLine;   // Base at beginning of start line
 
-            int offset = start - base0;
-            final long position = idxEntry.getPosition();
-            long startByte = position + startLine * bytesPerLine + offset;
+        int offset = start - base0;
+        final long position = idxEntry.getPosition();
+        long startByte = position + startLine * bytesPerLine + offset;
 
-            int base1 = endLine * basesPerLine;
-            int offset1 = end - base1;
-            long endByte = Math.min(contentLength, position + endLine * bytesPerLine + offset1);
+        int base1 = endLine * basesPerLine;
+        int offset1 = end - base1;
+        long endByte = Math.min(contentLength, position + endLine * bytesPerLine + offset1);
 
-            if (startByte >= endByte) {
-                return new byte[0];
-            }
+        if (startByte >= endByte) {
+            return new byte[0];
+        }
 
-            // Read all the bytes in the range.  This will include endline characters
-            byte[] allBytes = readBytes(startByte, endByte);
+        // Read all the bytes in the range.  This will include endline characters
+        byte[] allBytes = stream == null ? readBytes(startByte, endByte) : readBytes(stream, startByte, endByte);
 
-            // Create the array for the sequence -- this will be "allBytes" without the endline characters.
-            ByteArrayOutputStream bos = new ByteArrayOutputStream(end - start);
+        // Create the array for the sequence -- this will be "allBytes" without the endline characters.
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(end - start);
 
-            int srcPos = 0;
-            // Copy first line
-            final int allBytesLength = allBytes.length;
-            if (offset > 0) {
-                int nBases = Math.min(end - start, basesPerLine - offset);
-                bos.write(allBytes, srcPos, nBases);
-                srcPos += (nBases + nEndBytes);
-            }
-            while (srcPos < allBytesLength) {
-                int nBases = Math.min(basesPerLine, allBytesLength - srcPos);
-                bos.write(allBytes, srcPos, nBases);
-                srcPos += (nBases + nEndBytes);
-            }
-            return bos.toByteArray();
-        } catch (IOException e) {
-            LOG.error(e.getMessage(), e);
-            return new byte[0];
+        int srcPos = 0;
+        // Copy first line
+        final int allBytesLength = allBytes.length;
+        if (offset > 0) {
+            int nBases = Math.min(end - start, basesPerLine - offset);
+            bos.write(allBytes, srcPos, nBases);
+            srcPos += (nBases + nEndBytes);
+        }
+        while (srcPos < allBytesLength) {
+            int nBases = Math.min(basesPerLine, allBytesLength - srcPos);
+            bos.write(allBytes, srcPos, nBases);
+            srcPos += (nBases + nEndBytes);
         }
+        return bos.toByteArray();
     }
 
     /**
      * Read the bytes between file position posStart and posEnd
      */
     private byte[] readBytes(long posStart, long posEnd) throws IOException {
-
-        SeekableStream ss = null;
-        try {
-            ss = SeekableStreamFactory.getInstance().getStreamFor(path);
-            int nBytes = (int) (posEnd - posStart);
-            byte[] bytes = new byte[nBytes];
-            ss.seek(posStart);
-            ss.readFully(bytes);
-            return bytes;
-        } finally {
-            if (ss != null) {
-                ss.close();
-            }
+        try (SeekableStream ss = openStream()) {
+            return readBytes(ss, posStart, posEnd);
         }
     }
 
+    private static byte[] readBytes(SeekableStream ss, long posStart, long posEnd) throws IOException {
+        int nBytes = (int) (posEnd - posStart);
+        byte[] bytes = new byte[nBytes];
+        ss.seek(posStart);
+        ss.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Opens a new stream of this file, that may be passed to {@link #readSequence(String, int, int, SeekableStream)}
+     * @return an opened stream, should be closed by a caller
+     * @throws IOException if a file can't be opened
+     */
+    public SeekableStream openStream() throws IOException {
+        return SeekableStreamFactory.getInstance().getStreamFor(path);
+    }
+
+    /**
+     * Consumer of sequence windows, read by {@link #readChromosome(String, int, WindowConsumer)}
+     */
+    @FunctionalInterface
+    public interface WindowConsumer {
+        /**
+         * @param bases a buffer with window bases, it is reused for the next window
+         * @param length number of bases in a buffer
+         * @throws IOException
+         */
+        void accept(byte[] bases, int length) throws IOException;
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.reference.io;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes a sequence of GC-content values of reference track bins into the compact run-length format
+ * of {@link com.epam.catgenome.entity.track.PackedReferenceTrack}: pairs of unsigned bytes, the first one
+ * is the number of consequent bins with the same value, the second one is GC-content scaled to 0..255
+ */
+public class GCContentEncoder {
+
+    private static final int MAX_RUN_LENGTH = 255;
+    private static final double MAX_LEVEL = 255.0;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private int binCount;
+    private int runLength;
+    private int runLevel;
+
+    /**
+     * Appends the next bin
+     * @param gcContent GC-content of a bin in range [0, 1]
+     */
+    public void add(final double gcContent) {
+        final int level = (int) Math.round(Math.min(Math.max(gcContent, 0.0), 1.0) * MAX_LEVEL);
+        if (runLength > 0 && level == runLevel && runLength < MAX_RUN_LENGTH) {
+            runLength++;
+        } else {
+            writeRun();
+            runLevel = level;
+            runLength = 1;
+        }
+        binCount++;
+    }
+
+    public int getBinCount() {
+        return binCount;
+    }
+
+    public byte[] toByteArray() {
+        writeRun();
+        return output.toByteArray();
+    }
+
+    private void writeRun() {
+        if (runLength > 0) {
+            output.write(runLength);
+            output.write(runLevel);
+            runLength = 0;
+        }
+    }
+}
@@ -30,9 +30,11 @@ import static com.epam.catgenome.entity.nucleotid.NibByteFormat.LOW_TO_HIGH_NIB_
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.IntPredicate;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -68,6 +70,9 @@ public class NibDataReader {
     @Autowired
     private HttpDataManager httpDataManager;
 
+    @Autowired
+    private NibSequenceCache nibSequenceCache;
+
     private static final Logger LOG = LoggerFactory.getLogger(NibDataWriter.class);
 
     public NibDataReader() {
@@ -78,28 +83,22 @@ public class NibDataReader {
      * Loads sequence string from the input stream in the Nib format
      * @param startPosition {@code int} start position at chromosome
      * @param endPosition   {@code int} end position at chromosome
-     * @param nibStream     {@code InputStream} InputStream from nib-format file
-     * @return {@code String} return String of nucleotides, at nibStream started at startPosition
+     * @param nibFile       {@code Path} path to a nib-format file
+     * @param indexFile     {@code Path} path to the reference index file
+     * @return {@code String} return String of nucleotides, at nibFile started at startPosition
      * and length sequenceLength
      */
     public String getStringFromNibFile(final int startPosition, final int endPosition,
-            BlockCompressedDataInputStream nibStream,
-            DataInputStream indexStream)
+            final Path nibFile, final Path indexFile)
             throws IOException {
         final int newStartPosition = startPosition - 1;
         final int sequenceLength = endPosition - newStartPosition;
-        Assert.notNull(nibStream, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
+        Assert.notNull(nibFile, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
         Assert.isTrue(sequenceLength >= 0, getMessage(MessagesConstants.ERROR_LENGTH_ABOVE_ZERO));
         Assert.isTrue(newStartPosition >= 0, getMessage(MessagesConstants.ERROR_START_POSITION_ABOVE_ZERO));
 
-        long seekPosition = (long) ((double) newStartPosition / 2);
         final int positionFactor = newStartPosition % 2;
-        final int realLengthFactor = sequenceLength % 2;
-
-        // 2 nib-format at byte
-        final int realLength = sequenceLength / 2 + Math.max(positionFactor, realLengthFactor);
-        byte[] buffer = new byte[realLength];
-        buffer = readFromNib(nibStream, indexStream, newStartPosition, sequenceLength, seekPosition, buffer);
+        final byte[] buffer = nibSequenceCache.readNibBytes(nibFile, indexFile, newStartPosition, sequenceLength);
         return nibByteArrayToString(positionFactor, sequenceLength, buffer);
     }
 
@@ -107,28 +106,22 @@ public class NibDataReader {
      * Loads a byte array with nucleotides byte values from the input stream in the Nib format
      * @param startPosition {@code int} start position at chromosome
      * @param endPosition   {@code int} end position at chromosome
-     * @param nibStream     {@code InputStream} InputStream from nib-format file
-     * @return {@code String} byte array with of nucleotides, at nibStream started at startPosition
+     * @param nibFile       {@code Path} path to a nib-format file
+     * @param indexFile     {@code Path} path to the reference index file
+     * @return {@code String} byte array with of nucleotides, at nibFile started at startPosition
      * and length sequenceLength
      */
     public byte[] getByteNucleotidesFromNibFile(final int startPosition, final int endPosition,
-            BlockCompressedDataInputStream nibStream,
-            DataInputStream indexStream)
+            final Path nibFile, final Path indexFile)
             throws IOException {
         final int newStartPosition = startPosition - 1;
         final int sequenceLength = endPosition - newStartPosition;
-        Assert.notNull(nibStream, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
+        Assert.notNull(nibFile, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
         Assert.isTrue(sequenceLength >= 0, getMessage(MessagesConstants.ERROR_LENGTH_ABOVE_ZERO));
         Assert.isTrue(newStartPosition >= 0, getMessage(MessagesConstants.ERROR_START_POSITION_ABOVE_ZERO));
 
-        long seekPosition = (long) ((double) newStartPosition / 2);
         final int positionFactor = newStartPosition % 2;
-        final int realLengthFactor = sequenceLength % 2;
-
-        // 2 nib-format at byte
-        final int realLength = sequenceLength / 2 + Math.max(positionFactor, realLengthFactor);
-        byte[] buffer = new byte[realLength];
-        buffer = readFromNib(nibStream, indexStream, newStartPosition, sequenceLength, seekPosition, buffer);
+        final byte[] buffer = nibSequenceCache.readNibBytes(nibFile, indexFile, newStartPosition, sequenceLength);
         return nibByteArrayToNucleotideBytes(positionFactor, sequenceLength, buffer);
     }
 
@@ -136,30 +129,24 @@ public class NibDataReader {
      * Loads a {@code List} of reference sequences from the stream (file) in a Nib format
      * @param startPosition {@code int} start position at chromosome
      * @param endPosition   {@code int} end position at chromosome
-     * @param nibStream     {@code InputStream} InputStream from nib-format file
-     * @return {@code List} return List of nucleotides sequences, at nibStream started at startPosition
+     * @param nibFile       {@code Path} path to a nib-format file
+     * @param indexFile     {@code Path} path to the reference index file
+     * @return {@code List} return List of nucleotides sequences, at nibFile started at startPosition
      * and length sequenceLength
      */
     public List<Sequence> getNucleotidesFromNibFile(final int startPosition, final int endPosition,
-            final BlockCompressedDataInputStream nibStream,
-            final DataInputStream indexStream)
+            final Path nibFile, final Path indexFile)
             throws IOException {
         //arrays started at zero position, but chromosome started ad first position
         final int newStartPosition = startPosition - 1;
         //sequenceLength it (endPosition) - (old startPosition) + 1 or (endPosition) - (new startPosition)
         final int sequenceLength = endPosition - newStartPosition;
-        Assert.notNull(nibStream, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
+        Assert.notNull(nibFile, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
         Assert.isTrue(sequenceLength >= 0, getMessage(MessagesConstants.ERROR_LENGTH_ABOVE_ZERO));
         Assert.isTrue(newStartPosition >= 0, getMessage(MessagesConstants.ERROR_START_POSITION_ABOVE_ZERO));
 
-        long seekPosition = newStartPosition / 2;
         final int positionFactor = newStartPosition % 2;
-        final int realLengthFactor = sequenceLength % 2;
-
-        // 2 nib-format at byte
-        final int realLength = sequenceLength / 2 + Math.max(positionFactor, realLengthFactor);
-        byte[] buffer = new byte[realLength];
-        buffer = readFromNib(nibStream, indexStream, newStartPosition, sequenceLength, seekPosition, buffer);
+        final byte[] buffer = nibSequenceCache.readNibBytes(nibFile, indexFile, newStartPosition, sequenceLength);
         return NibByteFormat
                 .nibByteArrayToNucleotidesList(newStartPosition, positionFactor, sequenceLength, buffer);
     }
@@ -199,16 +186,15 @@ public class NibDataReader {
      * @param startPosition {@code int} start position at chromosome
      * @param endPosition   {@code int} end position at chromosome
      * @param scaleFactor   track scale in the client
-     * @param nibStream     {@code InputStream} InputStream from nib-format file
-     * @param indexStream   {@code DataInputStream} InputStream from the reference index file
+     * @param nibFile       {@code Path} path to a nib-format file
+     * @param indexFile     {@code Path} path to the reference index file
      * @return {@code List} of sequences filled with GC-content data
      */
     public List<Sequence> fillSequenceOfGCFromNibFile(final int startPosition, final int endPosition,
             final double scaleFactor,
-            final BlockCompressedDataInputStream nibStream,
-            final DataInputStream indexStream)
+            final Path nibFile, final Path indexFile)
             throws IOException {
-        Assert.notNull(nibStream, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
+        Assert.notNull(nibFile, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
 
         List<Sequence> template = createGCList(startPosition, endPosition, scaleFactor);
         //because index in array started at 0
@@ -218,15 +204,9 @@ public class NibDataReader {
         final int sequenceLength = endPosition - newStartPosition;
         Assert.isTrue(sequenceLength >= 0, getMessage(MessagesConstants.ERROR_LENGTH_ABOVE_ZERO));
 
-        long seekPosition = newStartPosition / 2;
         final int positionFactor = newStartPosition % 2;
-        final int reallengthFactor = sequenceLength % 2;
-
-        // 2 nib-format at byte
-        final int realLength = sequenceLength / 2 + Math.max(positionFactor, reallengthFactor);
-        byte[] buffer = new byte[realLength];
         int nibCode;
-        buffer = readFromNib(nibStream, indexStream, newStartPosition, sequenceLength, seekPosition, buffer);
+        final byte[] buffer = nibSequenceCache.readNibBytes(nibFile, indexFile, newStartPosition, sequenceLength);
 
         //index for gcContentArray
         for (Sequence sequence : template) {
@@ -367,6 +347,110 @@ public class NibDataReader {
         return template;
     }
 
+    /**
+     * Loads nucleotides from a reference sequence file in the Nib format without decoding them.
+     * The base at {@code startPosition} is stored in the low half of the first byte, if
+     * {@code (startPosition - 1) % 2 == 1}, otherwise in the high half
+     * @param startPosition {@code int} start position at chromosome
+     * @param endPosition   {@code int} end position at chromosome
+     * @param nibFile       {@code Path} path to a nib-format file
+     * @param indexFile     {@code Path} path to the reference index file
+     * @return {@code byte[]} nib-format array, that covers the requested interval
+     */
+    public byte[] getPackedNucleotidesFromNibFile(final int startPosition, final int endPosition,
+            final Path nibFile, final Path indexFile) throws IOException {
+        final int newStartPosition = startPosition - 1;
+        final int sequenceLength = endPosition - newStartPosition;
+        Assert.notNull(nibFile, getMessage(MessagesConstants.ERROR_NO_SUCH_FILE));
+        Assert.isTrue(sequenceLength >= 0, getMessage(MessagesConstants.ERROR_LENGTH_ABOVE_ZERO));
+        Assert.isTrue(newStartPosition >= 0, getMessage(MessagesConstants.ERROR_START_POSITION_ABOVE_ZERO));
+        return nibSequenceCache.readNibBytes(nibFile, indexFile, newStartPosition, sequenceLength);
+    }
+
+    /**
+     * Calculates GC-content from a reference sequence file in the Nib format directly from the nib buffer
+     * and encodes it in the run-length format, see {@link GCContentEncoder}
+     * @param startPosition {@code int} start position at chromosome
+     * @param endPosition   {@code int} end position at chromosome
+     * @param scaleFactor   track scale in the client
+     * @param nibFile       {@code Path} path to a nib-format file
+     * @param indexFile     {@code Path} path to the reference index file
+     * @return encoder filled with GC-content of all bins
+     */
+    public GCContentEncoder encodeGCFromNibFile(final int startPosition, final int endPosition,
+            final double scaleFactor, final Path nibFile, final Path indexFile) throws IOException {
+        final byte[] buffer = getPackedNucleotidesFromNibFile(startPosition, endPosition, nibFile, indexFile);
+        final int positionFactor = (startPosition - 1) % 2;
+        return encodeGC(startPosition, endPosition, scaleFactor, position -> {
+            final int index = positionFactor + position - startPosition;
+            final int nibCode = index % 2 == 0
+                    ? (buffer[index / 2] & Constants.MASK_HIGH_BYTE) >> LOW_TO_HIGH_NIB_CODE_SHIFT
+                    : buffer[index / 2] & Constants.MASK_LOW_BYTE;
+            return isGCNibCode((byte) nibCode);
+        });
+    }
+
+    /**
+     * Calculates GC-content from reference sequence bytes, loaded from a FASTA file, and encodes
+     * it in the run-length format, see {@link GCContentEncoder}
+     * @param startPosition {@code int} start position at chromosome
+     * @param endPosition   {@code int} end position at chromosome
+     * @param scaleFactor   track scale in the client
+     * @param sequence      nucleotides char codes of the interval
+     * @return encoder filled with GC-content of all bins
+     */
+    public GCContentEncoder encodeGCFromFasta(final int startPosition, final int endPosition,
+            final double scaleFactor, final byte[] sequence) {
+        return encodeGC(startPosition, endPosition, scaleFactor, position -> {
+            final int index = position - startPosition;
+            return index < sequence.length && isGCCharCode(sequence[index]);
+        });
+    }
+
+    /**
+     * Encodes already calculated GC-content blocks in the run-length format, see {@link GCContentEncoder}
+     * @param gcContent {@code List} of sequences filled with GC-content data
+     * @return encoder filled with GC-content of all bins
+     */
+    public GCContentEncoder encodeGCContent(final List<Sequence> gcContent) {
+        final GCContentEncoder encoder = new GCContentEncoder();
+        for (Sequence sequence : gcContent) {
+            encoder.add(sequence.getContentGC() == null ? 0 : sequence.getContentGC());
+        }
+        return encoder;
+    }
+
+    /**
+     * Iterates over bins, that are split the same way as in {@link #createGCList(int, int, double)},
+     * without creating intermediate objects
+     */
+    private GCContentEncoder encodeGC(final int startPosition, final int endPosition, final double scaleFactor,
+            final IntPredicate isGCPosition) {
+        final GCContentEncoder encoder = new GCContentEncoder();
+        final double step = 1 / scaleFactor;
+        final int binCount = (int) Math.ceil((endPosition - startPosition + 1) / step);
+        int binStart = startPosition;
+        for (int i = 1; i <= binCount; i++) {
+            final int binEnd = i < binCount ? startPosition + (int) Math.round(step * i) - 1 : endPosition;
+            int gcCount = 0;
+            for (int position = binStart; position <= binEnd; position++) {
+                if (isGCPosition.test(position)) {
+                    gcCount++;
+                }
+            }
+            encoder.add(binEnd >= binStart ? (double) gcCount / (binEnd - binStart + 1) : 0);
+            binStart = binEnd + 1;
+        }
+        return encoder;
+    }
+
+    private boolean isGCCharCode(final byte charCode) {
+        return charCode == NibByteFormat.NUCLEOTIDE_LOWERCASE_C.getCharCode()
+                || charCode == NibByteFormat.NUCLEOTIDE_LOWERCASE_G.getCharCode()
+                || charCode == NibByteFormat.NUCLEOTIDE_UPPERCASE_C.getCharCode()
+                || charCode == NibByteFormat.NUCLEOTIDE_UPPERCASE_G.getCharCode();
+    }
+
     private void setContentGc(Integer startPosition, Integer endPosition, List<Sequence> template,
             String sequenceText) {
         int index = 0;
@@ -389,25 +473,6 @@ public class NibDataReader {
     }
 
 
-    private byte[] readFromNib(final BlockCompressedDataInputStream nibStream, final DataInputStream indexStream,
-            final int startPosition, final int sequenceLength, long seekPosition,
-            byte[] buffer) throws IOException {
-
-        int signature = nibStream.readInt();
-        int lengthNibSequence = nibStream.readInt();
-        Assert.isTrue(signature == Signature.NIB_SIGNATURE.getSignature(),
-                getMessage(MessagesConstants.ERROR_WRONG_SIGNATURE));
-        Assert.isTrue(lengthNibSequence >= startPosition + sequenceLength,
-                getMessage(MessagesConstants.ERROR_LOGIC_LENGTH));
-        seekBCDISWithIndexFile(nibStream, indexStream, seekPosition);
-
-        readInBuff(buffer, nibStream);
-
-        IOUtils.closeQuietly(nibStream);
-        IOUtils.closeQuietly(indexStream);
-        return buffer;
-    }
-
     private void seekBCDISWithIndexFile(final BlockCompressedDataInputStream stream, final DataInputStream index,
             final long positon) throws IOException {
         //correct seek in file
@@ -110,15 +110,58 @@ public class NibDataWriter {
      */
     public void byteArrayToGCFile(final byte[] arrayOfNucleicAcids,
             BlockCompressedDataOutputStream stream) throws IOException {
+        final GCFileWriter writer = startGCFile(arrayOfNucleicAcids.length, stream);
+        writer.write(arrayOfNucleicAcids, arrayOfNucleicAcids.length);
+        writer.finish();
+    }
 
-        final int chromosomeSize = arrayOfNucleicAcids.length;
-        GCContainer containerGC = init4GC(chromosomeSize);
+    /**
+     * Starts writing of a GC content file, nucleotides are passed to the returned writer by consecutive
+     * windows, so a whole chromosome sequence doesn't have to be loaded into memory
+     * @param chromosomeSize total number of nucleotides, that will be written
+     * @param stream         {@code BlockCompressedDataOutputStream} to write GC content to
+     * @return a writer to pass nucleotides to
+     * @throws IOException
+     */
+    public GCFileWriter startGCFile(final int chromosomeSize, final BlockCompressedDataOutputStream stream)
+            throws IOException {
+        final GCContainer containerGC = init4GC(chromosomeSize);
         writeGCHead(chromosomeSize, containerGC, stream);
-        for (byte arrayOfNucleicAcid : arrayOfNucleicAcids) {
-            addBase2GC(arrayOfNucleicAcid, containerGC, stream);
+        return new GCFileWriter(containerGC, stream);
+    }
+
+    /**
+     * {@code GCFileWriter} calculates and writes GC content for consecutive windows of a sequence
+     */
+    public final class GCFileWriter {
+
+        private final GCContainer containerGC;
+        private final BlockCompressedDataOutputStream stream;
+
+        private GCFileWriter(final GCContainer containerGC, final BlockCompressedDataOutputStream stream) {
+            this.containerGC = containerGC;
+            this.stream = stream;
+        }
+
+        /**
+         * Adds next nucleotides of a sequence
+         * @param nucleotides {@code byte[]} Array containing the codes of nucleotides(ASCII)
+         * @param length      number of nucleotides to take from the array
+         * @throws IOException
+         */
+        public void write(final byte[] nucleotides, final int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                addBase2GC(nucleotides[i], containerGC, stream);
+            }
+        }
+
+        /**
+         * Writes the last data of GC content, should be called after all nucleotides are added
+         * @throws IOException
+         */
+        public void finish() throws IOException {
+            lastAdd2HeapAndWrite(containerGC, stream);
         }
-        //ended and write last data od GC-content
-        lastAdd2HeapAndWrite(containerGC, stream);
     }
 
     private void writeNibHead(final BlockCompressedDataOutputStream blockCompressedDataOutputStream, final int length)
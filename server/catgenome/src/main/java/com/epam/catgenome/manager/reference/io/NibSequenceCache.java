@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.reference.io;
+
+import static com.epam.catgenome.component.MessageHelper.getMessage;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.epam.catgenome.constant.MessagesConstants;
+import com.epam.catgenome.entity.nucleotid.Signature;
+import com.epam.catgenome.util.BlockCompressedDataInputStream;
+
+/**
+ * A shared, size-bounded cache of decompressed blocks of chromosome sequence files in the Nib format.
+ * Block index of a chromosome file is loaded once and searched with binary search, so reading of a
+ * sub-sequence copies slices of cached blocks instead of opening the file and scanning its index on each call.
+ */
+@Component
+public class NibSequenceCache {
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final long BYTES_IN_MB = 1024L * 1024L;
+    private static final int DEFAULT_CACHE_SIZE_MB = 256;
+    private static final int DEFAULT_MAX_INDEXES = 1000;
+
+    @Value("#{catgenome['reference.nib.cache.size.mb'] ?: " + DEFAULT_CACHE_SIZE_MB + "}")
+    private int cacheSizeMB = DEFAULT_CACHE_SIZE_MB;
+
+    @Value("#{catgenome['reference.nib.cache.indexes'] ?: " + DEFAULT_MAX_INDEXES + "}")
+    private int maxIndexes = DEFAULT_MAX_INDEXES;
+
+    private final Map<Path, NibIndex> indexes = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final Map<BlockKey, byte[]> blocks = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Reads nib-encoded bytes of a sequence interval, two nucleotides per byte. A returned array has the same
+     * layout, as if it was read from a file directly: the first byte contains the nucleotide at
+     * {@code startPosition}, if it is even, or the preceding one otherwise
+     *
+     * @param nibFile path to a chromosome sequence file
+     * @param indexFile path to a block index of a chromosome sequence file
+     * @param startPosition zero-based start position of an interval
+     * @param sequenceLength number of nucleotides to read
+     * @return nib-encoded bytes of requested interval
+     * @throws IOException if files can't be read
+     */
+    public byte[] readNibBytes(final Path nibFile, final Path indexFile, final int startPosition,
+                               final int sequenceLength) throws IOException {
+        final NibIndex index = getIndex(nibFile, indexFile);
+        Assert.isTrue(index.sequenceLength >= startPosition + sequenceLength,
+                getMessage(MessagesConstants.ERROR_LOGIC_LENGTH));
+        final int positionFactor = startPosition % 2;
+        // 2 nib-format at byte
+        final int realLength = sequenceLength / 2 + Math.max(positionFactor, sequenceLength % 2);
+        final byte[] buffer = new byte[realLength];
+        read(nibFile, index, HEADER_SIZE + startPosition / 2, buffer);
+        return buffer;
+    }
+
+    /**
+     * Removes cached data of all files from a specified directory, e.g. of a deleted reference
+     *
+     * @param directory path to a directory with sequence files
+     */
+    public void invalidate(final Path directory) {
+        synchronized (indexes) {
+            indexes.keySet().removeIf(path -> path.startsWith(directory));
+        }
+        synchronized (blocks) {
+            final Iterator<Map.Entry<BlockKey, byte[]>> iterator = blocks.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<BlockKey, byte[]> entry = iterator.next();
+                if (entry.getKey().file.startsWith(directory)) {
+                    cachedBytes -= entry.getValue().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return current size and hit rate of the cache
+     */
+    public Statistics getStatistics() {
+        final int cachedIndexes;
+        synchronized (indexes) {
+            cachedIndexes = indexes.size();
+        }
+        synchronized (blocks) {
+            return new Statistics(cachedIndexes, blocks.size(), cachedBytes, hits.get(), misses.get());
+        }
+    }
+
+    private void read(final Path nibFile, final NibIndex index, final long offset,
+                      final byte[] buffer) throws IOException {
+        int block = index.findBlock(offset);
+        int blockOffset = (int) (offset - index.blockStarts[block]);
+        int copied = 0;
+        BlockCompressedDataInputStream stream = null;
+        try {
+            while (copied < buffer.length) {
+                Assert.isTrue(block < index.blockCount(), getMessage(MessagesConstants.ERROR_READ_FILE));
+                final BlockKey key = new BlockKey(nibFile, block);
+                byte[] data = getCachedBlock(key);
+                if (data == null) {
+                    misses.incrementAndGet();
+                    if (stream == null) {
+                        stream = new BlockCompressedDataInputStream(nibFile.toFile());
+                    }
+                    data = loadBlock(stream, index, block);
+                    putCachedBlock(key, data);
+                } else {
+                    hits.incrementAndGet();
+                }
+                final int length = Math.min(data.length - blockOffset, buffer.length - copied);
+                System.arraycopy(data, blockOffset, buffer, copied, length);
+                copied += length;
+                blockOffset = 0;
+                block++;
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private NibIndex getIndex(final Path nibFile, final Path indexFile) throws IOException {
+        synchronized (indexes) {
+            final NibIndex index = indexes.get(nibFile);
+            if (index != null) {
+                return index;
+            }
+        }
+        final NibIndex index = loadIndex(nibFile, indexFile);
+        synchronized (indexes) {
+            indexes.put(nibFile, index);
+            final Iterator<Path> iterator = indexes.keySet().iterator();
+            while (indexes.size() > maxIndexes && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        return index;
+    }
+
+    private NibIndex loadIndex(final Path nibFile, final Path indexFile) throws IOException {
+        final int blockCount = (int) (Files.size(indexFile) / INDEX_ENTRY_SIZE);
+        Assert.isTrue(blockCount > 0, getMessage(MessagesConstants.ERROR_READ_FILE));
+        final long[] pointers = new long[blockCount];
+        final long[] blockStarts = new long[blockCount + 1];
+        try (DataInputStream indexStream = new DataInputStream(Files.newInputStream(indexFile))) {
+            for (int i = 0; i < blockCount; i++) {
+                pointers[i] = indexStream.readLong();
+                blockStarts[i + 1] = blockStarts[i] + indexStream.readLong();
+            }
+        }
+        final NibIndex index = new NibIndex(pointers, blockStarts);
+        final byte[] header = new byte[HEADER_SIZE];
+        read(nibFile, index, 0, header);
+        final ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        Assert.isTrue(headerBuffer.getInt() == Signature.NIB_SIGNATURE.getSignature(),
+                getMessage(MessagesConstants.ERROR_WRONG_SIGNATURE));
+        index.sequenceLength = headerBuffer.getInt();
+        return index;
+    }
+
+    private byte[] loadBlock(final BlockCompressedDataInputStream stream, final NibIndex index,
+                             final int block) throws IOException {
+        final byte[] data = new byte[(int) (index.blockStarts[block + 1] - index.blockStarts[block])];
+        stream.seek(index.pointers[block]);
+        int read = 0;
+        while (read < data.length) {
+            final int count = stream.read(data, read, data.length - read);
+            if (count < 0) {
+                throw new EOFException(getMessage(MessagesConstants.ERROR_READ_FILE));
+            }
+            read += count;
+        }
+        return data;
+    }
+
+    private byte[] getCachedBlock(final BlockKey key) {
+        synchronized (blocks) {
+            return blocks.get(key);
+        }
+    }
+
+    private void putCachedBlock(final BlockKey key, final byte[] data) {
+        final long maxCachedBytes = cacheSizeMB * BYTES_IN_MB;
+        synchronized (blocks) {
+            final byte[] previous = blocks.put(key, data);
+            cachedBytes += data.length - (previous == null ? 0 : previous.length);
+            final Iterator<byte[]> iterator = blocks.values().iterator();
+            while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+                cachedBytes -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Block index of a sequence file: virtual file pointers of compressed blocks and offsets of blocks
+     * in uncompressed data
+     */
+    private static final class NibIndex {
+        private final long[] pointers;
+        private final long[] blockStarts;
+        private int sequenceLength;
+
+        private NibIndex(final long[] pointers, final long[] blockStarts) {
+            this.pointers = pointers;
+            this.blockStarts = blockStarts;
+        }
+
+        private int blockCount() {
+            return pointers.length;
+        }
+
+        private int findBlock(final long offset) {
+            final int position = Arrays.binarySearch(blockStarts, 0, pointers.length, offset);
+            return position >= 0 ? position : -position - 2;
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class BlockKey {
+        private final Path file;
+        private final int block;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int cachedIndexes;
+        private final int cachedBlocks;
+        private final long cachedBytes;
+        private final long hits;
+        private final long misses;
+
+        public double getHitRate() {
+            final long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
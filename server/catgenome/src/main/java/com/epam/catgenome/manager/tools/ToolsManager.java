@@ -34,6 +34,7 @@ import com.epam.catgenome.util.sort.FeatureSorterFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
@@ -50,10 +51,14 @@ public class ToolsManager {
     private static final Logger LOG = LoggerFactory.getLogger(ToolsManager.class);
 
     private static final int DEFAULT_MAX_MEMORY = 500;
+    private static final int DEFAULT_SORT_THREADS = 4;
 
     @Autowired
     private FileManager fileManager;
 
+    @Value("#{catgenome['feature.sort.threads'] ?: " + DEFAULT_SORT_THREADS + "}")
+    private int sortThreads = DEFAULT_SORT_THREADS;
+
     /**
      * Sorts feature file due to request parameters
      *
@@ -71,12 +76,15 @@ public class ToolsManager {
 
             AbstractFeatureSorter sorter = FeatureSorterFactory.getSorter(ordinal, sorted, fileManager.getTempDir());
 
-            LOG.debug("Will sort {} file with {}Mb of memory",
+            // a request may ask for fewer threads, but never for more than the server allows
+            final int threads = request.getThreads() > 0 ? Math.min(request.getThreads(), sortThreads)
+                    : sortThreads;
+            LOG.debug("Will sort {} file with {}Mb of memory in {} threads",
                     request.getOriginalFilePath(),
-                    request.getMaxMemory());
+                    request.getMaxMemory(), threads);
 
             double time1 = Utils.getSystemTimeMilliseconds();
-            sorter.run(request.getMaxMemory() > 0 ? request.getMaxMemory() : DEFAULT_MAX_MEMORY);
+            sorter.run(request.getMaxMemory() > 0 ? request.getMaxMemory() : DEFAULT_MAX_MEMORY, threads);
             double time2 = Utils.getSystemTimeMilliseconds();
 
             LOG.debug("Sorting feature file took {} ms", time2 - time1);
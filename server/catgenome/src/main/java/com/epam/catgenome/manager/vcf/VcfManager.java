@@ -52,6 +52,7 @@ import com.epam.catgenome.manager.gene.GeneTrackManager;
 import com.epam.catgenome.util.IOHelper;
 import com.epam.catgenome.util.IndexUtils;
 import com.epam.catgenome.util.InfoFieldParser;
+import com.epam.catgenome.util.PositionIndexWriter;
 import com.epam.catgenome.util.Utils;
 import com.epam.catgenome.util.feature.reader.AbstractEnhancedFeatureReader;
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
@@ -111,8 +112,10 @@ import com.epam.catgenome.manager.DownloadFileManager;
 import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.TrackHelper;
 import com.epam.catgenome.manager.externaldb.HttpDataManager;
+import com.epam.catgenome.manager.parallel.TaskExecutorService;
 import com.epam.catgenome.manager.reference.ReferenceGenomeManager;
 import com.epam.catgenome.manager.vcf.reader.AbstractVcfReader;
+import com.epam.catgenome.manager.vcf.reader.VcfDensityWriter;
 import com.epam.catgenome.manager.vcf.reader.VcfGa4ghReader;
 import com.epam.catgenome.manager.vcf.reader.VcfReader;
 import htsjdk.samtools.util.CloseableIterator;
@@ -156,6 +159,9 @@ public class VcfManager {
     @Autowired
     private FeatureIndexDao featureIndexDao;
 
+    @Autowired
+    private TaskExecutorService taskExecutorService;
+
     @Autowired(required = false)
     private EhCacheBasedIndexCache indexCache;
 
@@ -173,6 +179,15 @@ public class VcfManager {
     @Value("#{catgenome['search.indexer.buffer.size'] ?: 256}")
     private int indexBufferSize;
 
+    @Value("#{catgenome['search.indexer.threads'] ?: 4}")
+    private int indexerThreads;
+
+    @Value("#{catgenome['vcf.density.bin.size'] ?: 16384}")
+    private int densityBinSize;
+
+    @Value("#{catgenome['vcf.density.max.samples'] ?: 64}")
+    private int densityMaxSamples;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(VcfManager.class);
 
     /**
@@ -614,43 +629,50 @@ public class VcfManager {
         List<GeneFile> geneFiles  = reference.getGeneFile() != null ?
                                     Collections.singletonList(reference.getGeneFile()) : Collections.emptyList();
 
-        BigVcfFeatureIndexBuilder indexer = null;
-        if (doIndex) {
-            indexer = new BigVcfFeatureIndexBuilder(info, vcfHeader, featureIndexDao, file,
-                            fileManager, geneFiles, indexBufferSize);
-        }
-
-        while (iterator.hasNext()) {
-            variantContext = iterator.next();
-            if (!variantContext.getContig().equals(currentKey)) {
+        final VcfDensityWriter densityWriter = new VcfDensityWriter(fileManager, file, vcfHeader, densityBinSize,
+                densityMaxSamples);
+        try (PositionIndexWriter positionWriter = new PositionIndexWriter(fileManager, file, chromosomeMap);
+             BigVcfFeatureIndexBuilder indexer = doIndex ? new BigVcfFeatureIndexBuilder(info, vcfHeader,
+                     featureIndexDao, file, fileManager, geneFiles, indexBufferSize,
+                     taskExecutorService.getIndexerExecutor(), indexerThreads) : null) {
+            while (iterator.hasNext()) {
+                variantContext = iterator.next();
+                if (!variantContext.getContig().equals(currentKey)) {
+                    if (checkMetaMapKey(chromosomeMap, currentKey)) {
+                        metaMap.put(currentKey, new ImmutablePair<>(startPosition, endPosition));
+                        if (doIndex) {
+                            indexer.clear();
+                            LOGGER.info(getMessage(MessagesConstants.INFO_FEATURE_INDEX_CHROMOSOME_WROTE,
+                                            currentKey));
+                        }
+                    }
+                    startPosition = variantContext.getStart();
+                    currentKey = variantContext.getContig();
+                }
+                checkSorted(file, variantContext, lastFeature);
+                indexVariation(variantContext, chromosomeMap, indexer, doIndex);
+                if (checkMetaMapKey(chromosomeMap, currentKey)) {
+                    densityWriter.add(variantContext, Utils.getFromChromosomeMap(chromosomeMap, currentKey));
+                }
+                positionWriter.add(variantContext);
+                lastFeature = variantContext;
+                // Put the last one in metaMap
+                endPosition = variantContext.getStart();
                 if (checkMetaMapKey(chromosomeMap, currentKey)) {
                     metaMap.put(currentKey, new ImmutablePair<>(startPosition, endPosition));
-                    if (doIndex) {
-                        indexer.clear();
-                        LOGGER.info(getMessage(MessagesConstants.INFO_FEATURE_INDEX_CHROMOSOME_WROTE,
-                                        currentKey));
-                    }
                 }
-                startPosition = variantContext.getStart();
-                currentKey = variantContext.getContig();
             }
-            checkSorted(file, variantContext, lastFeature);
-            indexVariation(variantContext, chromosomeMap, indexer, doIndex);
-            lastFeature = variantContext;
-            // Put the last one in metaMap
-            endPosition = variantContext.getStart();
-            if (checkMetaMapKey(chromosomeMap, currentKey)) {
-                metaMap.put(currentKey, new ImmutablePair<>(startPosition, endPosition));
+            // Put the last one
+            if (variantContext != null && checkMetaMapKey(chromosomeMap, currentKey) && doIndex) {
+                indexer.clear();
+                LOGGER.info(getMessage(MessagesConstants.INFO_FEATURE_INDEX_CHROMOSOME_WROTE,
+                        currentKey));
+            }
+            densityWriter.finish();
+            positionWriter.finish();
+            if (doIndex) {
+                indexer.commit();
             }
-        }
-        // Put the last one
-        if (variantContext != null && checkMetaMapKey(chromosomeMap, currentKey) && doIndex) {
-            indexer.clear();
-            LOGGER.info(getMessage(MessagesConstants.INFO_FEATURE_INDEX_CHROMOSOME_WROTE,
-                    currentKey));
-        }
-        if (doIndex) {
-            indexer.close();
         }
         return metaMap;
     }
@@ -901,6 +923,10 @@ public class VcfManager {
         this.indexBufferSize = indexBufferSize;
     }
 
+    public void setIndexerThreads(int indexerThreads) {
+        this.indexerThreads = indexerThreads;
+    }
+
     private void writeTabixIndex(VcfFile vcfFile) throws IOException {
         VCFCodec codec = new VCFCodec();
         File file = new File(vcfFile.getPath());
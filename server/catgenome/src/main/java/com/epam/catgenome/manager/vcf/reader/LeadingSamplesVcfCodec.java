@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.vcf.reader;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+
+/**
+ * Decodes genotypes of the first samples of records, that are read by a {@link VCFCodec} with all samples.
+ * Decoding of record's own lazy genotypes parses every sample of a file, so genotype columns of other samples
+ * are cut from unparsed genotypes of a record in the same way, as {@link SampleVcfCodec} cuts them from a line.
+ */
+final class LeadingSamplesVcfCodec extends VCFCodec {
+
+    private final int sampleCount;
+
+    /**
+     * @param header a header of a VCF file with all samples
+     * @param sampleCount a number of the first samples to decode
+     */
+    LeadingSamplesVcfCodec(final VCFHeader header, final int sampleCount) {
+        this.sampleCount = sampleCount;
+        setVCFHeader(new VCFHeader(new LinkedHashSet<>(header.getMetaDataInInputOrder()),
+                header.getGenotypeSamples().subList(0, sampleCount)), SampleVcfCodec.getVersion(header));
+    }
+
+    /**
+     * @return genotypes of a record, that contain at least the first samples with the same indexes, as in a file
+     */
+    GenotypesContext decodeGenotypes(final VariantContext context) {
+        final GenotypesContext genotypes = context.getGenotypes();
+        if (!genotypes.isLazyWithData()) {
+            return genotypes;
+        }
+        final Object data = ((LazyGenotypesContext) genotypes).getUnparsedGenotypeData();
+        if (!(data instanceof String)) {
+            return genotypes;
+        }
+        // unparsed genotypes start with FORMAT column
+        final String columns = (String) data;
+        final int end = SampleVcfCodec.skipColumns(columns, 0, sampleCount + 1);
+        if (end < 0) {
+            return genotypes;
+        }
+        final List<Allele> alleles = context.getAlleles();
+        return new LazyGenotypesContext(unparsed -> createGenotypeMap((String) unparsed, alleles,
+                context.getContig(), context.getStart()), columns.substring(0, end - 1), sampleCount);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.vcf.reader;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+
+/**
+ * A VCF codec, that decodes only site level fields and a genotype column of a single sample. Columns of other
+ * samples are cut from a record before it is parsed, so their genotypes are neither split nor decoded. Decoded
+ * records contain a single genotype with index 0, or no genotypes at all, if a sample isn't specified.
+ * The codec doesn't read a header itself, it is initialized with a header of a file, that is already read.
+ */
+final class SampleVcfCodec extends VCFCodec {
+
+    /**
+     * A number of tab separators before FORMAT column
+     */
+    private static final int FORMAT_COLUMN = 8;
+    private static final char SEPARATOR = '\t';
+
+    private final Integer sampleIndex;
+
+    /**
+     * @param header a header of a VCF file with all samples
+     * @param sampleIndex an index of a sample to decode or null, to skip all genotypes
+     */
+    SampleVcfCodec(final VCFHeader header, final Integer sampleIndex) {
+        this.sampleIndex = sampleIndex;
+        final List<String> samples = sampleIndex != null
+                ? Collections.singletonList(header.getGenotypeSamples().get(sampleIndex))
+                : Collections.emptyList();
+        setVCFHeader(new VCFHeader(new LinkedHashSet<>(header.getMetaDataInInputOrder()), samples),
+                getVersion(header));
+    }
+
+    /**
+     * @return an index of the decoded sample in records of this codec
+     */
+    Integer getDecodedSampleIndex() {
+        return sampleIndex != null ? 0 : null;
+    }
+
+    @Override
+    public VariantContext decode(final String line) {
+        return super.decode(cutSample(line));
+    }
+
+    private String cutSample(final String line) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return line;
+        }
+        final int formatStart = skipColumns(line, 0, FORMAT_COLUMN);
+        if (formatStart < 0) {
+            return line;
+        }
+        if (sampleIndex == null) {
+            return line.substring(0, formatStart - 1);
+        }
+        final int genotypesStart = skipColumns(line, formatStart, 1);
+        final int sampleStart = skipColumns(line, formatStart, sampleIndex + 1);
+        if (genotypesStart < 0 || sampleStart < 0) {
+            return line;
+        }
+        int sampleEnd = line.indexOf(SEPARATOR, sampleStart);
+        if (sampleEnd < 0) {
+            sampleEnd = line.length();
+        }
+        if (sampleStart == genotypesStart) {
+            return line.substring(0, sampleEnd);
+        }
+        return new StringBuilder(genotypesStart + sampleEnd - sampleStart)
+                .append(line, 0, genotypesStart)
+                .append(line, sampleStart, sampleEnd)
+                .toString();
+    }
+
+    /**
+     * @return a start of a column, that follows the given number of columns after a position,
+     * or -1 if the line is shorter
+     */
+    static int skipColumns(final String line, final int from, final int count) {
+        int position = from;
+        for (int i = 0; i < count; i++) {
+            final int separator = line.indexOf(SEPARATOR, position);
+            if (separator < 0) {
+                return -1;
+            }
+            position = separator + 1;
+        }
+        return position;
+    }
+
+    static VCFHeaderVersion getVersion(final VCFHeader header) {
+        for (VCFHeaderLine line : header.getMetaDataInInputOrder()) {
+            if (VCFHeaderVersion.isFormatString(line.getKey())) {
+                final VCFHeaderVersion version = VCFHeaderVersion.toHeaderVersion(line.getValue());
+                if (version != null) {
+                    return version;
+                }
+            }
+        }
+        return VCFHeaderVersion.VCF4_2;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.vcf.reader;
+
+import com.epam.catgenome.entity.vcf.GenotypeData;
+import com.epam.catgenome.entity.vcf.OrganismType;
+import com.epam.catgenome.entity.vcf.Variation;
+import com.epam.catgenome.entity.vcf.VariationType;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a variation density pyramid of a chromosome, written by {@link VcfDensityWriter}. Bins of a level,
+ * that is the closest to a requested step, are joined into blocks of the step size, aligned to multiples of
+ * the step on a chromosome, so blocks don't depend on a requested interval. A block with a single variation
+ * keeps its type, a block with several variations has {@link VariationType#STATISTIC} type.
+ */
+final class VcfDensity implements Closeable {
+
+    static final int LEVEL_SCALE = 4;
+    static final int BIN = 0;
+    static final int FIRST_START = 1;
+    static final int LAST_END = 2;
+    static final int COUNTS = 3;
+
+    private static final int CLASS_COUNT = OrganismType.NO_VARIATION.ordinal();
+    private static final int TYPE_COUNT = VariationType.values().length;
+    /**
+     * Counts of genotype classes of a sample, followed by a type of its variations, see {@link #joinTypes}
+     */
+    private static final int SAMPLE_INTS = CLASS_COUNT + 1;
+    private static final int NO_TYPE = 0;
+    private static final int MIXED_TYPE = VariationType.STATISTIC.ordinal() + 1;
+    private static final int HEADER_INTS = 5;
+    private static final int LEVEL_ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+    /**
+     * A start, an end and a maximum end so far of a symbolic variation
+     */
+    private static final int POSITION_INTS = 3;
+    private static final int POSITION_START = 0;
+    private static final int POSITION_MAX_END = 2;
+    private static final int POSITION_BYTES = POSITION_INTS * Integer.BYTES;
+
+    private final RandomAccessFile file;
+    private final int binSize;
+    private final int sampleCount;
+    private final int recordSize;
+    private final long[] levelOffsets;
+    private final int[] levelSizes;
+    private final int structuralCount;
+
+    VcfDensity(final File densityFile) throws IOException {
+        this.file = new RandomAccessFile(densityFile, "r");
+        this.binSize = file.readInt();
+        final int typeCount = file.readInt();
+        this.sampleCount = file.readInt();
+        final int levelCount = file.readInt();
+        this.structuralCount = file.readInt();
+        if (typeCount != TYPE_COUNT) {
+            file.close();
+            throw new IOException("Variation density file " + densityFile + " has unsupported format");
+        }
+        this.recordSize = recordSize(sampleCount);
+        this.levelOffsets = new long[levelCount];
+        this.levelSizes = new int[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            levelOffsets[i] = file.readLong();
+            levelSizes[i] = file.readInt();
+        }
+    }
+
+    static int recordSize(final int sampleCount) {
+        return COUNTS + TYPE_COUNT + sampleCount * SAMPLE_INTS;
+    }
+
+    static int sampleOffset(final int sampleIndex) {
+        return COUNTS + TYPE_COUNT + sampleIndex * SAMPLE_INTS;
+    }
+
+    static int sampleTypeOffset(final int sampleIndex) {
+        return sampleOffset(sampleIndex) + CLASS_COUNT;
+    }
+
+    /**
+     * Joins a type of a variation or of several variations with a type of other variations of a sample.
+     * Types are stored as {@link VariationType#ordinal()} + 1, 0 means no variations, a type of variations
+     * of different types is {@link VariationType#STATISTIC}.
+     */
+    static int joinTypes(final int type, final int otherType) {
+        if (type == NO_TYPE) {
+            return otherType;
+        }
+        return otherType == NO_TYPE || otherType == type ? type : MIXED_TYPE;
+    }
+
+    /**
+     * Adds a record of a bin to a record of a bin or a block, that contains it
+     */
+    static void join(final int[] target, final int[] record) {
+        target[LAST_END] = Math.max(target[LAST_END], record[LAST_END]);
+        for (int i = COUNTS; i < COUNTS + TYPE_COUNT; i++) {
+            target[i] += record[i];
+        }
+        for (int i = COUNTS + TYPE_COUNT; i < target.length; i += SAMPLE_INTS) {
+            for (int j = i; j < i + CLASS_COUNT; j++) {
+                target[j] += record[j];
+            }
+            target[i + CLASS_COUNT] = joinTypes(target[i + CLASS_COUNT], record[i + CLASS_COUNT]);
+        }
+    }
+
+    static long headerSize(final int levelCount, final int structuralCount) {
+        return (long) HEADER_INTS * Integer.BYTES + (long) levelCount * LEVEL_ENTRY_BYTES
+                + (long) structuralCount * POSITION_BYTES;
+    }
+
+    /**
+     * Checks if the pyramid can answer a request
+     * @param step a number of bases per block
+     * @param sampleIndex an index of a sample or null
+     */
+    boolean supports(final int step, final Integer sampleIndex) {
+        return levelOffsets.length > 0 && step >= binSize && (sampleIndex == null || sampleIndex < sampleCount);
+    }
+
+    /**
+     * Reads blocks of variations, that start in an interval
+     * @param from a start of the interval
+     * @param to an end of the interval
+     * @param step a number of bases per block
+     * @param sampleIndex an index of a sample or null, to count variations regardless of genotypes
+     * @return blocks of variations
+     */
+    List<Variation> read(final int from, final int to, final int step, final Integer sampleIndex)
+            throws IOException {
+        int level = 0;
+        while (level + 1 < levelOffsets.length && (long) levelBinSize(level + 1) <= step) {
+            level++;
+        }
+        final long levelBinSize = levelBinSize(level);
+        final int first = findBin(level, (int) (from / levelBinSize));
+        final int last = findBin(level, (int) (to / levelBinSize) + 1);
+
+        final List<Variation> variations = new ArrayList<>();
+        if (first >= last) {
+            return variations;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((last - first) * recordSize * Integer.BYTES);
+        file.seek(levelOffsets[level] + (long) first * recordSize * Integer.BYTES);
+        file.readFully(buffer.array());
+
+        final int[] record = new int[recordSize];
+        final int[] block = new int[recordSize];
+        long blockIndex = -1;
+        for (int i = first; i < last; i++) {
+            for (int j = 0; j < recordSize; j++) {
+                record[j] = buffer.getInt();
+            }
+            if (record[FIRST_START] > to) {
+                break;
+            }
+            // bins aren't larger than a step, each bin goes to the block, where it starts
+            final long index = record[BIN] * levelBinSize / step;
+            if (index != blockIndex) {
+                addBlock(variations, block, blockIndex, sampleIndex);
+                System.arraycopy(record, 0, block, 0, recordSize);
+                blockIndex = index;
+            } else {
+                join(block, record);
+            }
+        }
+        addBlock(variations, block, blockIndex, sampleIndex);
+        return variations;
+    }
+
+    /**
+     * Reads positions of symbolic variations, that overlap an interval. Positions are ordered by start, so only
+     * positions from the first one, that may reach the interval, to the last one, that starts in it, are read.
+     * @return pairs of start and end of variations
+     */
+    List<int[]> readStructural(final int from, final int to) throws IOException {
+        final List<int[]> positions = new ArrayList<>();
+        final int first = findStructural(POSITION_MAX_END, from - 1);
+        final int last = findStructural(POSITION_START, to);
+        if (first >= last) {
+            return positions;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((last - first) * POSITION_BYTES);
+        file.seek(structuralOffset(first));
+        file.readFully(buffer.array());
+        for (int i = first; i < last; i++) {
+            final int start = buffer.getInt();
+            final int end = buffer.getInt();
+            buffer.getInt();
+            if (end >= from) {
+                positions.add(new int[] {start, end});
+            }
+        }
+        return positions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private long levelBinSize(final int level) {
+        long size = binSize;
+        for (int i = 0; i < level; i++) {
+            size *= LEVEL_SCALE;
+        }
+        return size;
+    }
+
+    /**
+     * Finds an index of the first record of a level with a bin not less than the given one
+     */
+    private int findBin(final int level, final int bin) throws IOException {
+        int low = 0;
+        int high = levelSizes[level];
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            file.seek(levelOffsets[level] + (long) middle * recordSize * Integer.BYTES);
+            if (file.readInt() < bin) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds an index of the first symbolic variation, that has a field greater than a value. Starts and
+     * maximum ends so far of variations don't decrease
+     */
+    private int findStructural(final int field, final int value) throws IOException {
+        int low = 0;
+        int high = structuralCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            file.seek(structuralOffset(middle) + (long) field * Integer.BYTES);
+            if (file.readInt() > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private long structuralOffset(final int index) {
+        return headerSize(levelOffsets.length, 0) + (long) index * POSITION_BYTES;
+    }
+
+    private void addBlock(final List<Variation> variations, final int[] block, final long blockIndex,
+                          final Integer sampleIndex) {
+        if (blockIndex < 0) {
+            return;
+        }
+        int count = 0;
+        VariationType type = VariationType.STATISTIC;
+        OrganismType organismType = OrganismType.NOT_SPECIFIED;
+        if (sampleIndex == null) {
+            for (int i = 0; i < TYPE_COUNT; i++) {
+                if (block[COUNTS + i] > 0) {
+                    count += block[COUNTS + i];
+                    type = VariationType.values()[i];
+                }
+            }
+        } else {
+            final int offset = sampleOffset(sampleIndex);
+            for (int i = 0; i < CLASS_COUNT; i++) {
+                if (block[offset + i] > 0) {
+                    count += block[offset + i];
+                    organismType = OrganismType.values()[i];
+                }
+            }
+            final int sampleType = block[sampleTypeOffset(sampleIndex)];
+            type = sampleType == NO_TYPE ? VariationType.STATISTIC : VariationType.values()[sampleType - 1];
+        }
+        if (count == 0) {
+            return;
+        }
+
+        final Variation variation = new Variation();
+        variation.setStartIndex(block[FIRST_START]);
+        variation.setEndIndex(block[LAST_END]);
+        variation.setType(count > 1 ? VariationType.STATISTIC : type);
+        variation.setVariationsCount(count);
+        variation.setGenotypeData(new GenotypeData(organismType, null, null));
+        variations.add(variation);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.vcf.reader;
+
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.entity.vcf.OrganismType;
+import com.epam.catgenome.entity.vcf.Variation;
+import com.epam.catgenome.entity.vcf.VariationType;
+import com.epam.catgenome.entity.vcf.VcfFile;
+import com.epam.catgenome.manager.FileManager;
+import htsjdk.variant.variantcontext.Genotype;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a variation density pyramid of a VCF file while the file is read during registration. For each
+ * chromosome a file is written, that contains for every non-empty bin of every level: the start of the first
+ * variation, the maximum end of variations, counts of variations by type and, for the first samples of
+ * the file, counts of variations by genotype class of the sample and a type of variations of the sample.
+ * Only genotypes of these samples are decoded, so the pyramid doesn't parse genotypes of a whole cohort.
+ * Bins of the next level join {@link VcfDensity#LEVEL_SCALE} bins of the previous one. Symbolic variations
+ * aren't counted, their positions are stored in order of starts to read them from the VCF file.
+ */
+public class VcfDensityWriter {
+
+    private static final int MAX_LEVELS = 10;
+
+    private final FileManager fileManager;
+    private final VcfFile vcfFile;
+    private final VCFHeader header;
+    private final int binSize;
+    private final int sampleCount;
+    private final int recordSize;
+    private final LeadingSamplesVcfCodec genotypesCodec;
+
+    private Chromosome chromosome;
+    private final List<int[]> records = new ArrayList<>();
+    private final List<int[]> structural = new ArrayList<>();
+    private int[] current;
+    private int structuralMaxEnd;
+
+    /**
+     * @param fileManager a file manager, that creates pyramid files
+     * @param vcfFile a VCF file, for which pyramid is built
+     * @param header a header of the VCF file
+     * @param binSize a size in bases of a bin of the most detailed level
+     * @param maxSamples a maximum number of samples, for which genotype classes are counted
+     */
+    public VcfDensityWriter(final FileManager fileManager, final VcfFile vcfFile, final VCFHeader header,
+                            final int binSize, final int maxSamples) {
+        this.fileManager = fileManager;
+        this.vcfFile = vcfFile;
+        this.header = header;
+        this.binSize = binSize;
+        this.sampleCount = Math.min(maxSamples, header.getNGenotypeSamples());
+        this.recordSize = VcfDensity.recordSize(sampleCount);
+        this.genotypesCodec = sampleCount > 0 ? new LeadingSamplesVcfCodec(header, sampleCount) : null;
+    }
+
+    /**
+     * Adds a variation. Variations of a chromosome should be added in order of their starts.
+     */
+    public void add(final VariantContext context, final Chromosome variationChromosome) throws IOException {
+        if (chromosome == null || !chromosome.getName().equals(variationChromosome.getName())) {
+            writeChromosome();
+            chromosome = variationChromosome;
+        }
+        if (context.getType() == VariantContext.Type.SYMBOLIC) {
+            structuralMaxEnd = Math.max(structuralMaxEnd, context.getEnd());
+            structural.add(new int[] {context.getStart(), context.getEnd(), structuralMaxEnd});
+            return;
+        }
+
+        final Variation variation = VcfFileReader.createVariation(context, header, null);
+        if (variation.getGenotypeData().getOrganismType() == OrganismType.NO_VARIATION) {
+            return;
+        }
+
+        final int bin = context.getStart() / binSize;
+        if (current == null || current[VcfDensity.BIN] != bin) {
+            current = new int[recordSize];
+            current[VcfDensity.BIN] = bin;
+            current[VcfDensity.FIRST_START] = context.getStart();
+            current[VcfDensity.LAST_END] = context.getEnd();
+            records.add(current);
+        }
+        current[VcfDensity.LAST_END] = Math.max(current[VcfDensity.LAST_END], context.getEnd());
+        current[VcfDensity.COUNTS + variation.getType().ordinal()]++;
+
+        if (sampleCount == 0) {
+            return;
+        }
+        final GenotypesContext genotypes = genotypesCodec.decodeGenotypes(context);
+        for (int i = 0; i < sampleCount; i++) {
+            final Genotype genotype = genotypes.get(i);
+            final OrganismType organismType = VcfFileReader.getOrganismType(context, genotype);
+            if (organismType != OrganismType.NO_VARIATION) {
+                current[VcfDensity.sampleOffset(i) + organismType.ordinal()]++;
+                // a type of insertions and deletions depends on alleles of a sample
+                final VariationType type = VcfFileReader.getVariationType(context, genotype);
+                current[VcfDensity.sampleTypeOffset(i)] = VcfDensity.joinTypes(
+                        current[VcfDensity.sampleTypeOffset(i)], type.ordinal() + 1);
+            }
+        }
+    }
+
+    /**
+     * Writes the pyramid of the last chromosome. Files are open only while a chromosome is written, so a writer
+     * of a file, that failed to be read, is just dropped without writing the last chromosome
+     */
+    public void finish() throws IOException {
+        writeChromosome();
+        chromosome = null;
+    }
+
+    private void writeChromosome() throws IOException {
+        if (chromosome == null || (records.isEmpty() && structural.isEmpty())) {
+            clear();
+            return;
+        }
+
+        final List<List<int[]>> levels = new ArrayList<>();
+        List<int[]> level = new ArrayList<>(records);
+        levels.add(level);
+        while (level.size() > 1 && levels.size() < MAX_LEVELS) {
+            level = joinBins(level);
+            levels.add(level);
+        }
+
+        try (DataOutputStream outputStream = fileManager.makeVcfDensityOutputStream(vcfFile, chromosome.getName())) {
+            outputStream.writeInt(binSize);
+            outputStream.writeInt(VariationType.values().length);
+            outputStream.writeInt(sampleCount);
+            outputStream.writeInt(levels.size());
+            outputStream.writeInt(structural.size());
+
+            long offset = VcfDensity.headerSize(levels.size(), structural.size());
+            for (List<int[]> levelRecords : levels) {
+                outputStream.writeLong(offset);
+                outputStream.writeInt(levelRecords.size());
+                offset += (long) levelRecords.size() * recordSize * Integer.BYTES;
+            }
+            for (int[] position : structural) {
+                for (int value : position) {
+                    outputStream.writeInt(value);
+                }
+            }
+            for (List<int[]> levelRecords : levels) {
+                for (int[] record : levelRecords) {
+                    for (int value : record) {
+                        outputStream.writeInt(value);
+                    }
+                }
+            }
+        }
+        clear();
+    }
+
+    private List<int[]> joinBins(final List<int[]> level) {
+        final List<int[]> joined = new ArrayList<>();
+        int[] bin = null;
+        for (int[] record : level) {
+            final int joinedBin = record[VcfDensity.BIN] / VcfDensity.LEVEL_SCALE;
+            if (bin == null || bin[VcfDensity.BIN] != joinedBin) {
+                bin = record.clone();
+                bin[VcfDensity.BIN] = joinedBin;
+                joined.add(bin);
+            } else {
+                VcfDensity.join(bin, record);
+            }
+        }
+        return joined;
+    }
+
+    private void clear() {
+        records.clear();
+        structural.clear();
+        current = null;
+        structuralMaxEnd = 0;
+    }
+}
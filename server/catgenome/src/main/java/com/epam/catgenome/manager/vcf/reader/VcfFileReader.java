@@ -24,19 +24,25 @@
 
 package com.epam.catgenome.manager.vcf.reader;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import com.epam.catgenome.util.feature.reader.AbstractEnhancedFeatureReader;
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
+import com.epam.catgenome.util.feature.reader.TabixFeatureReader;
+import com.epam.catgenome.util.feature.reader.TribbleIndexedFeatureReader;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.jetbrains.annotations.NotNull;
@@ -60,6 +66,7 @@ import com.epam.catgenome.entity.vcf.VcfFile;
 import com.epam.catgenome.exception.VcfReadingException;
 import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.reference.ReferenceGenomeManager;
+import com.epam.catgenome.util.PositionIndex;
 import com.epam.catgenome.util.Utils;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.tribble.FeatureReader;
@@ -87,6 +94,8 @@ public class VcfFileReader extends AbstractVcfReader {
     protected static final String BIND_CIPOS_ATTRIBUTE = "CIPOS";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VcfFileReader.class);
+    private static final int MAX_DENSITY_STRUCTURAL_QUERIES = 256;
+    private static final int NAVIGATION_BATCH_SIZE = 256;
 
     /**
      * Creates a {@code VcfFileReader} instance
@@ -114,15 +123,28 @@ public class VcfFileReader extends AbstractVcfReader {
                                            final Integer sampleIndex, final boolean loadInfo,
                                            final boolean collapse, EhCacheBasedIndexCache indexCache)
             throws VcfReadingException {
-        try (FeatureReader<VariantContext> reader = AbstractEnhancedFeatureReader.getFeatureReader(vcfFile.getPath(),
-                vcfFile.getIndex().getPath(), new VCFCodec(), true, indexCache)) {
+        try {
             if (checkBounds(vcfFile, track, chromosome, loadInfo)) {
                 return track;
             }
+            if (track.getScaleFactor() < 1 && collapse && !loadInfo) {
+                final List<Variation> variations = readDensity(vcfFile, track, chromosome, sampleIndex, indexCache);
+                if (variations != null) {
+                    track.setBlocks(variations);
+                    return track;
+                }
+            }
+        } catch (IOException e) {
+            throw new VcfReadingException(vcfFile, e);
+        }
+        try (FeatureReader<VariantContext> reader = AbstractEnhancedFeatureReader.getFeatureReader(vcfFile.getPath(),
+                vcfFile.getIndex().getPath(), new VCFCodec(), true, indexCache)) {
+            final Integer decodedSampleIndex = loadInfo ? sampleIndex : decodeSample(reader, sampleIndex);
             try (CloseableIterator<VariantContext> iterator = Utils.query(reader, chromosome.getName(), track
                     .getStartIndex(), track.getEndIndex())) {
                 VCFHeader header = (VCFHeader) reader.getHeader();
-                track.setBlocks(doReadVariations(iterator, track, header, vcfFile, sampleIndex, loadInfo, collapse));
+                track.setBlocks(doReadVariations(iterator, track, header, vcfFile, decodedSampleIndex, loadInfo,
+                        collapse));
             }
         } catch (IOException e) {
             throw new VcfReadingException(vcfFile, e);
@@ -141,6 +163,11 @@ public class VcfFileReader extends AbstractVcfReader {
         }
         try (FeatureReader<VariantContext> reader = AbstractEnhancedFeatureReader.getFeatureReader(vcfFile.getPath(),
                 vcfFile.getIndex().getPath(), new VCFCodec(), true, indexCache)) {
+            final File positionIndexFile = fileManager.getPositionIndexFile(vcfFile, chromosome.getName());
+            if (positionIndexFile != null) {
+                return readIndexedVariation(fromPosition, sampleIndex, chromosome, forward, reader,
+                        positionIndexFile);
+            }
             return readNextOrPreviousVariation(fromPosition, vcfFile, sampleIndex, chromosome,
                     forward, end, reader);
         } catch (IOException e) {
@@ -148,6 +175,72 @@ public class VcfFileReader extends AbstractVcfReader {
         }
     }
 
+    /**
+     * Finds next/previous variation by a position index of a chromosome. Candidate records are taken from the index
+     * by batches, each batch is read from the file with a single query, that covers its records, so sparse
+     * files aren't scanned between variations.
+     */
+    private Variation readIndexedVariation(int fromPosition, Integer sampleIndex, Chromosome chromosome,
+                                           boolean forward, FeatureReader<VariantContext> reader,
+                                           File positionIndexFile) throws IOException {
+        final VCFHeader vcfHeader = (VCFHeader) reader.getHeader();
+        final Integer decodedSampleIndex = decodeSample(reader, sampleIndex);
+        try (PositionIndex positionIndex = new PositionIndex(positionIndexFile)) {
+            if (forward) {
+                for (int first = positionIndex.firstStartAfter(fromPosition); first < positionIndex.size();
+                     first += NAVIGATION_BATCH_SIZE) {
+                    final int last = Math.min(first + NAVIGATION_BATCH_SIZE, positionIndex.size()) - 1;
+                    final Variation variation = findVariation(reader, vcfHeader, chromosome,
+                            positionIndex.getStart(first), positionIndex.getStart(last), decodedSampleIndex,
+                            fromPosition, true);
+                    if (variation != null) {
+                        return variation;
+                    }
+                }
+            } else {
+                for (int last = positionIndex.firstStartAfter(fromPosition - 1) - 1; last >= 0;
+                     last -= NAVIGATION_BATCH_SIZE) {
+                    final int first = Math.max(last - NAVIGATION_BATCH_SIZE + 1, 0);
+                    final Variation variation = findVariation(reader, vcfHeader, chromosome,
+                            positionIndex.getStart(first), positionIndex.getStart(last), decodedSampleIndex,
+                            fromPosition, false);
+                    if (variation != null) {
+                        return variation;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first variation after a position or the last variation before it among variations, that
+     * start in an interval
+     */
+    @Nullable
+    private Variation findVariation(FeatureReader<VariantContext> reader, VCFHeader vcfHeader,
+                                    Chromosome chromosome, int start, int end, Integer sampleIndex,
+                                    int fromPosition, boolean forward) throws IOException {
+        Variation lastVariation = null;
+        try (CloseableIterator<VariantContext> iterator = Utils.query(reader, chromosome.getName(), start, end)) {
+            while (iterator.hasNext()) {
+                final VariantContext context = iterator.next();
+                if (context.getStart() < start || context.getStart() > end ||
+                        (forward ? context.getStart() <= fromPosition : context.getEnd() >= fromPosition)) {
+                    continue;
+                }
+                final Variation variation = createVariation(context, vcfHeader, sampleIndex);
+                if (variation.getGenotypeData().getOrganismType() != OrganismType.NO_VARIATION) {
+                    if (forward) {
+                        return variation;
+                    }
+                    lastVariation = variation;
+                }
+            }
+        }
+        return lastVariation;
+    }
+
     private boolean isOutOfBounds(int fromPosition, boolean forward, int end) {
         return (forward && fromPosition + 1 >= end) || (!forward && fromPosition - 1 <= end);
     }
@@ -268,11 +361,27 @@ public class VcfFileReader extends AbstractVcfReader {
         Double qual = context.getPhredScaledQual();
         variation.setQuality(Double.compare(qual, HTSJDK_WRONG_QUALITY) != 0 ? qual : 0);
 
-        determineVariationType(context, sampleIndex, variation);
+        determineVariationType(context, genotype, variation);
 
         return variation;
     }
 
+    /**
+     * Determines a type of a variation for a sample in the same way, as {@link #createVariation} does
+     */
+    static VariationType getVariationType(VariantContext context, Genotype genotype) {
+        Variation variation = new Variation();
+        determineVariationType(context, genotype, variation);
+        return variation.getType();
+    }
+
+    /**
+     * Determines an organism type of a sample's genotype in the same way, as {@link #createVariation} does
+     */
+    static OrganismType getOrganismType(VariantContext context, Genotype genotype) {
+        return getGenotypeData(context, genotype).getOrganismType();
+    }
+
     @NotNull private static GenotypeData getGenotypeData(VariantContext context, Genotype genotype) {
         GenotypeData genotypeData;
         if (genotype == null) {
@@ -310,6 +419,91 @@ public class VcfFileReader extends AbstractVcfReader {
         return genotypeData;
     }
 
+    /**
+     * Reads variations of a zoomed out track from a variation density pyramid of a chromosome. Symbolic
+     * variations aren't counted in the pyramid, they are read from the VCF file by their positions.
+     *
+     * @return variations or null, if the pyramid is absent or can't answer the request
+     */
+    @Nullable
+    private List<Variation> readDensity(VcfFile vcfFile, Track<Variation> track, Chromosome chromosome,
+                                        Integer sampleIndex, EhCacheBasedIndexCache indexCache) throws IOException {
+        final File densityFile = fileManager.getVcfDensityFile(vcfFile, chromosome.getName());
+        if (densityFile == null) {
+            return null;
+        }
+        final int step = (int) Math.ceil((double) 1 / track.getScaleFactor());
+        final List<Variation> variations;
+        final List<int[]> structural;
+        try (VcfDensity density = new VcfDensity(densityFile)) {
+            if (!density.supports(step, sampleIndex)) {
+                return null;
+            }
+            structural = density.readStructural(track.getStartIndex(), track.getEndIndex());
+            if (structural.size() > MAX_DENSITY_STRUCTURAL_QUERIES) {
+                return null;
+            }
+            variations = density.read(track.getStartIndex(), track.getEndIndex(), step, sampleIndex);
+        }
+        if (!structural.isEmpty()) {
+            variations.addAll(readStructuralVariations(vcfFile, chromosome, structural, sampleIndex, indexCache));
+            variations.sort(Comparator.comparing(Variation::getStartIndex));
+        }
+        return variations;
+    }
+
+    private List<Variation> readStructuralVariations(VcfFile vcfFile, Chromosome chromosome,
+                                                     List<int[]> positions, Integer sampleIndex,
+                                                     EhCacheBasedIndexCache indexCache) throws IOException {
+        final List<Variation> variations = new ArrayList<>();
+        final Set<Integer> starts = new HashSet<>();
+        try (FeatureReader<VariantContext> reader = AbstractEnhancedFeatureReader.getFeatureReader(vcfFile.getPath(),
+                vcfFile.getIndex().getPath(), new VCFCodec(), true, indexCache)) {
+            final VCFHeader header = (VCFHeader) reader.getHeader();
+            final Integer decodedSampleIndex = decodeSample(reader, sampleIndex);
+            for (int[] position : positions) {
+                if (!starts.add(position[0])) {
+                    continue;
+                }
+                try (CloseableIterator<VariantContext> iterator = Utils.query(reader, chromosome.getName(),
+                        position[0], position[0])) {
+                    while (iterator.hasNext()) {
+                        final VariantContext context = iterator.next();
+                        if (context.getStart() != position[0] || context.getType() != VariantContext.Type.SYMBOLIC) {
+                            continue;
+                        }
+                        final Variation variation = createVariation(context, header, decodedSampleIndex);
+                        if (variation.getGenotypeData() == null ||
+                                variation.getGenotypeData().getOrganismType() != OrganismType.NO_VARIATION) {
+                            variations.add(variation);
+                        }
+                    }
+                }
+            }
+        }
+        return variations;
+    }
+
+    /**
+     * Makes a reader decode only a genotype column of a requested sample, genotypes of other samples
+     * are skipped without parsing. A track needs a single sample, while decoding of genotypes of all samples
+     * takes most of the reading time for files with many samples.
+     *
+     * @return an index of the requested sample in records, returned by the reader
+     */
+    @SuppressWarnings("unchecked")
+    private static Integer decodeSample(FeatureReader<VariantContext> reader, Integer sampleIndex) {
+        final SampleVcfCodec codec = new SampleVcfCodec((VCFHeader) reader.getHeader(), sampleIndex);
+        if (reader instanceof TabixFeatureReader) {
+            ((TabixFeatureReader) reader).setCodec(codec);
+        } else if (reader instanceof TribbleIndexedFeatureReader) {
+            ((TribbleIndexedFeatureReader) reader).setCodec(codec);
+        } else {
+            return sampleIndex;
+        }
+        return codec.getDecodedSampleIndex();
+    }
+
     private boolean checkBounds(VcfFile vcfFile, Track<Variation> track, Chromosome chromosome,
             boolean loadInfo) throws IOException {
         // Bounds metadata should be load only for track loading to improve performance
@@ -468,7 +662,7 @@ public class VcfFileReader extends AbstractVcfReader {
         return organismType;
     }
 
-    private static void determineVariationType(VariantContext context, Integer sampleIndex, Variation variation) {
+    private static void determineVariationType(VariantContext context, Genotype genotype, Variation variation) {
         VariantContext.Type type = context.getType(); // Determine VariationType
         switch (type) {
             case SNP:
@@ -476,7 +670,7 @@ public class VcfFileReader extends AbstractVcfReader {
                 break;
             case INDEL:
             case MIXED:
-                variation.setType(determineInDel(context, sampleIndex));
+                variation.setType(determineInDel(context, genotype));
                 break;
             case MNP:
                 variation.setType(VariationType.MNP);
@@ -585,13 +779,11 @@ public class VcfFileReader extends AbstractVcfReader {
      * Translates HTSJDK's ambiguous INDEL type into our INS, DEL or MIXED variation types
      *
      * @param context     {@code VariantContext}, from which variation type is being achieved.
-     * @param sampleIndex {@code Integer} a sample index from VCF file. If is null, will try to guess VariationType by
+     * @param genotype    {@code Genotype} of a sample. If is null, will try to guess VariationType by
      *                    first allele.
      * @return correct {@code VariationType}
      */
-    private static VariationType determineInDel(VariantContext context, Integer sampleIndex) {
-        Genotype genotype = sampleIndex != null ? context.getGenotype(sampleIndex) : null;
-
+    private static VariationType determineInDel(VariantContext context, Genotype genotype) {
         if (genotype == null || CollectionUtils.isEmpty(genotype.getAlleles())) {
             // No genotype information, trying to guess by first alt allele
             return context.getAlternateAlleles().get(0).length() > context.getReference().length() ?
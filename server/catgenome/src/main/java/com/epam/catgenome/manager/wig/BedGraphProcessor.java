@@ -32,7 +32,6 @@ import com.epam.catgenome.entity.wig.WigFile;
 import com.epam.catgenome.manager.BiologicalDataItemManager;
 import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.TrackHelper;
-import com.epam.catgenome.manager.wig.reader.BedGraphCodec;
 import com.epam.catgenome.manager.wig.reader.BedGraphFeature;
 import com.epam.catgenome.manager.wig.reader.BedGraphReader;
 import com.epam.catgenome.util.IOHelper;
@@ -40,17 +39,25 @@ import com.epam.catgenome.util.IndexUtils;
 import com.epam.catgenome.util.NgbFileUtils;
 import com.epam.catgenome.util.Utils;
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
+import gnu.trove.list.TFloatList;
+import gnu.trove.list.array.TFloatArrayList;
 import htsjdk.samtools.util.PeekableIterator;
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.tribble.CloseableTribbleIterator;
 import htsjdk.tribble.index.Index;
-import htsjdk.tribble.index.IndexFactory;
-import htsjdk.tribble.index.interval.IntervalTreeIndex;
+import kotlin.Pair;
+import org.jetbrains.bio.big.FixedStepSection;
+import org.jetbrains.bio.big.WigSection;
 import org.springframework.util.Assert;
 
-import java.io.File;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import static com.epam.catgenome.component.MessageHelper.getMessage;
 
@@ -60,9 +67,14 @@ import static com.epam.catgenome.component.MessageHelper.getMessage;
 public class BedGraphProcessor extends AbstractWigProcessor {
 
     private static final String IDX_EXTENSION = ".idx";
+    private static final int ZOOM_LEVELS_COUNT = 8;
 
-    public BedGraphProcessor(BiologicalDataItemManager biologicalDataItemManager, FileManager fileManager) {
+    private final BigWigFileCache bigWigFileCache;
+
+    public BedGraphProcessor(BiologicalDataItemManager biologicalDataItemManager, FileManager fileManager,
+                             BigWigFileCache bigWigFileCache) {
         super(biologicalDataItemManager, fileManager);
+        this.bigWigFileCache = bigWigFileCache;
     }
 
     @Override
@@ -71,6 +83,16 @@ public class BedGraphProcessor extends AbstractWigProcessor {
             throws IOException {
         Assert.notNull(wigFile, getMessage(MessagesConstants.ERROR_FILE_NOT_FOUND));
         TrackHelper.fillBlocks(track, indexes -> new Wig(indexes.getLeft(), indexes.getRight()));
+        final String pyramidPath = fileManager.getBedGraphPyramidFilePath(wigFile, chromosome.getName());
+        if (pyramidPath != null) {
+            // BIGWIG picks a zoom level, that matches the size of track blocks, i.e. the track scale factor
+            bigWigFileCache.read(wigFile.getId(), pyramidPath, bigWigFile -> {
+                WigProcessor.fillBlocksFromBigWig(track, chromosome.getName(), bigWigFile);
+                return track;
+            });
+            return track;
+        }
+        // files, registered before pyramids were introduced, have a single downsampled bedGraph
         String downsamplePath = fileManager.getDownsampledBedGraphFilePath(wigFile);
         if (dontNeedToUseDownsampling(track, chromosome)) {
             fillBlocksFromFile(wigFile.getPath(), wigFile.getIndex().getPath(),
@@ -100,32 +122,27 @@ public class BedGraphProcessor extends AbstractWigProcessor {
         biologicalDataItemManager.createBiologicalDataItem(wigFile.getIndex());
     }
 
+    /**
+     * Converts a bedGraph file to a pyramid, a BIGWIG file per chromosome, that holds bedGraph records
+     * and several zoom levels, summarizing them (count, min, max and sum of values)
+     */
     @Override
     protected void splitByChromosome(WigFile wigFile, Map<String, Chromosome> chromosomeMap,
                                      EhCacheBasedIndexCache indexCache) throws IOException {
-        List<BedGraphFeature> sectionList = new ArrayList<>();
-        for (Chromosome chromosome : chromosomeMap.values()) {
-            String realChrName = fetchRealChrName(wigFile.getIndex().getPath(), chromosome.getName());
-            try (PeekableIterator<BedGraphFeature> query = new PeekableIterator<>(
-                    new BedGraphReader(wigFile.getPath(), wigFile.getIndex().getPath(), indexCache).query(
-                            realChrName, 1, chromosome.getSize() - 1))) {
-                int start = 0;
-                int stop = chromosome.getSize();
-                int bp = start;
-                while (bp < stop) {
-                    int chunkStart = bp;
-                    int chunkStop = Math.min(bp + WIG_DOWNSAMPLING_WINDOW - 1, stop);
-                    float chunkScore = getScoreForBounds(query, chunkStart, chunkStop);
-                    bp = chunkStop + 1;
-                    sectionList.add(new BedGraphFeature(chromosome.getName(), chunkStart, chunkStop, chunkScore));
+        try (BedGraphReader reader = new BedGraphReader(wigFile.getPath(), wigFile.getIndex().getPath(),
+                indexCache)) {
+            for (Chromosome chromosome : chromosomeMap.values()) {
+                String realChrName = fetchRealChrName(wigFile.getIndex().getPath(), chromosome.getName());
+                try (ChromosomeSections sections = new ChromosomeSections(reader, realChrName, chromosome)) {
+                    if (sections.iterator().hasNext()) {
+                        LOGGER.debug("Writing BED_GRAPH pyramid for chromosome {}", chromosome.getName());
+                        fileManager.writeToBedGraphPyramidFile(wigFile, sections,
+                                Collections.singletonList(new Pair<>(chromosome.getName(), chromosome.getSize())),
+                                chromosome.getName(), ZOOM_LEVELS_COUNT);
+                    }
                 }
             }
         }
-        File downsampled = fileManager.writeToBedGraphFile(wigFile, sectionList);
-        File indexFile = new File(getDownsampledBedGraphIndex(downsampled.getPath()));
-        LOGGER.debug("Writing BED_GRAPH index at {}", indexFile.getAbsolutePath());
-        IntervalTreeIndex intervalTreeIndex = IndexFactory.createIntervalIndex(downsampled, new BedGraphCodec());
-        IndexFactory.writeIndex(intervalTreeIndex, indexFile); // Write it to a file
     }
 
     @Override
@@ -189,4 +206,110 @@ public class BedGraphProcessor extends AbstractWigProcessor {
         return downsamplePath + IDX_EXTENSION;
     }
 
+    /**
+     * Sections of a chromosome, that are built from bedGraph records while a pyramid writer pulls them,
+     * so records of a chromosome are never held in memory at once. Each iteration queries records again,
+     * queries are closed with the sections
+     */
+    private static final class ChromosomeSections implements Iterable<WigSection>, Closeable {
+
+        private final BedGraphReader reader;
+        private final String realChrName;
+        private final Chromosome chromosome;
+        private final List<CloseableTribbleIterator<BedGraphFeature>> queries = new ArrayList<>();
+
+        private ChromosomeSections(final BedGraphReader reader, final String realChrName,
+                                   final Chromosome chromosome) {
+            this.reader = reader;
+            this.realChrName = realChrName;
+            this.chromosome = chromosome;
+        }
+
+        @Override
+        public Iterator<WigSection> iterator() {
+            try {
+                final CloseableTribbleIterator<BedGraphFeature> query =
+                        reader.query(realChrName, 1, chromosome.getSize());
+                queries.add(query);
+                return new SectionIterator(query, chromosome);
+            } catch (IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            queries.forEach(CloseableTribbleIterator::close);
+            queries.clear();
+        }
+    }
+
+    /**
+     * Converts bedGraph records to sections, adjacent records of the same length are joined to a single
+     * section. Overlapping parts of records and parts outside of a chromosome are skipped
+     */
+    private static final class SectionIterator implements Iterator<WigSection> {
+
+        private final Iterator<BedGraphFeature> features;
+        private final Chromosome chromosome;
+        private TFloatList values = new TFloatArrayList();
+        private int sectionStart;
+        private int span;
+        private int lastEnd;
+        private WigSection next;
+
+        private SectionIterator(final Iterator<BedGraphFeature> features, final Chromosome chromosome) {
+            this.features = features;
+            this.chromosome = chromosome;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = readSection();
+            }
+            return next != null;
+        }
+
+        @Override
+        public WigSection next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final WigSection section = next;
+            next = null;
+            return section;
+        }
+
+        private WigSection readSection() {
+            while (features.hasNext()) {
+                final BedGraphFeature feature = features.next();
+                final int start = Math.max(feature.getStart(), lastEnd);
+                final int end = Math.min(feature.getEnd(), chromosome.getSize());
+                if (start >= end) {
+                    continue;
+                }
+                WigSection section = null;
+                if (!values.isEmpty() && (start != lastEnd || end - start != span)) {
+                    section = flush();
+                }
+                if (values.isEmpty()) {
+                    sectionStart = start;
+                    span = end - start;
+                }
+                values.add(feature.getValue());
+                lastEnd = end;
+                if (section != null) {
+                    return section;
+                }
+            }
+            return values.isEmpty() ? null : flush();
+        }
+
+        private WigSection flush() {
+            final WigSection section = new FixedStepSection(chromosome.getName(), sectionStart, span, span, values);
+            values = new TFloatArrayList();
+            return section;
+        }
+    }
 }
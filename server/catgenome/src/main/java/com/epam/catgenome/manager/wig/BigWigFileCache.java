@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.wig;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.bio.big.BigWigFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of opened BigWig files. A BigWig file is opened once, with its chromosome B+ tree and
+ * R-tree parsed, and reused by track requests until the file is unregistered or the least recently
+ * used files are closed, when the number of opened files exceeds configured limit.
+ * Files are identified by WIG file ID and path, as a WIG file is read from its own path or from
+ * per chromosome downsampled files.
+ */
+@Slf4j
+@Component
+public class BigWigFileCache {
+
+    private static final int DEFAULT_MAX_OPENED_FILES = 100;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    @Value("#{catgenome['wig.file.cache.size'] ?: " + DEFAULT_MAX_OPENED_FILES + "}")
+    private int maxOpenedFiles = DEFAULT_MAX_OPENED_FILES;
+
+    private final Map<FileKey, FileEntry> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Applies a function to an opened BigWig file, opening the file if it isn't cached yet.
+     * The file stays opened until the function completes, even if it is evicted concurrently.
+     *
+     * @param fileId ID of a WIG file
+     * @param path path to a BigWig file, that belongs to the WIG file
+     * @param function function to apply
+     * @return result of the function
+     * @throws IOException if the file can't be opened or read
+     */
+    public <T> T read(final long fileId, final String path, final BigWigFunction<T> function) throws IOException {
+        final FileEntry entry = acquire(new FileKey(fileId, path));
+        try {
+            return function.apply(entry.getFile());
+        } finally {
+            entry.release();
+        }
+    }
+
+    /**
+     * Closes all cached files of a WIG file. Should be called when the WIG file is unregistered.
+     *
+     * @param fileId ID of a WIG file
+     */
+    public void invalidate(final long fileId) {
+        final List<FileEntry> closed = new ArrayList<>();
+        synchronized (entries) {
+            final Iterator<Map.Entry<FileKey, FileEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<FileKey, FileEntry> entry = iterator.next();
+                if (entry.getKey().fileId == fileId) {
+                    closed.add(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+        closed.forEach(FileEntry::evict);
+    }
+
+    public Statistics getStatistics() {
+        final int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Statistics(size, hits.get(), misses.get(), evictions.get());
+    }
+
+    @PreDestroy
+    public void clear() {
+        final List<FileEntry> closed;
+        synchronized (entries) {
+            closed = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        closed.forEach(FileEntry::evict);
+    }
+
+    /**
+     * Returns an entry of a file, registering an entry, that isn't opened yet, if the file isn't cached. A file is
+     * opened without holding the lock of the cache, so that a slow file doesn't block requests to other files,
+     * while concurrent requests to the same file wait for it to be opened once.
+     */
+    private FileEntry acquire(final FileKey key) {
+        final List<FileEntry> evicted = new ArrayList<>();
+        final FileEntry entry;
+        boolean created = false;
+        synchronized (entries) {
+            FileEntry cached = entries.get(key);
+            if (cached == null) {
+                misses.incrementAndGet();
+                cached = new FileEntry(key.path);
+                entries.put(key, cached);
+                collectEvicted(evicted);
+                created = true;
+            } else {
+                hits.incrementAndGet();
+            }
+            // acquire under lock, so that an entry can't be evicted and closed concurrently
+            cached.acquire();
+            entry = cached;
+        }
+        evicted.forEach(FileEntry::evict);
+        if (created) {
+            open(key, entry);
+        }
+        return entry;
+    }
+
+    private void open(final FileKey key, final FileEntry entry) {
+        try {
+            entry.complete(WigProcessor.readWig(key.path));
+        } catch (IOException e) {
+            entry.fail(e);
+        } finally {
+            if (!entry.isOpened()) {
+                entry.fail(new IOException("Failed to open BigWig file " + key.path));
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+            }
+        }
+    }
+
+    private void collectEvicted(final List<FileEntry> evicted) {
+        final Iterator<Map.Entry<FileKey, FileEntry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxOpenedFiles && iterator.hasNext()) {
+            final Map.Entry<FileKey, FileEntry> eldest = iterator.next();
+            log.debug("Evicting BigWig file {}", eldest.getKey().path);
+            evicted.add(eldest.getValue());
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * A function, reading data from an opened BigWig file
+     */
+    @FunctionalInterface
+    public interface BigWigFunction<T> {
+        T apply(BigWigFile file) throws IOException;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class FileKey {
+        private final long fileId;
+        private final String path;
+    }
+
+    private static final class FileEntry {
+        private final String path;
+        private final CompletableFuture<BigWigFile> file = new CompletableFuture<>();
+        private int references;
+        private boolean evicted;
+
+        FileEntry(final String path) {
+            this.path = path;
+        }
+
+        /**
+         * Waits for the file to be opened
+         * @throws IOException if the file failed to be opened
+         */
+        BigWigFile getFile() throws IOException {
+            try {
+                return file.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        void complete(final BigWigFile opened) {
+            file.complete(opened);
+        }
+
+        void fail(final IOException e) {
+            file.completeExceptionally(e);
+        }
+
+        boolean isOpened() {
+            return file.isDone() && !file.isCompletedExceptionally();
+        }
+
+        synchronized void acquire() {
+            references++;
+        }
+
+        synchronized void release() {
+            references--;
+            closeIfUnused();
+        }
+
+        synchronized void evict() {
+            evicted = true;
+            closeIfUnused();
+        }
+
+        private void closeIfUnused() {
+            if (evicted && references == 0 && isOpened()) {
+                log.debug("Closing BigWig file {}", path);
+                IOUtils.closeQuietly(file.join());
+            }
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int openedFiles;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+    }
+}
@@ -101,6 +101,9 @@ public class FacadeWigManager {
     @Autowired(required = false)
     protected EhCacheBasedIndexCache indexCache;
 
+    @Autowired
+    protected BigWigFileCache bigWigFileCache;
+
     protected static final Logger LOGGER = LoggerFactory.getLogger(FacadeWigManager.class);
 
     static final Set<String> WIG_EXTENSIONS = new HashSet<>();
@@ -191,6 +194,7 @@ public class FacadeWigManager {
     public WigFile unregisterWigFile(final long wigFileId) throws IOException {
         WigFile fileToDelete = wigFileManager.load(wigFileId);
         Assert.notNull(fileToDelete, getMessage(MessagesConstants.ERROR_FILE_NOT_FOUND));
+        bigWigFileCache.invalidate(fileToDelete.getId());
         wigFileManager.delete(fileToDelete);
         return fileToDelete;
     }
@@ -272,9 +276,9 @@ public class FacadeWigManager {
                 .stream()
                 .anyMatch(fileExtension::endsWith);
         if (isBedGraph) {
-            return new BedGraphProcessor(biologicalDataItemManager, fileManager);
+            return new BedGraphProcessor(biologicalDataItemManager, fileManager, bigWigFileCache);
         } else {
-            return new WigProcessor(biologicalDataItemManager, fileManager);
+            return new WigProcessor(biologicalDataItemManager, fileManager, bigWigFileCache);
         }
     }
 
@@ -36,8 +36,12 @@ import static com.epam.catgenome.component.MessageHelper.getMessage;
  * */
 public class WigProcessor extends AbstractWigProcessor {
 
-    public WigProcessor(BiologicalDataItemManager biologicalDataItemManager, FileManager fileManager) {
+    private final BigWigFileCache bigWigFileCache;
+
+    public WigProcessor(BiologicalDataItemManager biologicalDataItemManager, FileManager fileManager,
+                        BigWigFileCache bigWigFileCache) {
         super(biologicalDataItemManager, fileManager);
+        this.bigWigFileCache = bigWigFileCache;
     }
 
     @Override
@@ -48,14 +52,14 @@ public class WigProcessor extends AbstractWigProcessor {
         TrackHelper.fillBlocks(track, indexes -> new Wig(indexes.getLeft(), indexes.getRight()));
         String downsamplePath = fileManager.getWigFilePath(wigFile, chromosome);
         if (dontNeedToUseDownsampling(track, chromosome)) {
-            fillBlocksFromFile(wigFile.getPath(), track, chromosome.getName());
+            fillBlocksFromFile(wigFile.getId(), wigFile.getPath(), track, chromosome.getName());
         } else {
             if (downsamplePath == null) {
                 LOGGER.debug("Downsampled WIG for file {}:{} not found, using original", wigFile.getId(),
                         wigFile.getPath());
-                fillBlocksFromFile(wigFile.getPath(), track, chromosome.getName());
+                fillBlocksFromFile(wigFile.getId(), wigFile.getPath(), track, chromosome.getName());
             } else {
-                fillBlocksFromFile(downsamplePath, track, chromosome.getName());
+                fillBlocksFromFile(wigFile.getId(), downsamplePath, track, chromosome.getName());
             }
         }
         return track;
@@ -117,24 +121,29 @@ public class WigProcessor extends AbstractWigProcessor {
         return true;
     }
 
-    private void fillBlocksFromFile(final String filePath, final Track<Wig> track, final String chromosomeName)
-            throws IOException {
+    private void fillBlocksFromFile(final long fileId, final String filePath, final Track<Wig> track,
+                                    final String chromosomeName) throws IOException {
         LOGGER.debug(getMessage(MessagesConstants.DEBUG_FILE_READING, filePath));
         double time1 = Utils.getSystemTimeMilliseconds();
-        try (BigWigFile bigWigFile = readWig(filePath)) {
-            fillBlocksNew(track, chromosomeName, bigWigFile);
-        }
+        bigWigFileCache.read(fileId, filePath, bigWigFile -> {
+            fillBlocksFromBigWig(track, chromosomeName, bigWigFile);
+            return track;
+        });
         double time2 = Utils.getSystemTimeMilliseconds();
         LOGGER.debug("Reading from WIG file {}, took {} ms", filePath, time2 - time1);
     }
 
-    private BigWigFile readWig(final String wigFilePath) throws IOException {
+    static BigWigFile readWig(final String wigFilePath) throws IOException {
         return BigWigFile.read(wigFilePath, BigFile.PREFETCH_LEVEL_DETAILED, null, (path, byteOrder) ->
                 EndianSynchronizedBufferFactory.Companion.create(path, byteOrder,
                         BetterSeekableBufferedStream.DEFAULT_BUFFER_SIZE));
     }
 
-    private void fillBlocksNew(final Track<Wig> track, final String chromosomeName, final BigWigFile bigWigFile) {
+    /**
+     * Fills blocks of a track with values, summarized from a BigWig file
+     */
+    static void fillBlocksFromBigWig(final Track<Wig> track, final String chromosomeName,
+                                     final BigWigFile bigWigFile) {
         String realName = null;
         for (Object o : bigWigFile.getChromosomes().values()) {
             String chr = (String) o;
@@ -149,42 +158,54 @@ public class WigProcessor extends AbstractWigProcessor {
         if (realName == null) {
             LOGGER.info("Chromosome not found in big wig file");
         }
-        for (Wig wigElement : track.getBlocks()) {
-            double score = getNewArrays(bigWigFile, realName, wigElement.getStartIndex() - 1,
-                    wigElement.getEndIndex());
-            wigElement.setValue((float) score);
+        // blocks of a track have equal size, except for the last one, so the whole viewport
+        // is summarized with one or two multi-bin queries instead of a query per block
+        final List<Wig> blocks = track.getBlocks();
+        int from = 0;
+        while (from < blocks.size()) {
+            final int blockSize = getBlockSize(blocks.get(from));
+            int to = from + 1;
+            while (to < blocks.size() && getBlockSize(blocks.get(to)) == blockSize) {
+                to++;
+            }
+            fillBlocksFromSummaries(bigWigFile, realName, blocks.subList(from, to));
+            from = to;
         }
     }
 
-    private double getNewArrays(final BigWigFile bigWigFile, final String chrName, final int start, final int end) {
+    private static int getBlockSize(final Wig block) {
+        return block.getEndIndex() - block.getStartIndex() + 1;
+    }
+
+    private static void fillBlocksFromSummaries(final BigWigFile bigWigFile, final String chrName,
+                                                final List<Wig> blocks) {
+        List<BigSummary> summaries;
         try {
-            double res = 0.0;
-            res +=  queryWig(bigWigFile, chrName, start, end);
-            return res;
+            summaries = queryWig(bigWigFile, chrName, blocks.get(0).getStartIndex() - 1,
+                    blocks.get(blocks.size() - 1).getEndIndex(), blocks.size());
         } catch (IOException e) {
             LOGGER.debug(e.getMessage(), e);
-            return 0;
+            summaries = Collections.emptyList();
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            blocks.get(i).setValue(summaries.size() == blocks.size() ? (float) getValue(summaries.get(i)) : 0);
         }
     }
 
-    private double queryWig(BigWigFile bigWigFile, String chrName, int start, int end)
+    private static List<BigSummary> queryWig(BigWigFile bigWigFile, String chrName, int start, int end, int numBins)
             throws IOException {
-        List<BigSummary> summarize;
         try {
-            summarize = bigWigFile.summarize(chrName, start, end, 1, true, null);
+            return bigWigFile.summarize(chrName, start, end, numBins, true, null);
         } catch (NoSuchElementException e) {
             LOGGER.info(e.getMessage(), e);
-            return 0;
-        }
-        double res = 0.0;
-        for (BigSummary summary : summarize) {
-            double value = Math.abs(summary.getMaxValue()) > Math.abs(summary.getMinValue())
-                    ? summary.getMaxValue()
-                    : summary.getMinValue();
-            if (!Double.isNaN(value) && !Double.isInfinite(value)) {
-                res += value;
-            }
+            return Collections.emptyList();
         }
-        return res;
+    }
+
+    private static double getValue(final BigSummary summary) {
+        double value = Math.abs(summary.getMaxValue()) > Math.abs(summary.getMinValue())
+                ? summary.getMaxValue()
+                : summary.getMinValue();
+        return !Double.isNaN(value) && !Double.isInfinite(value) ? value : 0;
     }
 }
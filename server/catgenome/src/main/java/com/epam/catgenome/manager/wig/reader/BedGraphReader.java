@@ -26,11 +26,11 @@ package com.epam.catgenome.manager.wig.reader;
 
 import com.epam.catgenome.util.feature.reader.AbstractEnhancedFeatureReader;
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
+import htsjdk.tribble.CloseableTribbleIterator;
 import htsjdk.tribble.FeatureReader;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Iterator;
 
 /**
  * Helps to read BedGraph files.
@@ -57,7 +57,7 @@ public class BedGraphReader implements Closeable {
      * @return Iterator over all feature in the provided region
      * @throws IOException
      */
-    public Iterator<BedGraphFeature> query(String chromosome, int start, int stop) throws IOException {
+    public CloseableTribbleIterator<BedGraphFeature> query(String chromosome, int start, int stop) throws IOException {
         return reader.query(chromosome, start, stop);
     }
 
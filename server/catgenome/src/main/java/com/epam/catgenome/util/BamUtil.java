@@ -28,7 +28,7 @@ import java.io.IOException;
 import java.util.List;
 
 import com.epam.catgenome.manager.bam.BamHelper;
-import com.epam.catgenome.manager.bam.BamTrackEmitter;
+import com.epam.catgenome.manager.bam.ReadEmitter;
 import com.epam.catgenome.manager.bam.sifters.ConstantMemorySAMRecordSampler;
 import org.springframework.util.Assert;
 
@@ -42,6 +42,7 @@ import com.epam.catgenome.entity.bam.Read;
 import com.epam.catgenome.entity.bam.TrackDirectionType;
 import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.track.Track;
+import com.epam.catgenome.manager.bam.filters.Filter;
 import com.epam.catgenome.manager.bam.filters.LeftSAMRecordFilter;
 import com.epam.catgenome.manager.bam.filters.MiddleSAMRecordFilter;
 import com.epam.catgenome.manager.bam.filters.RightSAMRecordFilter;
@@ -132,32 +133,49 @@ public final class BamUtil {
      */
     public static Handler<SAMRecord> createSAMRecordHandler(final Track<Read> track, final BamQueryOption options,
                                                             final ReferenceManager referenceManager, boolean
-                                                                    coverageOnly, BamTrackEmitter trackEmitter)
+                                                                    coverageOnly, ReadEmitter trackEmitter)
     // TODO: int maxReadCount - decide reads or coverage by by read count
             throws IOException {
-        Handler<SAMRecord> filter;
-        final int startTrack = track.getStartIndex();
-        final int endTrack = track.getEndIndex();
+        return createSAMRecordHandler(track, options, referenceManager,
+                BamUtil.createSifter(track.getEndIndex(), options, coverageOnly, trackEmitter)); //maxReadCount
+    }
+
+    /**
+     * Factory method to create a SAMRecordHandler for a track, that passes filtered reads to the given sifter
+     * @param track a track to create Handler
+     * @param options options to determine, which Handler is neeeded
+     * @param referenceManager ReferenceManager is required for Handler construction
+     * @param sifter a sifter to downsample filtered reads
+     * @return a valid SAMRecordHandler for a track and options
+     * @throws IOException
+     */
+    public static SAMRecordHandler createSAMRecordHandler(final Track<Read> track, final BamQueryOption options,
+                                                          final ReferenceManager referenceManager,
+                                                          final DownsamplingSifter<SAMRecord> sifter)
+            throws IOException {
+        return new SAMRecordHandler(track.getStartIndex(), track.getEndIndex(), referenceManager,
+                createFilter(track, options, sifter), options);
+    }
+
+    /**
+     * Factory method to create a Filter, that selects reads of a track according to the track direction
+     * @param track a track to create Filter
+     * @param options options to determine, which Filter is neeeded
+     * @param sifter a sifter to downsample filtered reads
+     * @return a valid Filter for a track and options
+     */
+    public static Filter<SAMRecord> createFilter(final Track<Read> track, final BamQueryOption options,
+                                                 final DownsamplingSifter<SAMRecord> sifter) {
         switch (options.getTrackDirection()) {
             case LEFT:
-                filter = new SAMRecordHandler(startTrack, endTrack, referenceManager, new LeftSAMRecordFilter(endTrack,
-                        BamUtil.createSifter(endTrack, options, coverageOnly, trackEmitter)), options); //maxReadCount
-                break;
+                return new LeftSAMRecordFilter(track.getEndIndex(), sifter);
             case MIDDLE:
-                filter = new SAMRecordHandler(startTrack, endTrack, referenceManager, new MiddleSAMRecordFilter(
-                        BamUtil.createSifter(endTrack, options, coverageOnly, trackEmitter)), options); //maxReadCount
-                break;
+                return new MiddleSAMRecordFilter(sifter);
             case RIGHT:
-                filter = new SAMRecordHandler(startTrack, endTrack, referenceManager,
-                        new RightSAMRecordFilter(
-                                startTrack,
-                                BamUtil.createSifter(endTrack, options, coverageOnly, trackEmitter)),
-                        options); //maxReadCount
-                break;
+                return new RightSAMRecordFilter(track.getStartIndex(), sifter);
             default:
                 throw new IllegalArgumentException("Unexpected track direction: " + options.getTrackDirection());
         }
-        return filter;
     }
 
     /**
@@ -206,7 +224,7 @@ public final class BamUtil {
      * @return
      */
     public static DownsamplingSifter<SAMRecord> createSifter(final int end, final BamQueryOption options,
-                                                             boolean coverageOnly, BamTrackEmitter trackEmitter) {
+                                                             boolean coverageOnly, ReadEmitter trackEmitter) {
         // TODO: int maxReadCount - decide reads or coverage by by read count
         return options.isDownSampling() ? new ConstantMemorySAMRecordSampler(options.getFrame(), options.getCount(),
                 end, coverageOnly, trackEmitter) : new FullResultSifter(coverageOnly, trackEmitter);
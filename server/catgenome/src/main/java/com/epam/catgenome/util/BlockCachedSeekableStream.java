@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.util;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+
+import java.io.IOException;
+
+/**
+ * Seekable stream for a cloud object, that reads data by blocks from the shared {@link CloudBlockCache}.
+ * Seeking only moves the current position, data is requested from the cloud when a missing block is read.
+ */
+public class BlockCachedSeekableStream extends SeekableStream {
+
+    private static final int BYTE_MASK = 0xff;
+
+    private final CloudBlockCache cache;
+    private final CloudBlockCache.CloudObject object;
+    private final int blockSize;
+
+    private long position;
+    private long blockIndex = -1;
+    private byte[] block;
+
+    BlockCachedSeekableStream(final CloudBlockCache cache, final CloudBlockCache.CloudObject object) {
+        this.cache = cache;
+        this.object = object;
+        this.blockSize = cache.getBlockSize();
+    }
+
+    @Override
+    public long length() {
+        return object.getLength();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void seek(final long targetPosition) {
+        this.position = targetPosition;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (eof()) {
+            return -1;
+        }
+        final byte[] current = getCurrentBlock();
+        return current[(int) (position++ - blockIndex * blockSize)] & BYTE_MASK;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (eof()) {
+            return -1;
+        }
+        int read = 0;
+        while (read < length && !eof()) {
+            final byte[] current = getCurrentBlock();
+            final int blockOffset = (int) (position - blockIndex * blockSize);
+            final int count = Math.min(length - read, current.length - blockOffset);
+            System.arraycopy(current, blockOffset, buffer, offset + read, count);
+            read += count;
+            position += count;
+        }
+        return read;
+    }
+
+    @Override
+    public void close() {
+        block = null;
+    }
+
+    @Override
+    public boolean eof() {
+        return position >= length();
+    }
+
+    @Override
+    public String getSource() {
+        return object.getUri();
+    }
+
+    private byte[] getCurrentBlock() throws IOException {
+        final long index = position / blockSize;
+        if (block == null || index != blockIndex) {
+            final boolean sequential = index == blockIndex + 1;
+            block = cache.getBlock(object, index, sequential);
+            blockIndex = index;
+        }
+        return block;
+    }
+}
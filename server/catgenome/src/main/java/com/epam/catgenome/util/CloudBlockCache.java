@@ -0,0 +1,355 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.util;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Shared cache of fixed size aligned blocks of cloud objects (S3, Swift Stack and Azure blobs).
+ * Blocks are identified by object URI, object ETag and block index, so a changed object is never
+ * served from stale blocks. Seeking over a cached object doesn't issue new requests, sequential
+ * reads trigger asynchronous read-ahead and adjacent missing blocks are loaded with a single
+ * ranged request.
+ */
+@Slf4j
+public final class CloudBlockCache {
+
+    private static final int MEGABYTE = 1024 * 1024;
+    private static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    private static final int DEFAULT_CACHE_SIZE_MB = 256;
+    private static final int DEFAULT_READ_AHEAD_BLOCKS = 4;
+    private static final int DEFAULT_THREADS = 4;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static CloudBlockCache instance = new CloudBlockCache(true, DEFAULT_CACHE_SIZE_MB,
+            DEFAULT_BLOCK_SIZE, DEFAULT_READ_AHEAD_BLOCKS, DEFAULT_THREADS);
+
+    private final boolean enabled;
+    private final int blockSize;
+    private final int readAheadBlocks;
+    private final long maxBlocks;
+    private final Executor executor;
+    private final Map<BlockKey, byte[]> blocks = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private final Map<BlockKey, CompletableFuture<byte[]>> loading = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long rangeRequests;
+    private long prefetchedBlocks;
+
+    private CloudBlockCache(final boolean enabled, final int cacheSizeMb, final int blockSize,
+                            final int readAheadBlocks, final int threads) {
+        this(enabled, cacheSizeMb, blockSize, readAheadBlocks, createExecutor(threads));
+    }
+
+    CloudBlockCache(final boolean enabled, final int cacheSizeMb, final int blockSize,
+                    final int readAheadBlocks, final Executor executor) {
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+        this.readAheadBlocks = readAheadBlocks;
+        this.executor = executor;
+        this.maxBlocks = Math.max(1L, (long) cacheSizeMb * MEGABYTE / blockSize);
+    }
+
+    /**
+     * Replaces the shared cache with a new one, configured with the specified settings
+     * @param enabled if false, cloud streams are created without block caching
+     * @param cacheSizeMb max size in MB of cached blocks
+     * @param blockSize size of a block in bytes
+     * @param readAheadBlocks number of blocks loaded in advance for sequential reads
+     * @param threads number of threads, loading blocks in advance
+     * @return configured cache
+     */
+    public static synchronized CloudBlockCache configure(final boolean enabled, final int cacheSizeMb,
+                                                         final int blockSize, final int readAheadBlocks,
+                                                         final int threads) {
+        final CloudBlockCache previous = instance;
+        instance = new CloudBlockCache(enabled, cacheSizeMb, blockSize, readAheadBlocks, threads);
+        if (previous.executor instanceof ExecutorService) {
+            ((ExecutorService) previous.executor).shutdown();
+        }
+        return instance;
+    }
+
+    public static synchronized CloudBlockCache getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates a seekable stream for a cloud object, that reads data through the cache
+     * @param uri object URI
+     * @param etag object ETag, identifying the current version of the object
+     * @param length object size in bytes
+     * @param loader loads a range of the object, both ends of the range are inclusive
+     * @return seekable stream for the object
+     */
+    public SeekableStream openStream(final String uri, final String etag, final long length,
+                                     final RangeLoader loader) {
+        return new BlockCachedSeekableStream(this, new CloudObject(uri, etag == null ? "" : etag, length, loader));
+    }
+
+    public synchronized Statistics getStatistics() {
+        return new Statistics(blocks.size(), hits, misses, rangeRequests, prefetchedBlocks);
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns a block of an object, loading it if required. If the block is requested as a part
+     * of sequential reading, the following blocks are loaded in advance.
+     */
+    byte[] getBlock(final CloudObject object, final long index, final boolean sequential) throws IOException {
+        final BlockKey key = object.getKey(index);
+        CompletableFuture<byte[]> future;
+        List<CompletableFuture<byte[]>> reserved = null;
+        synchronized (this) {
+            final byte[] block = blocks.get(key);
+            if (block != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            future = block != null ? CompletableFuture.completedFuture(block) : loading.get(key);
+            if (future == null) {
+                reserved = reserve(object, index, 1);
+                future = reserved.get(0);
+            }
+        }
+        if (reserved != null) {
+            load(object, index, reserved);
+        }
+        if (sequential) {
+            readAhead(object, index + 1);
+        }
+        return await(future);
+    }
+
+    /**
+     * Loads in advance the first run of missing blocks within the read ahead window,
+     * starting from the specified block
+     */
+    private void readAhead(final CloudObject object, final long next) {
+        final long first;
+        final List<CompletableFuture<byte[]>> reserved;
+        synchronized (this) {
+            long missing = next;
+            while (missing < next + readAheadBlocks && isPresent(object.getKey(missing))) {
+                missing++;
+            }
+            first = missing;
+            reserved = first < next + readAheadBlocks
+                    ? reserve(object, first, readAheadBlocks) : Collections.emptyList();
+            prefetchedBlocks += reserved.size();
+        }
+        if (reserved.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(() -> loadQuietly(object, first, reserved));
+        } catch (RejectedExecutionException e) {
+            // the cache was reconfigured and its executor is shut down, while the stream is still open
+            release(object, first, reserved);
+        }
+    }
+
+    private boolean isPresent(final BlockKey key) {
+        return blocks.containsKey(key) || loading.containsKey(key);
+    }
+
+    /**
+     * Registers loading of a run of adjacent blocks, that are neither cached nor being loaded,
+     * starting from the specified block
+     */
+    private List<CompletableFuture<byte[]>> reserve(final CloudObject object, final long first, final int count) {
+        final List<CompletableFuture<byte[]>> reserved = new ArrayList<>(count);
+        for (long index = first; index < first + count && index < object.getBlockCount(blockSize); index++) {
+            final BlockKey key = object.getKey(index);
+            if (isPresent(key)) {
+                break;
+            }
+            final CompletableFuture<byte[]> future = new CompletableFuture<>();
+            loading.put(key, future);
+            reserved.add(future);
+        }
+        return reserved;
+    }
+
+    private void loadQuietly(final CloudObject object, final long first,
+                             final List<CompletableFuture<byte[]>> reserved) {
+        try {
+            load(object, first, reserved);
+        } catch (IOException e) {
+            log.debug("Failed to read ahead {} from block {}: {}", object.getUri(), first, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads a run of adjacent blocks with a single ranged request
+     */
+    private void load(final CloudObject object, final long first,
+                      final List<CompletableFuture<byte[]>> reserved) throws IOException {
+        final long from = first * blockSize;
+        final long to = Math.min(object.getLength(), (first + reserved.size()) * blockSize) - 1;
+        synchronized (this) {
+            rangeRequests++;
+        }
+        try (InputStream stream = object.getLoader().loadFromTo(object.getUri(), from, to)) {
+            for (int i = 0; i < reserved.size(); i++) {
+                final long blockStart = (first + i) * blockSize;
+                final byte[] block = new byte[(int) (Math.min(object.getLength(), blockStart + blockSize)
+                        - blockStart)];
+                IOUtils.readFully(stream, block);
+                complete(object.getKey(first + i), reserved.get(i), block);
+            }
+        } finally {
+            release(object, first, reserved);
+        }
+    }
+
+    /**
+     * Releases reserved blocks, that weren't loaded, so that waiting readers fail
+     * and the next request loads them again
+     */
+    private void release(final CloudObject object, final long first,
+                         final List<CompletableFuture<byte[]>> reserved) {
+        for (int i = 0; i < reserved.size(); i++) {
+            if (!reserved.get(i).isDone()) {
+                synchronized (this) {
+                    loading.remove(object.getKey(first + i));
+                }
+                reserved.get(i).completeExceptionally(
+                        new IOException("Failed to load data from " + object.getUri()));
+            }
+        }
+    }
+
+    private void complete(final BlockKey key, final CompletableFuture<byte[]> future, final byte[] block) {
+        synchronized (this) {
+            blocks.put(key, block);
+            loading.remove(key);
+            final Iterator<BlockKey> eldest = blocks.keySet().iterator();
+            while (blocks.size() > maxBlocks) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        future.complete(block);
+    }
+
+    private static byte[] await(final CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static ExecutorService createExecutor(final int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "cloud-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads a range of a cloud object, both ends of the range are inclusive
+     */
+    @FunctionalInterface
+    public interface RangeLoader {
+        InputStream loadFromTo(String uri, long from, long to) throws IOException;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static final class CloudObject {
+        private final String uri;
+        private final String etag;
+        private final long length;
+        private final RangeLoader loader;
+
+        BlockKey getKey(final long index) {
+            return new BlockKey(uri, etag, index);
+        }
+
+        long getBlockCount(final int blockSize) {
+            return (length + blockSize - 1) / blockSize;
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class BlockKey {
+        private final String uri;
+        private final String etag;
+        private final long index;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Statistics {
+        private final int cachedBlocks;
+        private final long hits;
+        private final long misses;
+        private final long rangeRequests;
+        private final long prefetchedBlocks;
+    }
+}
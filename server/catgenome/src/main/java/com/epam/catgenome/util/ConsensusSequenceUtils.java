@@ -29,10 +29,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.epam.catgenome.entity.NucleotideContent;
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.track.Track;
-import htsjdk.samtools.SAMRecord;
+import com.epam.catgenome.manager.bam.BasePileup;
 
 /**
  * Created: 6/3/2016
@@ -57,78 +56,39 @@ public final class ConsensusSequenceUtils {
     }
 
     /**
-     * Calculates consensus sequence
+     * Calculates consensus sequence from counts of bases, aligned to positions of track blocks
      * @param track a sequence track
-     * @param blockToReadsMap map of reads per nucleotide
+     * @param pileup counts of bases, aligned to positions of a track window
      */
-    public static void calculateConsensusSequence(final Track<Sequence> track,
-                                                  final Map<Sequence, List<SAMRecord>> blockToReadsMap) {
-        // For each range calculate consensus nucleotide.
+    public static void calculateConsensusSequence(final Track<Sequence> track, final BasePileup pileup) {
         for (Sequence sequence : track.getBlocks()) {
-            final List<SAMRecord> blockReads = blockToReadsMap.get(sequence);
-            final Map<String, Integer> atgcMap = new HashMap<>();
-            final NucleotideContent nucleotideContent = new NucleotideContent();
-
-
-            // Calculate frequencies.
-            if (blockReads == null || blockReads.isEmpty()) {
+            final int[] counts = pileup.getCounts(sequence.getStartIndex(), sequence.getEndIndex());
+            final int total = counts[BasePileup.A] + counts[BasePileup.C] + counts[BasePileup.G]
+                    + counts[BasePileup.T] + counts[BasePileup.N];
+            if (total == 0) {
                 continue;
             }
-            nucleotideContent.setTotalNumberOfNucleotides(calculateNucleotideFrequencies(blockReads, atgcMap,
-                    nucleotideContent));
-
-            String consensusNucleotide = checkFirstCriteria(atgcMap, nucleotideContent.getTotalNumberOfNucleotides());
-            if (consensusNucleotide == null) {
-                consensusNucleotide = checkSecondCriteria(atgcMap, nucleotideContent.getTotalNumberOfNucleotides());
-            }
-
-            // Otherwise
-            if (consensusNucleotide == null) {
-                consensusNucleotide = "N";
-            }
 
-            sequence.setText(consensusNucleotide);
+            final Map<String, Integer> atgcMap = new HashMap<>();
+            atgcMap.put("A", counts[BasePileup.A]);
+            atgcMap.put("T", counts[BasePileup.T]);
+            atgcMap.put("G", counts[BasePileup.G]);
+            atgcMap.put("C", counts[BasePileup.C]);
+            sequence.setText(getConsensusNucleotide(atgcMap, total));
         }
     }
 
-    private static Integer calculateNucleotideFrequencies(final List<SAMRecord> blockReads,
-                                                          final Map<String, Integer> atgcMap,
-                                                          final NucleotideContent nucleotideContent) {
-        for (SAMRecord read : blockReads) {
-            char[] nucleotides = read.getReadString().toCharArray();
-            if (nucleotides.length != 0) {
-                nucleotideContent.incTotalNumberOfNucleotides(nucleotides.length);
-                calculateCount(nucleotides, nucleotideContent);
-            }
+    private static String getConsensusNucleotide(final Map<String, Integer> atgcMap, final int total) {
+        String consensusNucleotide = checkFirstCriteria(atgcMap, total);
+        if (consensusNucleotide == null) {
+            consensusNucleotide = checkSecondCriteria(atgcMap, total);
         }
-        atgcMap.put("A", nucleotideContent.getACount());
-        atgcMap.put("T", nucleotideContent.getTCount());
-        atgcMap.put("G", nucleotideContent.getGCount());
-        atgcMap.put("C", nucleotideContent.getCCount());
-        return nucleotideContent.getTotalNumberOfNucleotides();
-    }
-
 
-    private static void calculateCount(final char[] nucleotides, final NucleotideContent nucleotideContent) {
-        for (char nucleotide : nucleotides) {
-            switch (Character.toUpperCase(nucleotide)) {
-                case 'A':
-                    nucleotideContent.incACount();
-                    break;
-                case 'T':
-                    nucleotideContent.incTCount();
-                    break;
-                case 'G':
-                    nucleotideContent.incGCount();
-                    break;
-                case 'C':
-                    nucleotideContent.incCCount();
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown nucleotide in the sequence: " + nucleotide);
-            }
+        // Otherwise
+        if (consensusNucleotide == null) {
+            consensusNucleotide = "N";
         }
-
+        return consensusNucleotide;
     }
 
     private static String checkSecondCriteria(Map<String, Integer> atgcMap, double totalNumberOfNucleotides) {
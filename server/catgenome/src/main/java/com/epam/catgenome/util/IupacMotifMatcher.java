@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.util;
+
+import java.util.Locale;
+
+/**
+ * A bit-parallel (Shift-And) matcher of fixed length IUPAC motifs, e.g. {@code tacyrw} or {@code ga[ct]n},
+ * over nucleotide byte arrays. Both strands are matched in a single pass: the negative strand is matched
+ * with a reverse complement copy of the motif, so a sequence is never copied or reversed.
+ * Motifs with regex quantifiers or longer than {@link #MAX_LENGTH} are not supported by this matcher
+ * and should be searched with {@link MotifSearcher}.
+ */
+public final class IupacMotifMatcher {
+
+    public static final int MAX_LENGTH = Long.SIZE;
+
+    private static final int ALPHABET_SIZE = 256;
+    private static final int BYTE_MASK = 0xFF;
+    private static final String[] IUPAC_CODES = {
+        "AA", "CC", "GG", "TT", "UT", "RAG", "YCT", "MAC", "KGT", "SCG", "WAT", "HACT", "BCGT", "VACG", "DAGT"
+    };
+    private static final String COMPLEMENTS = "ATCGRYKMBVDHSWN";
+    private static final String COMPLEMENTED = "TAGCYRMKVBHDSWN";
+
+    private static final long[] NO_MATCHES = new long[ALPHABET_SIZE];
+
+    private final long[] positiveMasks = new long[ALPHABET_SIZE];
+    private final long[] negativeMasks = new long[ALPHABET_SIZE];
+    private final int length;
+    private final long matchBit;
+
+    /**
+     * Receives matches found by {@link IupacMotifMatcher}
+     */
+    @FunctionalInterface
+    public interface MatchConsumer {
+        /**
+         * @param start index of the first matched base in a sequence
+         * @param end index of the last matched base in a sequence, inclusive
+         * @param positive true for a positive strand match, false for a negative one
+         * @return false to stop the search after matches ending at the same position are reported
+         */
+        boolean accept(int start, int end, boolean positive);
+    }
+
+    /**
+     * Creates a matcher for a motif
+     *
+     * @param motif IUPAC motif, optionally with character classes
+     * @throws IllegalArgumentException if the motif isn't supported, see {@link #isSupported(String)}
+     */
+    public IupacMotifMatcher(final String motif) {
+        final boolean[][] accepted = parse(motif);
+        if (accepted == null) {
+            throw new IllegalArgumentException("Not supported motif: " + motif);
+        }
+        this.length = accepted.length;
+        this.matchBit = 1L << (length - 1);
+        for (int i = 0; i < length; i++) {
+            for (int code = 0; code < ALPHABET_SIZE; code++) {
+                if (accepted[i][code]) {
+                    positiveMasks[code] |= 1L << i;
+                }
+                // the reverse complement of a matched interval should match the motif
+                if (accepted[length - 1 - i][complement(code)]) {
+                    negativeMasks[code] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if a motif consists only of IUPAC codes and character classes of them and isn't longer
+     * than {@link #MAX_LENGTH}
+     */
+    public static boolean isSupported(final String motif) {
+        return parse(motif) != null;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Searches motif matches, that start in the interval {@code [from, to)} of a sequence. Bases after
+     * {@code to} are used only to complete the matches, so adjacent chunks of a large sequence may be
+     * searched independently with an overlap of {@code getLength() - 1} bases. Matches are reported in order
+     * of their start positions, the search stops when the consumer returns false.
+     *
+     * @param sequence nucleotides char codes
+     * @param from index of the first base of the interval
+     * @param to index after the last base of the interval
+     * @param positive search matches on the positive strand
+     * @param negative search matches on the negative strand
+     * @param consumer receives matches
+     */
+    public void search(final byte[] sequence, final int from, final int to, final boolean positive,
+                       final boolean negative, final MatchConsumer consumer) {
+        final long[] positiveTable = positive ? positiveMasks : NO_MATCHES;
+        final long[] negativeTable = negative ? negativeMasks : NO_MATCHES;
+        final int last = Math.min(sequence.length, to + length - 1);
+        long positiveState = 0;
+        long negativeState = 0;
+        for (int i = from; i < last; i++) {
+            final int code = sequence[i] & BYTE_MASK;
+            positiveState = ((positiveState << 1) | 1L) & positiveTable[code];
+            negativeState = ((negativeState << 1) | 1L) & negativeTable[code];
+            if (((positiveState | negativeState) & matchBit) != 0) {
+                final int start = i - length + 1;
+                boolean proceed = true;
+                if ((positiveState & matchBit) != 0) {
+                    proceed = consumer.accept(start, i, true);
+                }
+                if ((negativeState & matchBit) != 0) {
+                    proceed &= consumer.accept(start, i, false);
+                }
+                if (!proceed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean[][] parse(final String motif) {
+        if (motif == null || motif.isEmpty()) {
+            return null;
+        }
+        final String upperCase = motif.toUpperCase(Locale.US);
+        final boolean[][] positions = new boolean[upperCase.length()][];
+        int count = 0;
+        int i = 0;
+        while (i < upperCase.length()) {
+            final boolean[] accepted = new boolean[ALPHABET_SIZE];
+            if (upperCase.charAt(i) == '[') {
+                final int close = upperCase.indexOf(']', i);
+                if (close <= i + 1) {
+                    return null;
+                }
+                for (int j = i + 1; j < close; j++) {
+                    if (!accept(accepted, upperCase.charAt(j))) {
+                        return null;
+                    }
+                }
+                i = close + 1;
+            } else {
+                if (!accept(accepted, upperCase.charAt(i))) {
+                    return null;
+                }
+                i++;
+            }
+            positions[count++] = accepted;
+        }
+        if (count > MAX_LENGTH) {
+            return null;
+        }
+        final boolean[][] result = new boolean[count][];
+        System.arraycopy(positions, 0, result, 0, count);
+        return result;
+    }
+
+    private static boolean accept(final boolean[] accepted, final char letter) {
+        if (letter == 'N') {
+            for (int code = 0; code < ALPHABET_SIZE; code++) {
+                accepted[code] = true;
+            }
+            return true;
+        }
+        for (String iupac : IUPAC_CODES) {
+            if (iupac.charAt(0) == letter) {
+                // the same as a regex, an ambiguity code in a sequence is matched by itself
+                acceptCaseInsensitive(accepted, letter);
+                for (int j = 1; j < iupac.length(); j++) {
+                    acceptCaseInsensitive(accepted, iupac.charAt(j));
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void acceptCaseInsensitive(final boolean[] accepted, final char base) {
+        accepted[base] = true;
+        accepted[Character.toLowerCase(base)] = true;
+    }
+
+    private static int complement(final int code) {
+        final int index = COMPLEMENTS.indexOf(Character.toUpperCase((char) code));
+        return index < 0 ? code : COMPLEMENTED.charAt(index);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.function.Predicate;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureReader;
+
+/**
+ * Reads a position index of a chromosome, written by {@link PositionIndexWriter}. The index holds starts and ends
+ * of features of a chromosome in the order of a file, so features are found by a binary search right in the index
+ * file, reading just a few records instead of scanning a feature file.
+ */
+public final class PositionIndex implements Closeable {
+
+    private static final int RECORD_BYTES = 3 * Integer.BYTES;
+
+    private static final int START = 0;
+    private static final int END = 1;
+    private static final int MAX_END = 2;
+
+    private final RandomAccessFile file;
+    private final int size;
+
+    public PositionIndex(final File indexFile) throws IOException {
+        this.file = new RandomAccessFile(indexFile, "r");
+        this.size = (int) (file.length() / RECORD_BYTES);
+    }
+
+    /**
+     * @return a number of features in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getStart(final int index) throws IOException {
+        return read(index, START);
+    }
+
+    public int getEnd(final int index) throws IOException {
+        return read(index, END);
+    }
+
+    /**
+     * @param position a position on a chromosome
+     * @return an index of the first feature, that starts after the position, or {@link #size()}, if there is no
+     * such feature
+     */
+    public int firstStartAfter(final int position) throws IOException {
+        return search(position, START);
+    }
+
+    /**
+     * Finds the first feature, that ends after a position. Ends of features aren't sorted, so the search goes by
+     * maximum end of all preceding features, which grows exactly on such a feature.
+     *
+     * @param position a position on a chromosome
+     * @return an index of the first feature, that ends after the position, or {@link #size()}, if there is no
+     * such feature
+     */
+    public int firstEndAfter(final int position) throws IOException {
+        return search(position, MAX_END);
+    }
+
+    /**
+     * Reads a feature, that is found in an index, from a feature file with a single targeted query. Several
+     * features may have the same start and end, so the feature is told from them by a number of such features,
+     * preceding it in the index.
+     *
+     * @param reader a reader of the feature file
+     * @param chromosomeName a name of a chromosome of the feature
+     * @param index an index of the feature
+     * @param filter a filter, that matches exactly the features of the file, that are held in the index
+     * @return the feature or null, if it isn't found in the file
+     */
+    public <T extends Feature> T readFeature(final FeatureReader<T> reader, final String chromosomeName,
+                                             final int index, final Predicate<T> filter) throws IOException {
+        final int start = getStart(index);
+        final int end = getEnd(index);
+        int rank = 0;
+        // features are sorted by start, so features with the same start are adjacent
+        for (int i = index - 1; i >= 0 && getStart(i) == start; i--) {
+            if (getEnd(i) == end) {
+                rank++;
+            }
+        }
+        try (CloseableIterator<T> iterator = Utils.query(reader, chromosomeName, start, start)) {
+            while (iterator.hasNext()) {
+                final T feature = iterator.next();
+                if (feature.getStart() > start) {
+                    break;
+                }
+                if (feature.getStart() == start && feature.getEnd() == end && filter.test(feature)) {
+                    if (rank == 0) {
+                        return feature;
+                    }
+                    rank--;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int search(final int position, final int field) throws IOException {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (read(middle, field) > position) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private int read(final int index, final int field) throws IOException {
+        file.seek((long) index * RECORD_BYTES + field * Integer.BYTES);
+        return file.readInt();
+    }
+}
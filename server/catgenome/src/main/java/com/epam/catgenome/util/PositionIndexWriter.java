@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.util;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epam.catgenome.entity.FeatureFile;
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.manager.FileManager;
+import htsjdk.tribble.Feature;
+
+/**
+ * Writes a position index of a feature file, that is read by {@link PositionIndex}: for each chromosome, a file
+ * with a start, an end and a maximum end so far of each feature. Features should be added in the order of a file.
+ * A chromosome, which features aren't sorted by start or aren't contiguous in a file, is left without an index,
+ * so it is navigated by the file itself. Indexes are kept only if a writer is finished, a writer, that is closed
+ * without being finished, because a file failed to be read, deletes indexes it wrote.
+ */
+public class PositionIndexWriter implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionIndexWriter.class);
+
+    private final FileManager fileManager;
+    private final FeatureFile featureFile;
+    private final Map<String, Chromosome> chromosomeMap;
+    private final Set<String> indexedChromosomes = new HashSet<>();
+
+    private String currentContig;
+    private Chromosome currentChromosome;
+    private DataOutputStream outputStream;
+    private int lastStart;
+    private int maxEnd;
+    private boolean finished;
+
+    /**
+     * @param fileManager a manager to create index files
+     * @param featureFile a file to index, it should already have an ID
+     * @param chromosomeMap chromosomes of a reference of the file by their names
+     */
+    public PositionIndexWriter(final FileManager fileManager, final FeatureFile featureFile,
+                               final Map<String, Chromosome> chromosomeMap) {
+        this.fileManager = fileManager;
+        this.featureFile = featureFile;
+        this.chromosomeMap = chromosomeMap;
+    }
+
+    /**
+     * Adds a feature to an index of its chromosome. Features of chromosomes, that are absent in a reference,
+     * are ignored.
+     */
+    public void add(final Feature feature) throws IOException {
+        if (!feature.getContig().equals(currentContig)) {
+            finishChromosome();
+            startChromosome(feature.getContig());
+        }
+        if (outputStream == null) {
+            return;
+        }
+        if (feature.getStart() < lastStart) {
+            LOGGER.debug("Features of {} aren't sorted in {}, skipping position index", currentContig,
+                    featureFile.getPath());
+            discardChromosome();
+            return;
+        }
+        lastStart = feature.getStart();
+        maxEnd = Math.max(maxEnd, feature.getEnd());
+        outputStream.writeInt(feature.getStart());
+        outputStream.writeInt(feature.getEnd());
+        outputStream.writeInt(maxEnd);
+    }
+
+    /**
+     * Completes the index of the last chromosome. It should be called, when all features are added successfully
+     */
+    public void finish() throws IOException {
+        finishChromosome();
+        finished = true;
+    }
+
+    /**
+     * Closes the index of the last chromosome. If the writer isn't finished, indexes of all chromosomes are deleted,
+     * so that a partial index is never used for navigation
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        finishChromosome();
+        for (String chromosomeName : indexedChromosomes) {
+            deleteIndex(chromosomeName);
+        }
+    }
+
+    private void startChromosome(final String contig) throws IOException {
+        currentContig = contig;
+        currentChromosome = Utils.getFromChromosomeMap(chromosomeMap, contig);
+        if (currentChromosome == null) {
+            return;
+        }
+        if (!indexedChromosomes.add(currentChromosome.getName())) {
+            discardChromosome();
+            return;
+        }
+        outputStream = fileManager.makePositionIndexOutputStream(featureFile, currentChromosome.getName());
+        lastStart = 0;
+        maxEnd = 0;
+    }
+
+    private void finishChromosome() throws IOException {
+        if (outputStream != null) {
+            outputStream.close();
+            outputStream = null;
+        }
+    }
+
+    private void discardChromosome() throws IOException {
+        finishChromosome();
+        deleteIndex(currentChromosome.getName());
+    }
+
+    private void deleteIndex(final String chromosomeName) {
+        final File indexFile = fileManager.getPositionIndexFile(featureFile, chromosomeName);
+        if (indexFile != null && !indexFile.delete()) {
+            LOGGER.warn("Failed to delete position index {}", indexFile.getAbsolutePath());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.amazonaws.services.s3.AmazonS3URI;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
@@ -25,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
 import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Date;
@@ -47,17 +49,13 @@ public final class S3Client {
 
     private static S3Client instance;
 
-    private final LoadingCache<String, Long> fileSizes = CacheBuilder.newBuilder()
+    private final LoadingCache<String, ObjectMetadata> objectMetadata = CacheBuilder.newBuilder()
             .maximumSize(CACHE_SIZE)
             .expireAfterWrite(1, TimeUnit.HOURS)
             .build(
-                    new CacheLoader<String, Long>() {
-                        public Long load(String key) {
-                            CloudType cloudType = getCloudType(key);
-                            AmazonS3URI obj = new AmazonS3URI(replaceSchema(key));
-                            return getAws(cloudType)
-                                    .getObjectMetadata(obj.getBucket(), obj.getKey())
-                                    .getContentLength();
+                    new CacheLoader<String, ObjectMetadata>() {
+                        public ObjectMetadata load(String key) {
+                            return loadMetadata(key);
                         }
                     });
 
@@ -92,6 +90,11 @@ public final class S3Client {
         return instance;
     }
 
+    private ObjectMetadata loadMetadata(String uri) {
+        AmazonS3URI obj = new AmazonS3URI(replaceSchema(uri));
+        return getAws(getCloudType(uri)).getObjectMetadata(obj.getBucket(), obj.getKey());
+    }
+
     public static boolean isS3Source(String inputUrl) {
         return inputUrl.startsWith(CloudType.S3.protocol) || inputUrl.startsWith(CloudType.SWS.protocol);
     }
@@ -143,7 +146,21 @@ public final class S3Client {
      * @return long value of the file size in bytes
      */
     public long getFileSize(String amazonURI){
-        return fileSizes.getUnchecked(amazonURI);
+        return objectMetadata.getUnchecked(amazonURI).getContentLength();
+    }
+
+    /**
+     * A method that requests the current file metadata, bypassing the metadata cache,
+     * and updates the cached metadata. ETag of the returned metadata identifies the current
+     * version of the file.
+     *
+     * @param amazonURI An s3 URI
+     * @return current metadata of the file
+     */
+    public ObjectMetadata getCurrentMetadata(String amazonURI) {
+        final ObjectMetadata metadata = loadMetadata(amazonURI);
+        objectMetadata.put(amazonURI, metadata);
+        return metadata;
     }
 
     /**
@@ -164,6 +181,29 @@ public final class S3Client {
         return new BufferedInputStream(objectStream);
     }
 
+    /**
+     * A method that creates an InputStream on a specific range of the file version
+     * with the specified ETag.
+     *
+     * @param url    target file URI
+     * @param etag   expected ETag of the file
+     * @param offset range start position
+     * @param end    range end position
+     * @return an InputStream object on the specific range of the file.
+     * @throws IOException if the file was changed and doesn't match the ETag anymore
+     */
+    public InputStream loadFromTo(String url, String etag, long offset, long end) throws IOException {
+        AmazonS3URI obj = new AmazonS3URI(replaceSchema(url));
+        GetObjectRequest rangeObjectRequest = new GetObjectRequest(obj.getBucket(), obj.getKey())
+                .withMatchingETagConstraint(etag);
+        rangeObjectRequest.setRange(offset, end);
+        S3Object s3Object = getAws(getCloudType(url)).getObject(rangeObjectRequest);
+        if (s3Object == null) {
+            throw new IOException("File " + url + " was changed while being read");
+        }
+        return new BufferedInputStream(s3Object.getObjectContent());
+    }
+
     /**
      * A method that creates an InputStream on a range
      * from a specific position to the end of the file.
@@ -26,7 +26,9 @@
 
 package com.epam.catgenome.util.aws;
 
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.util.IOUtils;
+import com.epam.catgenome.util.CloudBlockCache;
 import htsjdk.samtools.seekablestream.ISeekableStreamFactory;
 import htsjdk.samtools.seekablestream.SeekableBufferedStream;
 import htsjdk.samtools.seekablestream.SeekableMemoryStream;
@@ -54,7 +56,17 @@ public final class S3SeekableStreamFactory implements ISeekableStreamFactory {
 
     @Override
     public SeekableStream getStreamFor(String path) {
-        return new S3SeekableStream(path);
+        final CloudBlockCache blockCache = CloudBlockCache.getInstance();
+        if (!blockCache.isEnabled()) {
+            return new S3SeekableStream(path);
+        }
+        final S3Client client = S3Client.getInstance();
+        // the current version is requested on each opening, so that cached blocks of an overwritten
+        // object are never mixed with its new content
+        final ObjectMetadata metadata = client.getCurrentMetadata(path);
+        final String etag = metadata.getETag();
+        return blockCache.openStream(path, etag, metadata.getContentLength(),
+                (uri, from, to) -> client.loadFromTo(uri, etag, from, to));
     }
 
     @Override
@@ -28,7 +28,10 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobProperties;
 import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
 import com.azure.storage.blob.sas.BlobSasPermission;
 import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
 import com.azure.storage.common.StorageSharedKeyCredential;
@@ -39,6 +42,7 @@ import lombok.SneakyThrows;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.time.Duration;
@@ -81,6 +85,26 @@ public class AzureBlobClient {
         return client.openInputStream(blobRange, null);
     }
 
+    /**
+     * Creates an InputStream on a specific range of the blob version with the specified ETag
+     * @param uri blob URI
+     * @param etag expected ETag of the blob
+     * @param offset range start position
+     * @param end range end position, inclusive
+     * @return an InputStream on the range of the blob
+     * @throws IOException if the blob was changed and doesn't match the ETag anymore
+     */
+    public InputStream loadFromTo(final String uri, final String etag, final long offset, final long end)
+            throws IOException {
+        final BlobClient client = getBlobURL(uri);
+        final BlobRange blobRange = new BlobRange(offset, end - offset + 1);
+        try {
+            return client.openInputStream(blobRange, new BlobRequestConditions().setIfMatch(etag));
+        } catch (BlobStorageException e) {
+            throw new IOException("Failed to read blob " + uri, e);
+        }
+    }
+
     public boolean blobExists(String uri) {
         return getBlobURL(uri).exists();
     }
@@ -89,6 +113,13 @@ public class AzureBlobClient {
         return getBlobURL(uri).getProperties().getBlobSize();
     }
 
+    /**
+     * Requests current properties of the blob, including its size and ETag, with a single request
+     */
+    public BlobProperties getProperties(String uri) {
+        return getBlobURL(uri).getProperties();
+    }
+
     private BlobClient getBlobURL(final String uri) {
         final AzureBlobItem azureBlob = validateUri(uri);
         BlobContainerClient blobContainerClient = blobService.getBlobContainerClient(azureBlob.container);
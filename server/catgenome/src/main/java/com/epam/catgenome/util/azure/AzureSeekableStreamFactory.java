@@ -24,6 +24,8 @@
 
 package com.epam.catgenome.util.azure;
 
+import com.azure.storage.blob.models.BlobProperties;
+import com.epam.catgenome.util.CloudBlockCache;
 import htsjdk.samtools.seekablestream.ISeekableStreamFactory;
 import htsjdk.samtools.seekablestream.SeekableBufferedStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
@@ -48,7 +50,15 @@ public final class AzureSeekableStreamFactory implements ISeekableStreamFactory
 
     @Override
     public SeekableStream getStreamFor(String path) {
-        return new AzureBlobSeekableStream(path, AzureBlobClient.getClient());
+        final AzureBlobClient client = AzureBlobClient.getClient();
+        final CloudBlockCache blockCache = CloudBlockCache.getInstance();
+        if (!blockCache.isEnabled()) {
+            return new AzureBlobSeekableStream(path, client);
+        }
+        final BlobProperties properties = client.getProperties(path);
+        final String etag = properties.getETag();
+        return blockCache.openStream(path, etag, properties.getBlobSize(),
+                (uri, from, to) -> client.loadFromTo(uri, etag, from, to));
     }
 
     @Override
@@ -131,6 +131,15 @@ public class TabixFeatureReader<T extends Feature, S> extends AbstractFeatureRea
         }
     }
 
+    /**
+     * Replaces a codec, that decodes features of a file. The header is read by the original codec (or taken
+     * from the cache), so the new codec should be already initialized with a header from {@link #getHeader()}
+     * @param codec a codec to decode features
+     */
+    public void setCodec(final AsciiFeatureCodec codec) {
+        this.codec = codec;
+    }
+
     @Override
     public boolean hasIndex(){
         return true;
@@ -237,6 +237,15 @@ public class TribbleIndexedFeatureReader<T extends Feature, S> extends AbstractF
         return !this.hasIndex() ? new ArrayList<>() : new ArrayList<>(index.getSequenceNames());
     }
 
+    /**
+     * Replaces a codec, that decodes features of a file. The header is read by the original codec (or taken
+     * from the cache), so the new codec should be already initialized with a header from {@link #getHeader()}
+     * @param codec a codec to decode features
+     */
+    public void setCodec(final FeatureCodec<T, S> codec) {
+        this.codec = codec;
+    }
+
     @Override
     public boolean hasIndex() {
         if(index == null && this.needCheckForIndex){
@@ -28,10 +28,21 @@ import com.epam.catgenome.util.NgbFileUtils;
 import htsjdk.samtools.util.BlockCompressedInputStream;
 import htsjdk.samtools.util.BlockCompressedOutputStream;
 import htsjdk.samtools.util.CloseableIterator;
-import htsjdk.samtools.util.SortingCollection;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
 import htsjdk.tribble.readers.AsciiLineReader;
-
-import java.io.*;
+import htsjdk.tribble.util.LittleEndianOutputStream;
+import htsjdk.tribble.util.TabixUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.Comparator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -68,39 +79,67 @@ public abstract class AbstractFeatureSorter {
      *
      */
     public void run(int maxMemory) throws IOException {
+        run(maxMemory, 1);
+    }
+
+    /**
+     * Sorts records using several threads. If the output file is block compressed, a tabix index
+     * is written next to it in the same pass.
+     * @param maxMemory - in megabytes
+     * @param threads - a number of threads, that sort chunks of records
+     * @throws IOException
+     */
+    public void run(int maxMemory, int threads) throws IOException {
+        final boolean compressed = NgbFileUtils.isGzCompressed(outputFile.getName());
+        final Parser parser = getParser();
+        final int maxRecordsInRam = (int) Math.min(Integer.MAX_VALUE,
+                (long) maxMemory * 1024 * 1024 / ESTIMATED_RECORD_SIZE);
         try (
-                PrintWriter writer = NgbFileUtils.isGzCompressed(outputFile.getName()) ?
-                        new PrintWriter(new OutputStreamWriter(new BlockCompressedOutputStream(outputFile), UTF_8)) :
-                        new PrintWriter(outputFile, UTF_8);
+                OutputStream outputStream = compressed ? new BlockCompressedOutputStream(outputFile) :
+                        new BufferedOutputStream(new FileOutputStream(outputFile));
                 AsciiLineReader reader = NgbFileUtils.isGzCompressed(inputFile.getName()) ?
                         new AsciiLineReader(new BlockCompressedInputStream(inputFile)) :
-                        new AsciiLineReader(new FileInputStream(inputFile))
+                        new AsciiLineReader(new FileInputStream(inputFile));
+                ParallelRecordSorter sorter = new ParallelRecordSorter(parser, comparator, maxRecordsInRam,
+                        threads, tmpDir)
         ) {
-
-            SortableRecordCodec codec = new SortableRecordCodec();
-
-            SortingCollection cltn = SortingCollection.newInstance(
-                    SortableRecord.class, codec, comparator, maxMemory * 1024 * 1024 / ESTIMATED_RECORD_SIZE, tmpDir);
-
-            Parser parser = getParser();
-
-            String firstDataRow = writeHeader(reader, writer);
-            if (firstDataRow != null && !firstDataRow.isEmpty()) {
-                cltn.add(parser.createRecord(firstDataRow));
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream, UTF_8));
+            String line = writeHeader(reader, writer);
+            writer.flush();
+
+            while (line != null) {
+                if (parser.isRecord(line)) {
+                    sorter.add(line);
+                }
+                line = reader.readLine();
             }
 
-            SortableRecord next;
-            while ((next = parser.readNextRecord(reader)) != null) {
-                cltn.add(next);
+            final TabixIndexCreator indexCreator = compressed ? new TabixIndexCreator(getTabixFormat()) : null;
+            final byte[] lineSeparator = System.lineSeparator().getBytes(UTF_8);
+            try (CloseableIterator<SortableRecord> iterator = sorter.iterator()) {
+                while (iterator.hasNext()) {
+                    final SortableRecord record = iterator.next();
+                    if (indexCreator != null && record.getStart() != Integer.MAX_VALUE) {
+                        indexCreator.addFeature(parser.toFeature(record),
+                                ((BlockCompressedOutputStream) outputStream).getFilePointer());
+                    }
+                    outputStream.write(record.getText().getBytes(UTF_8));
+                    outputStream.write(lineSeparator);
+                }
             }
 
-            CloseableIterator<SortableRecord> iter = cltn.iterator();
-            while (iter.hasNext()) {
-                SortableRecord al = iter.next();
-                writer.println(al.getText());
-
+            if (indexCreator != null) {
+                outputStream.flush();
+                writeIndex(indexCreator.finalizeIndex(((BlockCompressedOutputStream) outputStream).getFilePointer()));
             }
-            iter.close();
+        }
+    }
+
+    private void writeIndex(final Index index) throws IOException {
+        final File indexFile = new File(outputFile.getAbsolutePath() + TabixUtils.STANDARD_INDEX_EXTENSION);
+        try (LittleEndianOutputStream indexStream =
+                     new LittleEndianOutputStream(new BlockCompressedOutputStream(indexFile))) {
+            index.write(indexStream);
         }
     }
 
@@ -117,6 +156,11 @@ public abstract class AbstractFeatureSorter {
 
     abstract Parser getParser() throws IOException;
 
+    /**
+     * @return a format of a tabix index of sorted records
+     */
+    abstract TabixFormat getTabixFormat();
+
     /**
      * Write the header to the output file. Since many readers can't help but read
      * one feature line, that line should be returned and will then be treated as a record
@@ -0,0 +1,312 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.util.sort;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sorts records, that may not fit into memory. Lines are collected into chunks, each chunk is parsed,
+ * sorted and spilled to a temporary run on a pool of threads, while the next chunk is read. Runs are
+ * merged by a k-way merge, if there are too many runs to open at once, groups of runs are merged
+ * in parallel beforehand. The last chunk isn't spilled, it is merged from memory. Records with equal
+ * keys keep the order of input lines.
+ */
+final class ParallelRecordSorter implements Closeable {
+
+    private static final int MAX_MERGED_RUNS = 256;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String RUN_PREFIX = "sort";
+    private static final String RUN_SUFFIX = ".run";
+
+    private final Parser parser;
+    private final Comparator<SortableRecord> comparator;
+    private final int chunkSize;
+    private final File tmpDir;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final List<Future<File>> runs = new ArrayList<>();
+    private final List<File> files = Collections.synchronizedList(new ArrayList<>());
+    private List<String> chunk = new ArrayList<>();
+
+    /**
+     * @param parser a parser of lines
+     * @param comparator an order of records
+     * @param maxRecordsInRam a number of records, that are kept in memory, including chunks being sorted
+     * @param threads a number of threads, that parse, sort and spill chunks
+     * @param tmpDir a directory for temporary runs
+     */
+    ParallelRecordSorter(final Parser parser, final Comparator<SortableRecord> comparator,
+                         final int maxRecordsInRam, final int threads, final File tmpDir) {
+        final int poolSize = Math.max(1, threads);
+        this.parser = parser;
+        this.comparator = comparator;
+        this.chunkSize = Math.max(1, maxRecordsInRam / (poolSize + 1));
+        this.tmpDir = tmpDir;
+        this.executor = Executors.newFixedThreadPool(poolSize);
+        this.permits = new Semaphore(poolSize);
+    }
+
+    /**
+     * Adds a line of a record. Blocks, when all threads are busy with previous chunks.
+     */
+    void add(final String line) throws IOException {
+        chunk.add(line);
+        if (chunk.size() >= chunkSize) {
+            final List<String> lines = chunk;
+            chunk = new ArrayList<>();
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            runs.add(executor.submit(() -> {
+                try {
+                    return writeRun(sort(lines).iterator());
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Finishes adding of lines and returns all records in sorted order
+     */
+    CloseableIterator<SortableRecord> iterator() throws IOException {
+        final List<SortableRecord> lastRun = sort(chunk);
+        chunk = null;
+        List<File> sortedRuns = getAll(runs);
+        while (sortedRuns.size() >= MAX_MERGED_RUNS) {
+            sortedRuns = mergeGroups(sortedRuns);
+        }
+        final List<Iterator<SortableRecord>> sources = new ArrayList<>(sortedRuns.size() + 1);
+        for (File run : sortedRuns) {
+            sources.add(new RunIterator(run));
+        }
+        sources.add(lastRun.iterator());
+        return new MergingIterator(sources, comparator);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        synchronized (files) {
+            files.forEach(FileUtils::deleteQuietly);
+        }
+    }
+
+    private List<SortableRecord> sort(final List<String> lines) {
+        final List<SortableRecord> records = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            records.add(parser.createRecord(line));
+        }
+        records.sort(comparator);
+        return records;
+    }
+
+    private List<File> mergeGroups(final List<File> sortedRuns) throws IOException {
+        final List<Future<File>> merged = new ArrayList<>();
+        for (int i = 0; i < sortedRuns.size(); i += MAX_MERGED_RUNS) {
+            final List<File> group = sortedRuns.subList(i, Math.min(i + MAX_MERGED_RUNS, sortedRuns.size()));
+            merged.add(executor.submit(() -> {
+                final List<Iterator<SortableRecord>> sources = new ArrayList<>(group.size());
+                for (File run : group) {
+                    sources.add(new RunIterator(run));
+                }
+                try (MergingIterator iterator = new MergingIterator(sources, comparator)) {
+                    return writeRun(iterator);
+                } finally {
+                    group.forEach(FileUtils::deleteQuietly);
+                }
+            }));
+        }
+        return getAll(merged);
+    }
+
+    private File writeRun(final Iterator<SortableRecord> records) throws IOException {
+        final File run = File.createTempFile(RUN_PREFIX, RUN_SUFFIX, tmpDir);
+        files.add(run);
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE)) {
+            final SortableRecordCodec codec = new SortableRecordCodec();
+            codec.setOutputStream(outputStream);
+            while (records.hasNext()) {
+                codec.encode(records.next());
+            }
+        }
+        return run;
+    }
+
+    private static List<File> getAll(final List<Future<File>> futures) throws IOException {
+        final List<File> result = new ArrayList<>(futures.size());
+        try {
+            for (Future<File> future : futures) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * Reads records of a spilled run
+     */
+    private static final class RunIterator implements CloseableIterator<SortableRecord> {
+
+        private final InputStream inputStream;
+        private final SortableRecordCodec codec = new SortableRecordCodec();
+        private SortableRecord next;
+
+        private RunIterator(final File run) throws IOException {
+            this.inputStream = new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE);
+            codec.setInputStream(inputStream);
+            next = codec.decode();
+            if (next == null) {
+                close();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public SortableRecord next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final SortableRecord record = next;
+            next = codec.decode();
+            if (next == null) {
+                close();
+            }
+            return record;
+        }
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Merges sorted sources, records with equal keys are taken from sources in the order of sources
+     */
+    private static final class MergingIterator implements CloseableIterator<SortableRecord> {
+
+        private final List<Iterator<SortableRecord>> sources;
+        private final PriorityQueue<Head> queue;
+
+        private MergingIterator(final List<Iterator<SortableRecord>> sources,
+                                final Comparator<SortableRecord> comparator) {
+            this.sources = sources;
+            this.queue = new PriorityQueue<>(Math.max(1, sources.size()), (o1, o2) -> {
+                final int result = comparator.compare(o1.record, o2.record);
+                return result != 0 ? result : Integer.compare(o1.index, o2.index);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                final Iterator<SortableRecord> source = sources.get(i);
+                if (source.hasNext()) {
+                    queue.add(new Head(i, source, source.next()));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public SortableRecord next() {
+            final Head head = queue.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            final SortableRecord record = head.record;
+            if (head.source.hasNext()) {
+                head.record = head.source.next();
+                queue.add(head);
+            }
+            return record;
+        }
+
+        @Override
+        public void close() {
+            for (Iterator<SortableRecord> source : sources) {
+                if (source instanceof CloseableIterator) {
+                    ((CloseableIterator<SortableRecord>) source).close();
+                }
+            }
+        }
+    }
+
+    private static final class Head {
+        private final int index;
+        private final Iterator<SortableRecord> source;
+        private SortableRecord record;
+
+        private Head(final int index, final Iterator<SortableRecord> source, final SortableRecord record) {
+            this.index = index;
+            this.source = source;
+            this.record = record;
+        }
+    }
+}
@@ -24,6 +24,8 @@
 
 package com.epam.catgenome.util.sort;
 
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.SimpleFeature;
 import htsjdk.tribble.readers.AsciiLineReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,13 +42,27 @@ public class Parser {
 
     private int chrCol;
     private int startCol;
+    private int endCol;
+    private int startOffset;
     private String commentPrefix;
 
     private static final Logger LOG = LoggerFactory.getLogger(SortableRecordCodec.class);
 
     public Parser(int chrCol, int startCol) {
+        this(chrCol, startCol, -1, 0);
+    }
+
+    /**
+     * @param chrCol a column of a chromosome
+     * @param startCol a column of a start position, records are sorted by
+     * @param endCol a column of an end position, used to index sorted records, -1 if there is no such column
+     * @param startOffset an offset, that converts a start position to a 1-based position of a feature
+     */
+    public Parser(int chrCol, int startCol, int endCol, int startOffset) {
         this.chrCol = chrCol;
         this.startCol = startCol;
+        this.endCol = endCol;
+        this.startOffset = startOffset;
         this.commentPrefix = "#";
     }
 
@@ -60,7 +76,7 @@ public class Parser {
         }
         if (nextLine == null) {
             return null;
-        } else if (isEmptyLine(nextLine) || nextLine.startsWith(commentPrefix)) {
+        } else if (!isRecord(nextLine)) {
             return readNextRecord(reader);
         }
 
@@ -84,6 +100,33 @@ public class Parser {
             start = Integer.MAX_VALUE;
         }
 
-        return new SortableRecord(chr, start, nextLine);
+        return new SortableRecord(chr, start, getEnd(fields, start), nextLine);
+    }
+
+    /**
+     * Checks if a line is a record, not an empty line or a comment
+     */
+    public boolean isRecord(String line) {
+        return !isEmptyLine(line) && !line.startsWith(commentPrefix);
+    }
+
+    /**
+     * Creates a feature of a record with 1-based inclusive coordinates, used to index sorted records
+     */
+    public Feature toFeature(SortableRecord record) {
+        final int featureStart = record.getStart() == Integer.MAX_VALUE ? record.getStart()
+                : record.getStart() + startOffset;
+        return new SimpleFeature(record.getChromosome(), featureStart, Math.max(featureStart, record.getEnd()));
+    }
+
+    protected int getEnd(String[] fields, int start) {
+        if (endCol < 0 || endCol >= fields.length) {
+            return start;
+        }
+        try {
+            return Integer.parseInt(fields[endCol].trim());
+        } catch (NumberFormatException e) {
+            return start;
+        }
     }
 }
@@ -24,7 +24,9 @@
 
 package com.epam.catgenome.util.sort;
 
+import htsjdk.tribble.index.tabix.TabixFormat;
 import htsjdk.tribble.readers.AsciiLineReader;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,7 +45,12 @@ public class VCFSorter extends AbstractFeatureSorter {
 
     @Override
     Parser getParser() {
-        return new Parser(0, 1);
+        return new VCFParser();
+    }
+
+    @Override
+    TabixFormat getTabixFormat() {
+        return TabixFormat.VCF;
     }
 
     @Override
@@ -63,4 +70,35 @@ public class VCFSorter extends AbstractFeatureSorter {
 
 
     }
+
+    /**
+     * Parses VCF records, an end of a record is determined by END attribute or by the length of a reference allele
+     */
+    private static final class VCFParser extends Parser {
+
+        private static final int REF_COL = 3;
+        private static final int INFO_COL = 7;
+        private static final String END_ATTRIBUTE = "END=";
+        private static final char INFO_SEPARATOR = ';';
+
+        private VCFParser() {
+            super(0, 1);
+        }
+
+        @Override
+        protected int getEnd(String[] fields, int start) {
+            if (fields.length > INFO_COL) {
+                for (String attribute : StringUtils.split(fields[INFO_COL], INFO_SEPARATOR)) {
+                    if (attribute.startsWith(END_ATTRIBUTE)) {
+                        try {
+                            return Integer.parseInt(attribute.substring(END_ATTRIBUTE.length()));
+                        } catch (NumberFormatException e) {
+                            LOG.debug("Invalid END attribute: {}", attribute);
+                        }
+                    }
+                }
+            }
+            return fields.length > REF_COL ? start + Math.max(fields[REF_COL].length(), 1) - 1 : start;
+        }
+    }
 }
@@ -4,6 +4,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
+import java.io.ByteArrayInputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -13,6 +14,10 @@ import java.util.Set;
 
 import com.epam.catgenome.controller.vo.ItemsByProject;
 import com.epam.catgenome.entity.index.IndexSearchResult;
+import com.epam.catgenome.manager.export.VcfExportFilterForm;
+import com.epam.catgenome.util.FileFormat;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -70,6 +75,7 @@ public class FilterControllerTest extends AbstractControllerTest {
     private static final String URL_FILTER = "/restapi/filter";
     private static final String URL_FILTER_INFO = "/restapi/filter/info";
     private static final String URL_FILTER_GROUP = "/restapi/filter/group";
+    private static final String URL_FILTER_EXPORT = "/restapi/filter/export";
 
     @Autowired
     private ReferenceGenomeManager referenceGenomeManager;
@@ -225,6 +231,36 @@ public class FilterControllerTest extends AbstractControllerTest {
         Assert.assertFalse(filterRes.getPayload().getEntries().isEmpty());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Throwable.class)
+    public void testExportCompressedVcf() throws Exception {
+        VcfExportFilterForm exportForm = new VcfExportFilterForm();
+        exportForm.setVcfFileIdsByProject(Collections.singletonMap(1L, Collections.singletonList(vcfFile.getId())));
+        exportForm.setExportFields(Arrays.asList("chromosome", "startIndex", "endIndex", "variationType"));
+
+        byte[] plain = exportVcf(exportForm, false);
+        byte[] compressed = exportVcf(exportForm, true);
+
+        Assert.assertTrue(plain.length > 0);
+        Assert.assertTrue(BlockCompressedInputStream.isValidFile(new ByteArrayInputStream(compressed)));
+        try (BlockCompressedInputStream stream = new BlockCompressedInputStream(
+                new ByteArrayInputStream(compressed))) {
+            Assert.assertArrayEquals(plain, IOUtils.toByteArray(stream));
+        }
+    }
+
+    private byte[] exportVcf(final VcfExportFilterForm exportForm, final boolean compressed) throws Exception {
+        return mvc()
+            .perform(post(URL_FILTER_EXPORT)
+                         .param("format", FileFormat.TSV.name())
+                         .param("includeHeader", Boolean.TRUE.toString())
+                         .param("compressed", Boolean.toString(compressed))
+                         .content(getObjectMapper().writeValueAsString(exportForm))
+                         .contentType(EXPECTED_CONTENT_TYPE))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Throwable.class)
     public void testGroupVariations() throws Exception {
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class FacetReaderStateCacheTest {
+
+    private static final String FIELD = "variationType";
+
+    private FacetReaderStateCache cache;
+    private Directory directory;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new FacetReaderStateCache();
+        directory = new RAMDirectory();
+        final FacetsConfig config = new FacetsConfig();
+        config.setIndexFieldName(FIELD, FeatureIndexDao.FeatureIndexFields.getFacetName(FIELD));
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (String value : new String[] {"SNV", "INS", "SNV"}) {
+                final Document document = new Document();
+                document.add(new SortedSetDocValuesFacetField(FIELD, value));
+                writer.addDocument(config.build(document));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        directory.close();
+    }
+
+    @Test
+    public void shouldReuseStateUntilReaderIsClosed() throws IOException {
+        final String facetField = FeatureIndexDao.FeatureIndexFields.getFacetName(FIELD);
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final SortedSetDocValuesReaderState state = cache.getState(reader, facetField);
+            Assert.assertNotNull(state);
+            Assert.assertEquals(2, state.getSize());
+            Assert.assertSame(state, cache.getState(reader, facetField));
+            Assert.assertNull(cache.getState(reader, "F_unknown"));
+
+            Assert.assertEquals(1, cache.getStatistics().getMisses());
+            Assert.assertEquals(1, cache.getStatistics().getHits());
+            Assert.assertEquals(1, cache.getStatistics().getCachedReaders());
+        }
+        Assert.assertEquals(0, cache.getStatistics().getCachedReaders());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.dao.index;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FeatureIndexDirectoryFactoryTest {
+
+    private static final String FIELD = "chromosome";
+    private static final String FIRST_VALUE = "1";
+    private static final String SECOND_VALUE = "2";
+    private static final int DOCUMENTS_COUNT = 3;
+
+    private Path indexPath;
+
+    @Before
+    public void setUp() throws IOException {
+        indexPath = Files.createTempDirectory("directory.luc");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(indexPath.toFile());
+    }
+
+    @Test
+    public void testDefaultDirectoryType() throws IOException {
+        final FeatureIndexDirectoryFactory factory = new FeatureIndexDirectoryFactory();
+        factory.init();
+        Assert.assertEquals(FeatureIndexDirectoryFactory.DirectoryType.SIMPLE, factory.getDirectoryType());
+        try (Directory directory = factory.openForRead(indexPath)) {
+            Assert.assertTrue(directory instanceof SimpleFSDirectory);
+        }
+    }
+
+    @Test
+    public void testSimpleDirectory() throws IOException {
+        testDirectoryType(FeatureIndexDirectoryFactory.DirectoryType.SIMPLE, SimpleFSDirectory.class);
+    }
+
+    @Test
+    public void testNioDirectory() throws IOException {
+        testDirectoryType(FeatureIndexDirectoryFactory.DirectoryType.NIO, NIOFSDirectory.class);
+    }
+
+    @Test
+    public void testMMapDirectory() throws IOException {
+        testDirectoryType(FeatureIndexDirectoryFactory.DirectoryType.MMAP, MMapDirectory.class);
+    }
+
+    @Test
+    public void testNrtCachingWriteDirectory() throws IOException {
+        final FeatureIndexDirectoryFactory factory =
+                new FeatureIndexDirectoryFactory(FeatureIndexDirectoryFactory.DirectoryType.NIO);
+        ReflectionTestUtils.setField(factory, "nrtCacheEnabled", true);
+        try (Directory directory = factory.openForWrite(indexPath)) {
+            Assert.assertTrue(directory instanceof NRTCachingDirectory);
+            writeDocuments(directory);
+        }
+        try (Directory directory = factory.openForRead(indexPath)) {
+            Assert.assertTrue(directory instanceof NIOFSDirectory);
+            assertDocuments(directory);
+        }
+    }
+
+    private void testDirectoryType(final FeatureIndexDirectoryFactory.DirectoryType type,
+                                   final Class<? extends Directory> directoryClass) throws IOException {
+        final FeatureIndexDirectoryFactory factory = new FeatureIndexDirectoryFactory(type);
+        Assert.assertEquals(type, factory.getDirectoryType());
+        try (Directory directory = factory.openForWrite(indexPath)) {
+            Assert.assertTrue(directoryClass.isInstance(directory));
+            writeDocuments(directory);
+        }
+        try (Directory directory = factory.openForRead(indexPath)) {
+            Assert.assertTrue(directoryClass.isInstance(directory));
+            assertDocuments(directory);
+        }
+    }
+
+    private void writeDocuments(final Directory directory) throws IOException {
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            writer.addDocument(createDocument(FIRST_VALUE));
+            writer.addDocument(createDocument(FIRST_VALUE));
+            writer.addDocument(createDocument(SECOND_VALUE));
+        }
+    }
+
+    private void assertDocuments(final Directory directory) throws IOException {
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            Assert.assertEquals(DOCUMENTS_COUNT, reader.numDocs());
+            Assert.assertEquals(2, searcher.count(new TermQuery(new Term(FIELD, FIRST_VALUE))));
+            Assert.assertEquals(1, searcher.count(new TermQuery(new Term(FIELD, SECOND_VALUE))));
+        }
+    }
+
+    private Document createDocument(final String value) {
+        final Document document = new Document();
+        document.add(new StringField(FIELD, value, Field.Store.YES));
+        return document;
+    }
+}
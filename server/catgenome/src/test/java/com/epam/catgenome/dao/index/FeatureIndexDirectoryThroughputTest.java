@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index;
+
+import com.epam.catgenome.entity.index.FeatureType;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares concurrent interval search throughput over a synthetic variations index for all supported
+ * {@link FeatureIndexDirectoryFactory.DirectoryType}s. Index size and number of queries may be increased
+ * with {@code -Dindex.throughput.documents} and {@code -Dindex.throughput.queries} to reproduce
+ * production-like load, e.g. a multi-million variant VCF index. It is a benchmark, so it is ignored
+ * by default and should be run manually.
+ */
+@Ignore("Benchmark, run manually to compare directory types")
+public class FeatureIndexDirectoryThroughputTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FeatureIndexDirectoryThroughputTest.class);
+
+    private static final int DOCUMENTS_COUNT = Integer.getInteger("index.throughput.documents", 100_000);
+    private static final int QUERIES_COUNT = Integer.getInteger("index.throughput.queries", 2_000);
+    private static final int CHROMOSOMES_COUNT = 4;
+    private static final int CHROMOSOME_LENGTH = 50_000_000;
+    private static final int QUERY_INTERVAL = 100_000;
+    private static final long SEED = 42L;
+    private static final double NANOS_IN_SECOND = 1e9;
+
+    private static Path indexPath;
+
+    @BeforeClass
+    public static void createIndex() throws IOException {
+        indexPath = Files.createTempDirectory("throughput.luc");
+        final Random random = new Random(SEED);
+        final FeatureIndexDirectoryFactory factory =
+                new FeatureIndexDirectoryFactory(FeatureIndexDirectoryFactory.DirectoryType.NIO);
+        try (Directory directory = factory.openForWrite(indexPath);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+                final int start = random.nextInt(CHROMOSOME_LENGTH);
+                final Document document = new Document();
+                document.add(new StringField(FeatureIndexDao.FeatureIndexFields.CHROMOSOME_ID.getFieldName(),
+                        String.valueOf(random.nextInt(CHROMOSOMES_COUNT)), Field.Store.NO));
+                document.add(new StringField(FeatureIndexDao.FeatureIndexFields.FEATURE_TYPE.getFieldName(),
+                        FeatureType.VARIATION.getFileValue(), Field.Store.NO));
+                document.add(new IntPoint(FeatureIndexDao.FeatureIndexFields.START_INDEX.getFieldName(), start));
+                document.add(new IntPoint(FeatureIndexDao.FeatureIndexFields.END_INDEX.getFieldName(), start + 1));
+                document.add(new StoredField(FeatureIndexDao.FeatureIndexFields.START_INDEX.getFieldName(), start));
+                writer.addDocument(document);
+            }
+        }
+    }
+
+    @AfterClass
+    public static void deleteIndex() throws IOException {
+        FileUtils.deleteDirectory(indexPath.toFile());
+    }
+
+    @Test
+    public void compareDirectoryTypes() throws Exception {
+        final List<Query> queries = createQueries();
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Map<FeatureIndexDirectoryFactory.DirectoryType, Long> hits =
+                new EnumMap<>(FeatureIndexDirectoryFactory.DirectoryType.class);
+        try {
+            for (FeatureIndexDirectoryFactory.DirectoryType type : FeatureIndexDirectoryFactory.DirectoryType
+                    .values()) {
+                final FeatureIndexReaderCache cache = new FeatureIndexReaderCache(
+                        new FeatureIndexDirectoryFactory(type));
+                try (MultiReader reader = cache.openMultiReader(Collections.singletonList(indexPath))) {
+                    // warm up
+                    runQueries(new IndexSearcher(reader), queries, executor);
+
+                    final long start = System.nanoTime();
+                    hits.put(type, runQueries(new IndexSearcher(reader), queries, executor));
+                    final double seconds = (System.nanoTime() - start) / NANOS_IN_SECOND;
+                    LOGGER.info("{} directory: {} documents, {} threads, {} queries/s", type, DOCUMENTS_COUNT,
+                            threads, Math.round(queries.size() / seconds));
+                } finally {
+                    cache.clear();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(1, hits.values().stream().distinct().count());
+    }
+
+    private List<Query> createQueries() {
+        final Random random = new Random(SEED);
+        final List<Query> queries = new ArrayList<>(QUERIES_COUNT);
+        for (int i = 0; i < QUERIES_COUNT; i++) {
+            final int start = random.nextInt(CHROMOSOME_LENGTH - QUERY_INTERVAL);
+            queries.add(IndexQueryUtils.intervalQuery(String.valueOf(random.nextInt(CHROMOSOMES_COUNT)),
+                    start, start + QUERY_INTERVAL,
+                    Collections.singletonList(FeatureType.VARIATION.getFileValue())));
+        }
+        return queries;
+    }
+
+    private long runQueries(final IndexSearcher searcher, final List<Query> queries,
+                            final ExecutorService executor) throws InterruptedException, ExecutionException {
+        final List<Callable<Integer>> tasks = new ArrayList<>(queries.size());
+        for (Query query : queries) {
+            tasks.add(() -> searcher.count(query));
+        }
+        long total = 0;
+        for (Future<Integer> future : executor.invokeAll(tasks)) {
+            total += future.get();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FeatureIndexReaderCacheTest {
+
+    private FeatureIndexReaderCache cache;
+    private Path firstIndex;
+    private Path secondIndex;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new FeatureIndexReaderCache(
+                new FeatureIndexDirectoryFactory(FeatureIndexDirectoryFactory.DirectoryType.MMAP));
+        firstIndex = Files.createTempDirectory("first.luc");
+        secondIndex = Files.createTempDirectory("second.luc");
+        addDocument(firstIndex, "1");
+        addDocument(secondIndex, "2");
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Test
+    public void shouldReuseOpenedIndexes() throws IOException {
+        try (MultiReader reader = cache.openMultiReader(Arrays.asList(firstIndex, secondIndex))) {
+            Assert.assertEquals(2, reader.numDocs());
+        }
+        try (MultiReader reader = cache.openMultiReader(Collections.singletonList(firstIndex))) {
+            Assert.assertEquals(1, reader.numDocs());
+        }
+
+        FeatureIndexReaderCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(2, statistics.getOpenedIndexes());
+        Assert.assertEquals(2, statistics.getMisses());
+        Assert.assertEquals(1, statistics.getHits());
+    }
+
+    @Test
+    public void shouldSeeChangesAfterRefresh() throws IOException {
+        try (MultiReader reader = cache.openMultiReader(Collections.singletonList(firstIndex))) {
+            Assert.assertEquals(1, reader.numDocs());
+
+            addDocument(firstIndex, "3");
+            cache.refresh(firstIndex);
+
+            // already opened reader is a point-in-time view
+            Assert.assertEquals(1, reader.numDocs());
+        }
+        try (MultiReader reader = cache.openMultiReader(Collections.singletonList(firstIndex))) {
+            Assert.assertEquals(2, reader.numDocs());
+        }
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedIndex() throws IOException {
+        ReflectionTestUtils.setField(cache, "maxOpenedIndexes", 1);
+
+        MultiReader inUse = cache.openMultiReader(Collections.singletonList(firstIndex));
+        cache.openMultiReader(Collections.singletonList(secondIndex)).close();
+
+        Assert.assertEquals(1, cache.getStatistics().getOpenedIndexes());
+        Assert.assertEquals(1, cache.getStatistics().getEvictions());
+        // evicted index is still readable by a search that acquired it before
+        Assert.assertEquals(1, inUse.document(0).getFields().size());
+        inUse.close();
+    }
+
+    private void addDocument(final Path indexPath, final String id) throws IOException {
+        try (Directory directory = new SimpleFSDirectory(indexPath);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer())
+                     .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND))) {
+            Document document = new Document();
+            document.add(new StringField(FeatureIndexDao.FeatureIndexFields.UID.getFieldName(), id,
+                    Field.Store.YES));
+            writer.addDocument(document);
+        }
+    }
+}
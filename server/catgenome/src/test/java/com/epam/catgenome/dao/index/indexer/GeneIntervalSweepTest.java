@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.dao.index.indexer;
+
+import com.epam.catgenome.dao.index.FeatureIndexDao;
+import com.epam.catgenome.dao.index.indexer.VcfFeatureIndexBuilder.VariationGeneInfo;
+import com.epam.catgenome.entity.gene.GeneFile;
+import com.epam.catgenome.entity.index.FeatureIndexEntry;
+import com.epam.catgenome.entity.index.FeatureType;
+import com.epam.catgenome.entity.index.IndexSearchResult;
+import com.epam.catgenome.entity.reference.Chromosome;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalTreeMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checks, that genes, found by a sweep, are the same as genes, found in an interval tree of the whole chromosome
+ */
+public class GeneIntervalSweepTest {
+
+    private static final String CHROMOSOME_NAME = "1";
+    private static final int CHROMOSOME_SIZE = 10_000_000;
+    /**
+     * Features as "id type start end". Windows of a sweep are 1 Mb long
+     */
+    private static final String[] FEATURES = {
+        // a gene with an exon at the start of the first window
+        "gene1 GENE 100 5000", "exon1 EXON 200 300",
+        // a gene, that spans several windows, with an exon in the third window
+        "gene2 GENE 900000 3500000", "exon2 EXON 2000000 2000100",
+        "gene3 GENE 1500000 1600000",
+        // genes with the same start
+        "gene4 GENE 4000000 4000100", "gene5 GENE 4000000 4500000",
+        "gene6 GENE 7000000 7000500",
+        // a feature, that is neither a gene, nor an exon
+        "cds1 CDS 7000100 7000200"
+    };
+    /**
+     * Variations as "start-end", ordered by start
+     */
+    private static final String[] ORDERED_VARIATIONS = {
+        // window start, a gene with an exon
+        "150-150", "250-260", "299-6000",
+        // no genes
+        "6000-6000",
+        // an end past the current window
+        "10000-1550000",
+        // window advance, a gene, that was loaded by the previous window
+        "1200000-1200000", "1550000-2000050",
+        // an exon of a gene, spanning windows
+        "2000000-2000000", "3400000-4000050",
+        // genes with the same start
+        "4000000-4000000", "4000100-4000101", "4400000-7000150",
+        "7000150-7000150", "9000000-9000000"
+    };
+    private static final String[] UNORDERED_VARIATIONS = {
+        "4000000-4000000", "150-150", "1550000-1550000", "7000000-7000000",
+        "2000000-4000050", "250-250", "4000050-4000050"
+    };
+
+    private final List<FeatureIndexEntry> features = new ArrayList<>();
+    private final IntervalTreeMap<List<FeatureIndexEntry>> tree = new IntervalTreeMap<>();
+    private FeatureIndexDao featureIndexDao;
+    private GeneFile geneFile;
+    private Chromosome chromosome;
+
+    @Before
+    public void setUp() throws IOException {
+        chromosome = new Chromosome(CHROMOSOME_NAME, CHROMOSOME_SIZE);
+        geneFile = new GeneFile();
+        for (String feature : FEATURES) {
+            final String[] fields = feature.split(" ");
+            addFeature(fields[0], FeatureType.valueOf(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]));
+        }
+
+        featureIndexDao = Mockito.mock(FeatureIndexDao.class);
+        Mockito.when(featureIndexDao.searchFeaturesInInterval(Matchers.any(), Matchers.anyInt(), Matchers.anyInt(),
+                Matchers.any())).thenAnswer(invocation -> {
+                    final int start = (Integer) invocation.getArguments()[1];
+                    final int end = (Integer) invocation.getArguments()[2];
+                    final List<FeatureIndexEntry> entries = features.stream()
+                            .filter(f -> f.getStartIndex() <= end && f.getEndIndex() >= start)
+                            .collect(Collectors.toList());
+                    return new IndexSearchResult<>(entries, false, entries.size());
+                });
+    }
+
+    @Test
+    public void sweepShouldFindSameGenesAsIntervalTree() {
+        assertSameGenes(ORDERED_VARIATIONS);
+    }
+
+    @Test
+    public void sweepShouldFindSameGenesForUnorderedVariations() {
+        assertSameGenes(UNORDERED_VARIATIONS);
+    }
+
+    private void assertSameGenes(final String[] variations) {
+        final GeneIntervalSweep sweep = new GeneIntervalSweep(featureIndexDao, geneFile, chromosome);
+        for (String variation : variations) {
+            final String[] bounds = variation.split("-");
+            final int start = Integer.parseInt(bounds[0]);
+            final int end = Integer.parseInt(bounds[1]);
+            Assert.assertEquals(variation, getTreeGenes(start, end),
+                    toStrings(sweep.getGeneIds(start, end)));
+        }
+    }
+
+    /**
+     * Finds genes of a variation in the same way, as variations were annotated before the sweep
+     */
+    private List<String> getTreeGenes(final int start, final int end) {
+        final Set<VariationGeneInfo> geneIds = getTreeGenes(start);
+        if (end > start) {
+            geneIds.addAll(getTreeGenes(end));
+        }
+        return toStrings(geneIds);
+    }
+
+    private Set<VariationGeneInfo> getTreeGenes(final int position) {
+        final Collection<FeatureIndexEntry> overlapping = tree.getOverlapping(
+                new Interval(CHROMOSOME_NAME, position, position)).stream()
+                .flatMap(List::stream)
+                .filter(f -> f.getFeatureType() == FeatureType.GENE || f.getFeatureType() == FeatureType.EXON)
+                .collect(Collectors.toList());
+        final boolean isExon = overlapping.stream().anyMatch(f -> f.getFeatureType() == FeatureType.EXON);
+        return overlapping.stream()
+                .filter(f -> f.getFeatureType() == FeatureType.GENE)
+                .map(f -> new VariationGeneInfo(f.getFeatureId(), f.getFeatureName().toUpperCase(), isExon))
+                .collect(Collectors.toSet());
+    }
+
+    private static List<String> toStrings(final Set<VariationGeneInfo> geneIds) {
+        return geneIds.stream()
+                .map(info -> info.geneId + ":" + info.geneName + ":" + info.isExon)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private void addFeature(final String id, final FeatureType type, final int start, final int end) {
+        final FeatureIndexEntry feature = new FeatureIndexEntry();
+        feature.setFeatureId(id);
+        feature.setFeatureName(id);
+        feature.setFeatureType(type);
+        feature.setStartIndex(start);
+        feature.setEndIndex(end);
+        feature.setChromosome(chromosome);
+        features.add(feature);
+        tree.computeIfAbsent(new Interval(CHROMOSOME_NAME, start, end), interval -> new ArrayList<>()).add(feature);
+    }
+}
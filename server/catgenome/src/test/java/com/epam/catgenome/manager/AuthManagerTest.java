@@ -24,11 +24,16 @@
 
 package com.epam.catgenome.manager;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import com.epam.catgenome.common.AbstractSecurityTest;
 import com.epam.catgenome.common.security.WithMockUserContext;
@@ -58,6 +63,37 @@ public class AuthManagerTest extends AbstractSecurityTest {
         Assert.assertEquals(TEST_USER_NAME, context.getUsername());
     }
 
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @WithMockUserContext(userName = TEST_USER_NAME)
+    public void testGetAuthorizedUserOrSessionReturnsUser() {
+        String sessionId = bindRequest();
+        String owner = authManager.getAuthorizedUserOrSession();
+        Assert.assertEquals(TEST_USER_NAME, owner);
+        Assert.assertNotEquals(sessionId, owner);
+    }
+
+    @Test
+    public void testGetAuthorizedUserOrSessionSeparatesAnonymousClients() {
+        String firstSession = bindRequest();
+        String firstOwner = authManager.getAuthorizedUserOrSession();
+        String secondSession = bindRequest();
+        String secondOwner = authManager.getAuthorizedUserOrSession();
+
+        Assert.assertEquals(firstSession, firstOwner);
+        Assert.assertEquals(secondSession, secondOwner);
+        Assert.assertNotEquals(firstOwner, secondOwner);
+    }
+
+    @Test
+    public void testGetAuthorizedUserOrSessionWithoutRequest() {
+        Assert.assertEquals(AuthManager.UNAUTHORIZED_USER, authManager.getAuthorizedUserOrSession());
+    }
+
     @Test
     public void testGetNoUserContext() {
         UserContext context = authManager.getUserContext();
@@ -73,4 +109,12 @@ public class AuthManagerTest extends AbstractSecurityTest {
         Assert.assertEquals(TEST_USER_NAME, claims.getUserName());
         Assert.assertEquals(TEST_USER_ID, claims.getUserId().longValue());
     }
-}
\ No newline at end of file
+
+    private String bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpSession session = new MockHttpSession();
+        request.setSession(session);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return session.getId();
+    }
+}
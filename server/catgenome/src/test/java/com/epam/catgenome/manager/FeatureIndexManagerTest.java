@@ -60,6 +60,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -118,6 +119,8 @@ import static org.junit.Assert.assertTrue;
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration({"classpath:applicationContext-test.xml"})
 public class FeatureIndexManagerTest extends AbstractManagerTest {
+    private static final String DEPTH_INFO_FIELD = "DP";
+    private static final int NUMERIC_RANGES = 2;
     private static final String CLASSPATH_TEMPLATES_FELIS_CATUS_VCF = "classpath:templates/Felis_catus.vcf";
     private static final String CLASSPATH_TEMPLATES_GENES_SORTED = "classpath:templates/genes_sorted.gtf";
     private static final String CLASSPATH_TEMPLATES_GENES_2 = "classpath:templates/genes_sorted_2.gtf";
@@ -148,6 +151,7 @@ public class FeatureIndexManagerTest extends AbstractManagerTest {
     private static final List<Float> TEST_QUALITY_BOUNDS = Arrays.asList(0.5F, 1.0F);
     private static final long TEST_AMOUNT = 78L;
     private static final long TEST_PAGE_SIZE = 5L;
+    private static final int EXPORT_BATCH_SIZE = 3;
     private static final long TEST_AMOUNT_OF_MRNA = 10L;
     private static final long TEST_AMOUNT_OF_GENE = 9L;
     private static final long TEST_AMOUNT_POSITION = 25L;
@@ -1595,6 +1599,44 @@ public class FeatureIndexManagerTest extends AbstractManagerTest {
         assertFalse(counts.isEmpty());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void testGroupingByNumericRanges() throws IOException {
+        final FeatureIndexedFileRegistrationRequest request = new FeatureIndexedFileRegistrationRequest();
+        request.setReferenceId(referenceId);
+        request.setPath(context.getResource("classpath:templates/samples.vcf").getFile().getAbsolutePath());
+        final VcfFile samplesVcf = vcfManager.registerVcfFile(request);
+
+        final VcfFilterForm form = new VcfFilterForm();
+        form.setVcfFileIdsByProject(Collections.singletonMap(testProject.getId(),
+                Collections.singletonList(samplesVcf.getId())));
+        final List<Group> depths = featureIndexManager.groupVariations(form, DEPTH_INFO_FIELD);
+        final List<Group> starts = featureIndexManager.groupVariations(form, VcfIndexSortField.START_INDEX.name());
+        assertTrue(depths.size() > NUMERIC_RANGES);
+        assertTrue(depths.stream().noneMatch(g -> g.getGroupName().startsWith("[")));
+
+        ReflectionTestUtils.setField(featureIndexDao, "luceneGroupingNumericRanges", NUMERIC_RANGES);
+        try {
+            final List<Group> depthRanges = featureIndexManager.groupVariations(form, DEPTH_INFO_FIELD);
+            assertTrue(depthRanges.size() <= NUMERIC_RANGES);
+            assertTrue(depthRanges.stream().allMatch(g -> g.getGroupName().startsWith("[")));
+            assertEquals(countEntries(depths), countEntries(depthRanges));
+
+            // built-in numeric fields are never grouped into ranges
+            final List<Group> startRanges = featureIndexManager.groupVariations(form,
+                    VcfIndexSortField.START_INDEX.name());
+            assertEquals(starts.size(), startRanges.size());
+            assertTrue(startRanges.size() > NUMERIC_RANGES);
+            assertTrue(startRanges.stream().noneMatch(g -> g.getGroupName().startsWith("[")));
+        } finally {
+            ReflectionTestUtils.setField(featureIndexDao, "luceneGroupingNumericRanges", 0);
+        }
+    }
+
+    private static int countEntries(final List<Group> groups) {
+        return groups.stream().mapToInt(Group::getEntriesCount).sum();
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void testMultipleVariationTypes() throws IOException {
@@ -1672,6 +1714,47 @@ public class FeatureIndexManagerTest extends AbstractManagerTest {
         assertNotNull(exportResult);
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void testExportVariationsInSeveralBatches() throws IOException {
+        final FeatureIndexedFileRegistrationRequest request = new FeatureIndexedFileRegistrationRequest();
+        request.setReferenceId(referenceId);
+        final Resource resource = context.getResource("classpath:templates/samples.vcf");
+        request.setPath(resource.getFile().getAbsolutePath());
+
+        final VcfFile samplesVcf = vcfManager.registerVcfFile(request);
+
+        final VcfExportFilterForm form = new VcfExportFilterForm();
+        form.setVcfFileIdsByProject(Collections.singletonMap(testProject.getId(),
+                Collections.singletonList(samplesVcf.getId())));
+        form.setExportFields(Arrays.asList("chromosome", "startIndex", "endIndex", "variationType"));
+        form.setOrderBy(Collections.singletonList(
+                new OrderBy(FeatureIndexDao.FeatureIndexFields.START_INDEX.name(), false)));
+
+        final Object exportPageSize = ReflectionTestUtils.getField(exportManager, "exportPageSize");
+        final List<String> exported;
+        try {
+            ReflectionTestUtils.setField(exportManager, "exportPageSize", EXPORT_BATCH_SIZE);
+            exported = Arrays.asList(new String(exportManager.exportVariations(form, FileFormat.TSV, false))
+                    .split(Utils.NEW_LINE));
+        } finally {
+            ReflectionTestUtils.setField(exportManager, "exportPageSize", exportPageSize);
+        }
+
+        final List<String> searched = new ArrayList<>();
+        form.setPageSize(EXPORT_BATCH_SIZE);
+        final int pagesCount = featureIndexManager.getTotalPagesCount(form);
+        for (int page = 1; page <= pagesCount; page++) {
+            form.setPage(page);
+            featureIndexManager.filterVariations(form).getEntries().forEach(entry -> searched.add(
+                    StringUtils.join(Arrays.asList(entry.getChromosome().getName(), entry.getStartIndex(),
+                            entry.getEndIndex(), entry.getVariationType()), FileFormat.TSV.getSeparator())));
+        }
+
+        assertTrue(exported.size() > EXPORT_BATCH_SIZE);
+        assertEquals(searched, exported);
+    }
+
     @Test
     @Ignore // TODO: remove this test before merging to master
     @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -125,6 +125,7 @@ public class GffManagerTest extends AbstractManagerTest {
     private static final int TEST_FEATURE_COUNT = 58;
 
     private static final String GENES_SORTED_GTF_PATH = "classpath:templates/genes_sorted.gtf";
+    private static final String GENES_SORTED_GFF_PATH = "classpath:templates/genes_sorted.gff3";
     private static final String GENBANK_PATH = "classpath:templates/KU131557.gbk";
     private static final String GBF_PATH = "classpath:templates/KU131557.gbf";
     private static final int TEST_END_INDEX = 239107476;
@@ -285,6 +286,60 @@ public class GffManagerTest extends AbstractManagerTest {
         assertIndexAndFileFeatures(featureList, fileFeatures);
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void testIndexedNavigationMatchesFileScan() throws IOException {
+        Resource resource = context.getResource(GENES_SORTED_GFF_PATH);
+
+        FeatureIndexedFileRegistrationRequest request = new FeatureIndexedFileRegistrationRequest();
+        request.setReferenceId(referenceId);
+        request.setPath(resource.getFile().getAbsolutePath());
+
+        GeneFile geneFile = gffManager.registerGeneFile(request);
+        File positionIndexFile = fileManager.getPositionIndexFile(geneFile, testChromosome.getName());
+        Assert.assertNotNull(positionIndexFile);
+
+        Track<Gene> track = new Track<>();
+        track.setId(geneFile.getId());
+        track.setStartIndex(1);
+        track.setEndIndex(TEST_END_INDEX);
+        track.setChromosome(testChromosome);
+        track.setScaleFactor(FULL_QUERY_SCALE_FACTOR);
+
+        // exons of different transcripts may have the same start and end, so positions around them
+        // check, that the same one of them is found
+        List<Integer> positions = new ArrayList<>();
+        for (Gene gene : geneTrackManager.loadGenesFromFile(track, false).getBlocks()) {
+            for (Gene mRna : ListUtils.emptyIfNull(gene.getItems())) {
+                for (Gene exon : ListUtils.emptyIfNull(mRna.getItems())) {
+                    if (GeneUtils.isExon(exon)) {
+                        positions.addAll(Arrays.asList(exon.getStartIndex() - 1, exon.getStartIndex(),
+                                exon.getStartIndex() + 1, exon.getEndIndex(), exon.getEndIndex() + 1));
+                    }
+                }
+            }
+        }
+        Assert.assertFalse(positions.isEmpty());
+
+        List<String> indexed = navigateExons(geneFile, positions);
+        Assert.assertTrue(positionIndexFile.delete());
+        Assert.assertNull(fileManager.getPositionIndexFile(geneFile, testChromosome.getName()));
+        Assert.assertEquals(navigateExons(geneFile, positions), indexed);
+    }
+
+    private List<String> navigateExons(GeneFile geneFile, List<Integer> positions) throws IOException {
+        List<String> exons = new ArrayList<>();
+        for (int position : positions) {
+            for (boolean forward : new boolean[] {true, false}) {
+                Gene exon = gffManager.getNextOrPreviousFeature(position, geneFile.getId(),
+                        testChromosome.getId(), forward);
+                exons.add(exon == null ? null
+                        : exon.getStartIndex() + ":" + exon.getEndIndex() + ":" + exon.getParentId());
+            }
+        }
+        return exons;
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void testDeleteGeneWithIndex() throws IOException, FeatureIndexException {
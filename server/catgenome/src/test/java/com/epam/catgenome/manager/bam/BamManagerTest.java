@@ -29,7 +29,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -48,6 +51,7 @@ import com.epam.catgenome.entity.bam.BamFile;
 import com.epam.catgenome.entity.bam.BamQueryOption;
 import com.epam.catgenome.entity.bam.BamTrack;
 import com.epam.catgenome.entity.bam.BamTrackMode;
+import com.epam.catgenome.entity.bam.BaseCoverage;
 import com.epam.catgenome.entity.bam.Read;
 import com.epam.catgenome.entity.bam.TrackDirectionType;
 import com.epam.catgenome.entity.bucket.Bucket;
@@ -55,6 +59,7 @@ import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.track.Track;
+import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.bucket.BucketManager;
 import com.epam.catgenome.manager.parallel.TaskExecutorService;
 import com.epam.catgenome.manager.reference.ReferenceManager;
@@ -77,6 +82,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -117,6 +123,12 @@ public class BamManagerTest extends AbstractManagerTest {
     @Autowired
     private TaskExecutorService taskExecutorService;
 
+    @Autowired
+    private BamCoverageManager bamCoverageManager;
+
+    @Autowired
+    private FileManager fileManager;
+
     private static final String TEST_NSAME = "BIG " + BamManagerTest.class.getSimpleName();
     private static final String TEST_REF_NAME = "//dm606.X.fa";
     private static final String TEST_BAM_NAME = "//agnX1.09-28.trim.dm606.realign.bam";
@@ -129,6 +141,9 @@ public class BamManagerTest extends AbstractManagerTest {
     private static final double SCALE_FACTOR_SMALL = 1.0;
     private static final double SCALE_FACTOR_LARGE = 0.0000625;
     private static final double SCALE_FACTOR_MEDIUM = 0.0105;
+    private static final int TEST_START_INDEX_COVERAGE_BINS = 12582913;
+    private static final int TEST_END_INDEX_COVERAGE_BINS = 12589312;
+    private static final double SCALE_FACTOR_COVERAGE_BINS = 0.03125;
     private static final int TEST_FRAME_SIZE = 30;
     private static final int LARGE_FRAME_SIZE = 12589188;
     private static final int TEST_COUNT = 30;
@@ -390,6 +405,113 @@ public class BamManagerTest extends AbstractManagerTest {
         Assert.assertEquals(read.getName(), loadedRead.getName());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testLoadTrackInSmileFormat() throws IOException {
+        final String path = resource.getFile().getAbsolutePath() + TEST_BAM_NAME;
+        IndexedFileRegistrationRequest request = new IndexedFileRegistrationRequest();
+        request.setPath(path);
+        request.setIndexPath(path + BAI_EXTENSION);
+        request.setName(TEST_NSAME);
+        request.setReferenceId(testReference.getId());
+        request.setType(BiologicalDataItemResourceType.FILE);
+
+        BamFile bamFile = bamManager.registerBam(request);
+        Track<Read> fullTrackQ = getBaseReadTrack(bamFile);
+
+        ResponseEmitterMock jsonEmitter = new ResponseEmitterMock();
+        bamManager.sendBamTrackToEmitter(fullTrackQ, getBaseBamQueryOption(), jsonEmitter,
+                BamTrackEmitter.Format.JSON);
+        ResponseEmitterMock smileEmitter = new ResponseEmitterMock();
+        bamManager.sendBamTrackToEmitter(fullTrackQ, getBaseBamQueryOption(), smileEmitter,
+                BamTrackEmitter.Format.SMILE);
+
+        Assert.assertEquals(BamTrackEmitter.Format.SMILE.getMediaType(), smileEmitter.getMediaType());
+        Assert.assertEquals(ResultReference.ResultStatus.OK.toString(), smileEmitter.getResultStatus());
+        BamTrack<Read> jsonTrack = jsonEmitter.getBamTrack();
+        BamTrack<Read> smileTrack = smileEmitter.getBamTrack();
+        Assert.assertFalse(smileTrack.getBlocks().isEmpty());
+        Assert.assertEquals(jsonTrack.getBlocks().size(), smileTrack.getBlocks().size());
+        Assert.assertEquals(jsonTrack.getBlocks().get(0).getName(), smileTrack.getBlocks().get(0).getName());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testLoadCoverageFromPyramid() throws IOException {
+        ReflectionTestUtils.setField(bamCoverageManager, "enabled", true);
+        ReflectionTestUtils.setField(bamCoverageManager, "async", false);
+        try {
+            final String path = resource.getFile().getAbsolutePath() + TEST_BAM_NAME;
+            IndexedFileRegistrationRequest request = new IndexedFileRegistrationRequest();
+            request.setPath(path);
+            request.setIndexPath(path + BAI_EXTENSION);
+            request.setName(TEST_NSAME);
+            request.setReferenceId(testReference.getId());
+            request.setType(BiologicalDataItemResourceType.FILE);
+
+            BamFile bamFile = bamManager.registerBam(request);
+            Assert.assertNotNull(fileManager.getBamCoverageFilePath(bamFile, testChromosome.getName()));
+
+            Track<Read> track = getBaseReadTrack(bamFile);
+            track.setStartIndex(TEST_START_INDEX_COVERAGE_BINS);
+            track.setEndIndex(TEST_END_INDEX_COVERAGE_BINS);
+            track.setScaleFactor(SCALE_FACTOR_COVERAGE_BINS);
+            BamQueryOption option = getBaseBamQueryOption();
+            option.setMode(BamTrackMode.COVERAGE);
+            option.setShowSpliceJunction(false);
+            // a pyramid is built from all reads, overlapping a chunk, without clipped bases
+            option.setTrackDirection(TrackDirectionType.MIDDLE);
+            option.setShowClipping(false);
+
+            ResponseEmitterMock pyramidEmitter = new ResponseEmitterMock();
+            bamManager.sendBamTrackToEmitter(track, option, pyramidEmitter);
+            Assert.assertEquals(ResultReference.ResultStatus.OK.toString(), pyramidEmitter.getResultStatus());
+            List<BaseCoverage> pyramidCoverage = pyramidEmitter.getBamTrack().getBaseCoverage();
+            Assert.assertFalse(pyramidCoverage.isEmpty());
+
+            ReflectionTestUtils.setField(bamCoverageManager, "enabled", false);
+            track.setScaleFactor(SCALE_FACTOR_SMALL);
+            ResponseEmitterMock bamEmitter = new ResponseEmitterMock();
+            bamManager.sendBamTrackToEmitter(track, option, bamEmitter);
+            List<BaseCoverage> bamCoverage = bamEmitter.getBamTrack().getBaseCoverage();
+
+            Assert.assertTrue(getMaxCoverage(bamCoverage) > 0);
+
+            // bins of a request are aligned to bins of a pyramid, so each holds max coverage of its bases
+            final int step = (int) Math.round(1 / SCALE_FACTOR_COVERAGE_BINS);
+            final Map<Integer, BaseCoverage> pyramidBins = pyramidCoverage.stream()
+                    .collect(Collectors.toMap(BaseCoverage::getStartIndex, Function.identity()));
+            for (int start = TEST_START_INDEX_COVERAGE_BINS; start <= TEST_END_INDEX_COVERAGE_BINS;
+                 start += step) {
+                final float expected = getMaxCoverage(bamCoverage, start, start + step - 1);
+                final BaseCoverage bin = pyramidBins.remove(start);
+                if (expected == 0) {
+                    Assert.assertNull(bin);
+                } else {
+                    Assert.assertNotNull(bin);
+                    Assert.assertEquals(start + step - 1, bin.getEndIndex().intValue());
+                    Assert.assertEquals(expected, bin.getValue(), 0);
+                }
+            }
+            Assert.assertTrue(pyramidBins.isEmpty());
+        } finally {
+            ReflectionTestUtils.setField(bamCoverageManager, "enabled", false);
+            ReflectionTestUtils.setField(bamCoverageManager, "async", true);
+        }
+    }
+
+    private static float getMaxCoverage(final List<BaseCoverage> coverage) {
+        return (float) coverage.stream().mapToDouble(BaseCoverage::getValue).max().orElse(0);
+    }
+
+    private static float getMaxCoverage(final List<BaseCoverage> coverage, final int start, final int end) {
+        return (float) coverage.stream()
+                .filter(c -> c.getStartIndex() <= end && c.getEndIndex() >= start)
+                .mapToDouble(BaseCoverage::getValue)
+                .max()
+                .orElse(0);
+    }
+
     @NotNull
     private BamQueryOption getBaseBamQueryOption() {
         BamQueryOption option = new BamQueryOption();
@@ -30,41 +30,50 @@ import com.epam.catgenome.entity.bam.Read;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.springframework.http.MediaType;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 class ResponseEmitterMock extends ResponseBodyEmitter {
 
     private static final ObjectMapper MAPPER = new JsonMapper();
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
 
-    @SuppressWarnings("PMD.AvoidStringBufferField")
-    private final StringBuilder buffer = new StringBuilder();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private MediaType mediaType;
 
     @Override
     public synchronized void send(Object object, MediaType mediaType) throws IOException {
-        if (mediaType != MediaType.TEXT_PLAIN || !(object instanceof String)) {
-            throw new IllegalArgumentException("Only text values are available for testing");
+        if (!(object instanceof byte[])) {
+            throw new IllegalArgumentException("Only binary values are available for testing");
         }
+        this.mediaType = mediaType;
+        buffer.write((byte[]) object);
+    }
 
-        String data = (String) object;
-        buffer.append(data);
+    public MediaType getMediaType() {
+        return mediaType;
     }
 
     public BamTrack<Read> getBamTrack() throws IOException {
-        JsonNode resultJson = MAPPER.readTree(buffer.toString());
-        JsonNode trackJson = resultJson.findValue("payload");
+        JsonNode trackJson = readResult().findValue("payload");
         return MAPPER.readValue(trackJson.toString(), new TypeReference<BamTrack<Read>>() {});
     }
 
     public String getResultStatus() throws IOException {
-        JsonNode resultJson = MAPPER.readTree(buffer.toString());
-        return resultJson.findValue("status").asText();
+        return readResult().findValue("status").asText();
     }
 
     public String getMessage() throws IOException {
-        JsonNode resultJson = MAPPER.readTree(buffer.toString());
-        return resultJson.findValue("message").asText();
+        return readResult().findValue("message").asText();
+    }
+
+    private JsonNode readResult() throws IOException {
+        final ObjectMapper mapper = BamTrackEmitter.Format.SMILE.getMediaType().equals(mediaType)
+                ? SMILE_MAPPER : MAPPER;
+        return mapper.readTree(buffer.toByteArray());
     }
 }
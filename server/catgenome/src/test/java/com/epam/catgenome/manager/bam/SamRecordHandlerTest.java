@@ -27,12 +27,18 @@ package com.epam.catgenome.manager.bam;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import com.epam.catgenome.common.AbstractManagerTest;
 import com.epam.catgenome.controller.vo.registration.ReferenceRegistrationRequest;
 import com.epam.catgenome.dao.BiologicalDataItemDao;
 import com.epam.catgenome.entity.bam.BamQueryOption;
 import com.epam.catgenome.entity.bam.BamTrackMode;
+import com.epam.catgenome.entity.bam.BaseCoverage;
+import com.epam.catgenome.entity.bam.Read;
 import com.epam.catgenome.entity.bam.TrackDirectionType;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.manager.bam.filters.Filter;
@@ -40,6 +46,7 @@ import com.epam.catgenome.manager.bam.filters.MiddleSAMRecordFilter;
 import com.epam.catgenome.manager.bam.handlers.SAMRecordHandler;
 import com.epam.catgenome.manager.bam.sifters.DownsamplingSifter;
 import com.epam.catgenome.manager.bam.sifters.FullResultSifter;
+import com.epam.catgenome.manager.bam.sifters.ShardsMergingSifter;
 import com.epam.catgenome.manager.parallel.TaskExecutorService;
 import com.epam.catgenome.manager.reference.ReferenceManager;
 import htsjdk.samtools.SAMRecord;
@@ -65,6 +72,8 @@ public class SamRecordHandlerTest extends AbstractManagerTest {
     private final int endTrack = 120;
     private final int readLength = 75;
     private final String chromosomeName = "X";
+    private final int shardSize = 40;
+    private final double scaleFactor = 0.1;
 
     @Autowired
     ApplicationContext context;
@@ -129,4 +138,103 @@ public class SamRecordHandlerTest extends AbstractManagerTest {
         Assert.assertEquals(2, recordHandler.getSifter().getFilteredReadsCount());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void shardsShouldProduceTheSameResultAsSingleHandler() throws IOException {
+        options.setMode(BamTrackMode.COVERAGE);
+        options.setShowSpliceJunction(true);
+        final List<SAMRecord> records = Arrays.asList(
+                set.addFrag("read1", 0, 2, false, false, "6S69M", "*", 151),
+                set.addFrag("read2", 0, 30, false, false, "20M10D55M", "*", 151),
+                set.addFrag("read3", 0, 35, false, false, "10M20N65M", "*", 151),
+                set.addFrag("read4", 0, 38, true, false, "10M20N65M", "*", 151),
+                set.addFrag("read5", 0, 70, false, false, "30M5I40M", "*", 151),
+                set.addFrag("read6", 0, 85, false, false, "75M", "*", 151));
+
+        final List<Read> reads = new ArrayList<>();
+        final SAMRecordHandler handler = new SAMRecordHandler(1, endTrack, referenceManager,
+                new MiddleSAMRecordFilter(new FullResultSifter(false, reads::add)), options);
+        for (SAMRecord record : records) {
+            handler.add(record);
+        }
+
+        final List<Read> shardsReads = new ArrayList<>();
+        final ShardsMergingSifter mergingSifter = new ShardsMergingSifter(shardsReads::add);
+        final SAMRecordHandler shardedHandler = new SAMRecordHandler(1, endTrack, referenceManager,
+                new MiddleSAMRecordFilter(mergingSifter), options);
+        final List<SAMRecordHandler> shards = new ArrayList<>();
+        for (int start = 1; start <= endTrack; start += shardSize) {
+            final int end = Math.min(start + shardSize - 1, endTrack);
+            final SAMRecordHandler shard = shardedHandler.createShard(start, end,
+                    new MiddleSAMRecordFilter(mergingSifter.createShardSifter(end, options, false)));
+            for (SAMRecord record : records) {
+                if (record.getStart() <= end && record.getEnd() >= start) {
+                    shard.add(record);
+                }
+            }
+            shard.getSifter().finish();
+            shards.add(shard);
+        }
+        shardedHandler.mergeShards(shards);
+        mergingSifter.finish();
+
+        Assert.assertEquals(toString(handler.getBaseCoverage(1.0)), toString(shardedHandler.getBaseCoverage(1.0)));
+        Assert.assertEquals(toString(handler.getBaseCoverage(scaleFactor)),
+                toString(shardedHandler.getBaseCoverage(scaleFactor)));
+        Assert.assertEquals(2, shardedHandler.getSpliceJunctions().size());
+        Assert.assertEquals(
+                handler.getSpliceJunctions().stream().map(j -> j.getStart() + "-" + j.getEnd() + ":" + j.getCount())
+                        .collect(Collectors.toList()),
+                shardedHandler.getSpliceJunctions().stream()
+                        .map(j -> j.getStart() + "-" + j.getEnd() + ":" + j.getCount())
+                        .collect(Collectors.toList()));
+        Assert.assertEquals(reads.stream().map(Read::getName).collect(Collectors.toList()),
+                shardsReads.stream().map(Read::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void mergingSifterShouldPassRecordsToShardsByStart() throws IOException {
+        options.setMode(BamTrackMode.COVERAGE);
+        final List<SAMRecord> records = Arrays.asList(
+                set.addFrag("read1", 0, 2, false, false, "75M", "*", 151),
+                set.addFrag("read2", 0, 41, false, false, "75M", "*", 151),
+                set.addFrag("read3", 0, 40, false, false, "75M", "*", 151),
+                set.addFrag("read4", 0, 119, false, false, "75M", "*", 151));
+
+        final List<Read> reads = new ArrayList<>();
+        final SAMRecordHandler handler = new SAMRecordHandler(1, endTrack, referenceManager,
+                new MiddleSAMRecordFilter(new FullResultSifter(false, reads::add)), options);
+        final List<Read> shardsReads = new ArrayList<>();
+        final ShardsMergingSifter mergingSifter = new ShardsMergingSifter(shardsReads::add);
+        final SAMRecordHandler mergingHandler = new SAMRecordHandler(1, endTrack, referenceManager,
+                new MiddleSAMRecordFilter(mergingSifter), options);
+        final List<DownsamplingSifter<SAMRecord>> shardSifters = new ArrayList<>();
+        for (int start = 1; start <= endTrack; start += shardSize) {
+            shardSifters.add(mergingSifter.createShardSifter(Math.min(start + shardSize - 1, endTrack), options,
+                    false));
+        }
+        for (SAMRecord record : records) {
+            handler.add(record);
+            mergingHandler.add(record);
+        }
+        handler.getSifter().finish();
+        for (DownsamplingSifter<SAMRecord> shardSifter : shardSifters) {
+            shardSifter.finish();
+        }
+        mergingSifter.finish();
+
+        Assert.assertEquals(Arrays.asList(2, 1, 1),
+                shardSifters.stream().map(DownsamplingSifter::getFilteredReadsCount).collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList("read1", "read3", "read2", "read4"),
+                shardsReads.stream().map(Read::getName).collect(Collectors.toList()));
+        Assert.assertEquals(reads.size(), shardsReads.size());
+    }
+
+    private static List<String> toString(final List<BaseCoverage> coverage) {
+        return coverage.stream()
+                .map(c -> c.getStartIndex() + "-" + c.getEndIndex() + ":" + c.getValue())
+                .collect(Collectors.toList());
+    }
+
 }
@@ -64,6 +64,7 @@ import com.epam.catgenome.entity.wig.Wig;
 import com.epam.catgenome.exception.FeatureFileReadingException;
 import com.epam.catgenome.exception.HistogramReadingException;
 import com.epam.catgenome.helper.EntityHelper;
+import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.reference.ReferenceGenomeManager;
 
 import htsjdk.tribble.TribbleException;
@@ -116,6 +117,9 @@ public class BedManagerTest extends AbstractManagerTest {
     @Autowired
     private BiologicalDataItemDao biologicalDataItemDao;
 
+    @Autowired
+    private FileManager fileManager;
+
     @Autowired
     private ApplicationContext context;
 
@@ -330,6 +334,42 @@ public class BedManagerTest extends AbstractManagerTest {
         }
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void testGetNextOrPreviousFeature() throws IOException, FeatureFileReadingException {
+        BedFile bedFile = testRegisterBed(GENES_SORTED_BED_PATH);
+        File positionIndexFile = fileManager.getPositionIndexFile(bedFile, testChromosome.getName());
+        Assert.assertNotNull(positionIndexFile);
+
+        Track<BedRecord> track = new Track<>();
+        track.setScaleFactor(FULL_QUERY_SCALE_FACTOR);
+        track.setStartIndex(1);
+        track.setEndIndex(TEST_END_INDEX);
+        track.setChromosome(testChromosome);
+        track.setId(bedFile.getId());
+        List<BedRecord> records = bedManager.loadFeatures(track).getBlocks();
+        int middle = records.size() / 2;
+        while (records.get(middle).getStartIndex().equals(records.get(middle + 1).getStartIndex())) {
+            middle++;
+        }
+        BedRecord first = records.get(middle);
+        BedRecord second = records.get(middle + 1);
+
+        BedRecord next = bedManager.getNextOrPreviousFeature(first.getStartIndex(), bedFile.getId(),
+                testChromosome.getId(), true);
+        BedRecord prev = bedManager.getNextOrPreviousFeature(second.getStartIndex(), bedFile.getId(),
+                testChromosome.getId(), false);
+        Assert.assertEquals(second.getStartIndex(), next.getStartIndex());
+        Assert.assertEquals(first.getStartIndex(), prev.getStartIndex());
+
+        // files without a position index are navigated by the file itself
+        Assert.assertTrue(positionIndexFile.delete());
+        Assert.assertEquals(next.getStartIndex(), bedManager.getNextOrPreviousFeature(first.getStartIndex(),
+                bedFile.getId(), testChromosome.getId(), true).getStartIndex());
+        Assert.assertEquals(prev.getStartIndex(), bedManager.getNextOrPreviousFeature(second.getStartIndex(),
+                bedFile.getId(), testChromosome.getId(), false).getStartIndex());
+    }
+
     private BedFile testRegisterBed(String path) throws IOException {
         Resource resource = context.getResource(path);
 
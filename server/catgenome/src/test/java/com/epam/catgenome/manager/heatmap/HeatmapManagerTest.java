@@ -27,8 +27,11 @@ import com.epam.catgenome.controller.vo.registration.HeatmapRegistrationRequest;
 import com.epam.catgenome.entity.BiologicalDataItemResourceType;
 import com.epam.catgenome.entity.heatmap.Heatmap;
 import com.epam.catgenome.entity.heatmap.HeatmapDataType;
+import com.epam.catgenome.entity.heatmap.HeatmapRegion;
 import com.epam.catgenome.entity.heatmap.HeatmapTree;
+import com.epam.catgenome.manager.FileManager;
 import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Before;
@@ -38,8 +41,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -50,12 +57,18 @@ public class HeatmapManagerTest extends TestCase {
     private static final int CONTENT_SIZE = 6;
     private static final double MAX_CELL_VALUE = 0.001276598;
     private static final double MIN_CELL_VALUE = 0.0;
+    private static final int TILE_SIZE = 4;
+    private static final float DELTA = 1e-9f;
+    private static final int REGION_MAX_SIZE = 2;
     private static final String GENE_1_LABEL = "gene1";
     private static final String GENE_1_ANNOTATION = "test1";
 
     @Autowired
     private HeatmapManager heatmapManager;
 
+    @Autowired
+    private FileManager fileManager;
+
     @Autowired
     private ApplicationContext context;
 
@@ -104,6 +117,57 @@ public class HeatmapManagerTest extends TestCase {
         assertNotNull(tree);
     }
 
+    @Test
+    public void getContentRegionTest() throws IOException {
+        Heatmap heatmap = registerHeatmap("getContentRegionTest");
+        List<List<List<String>>> content = heatmapManager.getContent(heatmap.getHeatmapId());
+        HeatmapRegion region = heatmapManager.getContentRegion(heatmap.getHeatmapId(),
+                1, CONTENT_SIZE - 1, 0, 2, 0);
+        assertEquals(CONTENT_SIZE - 1, region.getValues().size());
+        assertEquals(3, region.getValues().get(0).size());
+        for (int i = 0; i < region.getValues().size(); i++) {
+            for (int j = 0; j < region.getValues().get(i).size(); j++) {
+                String value = content.get(i + 1).get(j).get(0);
+                Object cell = region.getValues().get(i).get(j);
+                assertEquals(value == null ? null : Float.valueOf(value), cell);
+            }
+        }
+    }
+
+    @Test
+    public void readZoomedTilesTest() throws IOException {
+        Heatmap heatmap = registerHeatmap("readZoomedTilesTest");
+        List<List<List<String>>> content = heatmapManager.getContent(heatmap.getHeatmapId());
+        File directory = Files.createTempDirectory("heatmap").toFile();
+        try {
+            try (HeatmapTileWriter writer = new HeatmapTileWriter(directory, CONTENT_SIZE, CONTENT_SIZE,
+                    TILE_SIZE, HeatmapDataType.DOUBLE)) {
+                for (List<List<String>> row : content) {
+                    writer.addRow(row.stream().map(cell -> cell.get(0)).toArray(String[]::new));
+                }
+                assertEquals(2, writer.getLevelCount());
+            }
+            HeatmapRegion region = HeatmapTileReader.read(directory, 1, HeatmapDataType.DOUBLE,
+                    0, CONTENT_SIZE - 1, 0, CONTENT_SIZE - 1);
+            assertEquals(2, region.getScale());
+            assertEquals(CONTENT_SIZE / 2, region.getValues().size());
+            assertEquals(CONTENT_SIZE / 2, region.getValues().get(0).size());
+            for (int i = 0; i < CONTENT_SIZE / 2; i++) {
+                for (int j = 0; j < CONTENT_SIZE / 2; j++) {
+                    Float mean = getBlockMean(content, i * 2, j * 2);
+                    Float cell = (Float) region.getValues().get(i).get(j);
+                    if (mean == null) {
+                        assertNull(cell);
+                    } else {
+                        assertEquals(mean, cell, DELTA);
+                    }
+                }
+            }
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
     @Test
     public void updateLabelAnnotationTest() throws IOException {
         Heatmap heatmap = registerHeatmap("updateLabelAnnotationTest");
@@ -163,6 +227,56 @@ public class HeatmapManagerTest extends TestCase {
         assertNotNull(tree.getColumn());
     }
 
+    @Test
+    public void getContentRegionShouldCutWindowAtSpecifiedLevel() throws IOException {
+        Heatmap heatmap = registerHeatmap("getContentRegionShouldCutWindowAtSpecifiedLevel");
+        Object target = AopTestUtils.getTargetObject(heatmapManager);
+        Object regionMaxSize = ReflectionTestUtils.getField(target, "regionMaxSize");
+        ReflectionTestUtils.setField(target, "regionMaxSize", REGION_MAX_SIZE);
+        try {
+            HeatmapRegion region = heatmapManager.getContentRegion(heatmap.getHeatmapId(),
+                    1, CONTENT_SIZE - 1, 0, CONTENT_SIZE - 1, 0);
+            assertEquals(REGION_MAX_SIZE, region.getValues().size());
+            assertEquals(REGION_MAX_SIZE, region.getValues().get(0).size());
+            assertEquals(1, region.getStartRow());
+            assertEquals(REGION_MAX_SIZE, region.getEndRow());
+            assertEquals(0, region.getStartColumn());
+            assertEquals(REGION_MAX_SIZE - 1, region.getEndColumn());
+        } finally {
+            ReflectionTestUtils.setField(target, "regionMaxSize", regionMaxSize);
+        }
+    }
+
+    @Test
+    public void getContentRegionShouldWriteTilesOfLegacyHeatmap() throws IOException {
+        Heatmap heatmap = registerHeatmap("getContentRegionShouldWriteTilesOfLegacyHeatmap");
+        HeatmapRegion expected = heatmapManager.getContentRegion(heatmap.getHeatmapId(),
+                0, CONTENT_SIZE - 1, 0, CONTENT_SIZE - 1, 0);
+        fileManager.deleteHeatmapDir(heatmap.getHeatmapId());
+        assertNull(fileManager.getHeatmapDir(heatmap.getHeatmapId()));
+        HeatmapRegion region = heatmapManager.getContentRegion(heatmap.getHeatmapId(),
+                0, CONTENT_SIZE - 1, 0, CONTENT_SIZE - 1, 0);
+        assertEquals(expected.getValues(), region.getValues());
+        File directory = fileManager.getHeatmapDir(heatmap.getHeatmapId());
+        assertNotNull(directory);
+        assertEquals(0, directory.listFiles(File::isDirectory).length);
+    }
+
+    private static Float getBlockMean(final List<List<List<String>>> content, final int row, final int column) {
+        float sum = 0;
+        int count = 0;
+        for (int i = row; i < Math.min(row + 2, content.size()); i++) {
+            for (int j = column; j < Math.min(column + 2, content.get(i).size()); j++) {
+                String value = content.get(i).get(j).get(0);
+                if (value != null) {
+                    sum += Float.parseFloat(value);
+                    count++;
+                }
+            }
+        }
+        return count == 0 ? null : sum / count;
+    }
+
     @NotNull
     private Heatmap registerHeatmap(final String name) throws IOException {
         HeatmapRegistrationRequest request = new HeatmapRegistrationRequest();
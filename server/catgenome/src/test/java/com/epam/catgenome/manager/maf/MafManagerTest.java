@@ -26,6 +26,7 @@ package com.epam.catgenome.manager.maf;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +35,7 @@ import com.epam.catgenome.component.MessageHelper;
 import com.epam.catgenome.constant.MessagesConstants;
 import com.epam.catgenome.dao.BiologicalDataItemDao;
 import htsjdk.tribble.TribbleException;
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -207,6 +209,42 @@ public class MafManagerTest extends AbstractManagerTest {
         Assert.assertFalse(dir.exists());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void testMergeSortedAndUnsortedMaf() throws IOException {
+        File directory = Files.createTempDirectory("maf").toFile();
+        try {
+            FileUtils.copyFileToDirectory(context.getResource("classpath:templates/maf/" +
+                    "TCGA.ACC.mutect.abbe72a5-cb39-48e4-8df5-5fd2349f2bb2.somatic.sorted.maf.gz").getFile(), directory);
+            FileUtils.copyFileToDirectory(context.getResource("classpath:templates/invalid/unsorted.maf").getFile(),
+                    directory);
+
+            IndexedFileRegistrationRequest request = new IndexedFileRegistrationRequest();
+            request.setPath(directory.getAbsolutePath());
+            request.setReferenceId(referenceId);
+            request.setName("Merged Maf");
+            MafFile mafFile = mafManager.registerMafFile(request);
+            Assert.assertNotNull(mafFile);
+
+            Track<MafRecord> track = new Track<>();
+            track.setScaleFactor(FULL_QUERY_SCALE_FACTOR);
+            track.setStartIndex(1);
+            track.setEndIndex(TEST_END_INDEX);
+            track.setChromosome(testChromosome);
+            track.setId(mafFile.getId());
+
+            track = mafManager.loadFeatures(track);
+            List<MafRecord> blocks = track.getBlocks();
+            Assert.assertTrue(blocks.stream().anyMatch(b -> "unsorted".equals(b.getSampleName())));
+            for (int i = 1; i < blocks.size(); i++) {
+                Assert.assertTrue(blocks.get(i - 1).getStartIndex() <= blocks.get(i).getStartIndex());
+            }
+            mafManager.unregisterMafFile(mafFile.getId());
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void testRegisterUnsorted() throws IOException, InterruptedException, NoSuchAlgorithmException {
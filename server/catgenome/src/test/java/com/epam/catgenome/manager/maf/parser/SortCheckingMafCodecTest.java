@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.maf.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.epam.catgenome.exception.UnsortedFileException;
+
+public class SortCheckingMafCodecTest {
+
+    private static final String UNSORTED_MAF_PATH = "templates/invalid/unsorted.maf";
+    private static final String CHROMOSOME = "\tchr1\t";
+    private static final String OTHER_CHROMOSOME = "\tchr2\t";
+
+    private String path;
+    private List<String> lines;
+
+    @Before
+    public void setUp() throws IOException {
+        path = getClass().getClassLoader().getResource(UNSORTED_MAF_PATH).getPath();
+        lines = FileUtils.readLines(new File(path), StandardCharsets.UTF_8).stream()
+                .filter(line -> new MafCodec(path).decode(line) != null)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldDecodeSortedFeatures() {
+        final SortCheckingMafCodec codec = new SortCheckingMafCodec(path);
+        Assert.assertNotNull(codec.decode(lines.get(0)));
+        Assert.assertNotNull(codec.decode(lines.get(1)));
+        Assert.assertNotNull(codec.decode(lines.get(1).replace(CHROMOSOME, OTHER_CHROMOSOME)));
+        Assert.assertNotNull(codec.decode(lines.get(0).replace(CHROMOSOME, OTHER_CHROMOSOME)));
+    }
+
+    @Test(expected = UnsortedFileException.class)
+    public void shouldRejectFeaturesUnsortedByStart() {
+        final SortCheckingMafCodec codec = new SortCheckingMafCodec(path);
+        lines.forEach(codec::decode);
+    }
+
+    @Test(expected = UnsortedFileException.class)
+    public void shouldRejectNonContiguousChromosomes() {
+        final SortCheckingMafCodec codec = new SortCheckingMafCodec(path);
+        codec.decode(lines.get(0));
+        codec.decode(lines.get(1).replace(CHROMOSOME, OTHER_CHROMOSOME));
+        codec.decode(lines.get(1));
+    }
+}
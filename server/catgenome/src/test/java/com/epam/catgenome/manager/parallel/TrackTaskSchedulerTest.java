@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.parallel;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class TrackTaskSchedulerTest {
+
+    private static final long KEEP_ALIVE = 60L;
+    private static final long TIMEOUT = 10L;
+    private static final String FIRST_USER = "first";
+    private static final String SECOND_USER = "second";
+
+    private TrackTaskScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void shouldShareQueueBetweenOwners() throws Exception {
+        scheduler = new TrackTaskScheduler(1, 10, KEEP_ALIVE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+        scheduler.submit(FIRST_USER, () -> block(started, release));
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            final String name = FIRST_USER + i;
+            futures.add(scheduler.submit(FIRST_USER, () -> executed.add(name)));
+        }
+        futures.add(scheduler.submit(SECOND_USER, () -> executed.add(SECOND_USER)));
+        Assert.assertEquals(4, scheduler.getStatistics().getQueuedTasks());
+
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(TIMEOUT,
+                TimeUnit.SECONDS);
+
+        // a task of the second user doesn't wait for the whole backlog of the first one
+        Assert.assertEquals(Arrays.asList(FIRST_USER + 1, SECOND_USER, FIRST_USER + 2, FIRST_USER + 3), executed);
+        Assert.assertEquals(5, scheduler.getStatistics().getCompletedTasks());
+    }
+
+    @Test
+    public void shouldRejectTasksWhenQueueIsFull() throws Exception {
+        scheduler = new TrackTaskScheduler(1, 1, KEEP_ALIVE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        scheduler.submit(FIRST_USER, () -> block(started, release));
+        Assert.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        final CompletableFuture<Void> queued = scheduler.submit(FIRST_USER, () -> { });
+        try {
+            scheduler.submit(SECOND_USER, () -> { });
+            Assert.fail("Task should be rejected");
+        } catch (RejectedExecutionException e) {
+            Assert.assertEquals(1, scheduler.getStatistics().getRejectedTasks());
+        }
+
+        release.countDown();
+        queued.get(TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertEquals(0, scheduler.getStatistics().getQueuedTasks());
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyOnFailure() throws Exception {
+        scheduler = new TrackTaskScheduler(1, 1, KEEP_ALIVE);
+        final CompletableFuture<Void> future = scheduler.submit(FIRST_USER, () -> {
+            throw new IOException("failure");
+        });
+        try {
+            future.get(TIMEOUT, TimeUnit.SECONDS);
+            Assert.fail("Task should fail");
+        } catch (ExecutionException e) {
+            Assert.assertEquals(1, scheduler.getStatistics().getFailedTasks());
+        }
+    }
+
+    @Test
+    public void shouldRunTasksWithoutKeepAlive() throws Exception {
+        scheduler = new TrackTaskScheduler(1, 1, 0L);
+        scheduler.submit(FIRST_USER, () -> { }).get(TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertEquals(1, scheduler.getStatistics().getCompletedTasks());
+    }
+
+    private void block(final CountDownLatch started, final CountDownLatch release) {
+        started.countDown();
+        try {
+            release.await(TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -61,9 +61,12 @@ import com.epam.catgenome.controller.vo.registration.FeatureIndexedFileRegistrat
 import com.epam.catgenome.controller.vo.registration.ReferenceRegistrationRequest;
 import com.epam.catgenome.dao.reference.ReferenceGenomeDao;
 import com.epam.catgenome.entity.BiologicalDataItemResourceType;
+import com.epam.catgenome.entity.nucleotid.FormatCoder;
 import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.reference.Sequence;
+import com.epam.catgenome.entity.track.PackedReferenceTrack;
+import com.epam.catgenome.entity.track.ReferenceTrackMode;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.entity.track.TrackType;
 import com.epam.catgenome.exception.Ga4ghResourceUnavailableException;
@@ -89,6 +92,11 @@ import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
 
     private static final int START_INDEX = 1;
     private static final int END_INDEX = 1000;
+    private static final int PACKED_START_INDEX = 2;
+    private static final int NIB_CODE_SHIFT = 4;
+    private static final int NIB_CODE_MASK = 0x0F;
+    private static final int GC_LEVEL_MASK = 0xFF;
+    private static final float GC_LEVEL_PRECISION = 0.005F;
     private static final int LIST_INDEX = 4;
     private static final String NEW_NAME = "hiMom";
     private static final String A3_FA_PATH = "classpath:templates/A3.fa";
@@ -213,6 +221,60 @@ import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
         assertNotNull(track);
     }
 
+    @Test @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Throwable.class)
+    public void packedTrackMatchesNucleotidesTrack() throws ReferenceReadingException {
+        Track<Sequence> track = createTrack(SCALE_FACTOR_4_BASE, PACKED_START_INDEX);
+        List<Sequence> blocks = referenceManager.getNucleotidesResultFromNib(track).getBlocks();
+
+        PackedReferenceTrack packedTrack =
+                referenceManager.getPackedResultFromNib(createTrack(SCALE_FACTOR_4_BASE, PACKED_START_INDEX));
+        assertEquals(ReferenceTrackMode.NUCLEOTIDES, packedTrack.getMode());
+        assertEquals(PackedReferenceTrack.Encoding.NIB, packedTrack.getEncoding());
+        assertEquals(1, packedTrack.getOffset());
+        assertEquals(blocks.size(), packedTrack.getBinCount());
+        byte[] data = packedTrack.getData();
+        for (int i = 0; i < blocks.size(); i++) {
+            int index = packedTrack.getOffset() + i;
+            int nibCode = index % 2 == 0 ? (data[index / 2] >> NIB_CODE_SHIFT) & NIB_CODE_MASK
+                    : data[index / 2] & NIB_CODE_MASK;
+            assertEquals(blocks.get(i).getText(), FormatCoder.nibByteToString(nibCode));
+        }
+    }
+
+    @Test @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Throwable.class)
+    public void packedTrackMatchesGCContentTrack() throws ReferenceReadingException {
+        List<Sequence> blocks = referenceManager.getNucleotidesResultFromNib(
+                createTrack(SCALE_FACTOR_4_GC_NEW, START_INDEX)).getBlocks();
+
+        PackedReferenceTrack packedTrack =
+                referenceManager.getPackedResultFromNib(createTrack(SCALE_FACTOR_4_GC_NEW, START_INDEX));
+        assertEquals(ReferenceTrackMode.GC_CONTENT, packedTrack.getMode());
+        assertEquals(PackedReferenceTrack.Encoding.GC_RLE, packedTrack.getEncoding());
+        assertEquals(blocks.size(), packedTrack.getBinCount());
+        byte[] data = packedTrack.getData();
+        int bin = 0;
+        for (int i = 0; i < data.length; i += 2) {
+            int runLength = data[i] & GC_LEVEL_MASK;
+            float gcContent = (data[i + 1] & GC_LEVEL_MASK) / (float) GC_LEVEL_MASK;
+            for (int j = 0; j < runLength; j++) {
+                assertEquals(blocks.get(bin++).getContentGC(), gcContent, GC_LEVEL_PRECISION);
+            }
+        }
+        assertEquals(blocks.size(), bin);
+    }
+
+    private Track<Sequence> createTrack(final double scaleFactor, final int startIndex) {
+        Track<Sequence> track = new Track<>();
+        Chromosome chromosome = new Chromosome();
+        chromosome.setId(idChrom);
+        track.setId(idRef);
+        track.setChromosome(chromosome);
+        track.setScaleFactor(scaleFactor);
+        track.setStartIndex(startIndex);
+        track.setEndIndex(END_INDEX);
+        return track;
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Throwable.class)
     public void testUnregister() throws IOException {
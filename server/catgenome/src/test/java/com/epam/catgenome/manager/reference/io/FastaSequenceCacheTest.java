@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.reference.io;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FastaSequenceCacheTest {
+
+    private static final String FASTA_PATH = "templates/A3.fa";
+    private static final String CHROMOSOME = "A1";
+    private static final int PAGE_SIZE = 100;
+    private static final int START_INDEX = 95;
+    private static final int END_INDEX = 310;
+
+    private FastaSequenceCache cache;
+    private String path;
+    private String indexPath;
+
+    @Before
+    public void setUp() {
+        cache = new FastaSequenceCache();
+        ReflectionTestUtils.setField(cache, "pageSize", PAGE_SIZE);
+        path = getClass().getClassLoader().getResource(FASTA_PATH).getPath();
+        indexPath = path + FastaUtils.FASTA_INDEX;
+    }
+
+    @Test
+    public void shouldReadSequenceByCachedPages() throws IOException {
+        final FastaSequenceFile fastaFile = new FastaSequenceFile(path, indexPath);
+        final int size = fastaFile.getSequenceSize(CHROMOSOME);
+
+        Assert.assertArrayEquals(fastaFile.getSequence(CHROMOSOME, START_INDEX, END_INDEX),
+                cache.getSequence(path, indexPath, CHROMOSOME, START_INDEX, END_INDEX));
+        Assert.assertEquals(0, cache.getStatistics().getHits());
+        Assert.assertEquals(4, cache.getStatistics().getMisses());
+
+        Assert.assertArrayEquals(fastaFile.getSequence(CHROMOSOME, START_INDEX + 1, START_INDEX + 2),
+                cache.getSequence(path, indexPath, CHROMOSOME, START_INDEX + 1, START_INDEX + 2));
+        Assert.assertArrayEquals(fastaFile.getSequence(CHROMOSOME, size - PAGE_SIZE, size + PAGE_SIZE),
+                cache.getSequence(path, indexPath, CHROMOSOME, size - PAGE_SIZE, size + PAGE_SIZE));
+        Assert.assertEquals(0, cache.getSequence(path, indexPath, "unknown", START_INDEX, END_INDEX).length);
+
+        final FastaSequenceCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(1, statistics.getHits());
+        Assert.assertEquals(1, statistics.getCachedFiles());
+        Assert.assertEquals(1, statistics.getOpenedStreams());
+        Assert.assertTrue(statistics.getReusedStreams() > 0);
+
+        cache.invalidate(path);
+        Assert.assertEquals(0, cache.getStatistics().getCachedPages());
+    }
+}
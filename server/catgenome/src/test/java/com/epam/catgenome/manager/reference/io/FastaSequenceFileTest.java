@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.manager.reference.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FastaSequenceFileTest {
+
+    private static final String FASTA_PATH = "templates/A3.fa";
+    private static final String CHROMOSOME = "A1";
+    private static final String NO_TRAILING_NEWLINE_PATH = "templates/no_trailing_newline.fa";
+    private static final String NO_TRAILING_NEWLINE_SEQUENCE = "ACGTACGTACGGCCTTAAGC";
+    private static final int SMALL_WINDOW = 7;
+
+    @Test
+    public void readChromosomeByWindowsShouldReturnWholeSequence() throws IOException {
+        final String path = getClass().getClassLoader().getResource(FASTA_PATH).getPath();
+        final FastaSequenceFile fastaFile = new FastaSequenceFile(path, path + FastaUtils.FASTA_INDEX);
+        final byte[] expected = fastaFile.getChromosome(CHROMOSOME);
+        Assert.assertEquals(fastaFile.getSequenceSize(CHROMOSOME), expected.length);
+
+        for (int windowSize : new int[] {SMALL_WINDOW, 1024, expected.length * 2}) {
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            fastaFile.readChromosome(CHROMOSOME, windowSize, (bases, length) -> {
+                Assert.assertTrue(length <= windowSize);
+                actual.write(bases, 0, length);
+            });
+            Assert.assertArrayEquals(expected, actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void readChromosomeShouldStopAtEndOfFileWithoutTrailingNewline() throws IOException {
+        final String path = getClass().getClassLoader().getResource(NO_TRAILING_NEWLINE_PATH).getPath();
+        final FastaSequenceFile fastaFile = new FastaSequenceFile(path, path + FastaUtils.FASTA_INDEX);
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        fastaFile.readChromosome(CHROMOSOME, SMALL_WINDOW, (bases, length) -> actual.write(bases, 0, length));
+        Assert.assertEquals(NO_TRAILING_NEWLINE_SEQUENCE, actual.toString());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.reference.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.epam.catgenome.entity.nucleotid.NibByteFormat;
+import com.epam.catgenome.util.BlockCompressedDataInputStream;
+import com.epam.catgenome.util.BlockCompressedDataOutputStream;
+
+public class NibSequenceCacheTest {
+
+    // two nucleotides per byte, so a sequence is written into more than one 64Kb BGZF block
+    private static final int SEQUENCE_LENGTH = 200_000;
+    private static final int READ_LENGTH = 10;
+    private static final long SEED = 42L;
+    // a header and two reads of the same block
+    private static final int UNCACHED_READS = 3;
+    private static final byte[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+
+    private NibSequenceCache cache;
+    private Path directory;
+    private byte[] sequence;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new NibSequenceCache();
+        directory = Files.createTempDirectory("nib");
+        final Random random = new Random(SEED);
+        sequence = new byte[SEQUENCE_LENGTH];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = NUCLEOTIDES[random.nextInt(NUCLEOTIDES.length)];
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void shouldReadCachedBlocks() throws IOException {
+        final Path nibFile = writeNibFile("first");
+        final Path indexFile = indexPath(nibFile);
+        final byte[] nibSequence = NibByteFormat.packNucleotides(sequence);
+
+        Assert.assertArrayEquals(Arrays.copyOf(nibSequence, READ_LENGTH / 2),
+                cache.readNibBytes(nibFile, indexFile, 0, READ_LENGTH));
+        // the first block is loaded to read a header and then is taken from the cache
+        NibSequenceCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(1, statistics.getMisses());
+        Assert.assertEquals(1, statistics.getHits());
+        Assert.assertEquals(1, statistics.getCachedIndexes());
+        Assert.assertEquals(1, statistics.getCachedBlocks());
+
+        Assert.assertArrayEquals(nibSequence, cache.readNibBytes(nibFile, indexFile, 0, SEQUENCE_LENGTH));
+        statistics = cache.getStatistics();
+        Assert.assertEquals(2, statistics.getHits());
+        Assert.assertTrue(statistics.getMisses() > 1);
+        Assert.assertEquals(statistics.getMisses(), statistics.getCachedBlocks());
+        Assert.assertEquals(nibSequence.length + 2 * Integer.BYTES, statistics.getCachedBytes());
+
+        cache.invalidate(directory);
+        statistics = cache.getStatistics();
+        Assert.assertEquals(0, statistics.getCachedIndexes());
+        Assert.assertEquals(0, statistics.getCachedBlocks());
+        Assert.assertEquals(0, statistics.getCachedBytes());
+    }
+
+    @Test
+    public void shouldEvictBlocksExceedingCacheSize() throws IOException {
+        ReflectionTestUtils.setField(cache, "cacheSizeMB", 0);
+        final Path nibFile = writeNibFile("first");
+        final byte[] expected = Arrays.copyOf(NibByteFormat.packNucleotides(sequence), READ_LENGTH / 2);
+
+        Assert.assertArrayEquals(expected, cache.readNibBytes(nibFile, indexPath(nibFile), 0, READ_LENGTH));
+        Assert.assertArrayEquals(expected, cache.readNibBytes(nibFile, indexPath(nibFile), 0, READ_LENGTH));
+
+        final NibSequenceCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(0, statistics.getHits());
+        Assert.assertEquals(UNCACHED_READS, statistics.getMisses());
+        Assert.assertEquals(0, statistics.getCachedBlocks());
+        Assert.assertEquals(1, statistics.getCachedIndexes());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedIndexes() throws IOException {
+        ReflectionTestUtils.setField(cache, "maxIndexes", 1);
+        final Path firstFile = writeNibFile("first");
+        final Path secondFile = writeNibFile("second");
+
+        cache.readNibBytes(firstFile, indexPath(firstFile), 0, READ_LENGTH);
+        cache.readNibBytes(secondFile, indexPath(secondFile), 0, READ_LENGTH);
+        Assert.assertEquals(1, cache.getStatistics().getCachedIndexes());
+        Assert.assertEquals(2, cache.getStatistics().getCachedBlocks());
+
+        // the index of the first file is loaded again, its cached header block is reused
+        cache.readNibBytes(firstFile, indexPath(firstFile), 0, READ_LENGTH);
+        Assert.assertEquals(1, cache.getStatistics().getCachedIndexes());
+        Assert.assertEquals(2, cache.getStatistics().getMisses());
+    }
+
+    private Path writeNibFile(final String name) throws IOException {
+        final Path nibFile = directory.resolve(name + ".nib");
+        try (BlockCompressedDataOutputStream stream = new BlockCompressedDataOutputStream(nibFile.toFile())) {
+            new NibDataWriter().byteArrayToNibFile(sequence, stream);
+        }
+        try (BlockCompressedDataInputStream stream = new BlockCompressedDataInputStream(nibFile.toFile());
+             DataOutputStream indexStream = new DataOutputStream(Files.newOutputStream(indexPath(nibFile)))) {
+            do {
+                final long blockSize = stream.available();
+                final long filePosition = stream.getFilePointer();
+                indexStream.writeLong(filePosition);
+                indexStream.writeLong(blockSize);
+                stream.seek(filePosition + blockSize - 1);
+                stream.read();
+            } while (stream.available() != 0);
+        }
+        return nibFile;
+    }
+
+    private Path indexPath(final Path nibFile) {
+        return nibFile.resolveSibling(nibFile.getFileName() + ".ind");
+    }
+}
@@ -35,6 +35,7 @@ import htsjdk.tribble.CloseableTribbleIterator;
 import htsjdk.tribble.Feature;
 import htsjdk.tribble.FeatureCodec;
 import htsjdk.tribble.bed.BEDCodec;
+import htsjdk.tribble.util.TabixUtils;
 import htsjdk.variant.vcf.VCFCodec;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -60,6 +61,7 @@ public class SortTest extends AbstractJUnitTest {
     private static final int UNSORTED_BED_EXPECTED_LINES = 9;
     private static final int GENE_SORTED_BED_EXPECTED_LINES = 141;
     private static final int BIG_BED_EXPECTED_LINES = 8178;
+    private static final int SORT_THREADS = 4;
 
     @Autowired
     private ToolsManager toolsManager;
@@ -82,6 +84,13 @@ public class SortTest extends AbstractJUnitTest {
         testSort(getTemplate("big.bed.gz"), new BEDCodec(), BIG_BED_EXPECTED_LINES, 1);
     }
 
+    @Test
+    public void testSortBedCompressedInParallel() throws Exception {
+        final File ofile = testSort(getTemplate("big.bed.gz"), new BEDCodec(), BIG_BED_EXPECTED_LINES, 1,
+                SORT_THREADS);
+        checkFileIndexed(ofile, new BEDCodec());
+    }
+
     @Test
     public void testSortVCF() throws Exception {
         testSort(getTemplate("invalid/unsorted.vcf"), new VCFCodec());
@@ -89,7 +98,8 @@ public class SortTest extends AbstractJUnitTest {
 
     @Test
     public void testSortVCFCompressed() throws Exception {
-        testSort(getTemplate("Felis_catus.vcf.gz"), new VCFCodec());
+        final File ofile = testSort(getTemplate("Felis_catus.vcf.gz"), new VCFCodec());
+        checkFileIndexed(ofile, new VCFCodec());
     }
 
     @Test
@@ -107,26 +117,33 @@ public class SortTest extends AbstractJUnitTest {
         testSort(getTemplate("genes_sorted.gtf.gz"), new GffCodec(GffCodec.GffType.COMPRESSED_GTF));
     }
 
-    public void testSort(File infile, final FeatureCodec codec) throws IOException {
-        testSort(infile, codec, 0);
+    public File testSort(File infile, final FeatureCodec codec) throws IOException {
+        return testSort(infile, codec, 0);
     }
 
-    public void testSort(File infile, final FeatureCodec codec, final int expectedLines) throws IOException {
-        testSort(infile, codec, expectedLines, MAX_MEMORY);
+    public File testSort(File infile, final FeatureCodec codec, final int expectedLines) throws IOException {
+        return testSort(infile, codec, expectedLines, MAX_MEMORY);
     }
 
-    public void testSort(File infile, final FeatureCodec codec, final int expectedLines, final int maxMemory)
+    public File testSort(File infile, final FeatureCodec codec, final int expectedLines, final int maxMemory)
             throws IOException {
+        return testSort(infile, codec, expectedLines, maxMemory, 0);
+    }
+
+    public File testSort(File infile, final FeatureCodec codec, final int expectedLines, final int maxMemory,
+                         final int threads) throws IOException {
 
         File ofile = new File(
                 infile + (NgbFileUtils.isGzCompressed(infile.getName()) ? ".sorted.gz" : ".sorted")
         );
         ofile.deleteOnExit();
+        new File(ofile.getAbsolutePath() + TabixUtils.STANDARD_INDEX_EXTENSION).deleteOnExit();
 
         FeatureFileSortRequest request = new FeatureFileSortRequest();
         request.setOriginalFilePath(infile.getAbsolutePath());
         request.setSortedFilePath(ofile.getAbsolutePath());
         request.setMaxMemory(maxMemory);
+        request.setThreads(threads);
 
         toolsManager.sortFeatureFile(request);
 
@@ -135,6 +152,35 @@ public class SortTest extends AbstractJUnitTest {
         if(expectedLines != 0){
             assertEquals(expectedLines, outLines);
         }
+        return ofile;
+    }
+
+    public <F extends Feature, S> void checkFileIndexed(File ofile, final FeatureCodec<F, S> codec)
+            throws IOException {
+        assertTrue(new File(ofile.getAbsolutePath() + TabixUtils.STANDARD_INDEX_EXTENSION).exists());
+
+        final Map<String, Integer> counts = new HashMap<>();
+        try (AbstractFeatureReader<F, S> reader = AbstractEnhancedFeatureReader.getFeatureReader(
+                ofile.getAbsolutePath(), codec, false, indexCache);
+             CloseableTribbleIterator<F> iterator = reader.iterator()) {
+            while (iterator.hasNext()) {
+                counts.merge(iterator.next().getContig(), 1, Integer::sum);
+            }
+        }
+
+        try (AbstractFeatureReader<F, S> reader = AbstractEnhancedFeatureReader.getFeatureReader(
+                ofile.getAbsolutePath(), codec, true, indexCache)) {
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                int queried = 0;
+                try (CloseableTribbleIterator<F> iterator = reader.query(entry.getKey(), 1, Integer.MAX_VALUE - 1)) {
+                    while (iterator.hasNext()) {
+                        iterator.next();
+                        queried++;
+                    }
+                }
+                assertEquals(entry.getValue().intValue(), queried);
+            }
+        }
     }
 
     public <F extends Feature, S> int checkFileSorted(File ofile, final FeatureCodec<F, S> codec)
@@ -24,21 +24,30 @@
 
 package com.epam.catgenome.manager.vcf;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import com.epam.catgenome.component.MessageHelper;
 import com.epam.catgenome.constant.MessagesConstants;
 import com.epam.catgenome.manager.gene.GeneTrackManager;
+import com.epam.catgenome.util.feature.reader.AbstractFeatureReader;
 import com.epam.catgenome.util.feature.reader.EhCacheBasedIndexCache;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.tribble.FeatureReader;
 import htsjdk.tribble.TribbleException;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.codehaus.jettison.json.JSONObject;
 import org.eclipse.jetty.server.Server;
@@ -79,10 +88,12 @@ import com.epam.catgenome.entity.reference.Chromosome;
 import com.epam.catgenome.entity.reference.Reference;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.entity.track.TrackType;
+import com.epam.catgenome.entity.vcf.OrganismType;
 import com.epam.catgenome.entity.vcf.Variation;
 import com.epam.catgenome.entity.vcf.VariationQuery;
 import com.epam.catgenome.entity.vcf.VariationType;
 import com.epam.catgenome.entity.vcf.VcfFile;
+import com.epam.catgenome.entity.vcf.VcfFilterForm;
 import com.epam.catgenome.entity.vcf.VcfFilterInfo;
 import com.epam.catgenome.entity.vcf.VcfSample;
 import com.epam.catgenome.exception.ExternalDbUnavailableException;
@@ -122,6 +133,10 @@ import com.epam.catgenome.util.Utils;
 public class VcfManagerTest extends AbstractManagerTest {
 
     private static final String CLASSPATH_TEMPLATES_FELIS_CATUS_VCF = "classpath:templates/Felis_catus.vcf";
+    private static final String CLASSPATH_TEMPLATES_NAVIGATION_VCF = "classpath:templates/navigation.vcf";
+    private static final String CLASSPATH_TEMPLATES_DENSITY_TYPES_VCF = "classpath:templates/density_types.vcf";
+    private static final int NAVIGATION_POSITIONS_STEP = 5;
+    private static final int FAILED_REINDEX_RECORDS = 27;
     private static final String CLASSPATH_TEMPLATES_FELIS_CATUS_VCF_COMPRESSED = "classpath:templates/Felis_catus.vcf" +
             ".gz";
     private static final String CLASSPATH_TEMPLATES_FELIS_CATUS_VCF_GOOGLE = "classpath:templates/1000-genomes.chrMT" +
@@ -193,6 +208,7 @@ public class VcfManagerTest extends AbstractManagerTest {
     private static final int NUMBER_OF_FILTERS = 2;
     private static final int NUMBER_OF_TRIVIAL_INFO = 18;
     private static final int INDEX_BUFFER_SIZE = 32;
+    private static final int INDEXER_THREADS = 4;
     @Value("${ga4gh.google.variantSetId}")
     private String varSet;
     @Value("${ga4gh.google.startPosition}")
@@ -299,6 +315,68 @@ public class VcfManagerTest extends AbstractManagerTest {
         Assert.assertTrue(ambiguousVariations.isEmpty());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testLoadSmallScaleVcfFileFromDensity() throws IOException {
+        VcfFile vcfFile = testSave(CLASSPATH_TEMPLATES_FELIS_CATUS_VCF);
+        Assert.assertNotNull(fileManager.getVcfDensityFile(vcfFile, testChromosome.getName()));
+
+        Track<Variation> densityTrack = loadTrack(vcfFile, TEST_SMALL_SCALE_FACTOR, true);
+        Assert.assertFalse(densityTrack.getBlocks().isEmpty());
+
+        Track<Variation> fullTrack = loadTrack(vcfFile, 1D, false);
+        long expected = fullTrack.getBlocks().stream()
+            .filter(v -> !v.isStructural())
+            .count();
+        long actual = densityTrack.getBlocks().stream()
+            .filter(v -> !v.isStructural())
+            .mapToLong(v -> v.getVariationsCount() != null ? v.getVariationsCount() : 1)
+            .sum();
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testLoadSampleTypesFromDensity() throws IOException, InterruptedException {
+        // variations of different types fall into one block, each sample has only one of them
+        VcfFile vcfFile = testSave(CLASSPATH_TEMPLATES_DENSITY_TYPES_VCF);
+        Assert.assertNotNull(fileManager.getVcfDensityFile(vcfFile, testChromosome.getName()));
+
+        Track<Variation> densityTrack = loadTrack(vcfFile, null, TEST_SMALL_SCALE_FACTOR, false, true);
+        Assert.assertEquals(1, densityTrack.getBlocks().size());
+        Assert.assertEquals(VariationType.STATISTIC, densityTrack.getBlocks().get(0).getType());
+
+        for (VcfSample sample : vcfFile.getSamples()) {
+            densityTrack = loadTrack(vcfFile, sample.getId(), TEST_SMALL_SCALE_FACTOR, false, true);
+            Assert.assertEquals(1, densityTrack.getBlocks().size());
+            Variation block = densityTrack.getBlocks().get(0);
+            Assert.assertEquals(1, block.getVariationsCount().intValue());
+
+            List<Variation> sampleVariations = loadTrack(vcfFile, sample.getId(), 1D, false, false).getBlocks().stream()
+                    .filter(v -> v.getGenotypeData().getOrganismType() != OrganismType.NO_VARIATION)
+                    .collect(Collectors.toList());
+            Assert.assertEquals(1, sampleVariations.size());
+            Assert.assertEquals(sampleVariations.get(0).getType(), block.getType());
+        }
+    }
+
+    private Track<Variation> loadTrack(VcfFile vcfFile, Double scaleFactor, boolean collapse) throws IOException {
+        return loadTrack(vcfFile, null, scaleFactor, false, collapse);
+    }
+
+    private Track<Variation> loadTrack(VcfFile vcfFile, Long sampleId, Double scaleFactor, boolean loadInfo,
+                                       boolean collapse) throws IOException {
+        TrackQuery vcfTrackQuery = new TrackQuery();
+        vcfTrackQuery.setChromosomeId(testChromosome.getId());
+        vcfTrackQuery.setStartIndex(1);
+        vcfTrackQuery.setEndIndex(TEST_END_INDEX);
+        vcfTrackQuery.setId(vcfFile.getId());
+        vcfTrackQuery.setScaleFactor(scaleFactor);
+
+        Track<Variation> variationTrack = Query2TrackConverter.convertToTrack(vcfTrackQuery);
+        return vcfManager.loadVariations(variationTrack, sampleId, loadInfo, collapse);
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
     public void testLoadSmallScaleVcfFileGa4GH() throws IOException, InterruptedException, NoSuchAlgorithmException,
@@ -334,6 +412,29 @@ public class VcfManagerTest extends AbstractManagerTest {
         Assert.assertFalse(ambiguousVariations.isEmpty());
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testLoadSampleGenotypes() throws IOException {
+        VcfFile vcfFile = testSave("classpath:templates/samples.vcf");
+        VcfFile file = vcfFileManager.load(vcfFile.getId());
+        Assert.assertTrue(file.getSamples().size() > 1);
+
+        for (VcfSample sample : file.getSamples()) {
+            List<Variation> decoded = loadTrack(file, sample.getId(), 1D, false, false).getBlocks();
+            List<Variation> expected = loadTrack(file, sample.getId(), 1D, true, false).getBlocks();
+            Assert.assertFalse(expected.isEmpty());
+            Assert.assertEquals(expected.size(), decoded.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getStartIndex(), decoded.get(i).getStartIndex());
+                Assert.assertEquals(expected.get(i).getType(), decoded.get(i).getType());
+                Assert.assertEquals(expected.get(i).getGenotypeData().getOrganismType(),
+                        decoded.get(i).getGenotypeData().getOrganismType());
+                Assert.assertEquals(expected.get(i).getGenotypeData().getGenotypeString(),
+                        decoded.get(i).getGenotypeData().getGenotypeString());
+            }
+        }
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
     public void testLoadExtendedSummary()
@@ -465,6 +566,68 @@ public class VcfManagerTest extends AbstractManagerTest {
         Assert.assertNotNull(filesByReference);
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testRegisterFileWithParallelIndexing() throws IOException, InterruptedException {
+        vcfManager.setIndexerThreads(1);
+        final VcfFile sequential = testSave(CLASSPATH_TEMPLATES_FELIS_CATUS_VCF);
+        vcfManager.setIndexerThreads(INDEXER_THREADS);
+        final VcfFile parallel = testSave(CLASSPATH_TEMPLATES_FELIS_CATUS_VCF);
+
+        final List<String> expected = searchIndexedVariations(sequential);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, searchIndexedVariations(parallel));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testFailedReindexKeepsCommittedIndex() throws IOException, InterruptedException {
+        final VcfFile vcfFile = testSave(CLASSPATH_TEMPLATES_FELIS_CATUS_VCF);
+        final List<String> expected = searchIndexedVariations(vcfFile);
+        Assert.assertFalse(expected.isEmpty());
+
+        final Map<String, Chromosome> chromosomeMap = referenceGenomeManager.load(referenceId).getChromosomes()
+                .stream().collect(Collectors.toMap(Chromosome::getName, chromosome -> chromosome));
+        final VcfFilterInfo info = vcfManager.getFiltersInfo(Collections.singletonList(vcfFile.getId()));
+        try (FeatureReader<VariantContext> reader = AbstractFeatureReader.getFeatureReader(vcfFile.getPath(),
+                new VCFCodec(), false, null)) {
+            final FeatureReader<VariantContext> failingReader = Mockito.spy(reader);
+            Mockito.doAnswer(invocation -> failAfter(reader.iterator(), FAILED_REINDEX_RECORDS))
+                    .when(failingReader).iterator();
+            featureIndexManager.makeIndexForVcfReader(vcfFile, failingReader, Collections.emptyList(),
+                    chromosomeMap, info);
+            Assert.fail("Reindex should fail");
+        } catch (IllegalStateException | FeatureIndexException e) {
+            logger.debug(e.getMessage());
+        }
+        Assert.assertEquals(expected, searchIndexedVariations(vcfFile));
+    }
+
+    private static CloseableIterator<VariantContext> failAfter(final CloseableIterator<VariantContext> iterator,
+                                                               final int records) {
+        return new CloseableIterator<VariantContext>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public VariantContext next() {
+                if (read++ == records) {
+                    throw new IllegalStateException("Failed to read a variation");
+                }
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                iterator.close();
+            }
+        };
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void testLoadStructuralVariations()
@@ -757,6 +920,48 @@ public class VcfManagerTest extends AbstractManagerTest {
         }
     }
 
+    @Test
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void testIndexedNavigationMatchesFileScan() throws IOException, InterruptedException {
+        // the first sample has no variations in a run of records, longer than a navigation batch
+        VcfFile vcfFile = testSave(CLASSPATH_TEMPLATES_NAVIGATION_VCF);
+        File positionIndexFile = fileManager.getPositionIndexFile(vcfFile, testChromosome.getName());
+        Assert.assertNotNull(positionIndexFile);
+
+        List<Long> sampleIds = new ArrayList<>();
+        sampleIds.add(null);
+        vcfFile.getSamples().forEach(sample -> sampleIds.add(sample.getId()));
+
+        List<Variation> variations = testLoad(vcfFile, 1D, true, false).getBlocks();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < variations.size(); i += NAVIGATION_POSITIONS_STEP) {
+            int start = variations.get(i).getStartIndex();
+            positions.addAll(Arrays.asList(start - 1, start, start + 1));
+        }
+
+        List<String> indexed = navigateVariations(vcfFile, sampleIds, positions);
+        Assert.assertTrue(indexed.stream().anyMatch(Objects::nonNull));
+        Assert.assertTrue(positionIndexFile.delete());
+        Assert.assertNull(fileManager.getPositionIndexFile(vcfFile, testChromosome.getName()));
+        Assert.assertEquals(navigateVariations(vcfFile, sampleIds, positions), indexed);
+    }
+
+    private List<String> navigateVariations(VcfFile vcfFile, List<Long> sampleIds, List<Integer> positions)
+            throws VcfReadingException {
+        List<String> variations = new ArrayList<>();
+        for (Long sampleId : sampleIds) {
+            for (int position : positions) {
+                for (boolean forward : new boolean[] {true, false}) {
+                    Variation variation = vcfManager.getNextOrPreviousVariation(position, vcfFile.getId(),
+                            sampleId, testChromosome.getId(), forward, null, null);
+                    variations.add(variation == null ? null : variation.getStartIndex() + ":"
+                            + variation.getEndIndex() + ":" + variation.getIdentifier());
+                }
+            }
+        }
+        return variations;
+    }
+
     @Test
     @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
     public void testLoadExtendedSummaryUrl()
@@ -895,6 +1100,16 @@ public class VcfManagerTest extends AbstractManagerTest {
         Assert.assertEquals(var1.getEndIndex(), loadedPrevVar.getEndIndex());
     }
 
+    private List<String> searchIndexedVariations(final VcfFile vcfFile) throws IOException {
+        final VcfFilterForm filterForm = new VcfFilterForm();
+        filterForm.setVcfFileIdsByProject(Collections.singletonMap(referenceId,
+                Collections.singletonList(vcfFile.getId())));
+        return featureIndexManager.filterVariations(filterForm).getEntries().stream()
+                .map(e -> e.getFeatureId() + ":" + e.getStartIndex() + ":" + e.getVariationType()
+                        + ":" + e.getGeneIds() + ":" + e.getFailedFilter())
+                .collect(Collectors.toList());
+    }
+
     private VcfFile testSave(String filePath) throws IOException, InterruptedException {
         Resource resource = context.getResource(filePath);
         return registerVcf(resource, referenceId, vcfManager, PRETTY_NAME);
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.vcf.reader;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.epam.catgenome.util.feature.reader.AbstractFeatureReader;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.tribble.FeatureReader;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+
+public class LeadingSamplesVcfCodecTest {
+
+    private static final String VCF_PATH = "templates/navigation.vcf";
+
+    @Test
+    public void shouldDecodeOnlyLeadingSamples() throws IOException {
+        final String path = getClass().getClassLoader().getResource(VCF_PATH).getPath();
+        try (FeatureReader<VariantContext> reader = AbstractFeatureReader.getFeatureReader(path, new VCFCodec(),
+                false, null);
+             CloseableIterator<VariantContext> iterator = reader.iterator()) {
+            final LeadingSamplesVcfCodec codec = new LeadingSamplesVcfCodec((VCFHeader) reader.getHeader(), 1);
+            int records = 0;
+            while (iterator.hasNext()) {
+                final VariantContext context = iterator.next();
+                final GenotypesContext genotypes = codec.decodeGenotypes(context);
+                Assert.assertEquals(1, genotypes.size());
+                Assert.assertTrue(context.getGenotypes().isLazyWithData());
+                Assert.assertEquals(context.getGenotype(0).getGenotypeString(),
+                        genotypes.get(0).getGenotypeString());
+                Assert.assertEquals(context.getGenotype(0).getType(), genotypes.get(0).getType());
+                records++;
+            }
+            Assert.assertTrue(records > 0);
+        }
+    }
+}
@@ -34,6 +34,7 @@ import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.entity.wig.Wig;
 import com.epam.catgenome.entity.wig.WigFile;
 import com.epam.catgenome.exception.FeatureFileReadingException;
+import com.epam.catgenome.manager.FileManager;
 import com.epam.catgenome.manager.reference.ReferenceManager;
 import org.junit.Assert;
 import org.junit.Before;
@@ -79,6 +80,9 @@ public class BedGraphProcessorTest extends AbstractManagerTest {
     @Autowired
     private ReferenceManager referenceManager;
 
+    @Autowired
+    private FileManager fileManager;
+
     private static final String TEST_NSAME = "BIG " + BedGraphProcessorTest.class.getSimpleName();
     private static final String TEST_REF = "/dm606.X.fa";
     private static final String TEST_BDG = "/bedGraph.bdg";
@@ -140,6 +144,8 @@ public class BedGraphProcessorTest extends AbstractManagerTest {
         wigManager.getWigTrack(wigTrack);
         Assert.assertFalse(wigTrack.getBlocks().isEmpty());
         Assert.assertTrue(wigTrack.getBlocks().stream().allMatch(wig -> wig.getValue() != null));
+        Assert.assertNotNull(fileManager.getBedGraphPyramidFilePath(loadWigFile, chromosomeName));
+        Assert.assertTrue(wigTrack.getBlocks().stream().anyMatch(wig -> wig.getValue() != 0));
 
         wigManager.unregisterWigFile(loadWigFile.getId());
         loadWigFile = wigFileManager.load(wigFile.getId());
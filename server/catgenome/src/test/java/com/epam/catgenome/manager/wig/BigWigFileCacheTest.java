@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.manager.wig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BigWigFileCacheTest {
+
+    private static final String BIG_WIG_PATH = "templates/agnX1.09-28.trim.dm606.realign.bw";
+    private static final String MISSING_PATH = "missing.bw";
+    private static final long FILE_ID = 1L;
+    private static final int THREADS = 4;
+
+    private BigWigFileCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new BigWigFileCache();
+    }
+
+    @Test
+    public void shouldOpenFileOnceForConcurrentRequests() throws InterruptedException, ExecutionException {
+        final String path = getClass().getClassLoader().getResource(BIG_WIG_PATH).getPath();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> cache.read(FILE_ID, path, file -> file.getChromosomes().size())));
+            }
+            for (Future<Integer> future : futures) {
+                Assert.assertTrue(future.get() > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        final BigWigFileCache.Statistics statistics = cache.getStatistics();
+        Assert.assertEquals(1, statistics.getMisses());
+        Assert.assertEquals(THREADS - 1, statistics.getHits());
+        Assert.assertEquals(1, statistics.getOpenedFiles());
+        cache.clear();
+    }
+
+    @Test
+    public void shouldNotCacheFileFailedToOpen() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.read(FILE_ID, MISSING_PATH, file -> file.getChromosomes().size());
+                Assert.fail("A missing file shouldn't be opened");
+            } catch (IOException e) {
+                Assert.assertNotNull(e.getMessage());
+            }
+        }
+        Assert.assertEquals(2, cache.getStatistics().getMisses());
+        Assert.assertEquals(0, cache.getStatistics().getOpenedFiles());
+    }
+}
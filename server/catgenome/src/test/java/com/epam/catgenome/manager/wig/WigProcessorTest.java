@@ -36,6 +36,8 @@ import com.epam.catgenome.entity.wig.WigFile;
 import com.epam.catgenome.exception.FeatureFileReadingException;
 import com.epam.catgenome.manager.reference.ReferenceManager;
 import com.epam.catgenome.util.Utils;
+import org.jetbrains.bio.big.BigSummary;
+import org.jetbrains.bio.big.BigWigFile;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -81,6 +83,9 @@ public class WigProcessorTest extends AbstractManagerTest {
     @Autowired
     private ReferenceManager referenceManager;
 
+    @Autowired
+    private BigWigFileCache bigWigFileCache;
+
     private Logger logger = LoggerFactory.getLogger(WigProcessorTest.class);
 
     private static final String TEST_NSAME = "BIG " + WigProcessorTest.class.getSimpleName();
@@ -94,6 +99,7 @@ public class WigProcessorTest extends AbstractManagerTest {
     private static final int TEST_END_INDEX = 12589800;
     private static final double TEST_SCALE_FACTOR = 0.01;
     private static final double TEST_SMALL_SCALE_FACTOR = 0.00001;
+    private static final float DELTA = 0.0001F;
 
     @Before
     public void setup() throws IOException {
@@ -147,6 +153,15 @@ public class WigProcessorTest extends AbstractManagerTest {
         Assert.assertFalse(wigTrack.getBlocks().isEmpty());
 
         logger.debug("First Reading chromosome {} took {}", chromosomeName, time2 - time1);
+        assertBlocksMatchSummaries(path, wigTrack.getBlocks());
+
+        final long hits = bigWigFileCache.getStatistics().getHits();
+        final List<Wig> blocks = wigTrack.getBlocks();
+        wigManager.getWigTrack(wigTrack);
+        Assert.assertEquals(hits + 1, bigWigFileCache.getStatistics().getHits());
+        for (int i = 0; i < blocks.size(); i++) {
+            Assert.assertEquals(blocks.get(i).getValue(), wigTrack.getBlocks().get(i).getValue());
+        }
 
         wigTrack.setStartIndex(1);
         wigTrack.setScaleFactor(TEST_SMALL_SCALE_FACTOR);
@@ -156,9 +171,30 @@ public class WigProcessorTest extends AbstractManagerTest {
 
         logger.debug("Second Reading chromosome {} took {}", chromosomeName, time2 - time1);
 
+        final int openedFiles = bigWigFileCache.getStatistics().getOpenedFiles();
         wigManager.unregisterWigFile(loadWigFile.getId());
         loadWigFile = wigFileManager.load(wigFile.getId());
         Assert.assertNull(loadWigFile);
+        Assert.assertTrue(bigWigFileCache.getStatistics().getOpenedFiles() < openedFiles);
+    }
+
+    private void assertBlocksMatchSummaries(final String path, final List<Wig> blocks) throws IOException {
+        try (BigWigFile bigWigFile = WigProcessor.readWig(path)) {
+            final String chr = bigWigFile.getChromosomes().values().stream()
+                    .map(String.class::cast)
+                    .filter(name -> name.equals(chromosomeName)
+                            || name.equals(Utils.changeChromosomeName(chromosomeName)))
+                    .findFirst()
+                    .orElseThrow(IllegalStateException::new);
+            for (Wig block : blocks) {
+                final BigSummary summary = bigWigFile.summarize(chr, block.getStartIndex() - 1,
+                        block.getEndIndex(), 1, true, null).get(0);
+                final double value = Math.abs(summary.getMaxValue()) > Math.abs(summary.getMinValue())
+                        ? summary.getMaxValue() : summary.getMinValue();
+                final float expected = Double.isNaN(value) || Double.isInfinite(value) ? 0 : (float) value;
+                Assert.assertEquals(expected, block.getValue(), DELTA);
+            }
+        }
     }
 
     @Test
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.util;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+
+public class CloudBlockCacheTest {
+
+    private static final String URI = "s3://bucket/test.bam";
+    private static final String ETAG = "etag";
+    private static final int BLOCK_SIZE = 100;
+    private static final int OBJECT_SIZE = 1000;
+    private static final int READ_AHEAD_BLOCKS = 4;
+    private static final long SEED = 42L;
+
+    private final byte[] data = randomData();
+
+    @Test
+    public void shouldServeSeeksWithinCachedBlock() throws IOException {
+        final StubStorage storage = new StubStorage();
+        final CloudBlockCache cache = new CloudBlockCache(true, 1, BLOCK_SIZE, 0, Runnable::run);
+        final SeekableStream stream = cache.openStream(URI, ETAG, OBJECT_SIZE, storage);
+        for (int position : new int[] {150, 120, 180, 101}) {
+            assertRead(stream, position, 10);
+        }
+        Assert.assertEquals(1, storage.requests.size());
+        Assert.assertEquals(1, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void shouldCoalesceReadAheadOfSequentialReads() throws IOException {
+        final StubStorage storage = new StubStorage();
+        final CloudBlockCache cache = new CloudBlockCache(true, 1, BLOCK_SIZE, READ_AHEAD_BLOCKS, Runnable::run);
+        final SeekableStream stream = cache.openStream(URI, ETAG, OBJECT_SIZE, storage);
+        final byte[] buffer = new byte[OBJECT_SIZE];
+        stream.readFully(buffer);
+        Assert.assertArrayEquals(data, buffer);
+        Assert.assertTrue(stream.eof());
+        Assert.assertEquals(Arrays.asList("0-99", "100-499", "500-899", "900-999"), storage.requests);
+        Assert.assertEquals(1, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void shouldNotShareBlocksOfChangedObject() throws IOException {
+        final StubStorage storage = new StubStorage();
+        final CloudBlockCache cache = new CloudBlockCache(true, 1, BLOCK_SIZE, 0, Runnable::run);
+        assertRead(cache.openStream(URI, ETAG, OBJECT_SIZE, storage), 10, 10);
+        assertRead(cache.openStream(URI, ETAG, OBJECT_SIZE, storage), 20, 10);
+        assertRead(cache.openStream(URI, "changed", OBJECT_SIZE, storage), 20, 10);
+        Assert.assertEquals(2, storage.requests.size());
+    }
+
+    @Test
+    public void shouldReloadBlockAfterFailure() throws IOException {
+        final StubStorage storage = new StubStorage();
+        final CloudBlockCache cache = new CloudBlockCache(true, 1, BLOCK_SIZE, 0, Runnable::run);
+        storage.failing = true;
+        try {
+            assertRead(cache.openStream(URI, ETAG, OBJECT_SIZE, storage), 0, 10);
+            Assert.fail("Failure of the storage should be reported");
+        } catch (IOException e) {
+            Assert.assertEquals(0, cache.getStatistics().getCachedBlocks());
+        }
+        storage.failing = false;
+        assertRead(cache.openStream(URI, ETAG, OBJECT_SIZE, storage), 0, 10);
+        Assert.assertEquals(1, cache.getStatistics().getCachedBlocks());
+    }
+
+    @Test
+    public void shouldReadWhenReadAheadIsRejected() throws IOException {
+        final StubStorage storage = new StubStorage();
+        final CloudBlockCache cache = new CloudBlockCache(true, 1, BLOCK_SIZE, READ_AHEAD_BLOCKS, runnable -> {
+            throw new RejectedExecutionException("Executor is shut down");
+        });
+        final SeekableStream stream = cache.openStream(URI, ETAG, OBJECT_SIZE, storage);
+        final byte[] buffer = new byte[OBJECT_SIZE];
+        stream.readFully(buffer);
+        Assert.assertArrayEquals(data, buffer);
+    }
+
+    private void assertRead(final SeekableStream stream, final int position, final int length) throws IOException {
+        final byte[] buffer = new byte[length];
+        stream.seek(position);
+        stream.readFully(buffer);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, position, position + length), buffer);
+        Assert.assertEquals(position + length, stream.position());
+    }
+
+    private static byte[] randomData() {
+        final byte[] bytes = new byte[OBJECT_SIZE];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * In-memory stand-in for a cloud storage, that records requested ranges
+     */
+    private class StubStorage implements CloudBlockCache.RangeLoader {
+
+        private final List<String> requests = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public InputStream loadFromTo(final String uri, final long from, final long to) throws IOException {
+            if (failing) {
+                throw new IOException("Storage is not available");
+            }
+            requests.add(from + "-" + to);
+            return new ByteArrayInputStream(data, (int) from, (int) (to - from + 1));
+        }
+    }
+}
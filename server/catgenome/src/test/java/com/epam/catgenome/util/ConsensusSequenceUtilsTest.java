@@ -25,20 +25,17 @@
 package com.epam.catgenome.util;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.Mockito;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import com.epam.catgenome.entity.reference.Sequence;
 import com.epam.catgenome.entity.track.Track;
 import com.epam.catgenome.entity.track.TrackType;
+import com.epam.catgenome.manager.bam.BasePileup;
 import htsjdk.samtools.SAMRecord;
 
 /**
@@ -66,7 +63,7 @@ public class ConsensusSequenceUtilsTest {
     private static final int SEQUENCE_1_END_INDEX = 5;
     private static final int SEQUENCE_2_END_INDEX = 10;
     private static final int SEQUENCE_3_END_INDEX = 14;
-    private static final int INITIAL_CAPACITY = 3;
+    private static final int PILEUP_END_INDEX = 8;
 
     @Test
     public void testCalculateConsensusSequence() {
@@ -78,28 +75,16 @@ public class ConsensusSequenceUtilsTest {
         Sequence sequence3 = new Sequence(SEQUENCE_3_START_INDEX, SEQUENCE_3_END_INDEX);
         track.setBlocks(Arrays.asList(sequence1, sequence2, sequence3));
 
-        // Init test reads.
-        Map<Sequence, List<SAMRecord>> blockToReadsMap = new HashMap<>(INITIAL_CAPACITY);
-        SAMRecord samRecord1 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord1.getReadString()).thenReturn(READ_1);
-        SAMRecord samRecord2 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord2.getReadString()).thenReturn(READ_2);
-        SAMRecord samRecord3 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord3.getReadString()).thenReturn(READ_3);
-        SAMRecord samRecord4 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord4.getReadString()).thenReturn(READ_4);
-        SAMRecord samRecord5 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord5.getReadString()).thenReturn(READ_5);
-        SAMRecord samRecord6 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord6.getReadString()).thenReturn(READ_6);
-        SAMRecord samRecord7 = Mockito.mock(SAMRecord.class);
-        Mockito.when(samRecord7.getReadString()).thenReturn(READ_7);
-
-        blockToReadsMap.put(sequence1, Arrays.asList(samRecord1, samRecord2, samRecord3));
-        blockToReadsMap.put(sequence2, Arrays.asList(samRecord4, samRecord5));
-        blockToReadsMap.put(sequence3, Arrays.asList(samRecord6, samRecord7));
-
-        ConsensusSequenceUtils.calculateConsensusSequence(track, blockToReadsMap);
+        BasePileup pileup = new BasePileup(TRACK_START_INDEX, TRACK_END_INDEX, 1);
+        pileup.add(createRecord(SEQUENCE_1_START_INDEX, READ_1));
+        pileup.add(createRecord(SEQUENCE_1_START_INDEX, READ_2));
+        pileup.add(createRecord(SEQUENCE_1_START_INDEX, READ_3));
+        pileup.add(createRecord(SEQUENCE_2_START_INDEX, READ_4));
+        pileup.add(createRecord(SEQUENCE_2_START_INDEX, READ_5));
+        pileup.add(createRecord(SEQUENCE_3_START_INDEX, READ_6));
+        pileup.add(createRecord(SEQUENCE_3_START_INDEX, READ_7));
+
+        ConsensusSequenceUtils.calculateConsensusSequence(track, pileup);
 
         Assert.assertNotNull(track);
         Assert.assertNotNull(track.getBlocks());
@@ -111,4 +96,37 @@ public class ConsensusSequenceUtilsTest {
         Assert.assertEquals(track.getBlocks().get(2).getText(), "N");
     }
 
+    @Test
+    public void testCalculateConsensusSequenceFromPileup() {
+        Track<Sequence> track = new Track<>(TrackType.BAM);
+        track.setStartIndex(TRACK_START_INDEX);
+        track.setEndIndex(PILEUP_END_INDEX);
+        track.setBlocks(Arrays.asList(new Sequence(1, 2), new Sequence(3, 4), new Sequence(5, 6),
+                new Sequence(7, 8)));
+
+        BasePileup pileup = new BasePileup(TRACK_START_INDEX, PILEUP_END_INDEX, 1);
+        // inserted and soft clipped bases are not aligned to the reference
+        pileup.add(createRecord(1, "AACCCCTT", "4M2I2M"));
+        pileup.add(createRecord(1, "AATTGG", "2M2D2M2S"));
+        pileup.add(createRecord(3, "GGTT", "2M4N2M"));
+
+        ConsensusSequenceUtils.calculateConsensusSequence(track, pileup);
+
+        Assert.assertEquals("A", track.getBlocks().get(0).getText());
+        Assert.assertEquals("[GC]", track.getBlocks().get(1).getText());
+        Assert.assertEquals("T", track.getBlocks().get(2).getText());
+        Assert.assertNull(track.getBlocks().get(3).getText());
+    }
+
+    private static SAMRecord createRecord(final int start, final String bases) {
+        return createRecord(start, bases, bases.length() + "M");
+    }
+
+    private static SAMRecord createRecord(final int start, final String bases, final String cigar) {
+        SAMRecord record = new SAMRecord(null);
+        record.setAlignmentStart(start);
+        record.setReadString(bases);
+        record.setCigarString(cigar);
+        return record;
+    }
 }
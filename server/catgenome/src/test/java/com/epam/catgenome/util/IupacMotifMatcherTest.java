@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.epam.catgenome.util;
+
+import com.epam.catgenome.entity.reference.motif.Motif;
+import com.epam.catgenome.manager.gene.parser.StrandSerializable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class IupacMotifMatcherTest {
+
+    private static final String NUCLEOTIDES = "ACGTNacgtn";
+    private static final int SEQUENCE_LENGTH = 100_000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final long SEED = 42L;
+
+    @Test
+    public void shouldMatchBothStrandsInOnePass() {
+        byte[] sequence = "cgCGcattgcGcaaGGG".getBytes(StandardCharsets.UTF_8);
+        List<String> matches = search(new IupacMotifMatcher("ca"), sequence, sequence.length);
+        Assert.assertEquals(3, matches.size());
+        Assert.assertTrue(matches.contains("7:-"));
+    }
+
+    @Test
+    public void shouldFindTheSameMatchesAsRegexSearch() {
+        byte[] sequence = randomSequence();
+        for (String motif : new String[] {"tacyrw", "GANTC", "ca[ct]g", "rn"}) {
+            List<String> expected = MotifSearcher.search(sequence, motif, "").stream()
+                    .map(this::format)
+                    .sorted()
+                    .collect(Collectors.toList());
+            List<String> actual = search(new IupacMotifMatcher(motif), sequence, CHUNK_SIZE);
+            actual.sort(String::compareTo);
+            Assert.assertEquals(motif, expected, actual);
+        }
+    }
+
+    @Test
+    public void shouldNotSupportRegularExpressions() {
+        Assert.assertTrue(IupacMotifMatcher.isSupported("atcgrYmKsWhBvDn[ac]"));
+        Assert.assertFalse(IupacMotifMatcher.isSupported("[ac]+"));
+        Assert.assertFalse(IupacMotifMatcher.isSupported("a.c"));
+    }
+
+    private List<String> search(final IupacMotifMatcher matcher, final byte[] sequence, final int chunkSize) {
+        List<String> matches = new ArrayList<>();
+        // chunks are searched independently to check matches on chunk borders
+        for (int from = 0; from < sequence.length; from += chunkSize) {
+            matcher.search(sequence, from, Math.min(sequence.length, from + chunkSize), true, true,
+                (start, end, positive) -> matches.add(start + ":" + (positive ? "+" : "-")));
+        }
+        return matches;
+    }
+
+    private String format(final Motif motif) {
+        return motif.getStart() + ":" + (motif.getStrand() == StrandSerializable.POSITIVE ? "+" : "-");
+    }
+
+    private byte[] randomSequence() {
+        Random random = new Random(SEED);
+        byte[] sequence = new byte[SEQUENCE_LENGTH];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = (byte) NUCLEOTIDES.charAt(random.nextInt(NUCLEOTIDES.length()));
+        }
+        return sequence;
+    }
+}
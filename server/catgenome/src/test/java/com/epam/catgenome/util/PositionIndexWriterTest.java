@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 EPAM Systems
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.epam.catgenome.util;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.epam.catgenome.entity.bed.BedFile;
+import com.epam.catgenome.entity.reference.Chromosome;
+import com.epam.catgenome.manager.FileManager;
+import htsjdk.tribble.SimpleFeature;
+
+public class PositionIndexWriterTest {
+
+    private static final String CHROMOSOME = "A1";
+    private static final int CHROMOSOME_SIZE = 1000;
+    private static final int START = 10;
+    private static final int END = 20;
+
+    private File directory;
+    private File indexFile;
+    private FileManager fileManager;
+    private BedFile bedFile;
+    private Map<String, Chromosome> chromosomeMap;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("position").toFile();
+        indexFile = new File(directory, CHROMOSOME);
+        fileManager = Mockito.mock(FileManager.class);
+        Mockito.when(fileManager.makePositionIndexOutputStream(Matchers.any(), Matchers.eq(CHROMOSOME)))
+                .thenAnswer(invocation -> new DataOutputStream(new FileOutputStream(indexFile)));
+        Mockito.when(fileManager.getPositionIndexFile(Matchers.any(), Matchers.eq(CHROMOSOME)))
+                .thenAnswer(invocation -> indexFile.exists() ? indexFile : null);
+        bedFile = new BedFile();
+        bedFile.setId(1L);
+        chromosomeMap = Collections.singletonMap(CHROMOSOME, new Chromosome(CHROMOSOME, CHROMOSOME_SIZE));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void shouldKeepIndexOfFinishedWriter() throws IOException {
+        try (PositionIndexWriter writer = new PositionIndexWriter(fileManager, bedFile, chromosomeMap)) {
+            writer.add(new SimpleFeature(CHROMOSOME, START, END));
+            writer.add(new SimpleFeature(CHROMOSOME, END, END));
+            writer.finish();
+        }
+        Assert.assertTrue(indexFile.exists());
+        Assert.assertEquals(2L * 3 * Integer.BYTES, indexFile.length());
+    }
+
+    @Test
+    public void shouldDeleteIndexOfFailedWriter() throws IOException {
+        try (PositionIndexWriter writer = new PositionIndexWriter(fileManager, bedFile, chromosomeMap)) {
+            writer.add(new SimpleFeature(CHROMOSOME, START, END));
+        }
+        Assert.assertFalse(indexFile.exists());
+    }
+}
@@ -178,6 +178,10 @@ public class Application {
             aliases = {"--max_memory"})
     private int maxMemory = 0;
 
+    @Option(name = "-st", usage = "specifies number of threads to use when sorting (default: server setting)",
+            aliases = {"--sort_threads"})
+    private int sortThreads = 0;
+
     @Option(name = "-f", usage = "defines if a dataset will be force deleted",
             aliases = {"--force"})
     private boolean forceDeletion = false;
@@ -334,6 +338,7 @@ public class Application {
             options.setDoIndex(false);
         }
         options.setMaxMemory(maxMemory);
+        options.setSortThreads(sortThreads);
         options.setShowPermissions(showPermissions);
         options.setDatabaseType(databaseType);
         options.setDatabasePath(databasePath);
@@ -96,6 +96,8 @@ public class ApplicationOptions {
 
     private int maxMemory;
 
+    private int sortThreads;
+
     private boolean forceDeletion;
 
     private String prettyName;
@@ -62,6 +62,7 @@ public final class MessageConstants {
     public static final String ERROR_DATAITEM_FORMATS_NOT_FOUND = "Failed to load available DataItemFormats.";
     public static final String ERROR_FILES_NOT_REGISTERED = "Failed to register files: %s.";
     public static final String ERROR_NEGATIVE_MEMORY = "Max memory value must be positive";
+    public static final String ERROR_NEGATIVE_THREADS = "Threads number must be positive";
     public static final String ERROR_WRONG_PERMISSION = "Wrong permission pattern, use only w,r";
     public static final String ERROR_PERMISSIONS_NOT_FOUND = "Failed to find permissions for %s with ID %d";
     public static final String ERROR_FAILED_TO_LOAD_USER = "Failed to load current user";
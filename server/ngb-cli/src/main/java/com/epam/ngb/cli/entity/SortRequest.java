@@ -29,6 +29,7 @@ public class SortRequest implements RequestPayload {
     private String originalFilePath;
     private String sortedFilePath;
     private Integer maxMemory;
+    private Integer threads;
 
     public String getOriginalFilePath() {
         return originalFilePath;
@@ -53,4 +54,12 @@ public class SortRequest implements RequestPayload {
     public void setMaxMemory(Integer maxMemory) {
         this.maxMemory = maxMemory;
     }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
 }
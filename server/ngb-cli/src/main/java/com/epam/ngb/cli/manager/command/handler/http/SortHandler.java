@@ -65,6 +65,11 @@ public class SortHandler extends AbstractHTTPCommandHandler {
      */
     private int maxMemory;
 
+    /**
+     * Number of threads to use when sorting.
+     */
+    private int threads;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(SortHandler.class);
 
     /**
@@ -94,6 +99,12 @@ public class SortHandler extends AbstractHTTPCommandHandler {
             throw new IllegalArgumentException(MessageConstants.getMessage(MessageConstants.ERROR_NEGATIVE_MEMORY));
         }
 
+        threads = options.getSortThreads();
+
+        if (threads < 0) {
+            throw new IllegalArgumentException(MessageConstants.getMessage(MessageConstants.ERROR_NEGATIVE_THREADS));
+        }
+
         final BiologicalDataItemFormat format = BiologicalDataItemFormat.getByFilePath(
                 originalFilePath, getAdditionalFormats()
         );
@@ -143,6 +154,10 @@ public class SortHandler extends AbstractHTTPCommandHandler {
             sortRequest.setMaxMemory(maxMemory);
         }
 
+        if (threads > 0) {
+            sortRequest.setThreads(threads);
+        }
+
         return sortRequest;
     }
 